@@ -29,10 +29,18 @@ android {
             )
         }
     }
+    buildFeatures {
+        // BuildConfig.DEBUG sets the compiled-in log level of AppLog
+        buildConfig = true
+    }
     compileOptions {
         sourceCompatibility = JavaVersion.VERSION_11
         targetCompatibility = JavaVersion.VERSION_11
     }
+    // JVM unit tests run service classes that log; let the android.jar stubs return defaults
+    testOptions {
+        unitTests.isReturnDefaultValues = true
+    }
 }
 
 // Show detailed deprecation/unchecked warnings during Java compilation
@@ -40,6 +48,14 @@ tasks.withType<JavaCompile>().configureEach {
     options.compilerArgs.addAll(listOf("-Xlint:deprecation", "-Xlint:unchecked"))
 }
 
+// Pass -Dloadgen.* (scenario, seed, customers, ...) on to the checkout load test
+tasks.withType<Test>().configureEach {
+    System.getProperties().stringPropertyNames()
+        .filter { it.startsWith("loadgen.") }
+        .forEach { systemProperty(it, System.getProperty(it)) }
+    testLogging.showStandardStreams = System.getProperty("loadgen.scenario") != null
+}
+
 dependencies {
     implementation(libs.appcompat)
     implementation(libs.material)
@@ -58,6 +74,9 @@ dependencies {
     implementation("com.github.bumptech.glide:glide:4.16.0")
     implementation(libs.firebase.perf)
 
+    // Models and pure domain logic, with their generated Firestore codecs
+    implementation(project(":core"))
+
     testImplementation(libs.junit)
     androidTestImplementation(libs.ext.junit)
     androidTestImplementation(libs.espresso.core)
@@ -2,7 +2,6 @@ package com.group14.foodordering;
 
 import android.content.Intent;
 import android.os.Bundle;
-import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -19,7 +18,9 @@ import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.group14.foodordering.model.MenuItem;
+import com.group14.foodordering.model.MenuItemCodec;
 import com.group14.foodordering.service.FirebaseDatabaseService;
+import com.group14.foodordering.util.AppLog;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -56,7 +57,7 @@ public class DrinkSelectionActivity extends AppCompatActivity {
         // Get menu item from intent
         menuItem = (MenuItem) getIntent().getSerializableExtra(EXTRA_MENU_ITEM);
         if (menuItem == null) {
-            Log.e(TAG, "Menu item is null");
+            AppLog.e(TAG, "Menu item is null");
             Toast.makeText(this, "Error: Menu item not found", Toast.LENGTH_SHORT).show();
             finish();
             return;
@@ -108,18 +109,18 @@ public class DrinkSelectionActivity extends AppCompatActivity {
                         availableDrinks.clear();
                         if (!task.getResult().isEmpty()) {
                             for (com.google.firebase.firestore.QueryDocumentSnapshot document : task.getResult()) {
-                                MenuItem drink = document.toObject(MenuItem.class);
+                                MenuItem drink = MenuItemCodec.fromMap(document.getData());
                                 if (drink != null) {
                                     drink.setItemId(document.getId());
                                     availableDrinks.add(drink);
                                 }
                             }
-                            Log.d(TAG, "Loaded " + availableDrinks.size() + " drinks from database");
+                            AppLog.d(TAG, "Loaded {} drinks from database", availableDrinks.size());
                         }
                         
                         // If no drinks found with "drink", try "drinks" (plural)
                         if (availableDrinks.isEmpty()) {
-                            Log.d(TAG, "No drinks found with category 'drink', trying 'drinks'");
+                            AppLog.d(TAG, "No drinks found with category 'drink', trying 'drinks'");
                             dbService.getFirestore().collection("menuItems")
                                     .whereEqualTo("category", "drinks")
                                     .whereEqualTo("isAvailable", true)
@@ -127,17 +128,17 @@ public class DrinkSelectionActivity extends AppCompatActivity {
                                     .addOnCompleteListener(task2 -> {
                                         if (task2.isSuccessful() && !task2.getResult().isEmpty()) {
                                             for (com.google.firebase.firestore.QueryDocumentSnapshot document : task2.getResult()) {
-                                                MenuItem drink = document.toObject(MenuItem.class);
+                                                MenuItem drink = MenuItemCodec.fromMap(document.getData());
                                                 if (drink != null) {
                                                     drink.setItemId(document.getId());
                                                     availableDrinks.add(drink);
                                                 }
                                             }
-                                            Log.d(TAG, "Loaded " + availableDrinks.size() + " drinks from database (plural category)");
+                                            AppLog.d(TAG, "Loaded {} drinks from database (plural category)", availableDrinks.size());
                                         }
                                         
                                         if (availableDrinks.isEmpty()) {
-                                            Log.w(TAG, "No drinks found in Firestore, trying local JSON fallback");
+                                            AppLog.w(TAG, "No drinks found in Firestore, trying local JSON fallback");
                                             loadDrinksFromLocal();
                                         } else {
                                             updateDrinkList();
@@ -147,7 +148,7 @@ public class DrinkSelectionActivity extends AppCompatActivity {
                             updateDrinkList();
                         }
                     } else {
-                        Log.w(TAG, "Failed to load drinks from Firestore, trying local JSON fallback", 
+                        AppLog.w(TAG, "Failed to load drinks from Firestore, trying local JSON fallback", 
                                 task.getException());
                         loadDrinksFromLocal();
                     }
@@ -167,7 +168,7 @@ public class DrinkSelectionActivity extends AppCompatActivity {
             drinkAdapter.notifyDataSetChanged();
             updatePriceDisplay();
         } else {
-            Log.w(TAG, "No drinks available, trying local JSON fallback");
+            AppLog.w(TAG, "No drinks available, trying local JSON fallback");
             loadDrinksFromLocal();
         }
     }
@@ -208,7 +209,7 @@ public class DrinkSelectionActivity extends AppCompatActivity {
                 }
             }
             
-            Log.d(TAG, "Loaded " + availableDrinks.size() + " drinks from local JSON");
+            AppLog.d(TAG, "Loaded {} drinks from local JSON", availableDrinks.size());
             drinkAdapter.notifyDataSetChanged();
             
             // Select first drink by default
@@ -218,11 +219,11 @@ public class DrinkSelectionActivity extends AppCompatActivity {
                 drinkAdapter.notifyDataSetChanged();
                 updatePriceDisplay();
             } else {
-                Log.w(TAG, "No drinks found in local JSON either");
+                AppLog.w(TAG, "No drinks found in local JSON either");
                 Toast.makeText(this, "No drinks available. Please check the menu.", Toast.LENGTH_LONG).show();
             }
         } catch (Exception e) {
-            Log.e(TAG, "Failed to load drinks from local JSON", e);
+            AppLog.e(TAG, "Failed to load drinks from local JSON", e);
             Toast.makeText(this, "Failed to load drinks: " + e.getMessage(), Toast.LENGTH_LONG).show();
         }
     }
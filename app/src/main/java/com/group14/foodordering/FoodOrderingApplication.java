@@ -0,0 +1,33 @@
+package com.group14.foodordering;
+
+import android.app.Application;
+import android.widget.Toast;
+
+import com.group14.foodordering.service.FirebaseDatabaseService;
+import com.group14.foodordering.service.StartupWarmup;
+
+/**
+ * Application class
+ * Sets up process-wide services before any activity starts
+ */
+public class FoodOrderingApplication extends Application {
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        // Writes are accepted locally and sent when online; pending writes from the last run are sent again
+        FirebaseDatabaseService.getInstance().enableWriteOutbox(this);
+        // An accepted write the server later rejects is lost, so tell the user instead of failing silently
+        FirebaseDatabaseService.getInstance().addDroppedWriteListener((collection, documentId, e) ->
+                Toast.makeText(this, "A change could not be saved (" + collection + " " + documentId + "): "
+                        + (e != null ? e.getMessage() : "Unknown error"), Toast.LENGTH_LONG).show());
+        // Order history screens show the cached newest orders before the network answers
+        FirebaseDatabaseService.getInstance().enableOrderHistoryCache(this);
+        // Restaurant lists and names show from the cached directory, revalidated in the background
+        FirebaseDatabaseService.getInstance().enableRestaurantCache(this);
+        // Every database call is also a Performance trace, so slow operations show up per restaurant device
+        FirebaseDatabaseService.getInstance().enablePerformanceTraces();
+        // Fetch what the first screens need in parallel while the launcher draws
+        StartupWarmup.getInstance().start(this);
+    }
+}
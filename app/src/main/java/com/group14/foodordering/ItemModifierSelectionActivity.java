@@ -2,7 +2,6 @@ package com.group14.foodordering;
 
 import android.content.Intent;
 import android.os.Bundle;
-import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -21,9 +20,12 @@ import androidx.recyclerview.widget.RecyclerView;
 
 import com.google.firebase.firestore.QueryDocumentSnapshot;
 import com.group14.foodordering.model.ItemModifier;
+import com.group14.foodordering.model.ItemModifierCodec;
 import com.group14.foodordering.model.MenuItem;
+import com.group14.foodordering.model.MenuItemCodec;
 import com.group14.foodordering.model.ModifierOption;
 import com.group14.foodordering.service.FirebaseDatabaseService;
+import com.group14.foodordering.util.AppLog;
 
 import java.io.Serializable;
 import java.util.ArrayList;
@@ -68,7 +70,7 @@ public class ItemModifierSelectionActivity extends AppCompatActivity {
         // Get menu item from intent
         menuItem = (MenuItem) getIntent().getSerializableExtra(EXTRA_MENU_ITEM);
         if (menuItem == null) {
-            Log.e(TAG, "Menu item is null");
+            AppLog.e(TAG, "Menu item is null");
             Toast.makeText(this, "Error: Menu item not found", Toast.LENGTH_SHORT).show();
             finish();
             return;
@@ -141,7 +143,7 @@ public class ItemModifierSelectionActivity extends AppCompatActivity {
      */
     private void loadItemModifiers() {
         if (menuItem.getModifierIds() == null || menuItem.getModifierIds().isEmpty()) {
-            Log.w(TAG, "Menu item has no modifiers");
+            AppLog.w(TAG, "Menu item has no modifiers");
             // Don't show error if item has drinks - that's fine
             if (!menuItem.isHasDrink()) {
                 Toast.makeText(this, "No options available for this item", Toast.LENGTH_SHORT).show();
@@ -162,7 +164,7 @@ public class ItemModifierSelectionActivity extends AppCompatActivity {
                     .addOnCompleteListener(task -> {
                         loadedCount[0]++;
                         if (task.isSuccessful() && task.getResult() != null && task.getResult().exists()) {
-                            ItemModifier modifier = task.getResult().toObject(ItemModifier.class);
+                            ItemModifier modifier = ItemModifierCodec.fromMap(task.getResult().getData());
                             if (modifier != null) {
                                 modifier.setModifierId(task.getResult().getId());
                                 itemModifiers.add(modifier);
@@ -176,13 +178,13 @@ public class ItemModifierSelectionActivity extends AppCompatActivity {
                                 }
                             }
                         } else {
-                            Log.w(TAG, "Failed to load modifier: " + modifierId);
+                            AppLog.w(TAG, "Failed to load modifier: {}", modifierId);
                         }
 
                         // When all modifiers are loaded, update UI
                         if (loadedCount[0] == totalModifiers) {
                             if (itemModifiers.isEmpty()) {
-                                Log.w(TAG, "No modifiers found, trying local JSON fallback");
+                                AppLog.w(TAG, "No modifiers found, trying local JSON fallback");
                                 loadModifiersFromLocal();
                             } else {
                                 modifiersLabel.setVisibility(View.VISIBLE);
@@ -270,14 +272,14 @@ public class ItemModifierSelectionActivity extends AppCompatActivity {
                 }
             }
             
-            Log.d(TAG, "Loaded " + itemModifiers.size() + " modifiers from local JSON");
+            AppLog.d(TAG, "Loaded {} modifiers from local JSON", itemModifiers.size());
             if (!itemModifiers.isEmpty()) {
                 modifiersLabel.setVisibility(View.VISIBLE);
             }
             modifierAdapter.notifyDataSetChanged();
             updatePriceDisplay();
         } catch (Exception e) {
-            Log.e(TAG, "Failed to load modifiers from local JSON", e);
+            AppLog.e(TAG, "Failed to load modifiers from local JSON", e);
             Toast.makeText(this, "Failed to load modifiers", Toast.LENGTH_SHORT).show();
         }
     }
@@ -296,18 +298,18 @@ public class ItemModifierSelectionActivity extends AppCompatActivity {
                         availableDrinks.clear();
                         if (!task.getResult().isEmpty()) {
                             for (QueryDocumentSnapshot document : task.getResult()) {
-                                MenuItem drink = document.toObject(MenuItem.class);
+                                MenuItem drink = MenuItemCodec.fromMap(document.getData());
                                 if (drink != null) {
                                     drink.setItemId(document.getId());
                                     availableDrinks.add(drink);
                                 }
                             }
-                            Log.d(TAG, "Loaded " + availableDrinks.size() + " drinks from database");
+                            AppLog.d(TAG, "Loaded {} drinks from database", availableDrinks.size());
                         }
                         
                         // If no drinks found with "drink", try "drinks" (plural)
                         if (availableDrinks.isEmpty()) {
-                            Log.d(TAG, "No drinks found with category 'drink', trying 'drinks'");
+                            AppLog.d(TAG, "No drinks found with category 'drink', trying 'drinks'");
                             dbService.getFirestore().collection("menuItems")
                                     .whereEqualTo("category", "drinks")
                                     .whereEqualTo("isAvailable", true)
@@ -315,17 +317,17 @@ public class ItemModifierSelectionActivity extends AppCompatActivity {
                                     .addOnCompleteListener(task2 -> {
                                         if (task2.isSuccessful() && !task2.getResult().isEmpty()) {
                                             for (QueryDocumentSnapshot document : task2.getResult()) {
-                                                MenuItem drink = document.toObject(MenuItem.class);
+                                                MenuItem drink = MenuItemCodec.fromMap(document.getData());
                                                 if (drink != null) {
                                                     drink.setItemId(document.getId());
                                                     availableDrinks.add(drink);
                                                 }
                                             }
-                                            Log.d(TAG, "Loaded " + availableDrinks.size() + " drinks from database (plural category)");
+                                            AppLog.d(TAG, "Loaded {} drinks from database (plural category)", availableDrinks.size());
                                         }
                                         
                                         if (availableDrinks.isEmpty()) {
-                                            Log.w(TAG, "No drinks found in Firestore, trying local JSON fallback");
+                                            AppLog.w(TAG, "No drinks found in Firestore, trying local JSON fallback");
                                             loadDrinksFromLocal();
                                         } else {
                                             updateDrinkList();
@@ -335,7 +337,7 @@ public class ItemModifierSelectionActivity extends AppCompatActivity {
                             updateDrinkList();
                         }
                     } else {
-                        Log.w(TAG, "Failed to load drinks from Firestore, trying local JSON fallback", 
+                        AppLog.w(TAG, "Failed to load drinks from Firestore, trying local JSON fallback", 
                                 task.getException());
                         loadDrinksFromLocal();
                     }
@@ -359,7 +361,7 @@ public class ItemModifierSelectionActivity extends AppCompatActivity {
             }
             updatePriceDisplay();
         } else {
-            Log.w(TAG, "No drinks available, trying local JSON fallback");
+            AppLog.w(TAG, "No drinks available, trying local JSON fallback");
             loadDrinksFromLocal();
         }
     }
@@ -397,14 +399,14 @@ public class ItemModifierSelectionActivity extends AppCompatActivity {
             }
             
             if (availableDrinks.isEmpty()) {
-                Log.w(TAG, "No drinks found in local JSON");
+                AppLog.w(TAG, "No drinks found in local JSON");
                 return;
             }
             
-            Log.d(TAG, "Loaded " + availableDrinks.size() + " drinks from local JSON");
+            AppLog.d(TAG, "Loaded {} drinks from local JSON", availableDrinks.size());
             updateDrinkList();
         } catch (Exception e) {
-            Log.e(TAG, "Failed to load drinks from local JSON", e);
+            AppLog.e(TAG, "Failed to load drinks from local JSON", e);
             Toast.makeText(this, "Failed to load drinks", Toast.LENGTH_SHORT).show();
         }
     }
@@ -3,7 +3,6 @@ package com.group14.foodordering;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.Looper;
-import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -14,6 +13,7 @@ import android.widget.Toast;
 import androidx.annotation.NonNull;
 import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.cardview.widget.CardView;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 import androidx.swiperefreshlayout.widget.SwipeRefreshLayout;
@@ -23,17 +23,24 @@ import com.group14.foodordering.model.Order;
 import com.group14.foodordering.model.OrderItem;
 import com.group14.foodordering.model.Restaurant;
 import com.group14.foodordering.service.FirebaseDatabaseService;
+import com.group14.foodordering.service.OrderStatusUpdater;
+import com.group14.foodordering.service.RestaurantDirectory;
+import com.group14.foodordering.util.AdminRoleHelper;
 import com.group14.foodordering.util.AdminSessionHelper;
+import com.group14.foodordering.util.AppLog;
 import com.group14.foodordering.util.DataFilterService;
 import com.group14.foodordering.util.PermissionManager;
 
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
-import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
-import java.util.Map;
+import java.util.Set;
 
 /**
  * Kitchen View Activity
@@ -43,6 +50,8 @@ import java.util.Map;
 public class KitchenViewActivity extends AppCompatActivity {
 
     private static final String TAG = "KitchenViewActivity";
+    // Optional list of restaurant IDs for multi-site managers (ArrayList<String>)
+    public static final String EXTRA_RESTAURANT_IDS = "restaurant_ids";
     private FirebaseDatabaseService dbService;
     private RecyclerView ordersRecyclerView;
     private SwipeRefreshLayout swipeRefreshLayout;
@@ -52,7 +61,13 @@ public class KitchenViewActivity extends AppCompatActivity {
     private Handler timeUpdateHandler;
     private Runnable timeUpdateRunnable;
     private SimpleDateFormat timeFormat;
-    private Map<String, String> restaurantNameCache; // restaurantId -> restaurantName
+    private RestaurantDirectory restaurantDirectory;
+    private RestaurantDirectory.Listener directoryListener;
+    private List<String> kitchenRestaurantIds; // null means all restaurants
+    private OrderStatusUpdater statusUpdater;
+    private final Set<String> selectedOrderIds = new LinkedHashSet<>(); // bulk selection, in tap order
+    private View bulkActionBar;
+    private TextView bulkSelectionTextView;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -75,14 +90,53 @@ public class KitchenViewActivity extends AppCompatActivity {
 
         dbService = FirebaseDatabaseService.getInstance();
         pendingOrders = new ArrayList<>();
-        restaurantNameCache = new HashMap<>();
+        restaurantDirectory = dbService.getRestaurantDirectory();
         timeFormat = new SimpleDateFormat("HH:mm", Locale.getDefault());
         timeUpdateHandler = new Handler(Looper.getMainLooper());
+        statusUpdater = new OrderStatusUpdater(
+                // Reported once the server has the status, so unconfirmed tickets stay marked until then
+                (orderIds, status, callback) -> dbService.updateOrderStatuses(orderIds, status, true, callback),
+                timeUpdateHandler::postDelayed,
+                new OrderStatusUpdater.Listener() {
+                    @Override
+                    public void onStatusesChanged() {
+                        showOrders();
+                    }
+
+                    @Override
+                    public void onRollback(String orderId, String status, Exception e) {
+                        Toast.makeText(KitchenViewActivity.this, "Update failed: " + e.getMessage(), 
+                                Toast.LENGTH_SHORT).show();
+                    }
+                },
+                new HashSet<>(Arrays.asList("pending", "preparing")));
+
+        kitchenRestaurantIds = resolveKitchenRestaurantIds();
 
         setupViews();
         setupRealTimeListener();
     }
 
+    /**
+     * Resolve which restaurants this kitchen feed is scoped to
+     * Uses the intent extra for multi-site managers, otherwise the restaurant the device is bound to
+     */
+    private List<String> resolveKitchenRestaurantIds() {
+        ArrayList<String> requestedIds = getIntent().getStringArrayListExtra(EXTRA_RESTAURANT_IDS);
+        if (requestedIds != null && !requestedIds.isEmpty()) {
+            List<String> allowedIds = new ArrayList<>();
+            for (String restaurantId : requestedIds) {
+                if (AdminRoleHelper.hasAccessToRestaurant(this, restaurantId)) {
+                    allowedIds.add(restaurantId);
+                }
+            }
+            if (!allowedIds.isEmpty()) {
+                return allowedIds;
+            }
+        }
+        return AdminRoleHelper.getKitchenRestaurantIds(this);
+    }
+
     private void setupViews() {
         ordersRecyclerView = findViewById(R.id.ordersRecyclerView);
         swipeRefreshLayout = findViewById(R.id.swipeRefreshLayout);
@@ -90,6 +144,26 @@ public class KitchenViewActivity extends AppCompatActivity {
         ordersRecyclerView.setLayoutManager(new LinearLayoutManager(this));
         ordersAdapter = new OrdersAdapter();
         ordersRecyclerView.setAdapter(ordersAdapter);
+        // Restaurant names come from the directory; redraw the cards when they change
+        directoryListener = new RestaurantDirectory.Listener() {
+            @Override
+            public void onRestaurantsChanged(List<Restaurant> restaurants) {
+                ordersAdapter.notifyDataSetChanged();
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                AppLog.e(TAG, "Failed to load restaurant names", e);
+            }
+        };
+        restaurantDirectory.addListener(directoryListener);
+
+        // Bulk actions for the selected tickets
+        bulkActionBar = findViewById(R.id.bulkActionBar);
+        bulkSelectionTextView = findViewById(R.id.bulkSelectionTextView);
+        findViewById(R.id.bulkPreparingButton).setOnClickListener(v -> updateSelectedOrdersStatus("preparing"));
+        findViewById(R.id.bulkReadyButton).setOnClickListener(v -> updateSelectedOrdersStatus("ready"));
+        findViewById(R.id.bulkClearButton).setOnClickListener(v -> clearSelection());
 
         // Setup swipe to refresh
         if (swipeRefreshLayout != null) {
@@ -104,18 +178,17 @@ public class KitchenViewActivity extends AppCompatActivity {
      * Setup real-time listener for automatic updates
      */
     private void setupRealTimeListener() {
-        ordersListener = dbService.listenToPendingOrders(new FirebaseDatabaseService.OrdersCallback() {
+        AppLog.d(TAG, "Kitchen feed scoped to restaurants: {}", (kitchenRestaurantIds != null ? kitchenRestaurantIds : "all"));
+        ordersListener = dbService.listenToPendingOrdersByRestaurants(kitchenRestaurantIds, new FirebaseDatabaseService.OrdersCallback() {
             @Override
             public void onSuccess(List<Order> orders) {
                 // Filter orders by admin's restaurant access
                 List<Order> filteredOrders = DataFilterService.filterOrdersByRestaurantAccess(
                     KitchenViewActivity.this, orders);
                 
-                pendingOrders.clear();
-                pendingOrders.addAll(filteredOrders);
-                ordersAdapter.notifyDataSetChanged();
-                Log.d(TAG, "Orders updated via real-time listener, total: " + orders.size() + 
-                    ", filtered: " + filteredOrders.size());
+                statusUpdater.setSnapshot(filteredOrders);
+                showOrders();
+                AppLog.d(TAG, "Orders updated via real-time listener, total: {}, filtered: {}", orders.size(), filteredOrders.size());
                 
                 if (swipeRefreshLayout != null) {
                     swipeRefreshLayout.setRefreshing(false);
@@ -124,7 +197,7 @@ public class KitchenViewActivity extends AppCompatActivity {
 
             @Override
             public void onFailure(Exception e) {
-                Log.e(TAG, "Real-time listener error", e);
+                AppLog.e(TAG, "Real-time listener error", e);
                 Toast.makeText(KitchenViewActivity.this, "Connection error: " + e.getMessage(), 
                         Toast.LENGTH_SHORT).show();
                 if (swipeRefreshLayout != null) {
@@ -134,6 +207,69 @@ public class KitchenViewActivity extends AppCompatActivity {
         });
     }
 
+    /**
+     * Show the latest snapshot with status changes that are not confirmed yet applied
+     */
+    private void showOrders() {
+        pendingOrders.clear();
+        pendingOrders.addAll(statusUpdater.getVisibleOrders());
+        // Tickets that left the feed cannot stay selected
+        Set<String> visibleIds = new HashSet<>();
+        for (Order order : pendingOrders) {
+            visibleIds.add(order.getOrderId());
+        }
+        for (Iterator<String> it = selectedOrderIds.iterator(); it.hasNext(); ) {
+            if (!visibleIds.contains(it.next())) {
+                it.remove();
+            }
+        }
+        updateBulkActionBar();
+        ordersAdapter.notifyDataSetChanged();
+    }
+
+    /**
+     * Select or unselect a ticket for a bulk action
+     */
+    private void toggleSelection(Order order) {
+        String orderId = order.getOrderId();
+        if (orderId == null) {
+            return;
+        }
+        if (!selectedOrderIds.remove(orderId)) {
+            selectedOrderIds.add(orderId);
+        }
+        updateBulkActionBar();
+        ordersAdapter.notifyDataSetChanged();
+    }
+
+    private void clearSelection() {
+        selectedOrderIds.clear();
+        updateBulkActionBar();
+        ordersAdapter.notifyDataSetChanged();
+    }
+
+    private void updateBulkActionBar() {
+        bulkActionBar.setVisibility(selectedOrderIds.isEmpty() ? View.GONE : View.VISIBLE);
+        bulkSelectionTextView.setText(selectedOrderIds.size() + " selected");
+    }
+
+    /**
+     * Move all selected tickets to a status; they are written together as one batch
+     */
+    private void updateSelectedOrdersStatus(String newStatus) {
+        if (!PermissionManager.canUpdateOrders(this)) {
+            Toast.makeText(this, "Permission denied: You need order update permission", 
+                Toast.LENGTH_SHORT).show();
+            return;
+        }
+
+        List<String> orderIds = new ArrayList<>(selectedOrderIds);
+        selectedOrderIds.clear();
+        updateBulkActionBar();
+        statusUpdater.request(orderIds, newStatus);
+        AppLog.d(TAG, "Bulk status change requested: {} orders -> {}", orderIds.size(), newStatus);
+    }
+
     /**
      * Show order detail modal dialog
      * GUI #19: Ticket Detail & Update Modal
@@ -263,6 +399,7 @@ public class KitchenViewActivity extends AppCompatActivity {
 
     /**
      * Update order status
+     * The ticket moves at once; the write follows (see OrderStatusUpdater)
      */
     private void updateOrderStatus(String orderId, String newStatus) {
         // Check permission before updating
@@ -272,21 +409,7 @@ public class KitchenViewActivity extends AppCompatActivity {
             return;
         }
 
-        dbService.updateOrderStatus(orderId, newStatus, new FirebaseDatabaseService.DatabaseCallback() {
-            @Override
-            public void onSuccess(String documentId) {
-                Log.d(TAG, "Order status updated successfully: " + documentId + " -> " + newStatus);
-                Toast.makeText(KitchenViewActivity.this, "Order status updated", Toast.LENGTH_SHORT).show();
-                // Real-time listener will automatically refresh the list
-            }
-
-            @Override
-            public void onFailure(Exception e) {
-                Log.e(TAG, "Failed to update order status", e);
-                Toast.makeText(KitchenViewActivity.this, "Update failed: " + e.getMessage(), 
-                        Toast.LENGTH_SHORT).show();
-            }
-        });
+        statusUpdater.request(orderId, newStatus);
     }
 
     /**
@@ -353,6 +476,9 @@ public class KitchenViewActivity extends AppCompatActivity {
         if (ordersListener != null) {
             ordersListener.remove();
         }
+        if (directoryListener != null) {
+            restaurantDirectory.removeListener(directoryListener);
+        }
     }
 
     /**
@@ -392,6 +518,7 @@ public class KitchenViewActivity extends AppCompatActivity {
             Button preparingButton;
             Button readyButton;
             View statusIndicator;
+            int defaultCardColor;
 
             OrderViewHolder(@NonNull View itemView) {
                 super(itemView);
@@ -407,6 +534,7 @@ public class KitchenViewActivity extends AppCompatActivity {
                 preparingButton = itemView.findViewById(R.id.preparingButton);
                 readyButton = itemView.findViewById(R.id.readyButton);
                 statusIndicator = itemView.findViewById(R.id.statusIndicator);
+                defaultCardColor = ((CardView) itemView).getCardBackgroundColor().getDefaultColor();
             }
 
             void bind(Order order) {
@@ -443,31 +571,13 @@ public class KitchenViewActivity extends AppCompatActivity {
                 if (restaurantNameTextView != null) {
                     String restaurantId = order.getRestaurantId();
                     if (restaurantId != null && !restaurantId.isEmpty()) {
-                        String restaurantName = restaurantNameCache.get(restaurantId);
+                        // Unknown names show once the directory has loaded them
+                        String restaurantName = restaurantDirectory.getRestaurantName(restaurantId);
                         if (restaurantName != null) {
                             restaurantNameTextView.setText(restaurantName);
                             restaurantNameTextView.setVisibility(View.VISIBLE);
                         } else {
-                            // Fetch restaurant name
-                            dbService.getRestaurantById(restaurantId, new FirebaseDatabaseService.RestaurantCallback() {
-                                @Override
-                                public void onSuccess(Restaurant restaurant) {
-                                    if (restaurant != null && restaurant.getRestaurantName() != null) {
-                                        String name = restaurant.getRestaurantName();
-                                        restaurantNameCache.put(restaurantId, name);
-                                        restaurantNameTextView.setText(name);
-                                        restaurantNameTextView.setVisibility(View.VISIBLE);
-                                    } else {
-                                        restaurantNameTextView.setVisibility(View.GONE);
-                                    }
-                                }
-
-                                @Override
-                                public void onFailure(Exception e) {
-                                    Log.e(TAG, "Failed to fetch restaurant name", e);
-                                    restaurantNameTextView.setVisibility(View.GONE);
-                                }
-                            });
+                            restaurantNameTextView.setVisibility(View.GONE);
                         }
                     } else {
                         restaurantNameTextView.setVisibility(View.GONE);
@@ -477,6 +587,12 @@ public class KitchenViewActivity extends AppCompatActivity {
                 // Set status badge with color
                 if (statusBadge != null) {
                     String statusDisplay = status.substring(0, 1).toUpperCase() + status.substring(1);
+                    // Pending: not confirmed by the server yet; rolled back: the last change failed
+                    if (statusUpdater.isPending(orderId)) {
+                        statusDisplay += " \u2026";
+                    } else if (statusUpdater.isRolledBack(orderId)) {
+                        statusDisplay += " (update failed)";
+                    }
                     statusBadge.setText(statusDisplay);
                     
                     // Set status color
@@ -544,8 +660,20 @@ public class KitchenViewActivity extends AppCompatActivity {
                 
                 totalTextView.setText(String.format("$%.2f", order.getTotal()));
 
-                // Set item click listener to show detail modal
-                itemView.setOnClickListener(v -> showOrderDetailModal(order));
+                // Tap shows the detail modal, or toggles the selection while selecting; long-press starts selecting
+                boolean selected = selectedOrderIds.contains(orderId);
+                ((CardView) itemView).setCardBackgroundColor(selected ? 0xFFE3F2FD : defaultCardColor);
+                itemView.setOnClickListener(v -> {
+                    if (selectedOrderIds.isEmpty()) {
+                        showOrderDetailModal(order);
+                    } else {
+                        toggleSelection(order);
+                    }
+                });
+                itemView.setOnLongClickListener(v -> {
+                    toggleSelection(order);
+                    return true;
+                });
 
                 // Set buttons based on current status
                 if ("pending".equals(status)) {
@@ -3,7 +3,6 @@ package com.group14.foodordering;
 import android.content.Intent;
 import android.os.Bundle;
 import android.text.InputType;
-import android.util.Log;
 import android.widget.EditText;
 import android.widget.TextView;
 import android.widget.Toast;
@@ -14,6 +13,7 @@ import androidx.appcompat.app.AppCompatActivity;
 import com.group14.foodordering.model.User;
 import com.group14.foodordering.service.FirebaseDatabaseService;
 import com.group14.foodordering.util.AdminSessionHelper;
+import com.group14.foodordering.util.AppLog;
 import com.group14.foodordering.util.CustomerSessionHelper;
 import java.util.Locale;
 
@@ -136,7 +136,7 @@ public class LoginActivity extends AppCompatActivity {
 
             @Override
             public void onFailure(Exception e) {
-                Log.e(TAG, "Admin login failed", e);
+                AppLog.e(TAG, "Admin login failed", e);
                 String errorMessage = e.getMessage();
                 if (errorMessage == null || errorMessage.isEmpty()) {
                     errorMessage = "User not found";
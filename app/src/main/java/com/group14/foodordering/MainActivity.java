@@ -3,7 +3,6 @@ package com.group14.foodordering;
 import android.content.Intent;
 import android.os.Bundle;
 import android.text.InputType;
-import android.util.Log;
 import android.view.View;
 import android.widget.AdapterView;
 import android.widget.ArrayAdapter;
@@ -24,8 +23,11 @@ import com.google.firebase.FirebaseApp;
 import com.group14.foodordering.model.Admin;
 import com.group14.foodordering.model.Restaurant;
 import com.group14.foodordering.service.FirebaseDatabaseService;
+import com.group14.foodordering.service.RestaurantDirectory;
+import com.group14.foodordering.service.StartupWarmup;
 import com.group14.foodordering.util.AdminRoleHelper;
 import com.group14.foodordering.util.AdminSessionHelper;
+import com.group14.foodordering.util.AppLog;
 import com.group14.foodordering.util.PermissionManager;
 import com.group14.foodordering.util.RestaurantPreferenceHelper;
 
@@ -75,17 +77,16 @@ public class MainActivity extends AppCompatActivity {
             return insets;
         });
         
-        // Test Firebase connection
-        testFirebaseConnection();
+        // Not needed for the first frame
+        StartupWarmup.whenIdle(this::testFirebaseConnection);
         
         // Restore admin session if exists
         restoreAdminSession();
         
         // Setup navigation buttons
         setupButtons();
-        // Setup restaurant selector
+        // Setup restaurant selector; button visibility is set in onResume
         setupRestaurantSelector();
-        updateAdminButtonsVisibility();
     }
 
     /**
@@ -94,7 +95,7 @@ public class MainActivity extends AppCompatActivity {
     private void restoreAdminSession() {
         if (AdminSessionHelper.isAdminLoggedIn(this)) {
             String adminName = AdminSessionHelper.getAdminName(this);
-            Log.d(TAG, "Admin session restored: " + adminName);
+            AppLog.d(TAG, "Admin session restored: {}", adminName);
         }
     }
 
@@ -114,6 +115,21 @@ public class MainActivity extends AppCompatActivity {
                     Toast.LENGTH_SHORT).show();
             }
         });
+        // Long press: multi-site managers can watch all of their restaurants at once
+        btnKitchenView.setOnLongClickListener(v -> {
+            if (!AdminSessionHelper.isAdminLoggedIn(this) || !PermissionManager.canViewOrders(this)) {
+                return false;
+            }
+            List<String> restaurantIds = AdminRoleHelper.getAccessibleRestaurantIds(this);
+            if (restaurantIds == null || restaurantIds.size() < 2) {
+                return false;
+            }
+            Intent intent = new Intent(MainActivity.this, KitchenViewActivity.class);
+            intent.putStringArrayListExtra(KitchenViewActivity.EXTRA_RESTAURANT_IDS,
+                new ArrayList<>(restaurantIds));
+            startActivity(intent);
+            return true;
+        });
 
         btnTableOrder = findViewById(R.id.btnTableOrder);
         btnTableOrder.setOnClickListener(v -> {
@@ -196,7 +212,7 @@ public class MainActivity extends AppCompatActivity {
                         selectedRestaurant.getRestaurantId());
                     AdminSessionHelper.setAdminSelectedRestaurantName(MainActivity.this, 
                         selectedRestaurant.getRestaurantName());
-                    Log.d(TAG, "Admin selected restaurant: " + selectedRestaurant.getRestaurantName());
+                    AppLog.d(TAG, "Admin selected restaurant: {}", selectedRestaurant.getRestaurantName());
                     Toast.makeText(MainActivity.this, 
                         "Selected: " + selectedRestaurant.getRestaurantName(), 
                         Toast.LENGTH_SHORT).show();
@@ -220,21 +236,18 @@ public class MainActivity extends AppCompatActivity {
         
         List<String> accessibleRestaurantIds = AdminRoleHelper.getAccessibleRestaurantIds(this);
         
-        dbService.getAllRestaurants(new FirebaseDatabaseService.RestaurantsCallback() {
+        // Served from the restaurant directory at once; it revalidates in the background when stale
+        dbService.getRestaurantDirectory().getRestaurants(new FirebaseDatabaseService.RestaurantsCallback() {
             @Override
-            public void onSuccess(List<Restaurant> allRestaurants) {
+            public void onSuccess(List<Restaurant> restaurants) {
+                if (isDestroyed()) {
+                    return;
+                }
                 accessibleRestaurants.clear();
-                
-                // Filter restaurants based on admin access
-                if (accessibleRestaurantIds == null) {
-                    // ADMIN: can access all restaurants
-                    accessibleRestaurants.addAll(allRestaurants);
-                } else {
-                    // MANAGER/STAFF: filter by accessible restaurant IDs
-                    for (Restaurant restaurant : allRestaurants) {
-                        if (accessibleRestaurantIds.contains(restaurant.getRestaurantId())) {
-                            accessibleRestaurants.add(restaurant);
-                        }
+                for (Restaurant restaurant : restaurants) {
+                    // ADMIN can access all restaurants; MANAGER/STAFF only their own
+                    if (accessibleRestaurantIds == null || accessibleRestaurantIds.contains(restaurant.getRestaurantId())) {
+                        accessibleRestaurants.add(restaurant);
                     }
                 }
                 
@@ -269,10 +282,13 @@ public class MainActivity extends AppCompatActivity {
                     isInitializingSpinner = false;
                 }
             }
-            
+
             @Override
             public void onFailure(Exception e) {
-                Log.e(TAG, "Failed to load restaurants for admin", e);
+                if (isDestroyed()) {
+                    return;
+                }
+                AppLog.e(TAG, "Failed to load restaurants for admin", e);
                 Toast.makeText(MainActivity.this, 
                     "Failed to load restaurants: " + e.getMessage(), 
                     Toast.LENGTH_SHORT).show();
@@ -280,7 +296,6 @@ public class MainActivity extends AppCompatActivity {
         });
     }
     
-    
     /**
      * Handle logout action
      */
@@ -372,7 +387,7 @@ public class MainActivity extends AppCompatActivity {
 
             @Override
             public void onFailure(Exception e) {
-                Log.e(TAG, "Admin login failed", e);
+                AppLog.e(TAG, "Admin login failed", e);
                 Toast.makeText(MainActivity.this, "Admin login failed: " + e.getMessage(), 
                         Toast.LENGTH_SHORT).show();
             }
@@ -435,23 +450,7 @@ public class MainActivity extends AppCompatActivity {
                 if (AdminRoleHelper.ROLE_STAFF.equals(role)) {
                     String staffRestaurantId = AdminRoleHelper.getStaffRestaurantId(this);
                     if (staffRestaurantId != null) {
-                        // Load restaurant name and save it
-                        dbService.getRestaurantById(staffRestaurantId, new FirebaseDatabaseService.RestaurantCallback() {
-                            @Override
-                            public void onSuccess(Restaurant restaurant) {
-                                if (restaurant != null) {
-                                    AdminSessionHelper.setAdminSelectedRestaurantId(MainActivity.this, 
-                                        restaurant.getRestaurantId());
-                                    AdminSessionHelper.setAdminSelectedRestaurantName(MainActivity.this, 
-                                        restaurant.getRestaurantName());
-                                }
-                            }
-                            
-                            @Override
-                            public void onFailure(Exception e) {
-                                Log.e(TAG, "Failed to load staff restaurant", e);
-                            }
-                        });
+                        selectStaffRestaurant(staffRestaurantId);
                     }
                 }
             }
@@ -469,6 +468,30 @@ public class MainActivity extends AppCompatActivity {
         }
     }
 
+    /**
+     * Save the staff restaurant and its name from the restaurant directory
+     */
+    private void selectStaffRestaurant(String staffRestaurantId) {
+        RestaurantDirectory directory = dbService.getRestaurantDirectory();
+        directory.getRestaurants(new FirebaseDatabaseService.RestaurantsCallback() {
+            @Override
+            public void onSuccess(List<Restaurant> restaurants) {
+                Restaurant restaurant = directory.getRestaurant(staffRestaurantId);
+                if (restaurant != null) {
+                    AdminSessionHelper.setAdminSelectedRestaurantId(MainActivity.this, 
+                        restaurant.getRestaurantId());
+                    AdminSessionHelper.setAdminSelectedRestaurantName(MainActivity.this, 
+                        restaurant.getRestaurantName());
+                }
+            }
+            
+            @Override
+            public void onFailure(Exception e) {
+                AppLog.e(TAG, "Failed to load staff restaurant", e);
+            }
+        });
+    }
+
     @Override
     protected void onResume() {
         super.onResume();
@@ -483,12 +506,12 @@ public class MainActivity extends AppCompatActivity {
         try {
             if (FirebaseApp.getApps(this).isEmpty()) {
                 FirebaseApp.initializeApp(this);
-                Log.d(TAG, "Firebase initialized successfully");
+                AppLog.d(TAG, "Firebase initialized successfully");
             } else {
-                Log.d(TAG, "Firebase already initialized");
+                AppLog.d(TAG, "Firebase already initialized");
             }
         } catch (Exception e) {
-            Log.e(TAG, "Firebase initialization failed: " + e.getMessage(), e);
+            AppLog.e(TAG, "Firebase initialization failed: {}", e.getMessage(), e);
             Toast.makeText(this, "Firebase initialization failed, please check google-services.json file", 
                     Toast.LENGTH_LONG).show();
         }
@@ -499,10 +522,10 @@ public class MainActivity extends AppCompatActivity {
      */
     private void testFirebaseConnection() {
         try {
-            Log.d(TAG, "Firebase Firestore instance created successfully");
+            AppLog.d(TAG, "Firebase Firestore instance created successfully");
             Toast.makeText(this, "Firebase connected successfully", Toast.LENGTH_SHORT).show();
         } catch (Exception e) {
-            Log.e(TAG, "Firebase connection test failed: " + e.getMessage(), e);
+            AppLog.e(TAG, "Firebase connection test failed: {}", e.getMessage(), e);
             Toast.makeText(this, "Firebase connection failed: " + e.getMessage(), 
                     Toast.LENGTH_LONG).show();
         }
@@ -3,7 +3,6 @@ package com.group14.foodordering;
 import android.content.Intent;
 import android.os.Bundle;
 import android.text.InputType;
-import android.util.Log;
 import android.view.View;
 import android.widget.Button;
 import android.widget.EditText;
@@ -18,12 +17,14 @@ import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.google.android.material.bottomnavigation.BottomNavigationView;
-import com.google.firebase.firestore.QueryDocumentSnapshot;
 import com.group14.foodordering.model.Order;
 import com.group14.foodordering.model.User;
 import com.group14.foodordering.service.FirebaseDatabaseService;
+import com.group14.foodordering.service.OrderHistoryRepository;
 import com.group14.foodordering.util.AdminSessionHelper;
+import com.group14.foodordering.util.AppLog;
 import com.group14.foodordering.util.CustomerSessionHelper;
+import com.group14.foodordering.util.DebouncedListUpdater;
 import com.group14.foodordering.util.DeviceIdHelper;
 
 import java.util.ArrayList;
@@ -45,6 +46,11 @@ public class MemberActivity extends AppCompatActivity {
     private BottomNavigationView bottomNavigationView;
     private OrderHistoryAdapter orderHistoryAdapter;
     private List<Order> orderHistory;
+    private DebouncedListUpdater<Order> orderHistoryUpdater;
+    private OrderHistoryRepository orderHistoryRepository; // of the logged-in customer, while shown
+    private OrderHistoryRepository.Listener orderHistoryListener;
+    private static final int MAX_ORDER_HISTORY_ROWS = 20;
+    private static final long ORDER_HISTORY_DEBOUNCE_MS = 300;
     private String deviceId;
     private AlertDialog loginDialog;
     private Button logoutButton;
@@ -93,6 +99,8 @@ public class MemberActivity extends AppCompatActivity {
         orderHistoryRecyclerView.setLayoutManager(new LinearLayoutManager(this));
         orderHistoryAdapter = new OrderHistoryAdapter(orderHistory);
         orderHistoryRecyclerView.setAdapter(orderHistoryAdapter);
+        orderHistoryUpdater = new DebouncedListUpdater<>(orderHistory, orderHistoryAdapter,
+                OrderHistoryRepository.ORDER_DIFF, ORDER_HISTORY_DEBOUNCE_MS, null);
 
         // Display device ID as member ID
         memberIdTextView.setText("Member ID: " + deviceId);
@@ -238,7 +246,7 @@ public class MemberActivity extends AppCompatActivity {
 
             @Override
             public void onFailure(Exception e) {
-                Log.e(TAG, "Admin login failed", e);
+                AppLog.e(TAG, "Admin login failed", e);
                 String errorMessage = e.getMessage();
                 if (errorMessage == null || errorMessage.isEmpty()) {
                     errorMessage = "User not found";
@@ -280,7 +288,7 @@ public class MemberActivity extends AppCompatActivity {
                         memberIdTextView.setText("Member ID: " + user.getUserId());
                     }
                     
-                    Log.d(TAG, "Member points loaded: " + points);
+                    AppLog.d(TAG, "Member points loaded: {}", points);
                 } else {
                     // User doesn't exist, use session data
                     int points = CustomerSessionHelper.getUserPoints(MemberActivity.this);
@@ -291,13 +299,13 @@ public class MemberActivity extends AppCompatActivity {
                     } else {
                         memberIdTextView.setText("Member ID: " + userId);
                     }
-                    Log.d(TAG, "User not found in Firebase, using session data");
+                    AppLog.d(TAG, "User not found in Firebase, using session data");
                 }
             }
 
             @Override
             public void onFailure(Exception e) {
-                Log.e(TAG, "Failed to load member info", e);
+                AppLog.e(TAG, "Failed to load member info", e);
                 // Use session data as fallback
                 int points = CustomerSessionHelper.getUserPoints(MemberActivity.this);
                 pointsTextView.setText(points + " Points");
@@ -315,41 +323,62 @@ public class MemberActivity extends AppCompatActivity {
     }
 
     /**
-     * Load order history for this customer
+     * Show the order history of this customer
+     * Shares the customer's OrderHistoryRepository: recent orders stream live, cached ones show at once
      */
     private void loadOrderHistory() {
         // Get logged-in user ID
         String userId = CustomerSessionHelper.getUserId(this);
+        if (orderHistoryRepository != null && orderHistoryRepository.getUserId().equals(userId)) {
+            return; // already showing this customer's history
+        }
+        stopOrderHistory();
         if (userId == null) {
             // Not logged in, no order history
-            orderHistory.clear();
-            orderHistoryAdapter.notifyDataSetChanged();
+            orderHistoryUpdater.submit(new ArrayList<>());
             return;
         }
         
-        dbService.getFirestore()
-                .collection("orders")
-                .whereEqualTo("userId", userId)
-                .orderBy("createdAt", com.google.firebase.firestore.Query.Direction.DESCENDING)
-                .limit(20)
-                .get()
-                .addOnSuccessListener(queryDocumentSnapshots -> {
-                    orderHistory.clear();
-                    for (QueryDocumentSnapshot document : queryDocumentSnapshots) {
-                        try {
-                            Order order = document.toObject(Order.class);
-                            orderHistory.add(order);
-                        } catch (Exception e) {
-                            Log.e(TAG, "Error parsing order: " + document.getId(), e);
-                        }
-                    }
-                    orderHistoryAdapter.notifyDataSetChanged();
-                    Log.d(TAG, "Loaded " + orderHistory.size() + " orders");
-                })
-                .addOnFailureListener(e -> {
-                    Log.e(TAG, "Failed to load order history", e);
-                    Toast.makeText(this, "Failed to load order history", Toast.LENGTH_SHORT).show();
-                });
+        orderHistoryRepository = dbService.getOrderHistory(userId);
+        orderHistoryListener = new OrderHistoryRepository.Listener() {
+            @Override
+            public void onOrdersChanged(List<Order> orders) {
+                orderHistoryUpdater.submit(orders.subList(0, Math.min(orders.size(), MAX_ORDER_HISTORY_ROWS)));
+                AppLog.d(TAG, "Order history updated: {} orders", orders.size());
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                AppLog.e(TAG, "Failed to load order history", e);
+                Toast.makeText(MemberActivity.this, "Failed to load order history", Toast.LENGTH_SHORT).show();
+            }
+        };
+        orderHistoryRepository.addListener(orderHistoryListener);
+        orderHistoryRepository.start();
+    }
+
+    private void stopOrderHistory() {
+        if (orderHistoryRepository != null) {
+            orderHistoryRepository.removeListener(orderHistoryListener);
+            orderHistoryRepository.stop();
+            orderHistoryRepository = null;
+            orderHistoryListener = null;
+        }
+    }
+
+    @Override
+    protected void onPause() {
+        super.onPause();
+        // Stop streaming while not visible; onResume binds again
+        stopOrderHistory();
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        if (orderHistoryUpdater != null) {
+            orderHistoryUpdater.shutdown();
+        }
     }
 
     @Override
@@ -2,7 +2,6 @@ package com.group14.foodordering;
 
 import android.content.Intent;
 import android.os.Bundle;
-import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -14,18 +13,28 @@ import android.widget.Toast;
 
 import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.lifecycle.Lifecycle;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.bumptech.glide.Glide;
+import com.google.android.gms.tasks.CancellationToken;
+import com.google.android.gms.tasks.CancellationTokenSource;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
 import com.google.android.material.bottomnavigation.BottomNavigationView;
-import com.google.firebase.firestore.QueryDocumentSnapshot;
+import com.google.firebase.firestore.ListenerRegistration;
+import com.group14.foodordering.core.MenuFilter;
 import com.group14.foodordering.model.MenuCategory;
 import com.group14.foodordering.model.MenuItem;
 import com.group14.foodordering.model.Order;
 import com.group14.foodordering.model.OrderItem;
 import com.group14.foodordering.model.User;
+import com.group14.foodordering.service.DbTasks;
 import com.group14.foodordering.service.FirebaseDatabaseService;
+import com.group14.foodordering.service.MenuCatalog;
+import com.group14.foodordering.service.StartupWarmup;
+import com.group14.foodordering.util.AppLog;
 import com.group14.foodordering.util.CustomerSessionHelper;
 import com.group14.foodordering.util.DeviceIdHelper;
 import com.group14.foodordering.util.RestaurantPreferenceHelper;
@@ -34,8 +43,11 @@ import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.UUID;
 
 /**
@@ -68,6 +80,17 @@ public class MenuActivity extends AppCompatActivity {
     private List<MenuCategory> menuCategories;
     private Map<String, Button> categoryButtons;
     private BottomNavigationView bottomNavigationView;
+    private static final long ORDER_NUMBER_TIMEOUT_MS = 15000;
+    // Cancels in-flight database work when the activity is destroyed
+    private final CancellationTokenSource lifecycleCancellation = new CancellationTokenSource();
+    private String checkoutKey; // idempotency key of the current checkout
+    private boolean checkoutInFlight; // an attempt of the current checkout has not answered yet
+    // Live sold-out menu items, while the activity is started
+    private final Set<String> soldOutItemIds = new HashSet<>();
+    private ListenerRegistration soldOutListener;
+    // Loaded menu, patched in place by live availability and price changes while started
+    private final MenuCatalog menuCatalog = new MenuCatalog();
+    private ListenerRegistration menuChangesListener;
     
     // Static reference for ShoppingCartActivity to access cart data
     private static MenuActivity instance;
@@ -78,7 +101,8 @@ public class MenuActivity extends AppCompatActivity {
         setContentView(R.layout.activity_menu);
 
         dbService = FirebaseDatabaseService.getInstance();
-        allMenuItems = new ArrayList<>();
+        allMenuItems = menuCatalog.getItems();
+        menuCatalog.setListener(new MenuCatalogListener());
         displayedMenuItems = new ArrayList<>();
         cart = new HashMap<>();
         cartDrinkAdditions = new HashMap<>();
@@ -92,9 +116,114 @@ public class MenuActivity extends AppCompatActivity {
         loadMenuItems();
     }
     
+    @Override
+    protected void onStart() {
+        super.onStart();
+        soldOutListener = dbService.listenToSoldOutMenuItems(new FirebaseDatabaseService.SoldOutCallback() {
+            @Override
+            public void onSuccess(Set<String> menuItemIds) {
+                soldOutItemIds.clear();
+                soldOutItemIds.addAll(menuItemIds);
+                menuAdapter.notifyDataSetChanged();
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                AppLog.e(TAG, "Failed to listen to sold-out items", e);
+            }
+        });
+        listenToMenuChanges();
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+        if (soldOutListener != null) {
+            soldOutListener.remove();
+            soldOutListener = null;
+        }
+        if (menuChangesListener != null) {
+            menuChangesListener.remove();
+            menuChangesListener = null;
+        }
+    }
+
+    /**
+     * Listen to menu item changes made after the loaded menu, once it is loaded and while started
+     */
+    private void listenToMenuChanges() {
+        if (menuChangesListener != null || !menuCatalog.isLoaded()
+                || !getLifecycle().getCurrentState().isAtLeast(Lifecycle.State.STARTED)) {
+            return;
+        }
+        menuChangesListener = dbService.listenToMenuItemChanges(menuCatalog.getListenFrom(),
+                new FirebaseDatabaseService.MenuItemChangesCallback() {
+                    @Override
+                    public void onChanges(List<MenuItem> changed, List<String> removedIds) {
+                        menuCatalog.apply(changed, removedIds);
+                    }
+
+                    @Override
+                    public void onFailure(Exception e) {
+                        AppLog.e(TAG, "Failed to listen to menu item changes", e);
+                    }
+                });
+    }
+
+    /**
+     * Mirrors catalog changes onto the shown rows: a changed item is rebound where it is shown,
+     * and only a new or re-categorized item runs the filter again
+     */
+    private class MenuCatalogListener implements MenuCatalog.Listener {
+        @Override
+        public void onItemChanged(MenuItem previous, MenuItem item) {
+            if (!Objects.equals(previous.getCategory(), item.getCategory())) {
+                refilter();
+                return;
+            }
+            int position = displayedPosition(item.getItemId());
+            if (position >= 0) {
+                displayedMenuItems.set(position, item);
+                menuAdapter.notifyItemChanged(position);
+            }
+        }
+
+        @Override
+        public void onItemInserted(int position, MenuItem item) {
+            refilter();
+        }
+
+        @Override
+        public void onItemRemoved(MenuItem item) {
+            int position = displayedPosition(item.getItemId());
+            if (position >= 0) {
+                displayedMenuItems.remove(position);
+                menuAdapter.notifyItemRemoved(position);
+            }
+        }
+    }
+
+    private int displayedPosition(String itemId) {
+        for (int i = 0; i < displayedMenuItems.size(); i++) {
+            if (displayedMenuItems.get(i).getItemId().equals(itemId)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void refilter() {
+        if (selectedCategory != null) {
+            filterByCategory();
+        } else {
+            filterByTimePeriod();
+        }
+    }
+
     @Override
     protected void onDestroy() {
         super.onDestroy();
+        lifecycleCancellation.cancel();
         if (instance == this) {
             instance = null;
         }
@@ -289,47 +418,47 @@ public class MenuActivity extends AppCompatActivity {
      * Load menu categories
      */
     private void loadMenuCategories() {
-        dbService.getFirestore().collection("menuCategories")
-                .whereEqualTo("isActive", true)
-                .orderBy("displayOrder")
-                .get()
-                .addOnCompleteListener(task -> {
-                    if (task.isSuccessful() && !task.getResult().isEmpty()) {
-                        menuCategories.clear();
-                        for (QueryDocumentSnapshot document : task.getResult()) {
-                            MenuCategory category = document.toObject(MenuCategory.class);
-                            menuCategories.add(category);
-                        }
-                        Log.d(TAG, "Loaded " + menuCategories.size() + " categories from Firestore");
-                        createTypeSelectorButtons();
-                        // Set default selected category based on time period
-                        if (selectedCategory == null && !categoryButtons.isEmpty()) {
-                            // First try to find category matching current time period
-                            String categoryToSelect = null;
-                            for (MenuCategory cat : menuCategories) {
-                                if (shouldShowCategory(cat)) {
-                                    String catName = cat.getCategoryName().toLowerCase().replace(" ", "_");
-                                    if (catName.equals(currentTimePeriod)) {
-                                        categoryToSelect = cat.getCategoryName();
-                                        break;
-                                    }
-                                }
-                            }
-                            // If no time-based category found, select first available category
-                            if (categoryToSelect == null && !categoryButtons.isEmpty()) {
-                                categoryToSelect = categoryButtons.keySet().iterator().next();
-                            }
-                            if (categoryToSelect != null) {
-                                selectCategory(categoryToSelect);
+        // Categories prefetched at startup are used while fresh
+        Task<List<MenuCategory>> prefetched = StartupWarmup.getInstance().getMenuCategories();
+        Task<List<MenuCategory>> categories = prefetched != null
+                ? prefetched : dbService.getActiveMenuCategoriesAsync(lifecycleCancellation.getToken());
+        categories.addOnCompleteListener(task -> {
+            if (task.isCanceled()) {
+                return;
+            }
+            if (task.isSuccessful() && !task.getResult().isEmpty()) {
+                menuCategories.clear();
+                menuCategories.addAll(task.getResult());
+                AppLog.d(TAG, "Loaded {} categories from Firestore", menuCategories.size());
+                createTypeSelectorButtons();
+                // Set default selected category based on time period
+                if (selectedCategory == null && !categoryButtons.isEmpty()) {
+                    // First try to find category matching current time period
+                    String categoryToSelect = null;
+                    for (MenuCategory cat : menuCategories) {
+                        if (shouldShowCategory(cat)) {
+                            String catName = cat.getCategoryName().toLowerCase().replace(" ", "_");
+                            if (catName.equals(currentTimePeriod)) {
+                                categoryToSelect = cat.getCategoryName();
+                                break;
                             }
                         }
-                    } else {
-                        Log.w(TAG, "Failed to load menu categories from Firestore or empty result, trying local JSON fallback", 
-                                task.getException());
-                        // Fallback: Load from local JSON file
-                        loadMenuCategoriesFromLocal();
                     }
-                });
+                    // If no time-based category found, select first available category
+                    if (categoryToSelect == null && !categoryButtons.isEmpty()) {
+                        categoryToSelect = categoryButtons.keySet().iterator().next();
+                    }
+                    if (categoryToSelect != null) {
+                        selectCategory(categoryToSelect);
+                    }
+                }
+            } else {
+                AppLog.w(TAG, "Failed to load menu categories from Firestore or empty result, trying local JSON fallback", 
+                        task.getException());
+                // Fallback: Load from local JSON file
+                loadMenuCategoriesFromLocal();
+            }
+        });
     }
 
     /**
@@ -369,7 +498,7 @@ public class MenuActivity extends AppCompatActivity {
             // Sort by display order
             menuCategories.sort((a, b) -> Integer.compare(a.getDisplayOrder(), b.getDisplayOrder()));
             
-            Log.d(TAG, "Loaded " + menuCategories.size() + " categories from local JSON");
+            AppLog.d(TAG, "Loaded {} categories from local JSON", menuCategories.size());
             createTypeSelectorButtons();
             
             // Set default selected category based on time period
@@ -394,7 +523,7 @@ public class MenuActivity extends AppCompatActivity {
                 }
             }
         } catch (Exception e) {
-            Log.e(TAG, "Failed to load menu categories from local JSON", e);
+            AppLog.e(TAG, "Failed to load menu categories from local JSON", e);
             Toast.makeText(this, "Failed to load menu categories", Toast.LENGTH_SHORT).show();
         }
     }
@@ -433,7 +562,7 @@ public class MenuActivity extends AppCompatActivity {
             categoryButtons.put(category.getCategoryName(), button);
         }
         
-        Log.d(TAG, "Created " + categoryButtons.size() + " category buttons for current time: " + currentTimePeriod);
+        AppLog.d(TAG, "Created {} category buttons for current time: {}", categoryButtons.size(), currentTimePeriod);
     }
 
     /**
@@ -442,26 +571,7 @@ public class MenuActivity extends AppCompatActivity {
      * Non-time-based categories (all_day_breakfast, drink) always shown
      */
     private boolean shouldShowCategory(MenuCategory category) {
-        String categoryName = category.getCategoryName().toLowerCase();
-        
-        // Always show these categories (non-time-based)
-        if (categoryName.equals("all day breakfast") || categoryName.equals("drink")) {
-            return true;
-        }
-        
-        // For time-based categories, only show if matches current time period
-        if (categoryName.equals("breakfast")) {
-            return currentTimePeriod.equals("breakfast");
-        } else if (categoryName.equals("lunch")) {
-            return currentTimePeriod.equals("lunch");
-        } else if (categoryName.equals("afternoon tea")) {
-            return currentTimePeriod.equals("afternoon_tea");
-        } else if (categoryName.equals("dinner")) {
-            return currentTimePeriod.equals("dinner");
-        }
-        
-        // Default: show if we're not sure
-        return true;
+        return MenuFilter.isShownAt(category.getCategoryName(), currentTimePeriod);
     }
 
     /**
@@ -498,28 +608,45 @@ public class MenuActivity extends AppCompatActivity {
      * Load menu items
      */
     private void loadMenuItems() {
+        // Items prefetched at startup are used while fresh; the change listener catches up from them
+        Task<List<MenuItem>> prefetched = StartupWarmup.getInstance().getMenuItems();
+        if (prefetched == null) {
+            loadMenuItemsFromServer();
+            return;
+        }
+        prefetched.addOnCompleteListener(task -> {
+            if (task.isSuccessful()) {
+                showMenuItems(task.getResult(), true);
+            } else {
+                loadMenuItemsFromServer();
+            }
+        });
+    }
+
+    private void loadMenuItemsFromServer() {
         dbService.getAllMenuItems(new FirebaseDatabaseService.MenuItemsCallback() {
             @Override
             public void onSuccess(List<MenuItem> items) {
-                allMenuItems.clear();
-                allMenuItems.addAll(items);
-                if (selectedCategory != null) {
-                    filterByCategory();
-                } else {
-                    filterByTimePeriod();
-                }
-                Log.d(TAG, "Menu items loaded successfully, total: " + items.size() + " items");
+                showMenuItems(items, false);
             }
 
             @Override
             public void onFailure(Exception e) {
-                Log.e(TAG, "Failed to load menu items", e);
+                AppLog.e(TAG, "Failed to load menu items", e);
                 Toast.makeText(MenuActivity.this, "Failed to load menu: " + e.getMessage(), 
                         Toast.LENGTH_SHORT).show();
             }
         });
     }
 
+    private void showMenuItems(List<MenuItem> items, boolean prefetched) {
+        menuCatalog.reset(items);
+        refilter();
+        StartupWarmup.getInstance().reportMenuShown(prefetched);
+        AppLog.d(TAG, "Menu items loaded successfully, total: {} items", items.size());
+        listenToMenuChanges();
+    }
+
     /**
      * Filter menu items by selected category
      * Also applies time period filter for time-based categories
@@ -532,43 +659,11 @@ public class MenuActivity extends AppCompatActivity {
             return;
         }
         
-        // Find category matching selected category name
-        // Map category names to Firebase category values
-        // "Breakfast" -> "breakfast"
-        // "All Day Breakfast" -> "all_day_breakfast"
-        // "Lunch" -> "lunch"
-        // "Afternoon Tea" -> "afternoon_tea"
-        // "Dinner" -> "dinner"
-        // "Drink" -> "drink"
+        // Map the category name to the Firebase category value, e.g. "All Day Breakfast" -> "all_day_breakfast"
         String categoryToFilter = null;
-        boolean isTimeBasedCategory = false;
         for (MenuCategory cat : menuCategories) {
             if (cat.getCategoryName().equals(selectedCategory)) {
-                // Map category name to Firebase category value
-                String categoryName = cat.getCategoryName().toLowerCase();
-                if (categoryName.equals("breakfast")) {
-                    categoryToFilter = "breakfast";
-                    isTimeBasedCategory = true;
-                } else if (categoryName.equals("all day breakfast")) {
-                    categoryToFilter = "all_day_breakfast";
-                    isTimeBasedCategory = false; // All day breakfast always available
-                } else if (categoryName.equals("lunch")) {
-                    categoryToFilter = "lunch";
-                    isTimeBasedCategory = true;
-                } else if (categoryName.equals("afternoon tea")) {
-                    categoryToFilter = "afternoon_tea";
-                    isTimeBasedCategory = true;
-                } else if (categoryName.equals("dinner")) {
-                    categoryToFilter = "dinner";
-                    isTimeBasedCategory = true;
-                } else if (categoryName.equals("drink")) {
-                    categoryToFilter = "drink";
-                    isTimeBasedCategory = false; // Drinks available all day
-                } else {
-                    // Fallback: convert to lowercase and replace spaces with underscores
-                    categoryToFilter = categoryName.replace(" ", "_");
-                    isTimeBasedCategory = false;
-                }
+                categoryToFilter = MenuFilter.categoryKey(cat.getCategoryName());
                 break;
             }
         }
@@ -578,74 +673,18 @@ public class MenuActivity extends AppCompatActivity {
             return;
         }
         
-        Log.d(TAG, "Filtering by category: " + categoryToFilter + " (selected: " + selectedCategory + "), time-based: " + isTimeBasedCategory);
+        AppLog.d(TAG, "Filtering by category: {} (selected: {}), time-based: {}", categoryToFilter, selectedCategory, MenuFilter.isTimeBased(categoryToFilter));
         
-        // For time-based categories, only show items matching both category AND time period
-        // For non-time-based categories (like drinks, all day breakfast), show all items in that category
-        for (MenuItem item : allMenuItems) {
-            if (item.getCategory() != null) {
-                String itemCategory = item.getCategory();
-                
-                // Check if item matches the selected category
-                boolean matchesCategory = itemCategory.equals(categoryToFilter);
-                
-                // Also check if item category contains the filter (for comma-separated categories like "breakfast,lunch")
-                if (!matchesCategory && itemCategory.contains(",")) {
-                    String[] categories = itemCategory.split(",");
-                    for (String cat : categories) {
-                        if (cat.trim().equals(categoryToFilter)) {
-                            matchesCategory = true;
-                            break;
-                        }
-                    }
-                }
-                
-                if (matchesCategory) {
-                    // If it's a time-based category, only show items if current time period matches
-                    if (isTimeBasedCategory) {
-                        // For time-based categories, only show items when:
-                        // 1. The selected category matches current time period (e.g., selecting "breakfast" during breakfast time)
-                        // 2. AND the item's category matches the current time period
-                        
-                        // First check: Does the selected category match current time?
-                        boolean categoryMatchesTime = categoryToFilter.equals(currentTimePeriod);
-                        
-                        // Second check: Does the item category match current time?
-                        boolean itemMatchesTime = itemCategory.equals(currentTimePeriod);
-                        
-                        // Also check for comma-separated categories
-                        if (!itemMatchesTime && itemCategory.contains(",")) {
-                            String[] categories = itemCategory.split(",");
-                            for (String cat : categories) {
-                                if (cat.trim().equals(currentTimePeriod)) {
-                                    itemMatchesTime = true;
-                                    break;
-                                }
-                            }
-                        }
-                        
-                        // Only show if both category selection and item match current time period
-                        if (categoryMatchesTime && itemMatchesTime) {
-                            displayedMenuItems.add(item);
-                        } else {
-                            Log.d(TAG, "Item filtered out: " + item.getName() + 
-                                    " (category=" + itemCategory + ", selected=" + categoryToFilter + 
-                                    ", currentTime=" + currentTimePeriod + ")");
-                        }
-                    } else {
-                        // Non-time-based categories: show all items in that category (e.g., drinks, all day breakfast)
-                        displayedMenuItems.add(item);
-                    }
-                }
-            }
-        }
+        // Time-based categories only show items during their own time period;
+        // drinks and all day breakfast show every item in the category
+        displayedMenuItems.addAll(MenuFilter.byCategory(allMenuItems, categoryToFilter, currentTimePeriod));
         
         menuAdapter.notifyDataSetChanged();
         
         if (displayedMenuItems.isEmpty()) {
-            Log.w(TAG, "No menu items found for category: " + selectedCategory + " (filter: " + categoryToFilter + ") at current time: " + currentTimePeriod);
+            AppLog.w(TAG, "No menu items found for category: {} (filter: {}) at current time: {}", selectedCategory, categoryToFilter, currentTimePeriod);
         } else {
-            Log.d(TAG, "Found " + displayedMenuItems.size() + " items for category: " + selectedCategory);
+            AppLog.d(TAG, "Found {} items for category: {}", displayedMenuItems.size(), selectedCategory);
         }
     }
 
@@ -655,38 +694,13 @@ public class MenuActivity extends AppCompatActivity {
     private void filterByTimePeriod() {
         displayedMenuItems.clear();
         
-        // Map time periods to Firebase categories
-        // Note: Firebase uses "breakfast", "lunch", "afternoon_tea", "dinner"
-        // But menu items might use "breakfast", "lunch", "dinner" directly
-        String categoryToFilter = currentTimePeriod;
-        
-        // Handle special case for afternoon_tea - it might be stored differently
-        if (currentTimePeriod.equals("afternoon_tea")) {
-            // Try to find items with "afternoon_tea" category, or use "lunch" as fallback
-            categoryToFilter = "afternoon_tea";
-        }
-        
-        for (MenuItem item : allMenuItems) {
-            if (item.getCategory() != null && item.getCategory().equals(categoryToFilter)) {
-                displayedMenuItems.add(item);
-            }
-        }
-        
-        // If no items found for afternoon_tea, try "lunch" as fallback
-        if (currentTimePeriod.equals("afternoon_tea") && displayedMenuItems.isEmpty()) {
-            Log.d(TAG, "No items found for afternoon_tea, trying lunch category");
-            categoryToFilter = "lunch";
-            for (MenuItem item : allMenuItems) {
-                if (item.getCategory() != null && item.getCategory().equals(categoryToFilter)) {
-                    displayedMenuItems.add(item);
-                }
-            }
-        }
+        // Items of the current time period; afternoon tea falls back to lunch items
+        displayedMenuItems.addAll(MenuFilter.byTimePeriod(allMenuItems, currentTimePeriod));
         
         menuAdapter.notifyDataSetChanged();
         
         if (displayedMenuItems.isEmpty()) {
-            Log.w(TAG, "No menu items found for time period: " + currentTimePeriod);
+            AppLog.w(TAG, "No menu items found for time period: {}", currentTimePeriod);
             Toast.makeText(this, "No menu items available for " + currentTimeDisplay, 
                     Toast.LENGTH_SHORT).show();
         }
@@ -709,6 +723,14 @@ public class MenuActivity extends AppCompatActivity {
             Toast.makeText(this, "Item not found", Toast.LENGTH_SHORT).show();
             return;
         }
+        if (!item.isAvailable()) {
+            Toast.makeText(this, item.getName() + " is no longer available", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        if (soldOutItemIds.contains(menuItemId)) {
+            Toast.makeText(this, item.getName() + " is sold out", Toast.LENGTH_SHORT).show();
+            return;
+        }
         
         // Check if item has modifiers (including drinks or other options)
         if (item.getModifierIds() != null && !item.getModifierIds().isEmpty()) {
@@ -818,6 +840,8 @@ public class MenuActivity extends AppCompatActivity {
      * Update cart display
      */
     private void updateCartDisplay() {
+        // A changed cart is a new checkout
+        checkoutKey = null;
         int totalItems = 0;
         double totalPrice = 0.0;
 
@@ -895,162 +919,236 @@ public class MenuActivity extends AppCompatActivity {
 
     /**
      * Proceed with order creation after table number is confirmed (if dine-in)
+     * An order number is only claimed once the checkout turns out not to have been placed already;
+     * the customer lookup for points runs in parallel
      */
     private void proceedWithOrderCreation(String tableNumber) {
-        // Get next order number (0001-1000)
-        dbService.getNextOrderNumber(new FirebaseDatabaseService.OrderNumberCallback() {
-            @Override
-            public void onSuccess(String orderNumber) {
-                // Create order with formatted order number
-                String orderId = orderNumber; // Use the formatted number as orderId
-                String orderType = selectedOrderType.equals("dine_in") ? "dine_in" : "takeaway";
-                Order order = new Order(orderId, orderType);
-                // Use logged-in user ID if available, otherwise use device ID
-                String userId = CustomerSessionHelper.isCustomerLoggedIn(MenuActivity.this) 
-                    ? CustomerSessionHelper.getUserId(MenuActivity.this) 
-                    : DeviceIdHelper.getDeviceId(MenuActivity.this);
-                order.setUserId(userId);
-                
-                // Set table number for dine-in orders
-                if (selectedOrderType.equals("dine_in") && tableNumber != null && !tableNumber.isEmpty()) {
-                    order.setTableNumber(tableNumber);
-                }
-                
-                // Set restaurant ID from preferences
-                String restaurantId = RestaurantPreferenceHelper.getSelectedRestaurantId(MenuActivity.this);
-                if (restaurantId != null && !restaurantId.isEmpty()) {
-                    order.setRestaurantId(restaurantId);
-                } else {
-                    Toast.makeText(MenuActivity.this, "Please select a restaurant first", Toast.LENGTH_SHORT).show();
-                    return;
-                }
+        // Check the restaurant first so no order number is consumed without one
+        String restaurantId = RestaurantPreferenceHelper.getSelectedRestaurantId(this);
+        if (restaurantId == null || restaurantId.isEmpty()) {
+            Toast.makeText(this, "Please select a restaurant first", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        if (checkoutInFlight) {
+            // Double tap: the running attempt answers for both
+            AppLog.d(TAG, "Checkout already in progress");
+            return;
+        }
 
-                // Add order items
-                for (Map.Entry<String, Integer> entry : cart.entrySet()) {
-                    String itemId = entry.getKey();
-                    int quantity = entry.getValue();
-
-                    for (MenuItem item : allMenuItems) {
-                        if (item.getItemId().equals(itemId)) {
-                            double itemPrice = item.getPrice();
-                            double drinkAddition = cartDrinkAdditions.getOrDefault(itemId, 0.0);
-                            String itemName = item.getName();
-                            if (drinkAddition > 0) {
-                                itemName += " (Cold Drink)";
-                            } else if (item.isHasDrink()) {
-                                itemName += " (Hot Drink)";
-                            }
-                            OrderItem orderItem = new OrderItem(itemId, itemName, quantity, itemPrice + drinkAddition);
-                            order.addItem(orderItem);
-                            break;
-                        }
+        CancellationToken cancellationToken = lifecycleCancellation.getToken();
+        // Every attempt for the same cart shares one idempotency key, so retries cannot create a second order
+        if (checkoutKey == null) {
+            checkoutKey = UUID.randomUUID().toString();
+        }
+        String idempotencyKey = checkoutKey;
+        // Use logged-in user ID if available, otherwise use device ID
+        boolean customerLoggedIn = CustomerSessionHelper.isCustomerLoggedIn(this);
+        String userId = customerLoggedIn
+            ? CustomerSessionHelper.getUserId(this)
+            : DeviceIdHelper.getDeviceId(this);
+
+        // The order ID is the order number, set once one is claimed
+        String orderType = selectedOrderType.equals("dine_in") ? "dine_in" : "takeaway";
+        Order order = new Order(null, orderType);
+        order.setUserId(userId);
+        order.setRestaurantId(restaurantId);
+
+        // Set table number for dine-in orders
+        if (selectedOrderType.equals("dine_in") && tableNumber != null && !tableNumber.isEmpty()) {
+            order.setTableNumber(tableNumber);
+        }
+
+        // Add order items
+        for (Map.Entry<String, Integer> entry : cart.entrySet()) {
+            String itemId = entry.getKey();
+            int quantity = entry.getValue();
+
+            for (MenuItem item : allMenuItems) {
+                if (item.getItemId().equals(itemId)) {
+                    double itemPrice = item.getPrice();
+                    double drinkAddition = cartDrinkAdditions.getOrDefault(itemId, 0.0);
+                    String itemName = item.getName();
+                    if (drinkAddition > 0) {
+                        itemName += " (Cold Drink)";
+                    } else if (item.isHasDrink()) {
+                        itemName += " (Hot Drink)";
                     }
+                    OrderItem orderItem = new OrderItem(itemId, itemName, quantity, itemPrice + drinkAddition);
+                    order.addItem(orderItem);
+                    break;
                 }
+            }
+        }
 
-                order.setServiceCharge(0.0);
+        order.setServiceCharge(0.0);
+
+        // Validate order has items before saving
+        if (order.getItems() == null || order.getItems().isEmpty()) {
+            Toast.makeText(MenuActivity.this, "Cannot create order: no items found", 
+                    Toast.LENGTH_SHORT).show();
+            AppLog.e(TAG, "Order creation failed: order has no items after building");
+            return;
+        }
+
+        checkoutInFlight = true;
+        Task<User> customerTask = customerLoggedIn && userId != null
+                ? dbService.getUserByIdAsync(userId, cancellationToken)
+                : Tasks.forResult(null);
+        // An earlier attempt may have placed this checkout although its answer never arrived
+        dbService.findCheckoutAsync(idempotencyKey, cancellationToken).addOnCompleteListener(checkoutTask -> {
+            if (checkoutTask.isCanceled()) {
+                return;
+            }
+            String placedId = checkoutTask.isSuccessful() ? checkoutTask.getResult() : null;
+            if (placedId != null) {
+                AppLog.d(TAG, "Checkout already placed, order: {}", placedId);
+                onOrderPlaced(placedId, order, customerLoggedIn, customerTask);
+                return;
+            }
+            placeNewOrder(order, idempotencyKey, customerLoggedIn, customerTask, cancellationToken);
+        });
+    }
+
+    /**
+     * Claim the next order number (0001-1000) and place the order under it
+     */
+    private void placeNewOrder(Order order, String idempotencyKey, boolean customerLoggedIn, Task<User> customerTask,
+                               CancellationToken cancellationToken) {
+        DbTasks.withTimeout(dbService.getNextOrderNumberAsync(cancellationToken), ORDER_NUMBER_TIMEOUT_MS)
+                .addOnCompleteListener(numberTask -> {
+            if (numberTask.isCanceled()) {
+                return;
+            }
+            if (!numberTask.isSuccessful()) {
+                checkoutInFlight = false;
+                AppLog.e(TAG, "Failed to get order number", numberTask.getException());
+                Toast.makeText(MenuActivity.this, "Failed to generate order number: " + messageOf(numberTask.getException()),
+                        Toast.LENGTH_SHORT).show();
+                return;
+            }
+            order.setOrderId(numberTask.getResult()); // Use the formatted number as orderId
 
-                // Validate order has items before saving
-                if (order.getItems() == null || order.getItems().isEmpty()) {
-                    Toast.makeText(MenuActivity.this, "Cannot create order: no items found", 
+            // Save order and reserve its tracked stock (no timeout: a slow write may still commit)
+            dbService.placeOrderAsync(order, allMenuItems, idempotencyKey, cancellationToken).addOnCompleteListener(createTask -> {
+                if (createTask.isCanceled()) {
+                    return;
+                }
+                FirebaseDatabaseService.OutOfStockException outOfStock = outOfStockCause(createTask.getException());
+                if (outOfStock != null) {
+                    // Nothing was created; the customer can change the cart and check out again
+                    checkoutInFlight = false;
+                    Toast.makeText(MenuActivity.this, "Sold out: " + menuItemNames(outOfStock.getMenuItemIds()),
+                            Toast.LENGTH_LONG).show();
+                    return;
+                }
+                if (!createTask.isSuccessful()) {
+                    checkoutInFlight = false;
+                    AppLog.e(TAG, "Order creation failed", createTask.getException());
+                    Toast.makeText(MenuActivity.this, "Order creation failed: " + messageOf(createTask.getException()), 
                             Toast.LENGTH_SHORT).show();
-                    Log.e(TAG, "Order creation failed: order has no items after building");
                     return;
                 }
+                if (!order.getOrderId().equals(createTask.getResult())) {
+                    // The checkout was placed by an earlier attempt; this number goes unused
+                    AppLog.d(TAG, "Repeated checkout, order already created: {}", createTask.getResult());
+                }
+                onOrderPlaced(createTask.getResult(), order, customerLoggedIn, customerTask);
+            });
+        });
+    }
 
-                // Save order to database
-                dbService.createOrder(order, new FirebaseDatabaseService.DatabaseCallback() {
-                    @Override
-                    public void onSuccess(String documentId) {
-                        Log.d(TAG, "Order created successfully: " + documentId);
-                        
-                        // Update customer points only if customer is logged in
-                        // Points = 1 point per dollar spent (rounded down)
-                        if (CustomerSessionHelper.isCustomerLoggedIn(MenuActivity.this)) {
-                            String loggedInUserId = CustomerSessionHelper.getUserId(MenuActivity.this);
-                            if (loggedInUserId != null) {
-                                updateCustomerPoints(loggedInUserId, (int) order.getTotal());
-                            }
-                        } else {
-                            Log.d(TAG, "Customer not logged in, points will not be saved");
-                        }
-                        
-                        Toast.makeText(MenuActivity.this, "Order created successfully! Order Number: " + orderNumber, 
-                                Toast.LENGTH_LONG).show();
-                        // Clear cart
-                        cart.clear();
-                        cartDrinkAdditions.clear();
-                        updateCartDisplay();
-                        menuAdapter.notifyDataSetChanged();
-                        
-                        // Navigate to order tracking page
-                        Intent intent = new Intent(MenuActivity.this, OrderTrackingActivity.class);
-                        intent.putExtra("orderId", orderId);
-                        startActivity(intent);
-                    }
+    /**
+     * The checkout created orderId, now or in an earlier attempt: award points, clear the cart, track the order
+     * Points were not awarded for an earlier attempt, since an attempt that got its answer cleared the cart
+     * and with it the checkout key
+     */
+    private void onOrderPlaced(String orderId, Order order, boolean customerLoggedIn, Task<User> customerTask) {
+        checkoutInFlight = false;
+        AppLog.d(TAG, "Order created successfully: {}", orderId);
+
+        // Update customer points only if customer is logged in
+        // Points = 1 point per dollar spent (rounded down)
+        if (customerLoggedIn) {
+            updateCustomerPoints(customerTask, (int) order.getTotal());
+        } else {
+            AppLog.d(TAG, "Customer not logged in, points will not be saved");
+        }
 
-                    @Override
-                    public void onFailure(Exception e) {
-                        Log.e(TAG, "Order creation failed", e);
-                        Toast.makeText(MenuActivity.this, "Order creation failed: " + e.getMessage(), 
-                                Toast.LENGTH_SHORT).show();
-                    }
-                });
+        Toast.makeText(MenuActivity.this, "Order created successfully! Order Number: " + orderId, 
+                Toast.LENGTH_LONG).show();
+        // Clear cart
+        cart.clear();
+        cartDrinkAdditions.clear();
+        updateCartDisplay();
+        menuAdapter.notifyDataSetChanged();
+
+        // Navigate to order tracking page
+        Intent intent = new Intent(MenuActivity.this, OrderTrackingActivity.class);
+        intent.putExtra("orderId", orderId);
+        startActivity(intent);
+    }
+
+    private static String messageOf(Exception e) {
+        return e != null ? e.getMessage() : "unknown error";
+    }
+
+    private static FirebaseDatabaseService.OutOfStockException outOfStockCause(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof FirebaseDatabaseService.OutOfStockException) {
+                return (FirebaseDatabaseService.OutOfStockException) cause;
             }
+        }
+        return null;
+    }
 
-            @Override
-            public void onFailure(Exception e) {
-                Log.e(TAG, "Failed to get order number", e);
-                Toast.makeText(MenuActivity.this, "Failed to generate order number: " + e.getMessage(), 
-                        Toast.LENGTH_SHORT).show();
+    private String menuItemNames(List<String> menuItemIds) {
+        List<String> names = new ArrayList<>();
+        for (MenuItem item : allMenuItems) {
+            if (menuItemIds.contains(item.getItemId())) {
+                names.add(item.getName());
             }
-        });
+        }
+        return names.isEmpty() ? String.join(", ", menuItemIds) : String.join(", ", names);
     }
 
     /**
      * Update customer points after order creation
      * Points = 1 point per dollar spent (rounded down)
-     * Only updates points for logged-in customers
+     * The customer was fetched in parallel with the order number
      */
-    private void updateCustomerPoints(String userId, int pointsToAdd) {
+    private void updateCustomerPoints(Task<User> customerTask, int pointsToAdd) {
         if (pointsToAdd <= 0) {
             return;
         }
         
-        // Only update points if customer is logged in
-        if (!CustomerSessionHelper.isCustomerLoggedIn(this)) {
-            Log.d(TAG, "Customer not logged in, skipping points update");
-            return;
-        }
-        
-        // Get existing user and update points
-        dbService.getUserById(userId, new FirebaseDatabaseService.UserCallback() {
-            @Override
-            public void onSuccess(User user) {
-                if (user != null) {
-                    // User exists, update points
-                    user.addPoints(pointsToAdd);
-                    dbService.createOrUpdateUser(user, new FirebaseDatabaseService.DatabaseCallback() {
-                        @Override
-                        public void onSuccess(String userId) {
-                            Log.d(TAG, "Customer points updated: " + user.getPoints() + " points");
-                            // Update session with new points
-                            CustomerSessionHelper.updateUserPoints(MenuActivity.this, user.getPoints());
-                        }
-
-                        @Override
-                        public void onFailure(Exception e) {
-                            Log.e(TAG, "Failed to update customer points", e);
-                        }
-                    });
-                } else {
-                    Log.e(TAG, "User not found for points update: " + userId);
-                }
+        customerTask.addOnCompleteListener(task -> {
+            if (task.isCanceled()) {
+                return;
             }
-
-            @Override
-            public void onFailure(Exception e) {
-                Log.e(TAG, "Failed to get user for points update", e);
+            if (!task.isSuccessful()) {
+                AppLog.e(TAG, "Failed to get user for points update", task.getException());
+                return;
+            }
+            User user = task.getResult();
+            if (user == null) {
+                AppLog.e(TAG, "User not found for points update");
+                return;
             }
+            // User exists, add the points on the server so awards from other devices are kept
+            user.addPoints(pointsToAdd);
+            dbService.addUserPoints(user.getUserId(), pointsToAdd, new FirebaseDatabaseService.DatabaseCallback() {
+                @Override
+                public void onSuccess(String userId) {
+                    AppLog.d(TAG, "Customer points updated: {} points", user.getPoints());
+                    // Update session with new points
+                    CustomerSessionHelper.updateUserPoints(MenuActivity.this, user.getPoints());
+                }
+
+                @Override
+                public void onFailure(Exception e) {
+                    AppLog.e(TAG, "Failed to update customer points", e);
+                }
+            });
         });
     }
 
@@ -1142,6 +1240,10 @@ public class MenuActivity extends AppCompatActivity {
                     itemImageView.setImageResource(android.R.drawable.ic_menu_gallery);
                 }
 
+                boolean soldOut = soldOutItemIds.contains(item.getItemId());
+                orderNowButton.setEnabled(item.isAvailable() && !soldOut);
+                orderNowButton.setText(!item.isAvailable() ? "Unavailable" : soldOut ? "Sold Out" : "Order Now");
+
                 // Set button click listener
                 orderNowButton.setOnClickListener(v -> addToCart(item.getItemId()));
             }
@@ -112,6 +112,7 @@ public class MenuItemEditorActivity extends AppCompatActivity {
 		}
 
 		MenuItem item = editingItem != null ? editingItem : new MenuItem();
+		int previousStock = editingItem != null ? editingItem.getStock() : -1;
 		if (editingItem == null) {
 			String id = UUID.randomUUID().toString();
 			item.setItemId(id);
@@ -134,6 +135,10 @@ public class MenuItemEditorActivity extends AppCompatActivity {
 		dbService.createOrUpdateMenuItem(item, new FirebaseDatabaseService.DatabaseCallback() {
 		 @Override
 		 public void onSuccess(String documentId) {
+			 if (item.getStock() != previousStock) {
+				 // Live stock is kept in the item's stock shards; only a changed stock resets it
+				 dbService.restockMenuItem(item.getItemId(), item.getStock(), null);
+			 }
 			 Toast.makeText(MenuItemEditorActivity.this, "Saved", Toast.LENGTH_SHORT).show();
 			 finish();
 		 }
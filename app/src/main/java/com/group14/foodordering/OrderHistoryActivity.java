@@ -1,9 +1,6 @@
 package com.group14.foodordering;
 
 import android.os.Bundle;
-import android.os.Handler;
-import android.os.Looper;
-import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -12,14 +9,15 @@ import android.widget.Toast;
 
 import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
-import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
-import com.google.firebase.firestore.ListenerRegistration;
 import com.group14.foodordering.model.Order;
 import com.group14.foodordering.model.OrderItem;
 import com.group14.foodordering.service.FirebaseDatabaseService;
+import com.group14.foodordering.service.OrderHistoryRepository;
+import com.group14.foodordering.util.AppLog;
+import com.group14.foodordering.util.DebouncedListUpdater;
 import com.group14.foodordering.util.DeviceIdHelper;
 
 import java.text.SimpleDateFormat;
@@ -27,12 +25,11 @@ import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.Locale;
-import java.util.concurrent.Executor;
-import java.util.concurrent.Executors;
 
 /**
  * Order History Activity
  * Shows customer's order history with real-time status updates
+ * Recent orders stream live; older ones load as the list is scrolled (see OrderHistoryRepository)
  */
 public class OrderHistoryActivity extends AppCompatActivity {
 
@@ -42,12 +39,12 @@ public class OrderHistoryActivity extends AppCompatActivity {
     private OrderHistoryAdapter adapter;
     private List<Order> orders;
     private String deviceId;
-    private ListenerRegistration listenerRegistration;
+    private OrderHistoryRepository orderHistory;
+    private OrderHistoryRepository.Listener historyListener;
     private TextView emptyTextView;
-    private Handler updateHandler;
-    private Runnable pendingUpdate;
-    private Executor backgroundExecutor;
+    private DebouncedListUpdater<Order> listUpdater;
     private static final long UPDATE_DEBOUNCE_MS = 300; // Debounce updates by 300ms
+    private static final int LOAD_MORE_THRESHOLD = 5; // rows from the end that trigger the next page
     // Shared date formatter for all ViewHolders (cached for performance)
     private static final SimpleDateFormat dateFormat = 
         new SimpleDateFormat("MMM dd, yyyy HH:mm", Locale.getDefault());
@@ -60,8 +57,7 @@ public class OrderHistoryActivity extends AppCompatActivity {
         dbService = FirebaseDatabaseService.getInstance();
         orders = new ArrayList<>();
         deviceId = DeviceIdHelper.getDeviceId(this);
-        updateHandler = new Handler(Looper.getMainLooper());
-        backgroundExecutor = Executors.newSingleThreadExecutor();
+        orderHistory = dbService.getOrderHistory(deviceId);
 
         setupViews();
         setupRecyclerView();
@@ -90,96 +86,75 @@ public class OrderHistoryActivity extends AppCompatActivity {
         adapter = new OrderHistoryAdapter(orders);
         ordersRecyclerView.setLayoutManager(new LinearLayoutManager(this));
         ordersRecyclerView.setAdapter(adapter);
+        listUpdater = new DebouncedListUpdater<>(orders, adapter, OrderHistoryRepository.ORDER_DIFF,
+                UPDATE_DEBOUNCE_MS, this::onOrdersShown);
+
+        // Load older orders when the end of the list comes into view
+        LinearLayoutManager layoutManager = (LinearLayoutManager) ordersRecyclerView.getLayoutManager();
+        ordersRecyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                if (dy > 0 && layoutManager.findLastVisibleItemPosition() >= orders.size() - LOAD_MORE_THRESHOLD) {
+                    orderHistory.loadMore();
+                }
+            }
+        });
     }
 
     /**
      * Start listening to orders with real-time updates
      */
     private void startListeningToOrders() {
-        listenerRegistration = dbService.listenToOrdersByUserId(deviceId, new FirebaseDatabaseService.OrdersCallback() {
+        historyListener = new OrderHistoryRepository.Listener() {
             @Override
-            public void onSuccess(List<Order> orderList) {
+            public void onOrdersChanged(List<Order> orderList) {
                 // Use debounced update to avoid frequent UI refreshes
-                updateOrdersList(orderList);
+                listUpdater.submit(orderList);
             }
 
             @Override
             public void onFailure(Exception e) {
-                Log.e(TAG, "Failed to load orders", e);
+                AppLog.e(TAG, "Failed to load orders", e);
                 Toast.makeText(OrderHistoryActivity.this, "Failed to load orders: " + e.getMessage(), 
                         Toast.LENGTH_SHORT).show();
             }
-        });
+        };
+        orderHistory.addListener(historyListener);
+        orderHistory.start();
     }
 
     /**
-     * Update orders list with debouncing and efficient diff updates
+     * Show/hide empty message after the list changed
      */
-    private void updateOrdersList(List<Order> newOrders) {
-        // Cancel any pending update
-        if (pendingUpdate != null) {
-            updateHandler.removeCallbacks(pendingUpdate);
+    private void onOrdersShown() {
+        if (orders.isEmpty()) {
+            emptyTextView.setVisibility(View.VISIBLE);
+            ordersRecyclerView.setVisibility(View.GONE);
+        } else {
+            emptyTextView.setVisibility(View.GONE);
+            ordersRecyclerView.setVisibility(View.VISIBLE);
         }
-
-        // Create debounced update
-        pendingUpdate = () -> {
-            List<Order> oldOrders = new ArrayList<>(orders);
-            
-            // Calculate diff in background thread for better performance
-            backgroundExecutor.execute(() -> {
-                DiffUtil.DiffResult diffResult = DiffUtil.calculateDiff(
-                    new OrderDiffCallback(oldOrders, newOrders));
-                
-                // Update UI on main thread
-                updateHandler.post(() -> {
-                    orders.clear();
-                    orders.addAll(newOrders);
-                    diffResult.dispatchUpdatesTo(adapter);
-                    
-                    // Show/hide empty message
-                    if (orders.isEmpty()) {
-                        emptyTextView.setVisibility(View.VISIBLE);
-                        ordersRecyclerView.setVisibility(View.GONE);
-                    } else {
-                        emptyTextView.setVisibility(View.GONE);
-                        ordersRecyclerView.setVisibility(View.VISIBLE);
-                    }
-                    
-                    Log.d(TAG, "Orders updated: " + orders.size() + " orders");
-                });
-            });
-        };
-
-        // Post debounced update
-        updateHandler.postDelayed(pendingUpdate, UPDATE_DEBOUNCE_MS);
+        AppLog.d(TAG, "Orders updated: {} orders", orders.size());
     }
 
     /**
      * Stop listening to orders
      */
     private void stopListeningToOrders() {
-        if (listenerRegistration != null) {
-            listenerRegistration.remove();
-            listenerRegistration = null;
+        if (historyListener != null) {
+            orderHistory.removeListener(historyListener);
+            orderHistory.stop();
+            historyListener = null;
         }
         // Cancel any pending updates
-        if (pendingUpdate != null) {
-            updateHandler.removeCallbacks(pendingUpdate);
-            pendingUpdate = null;
-        }
+        listUpdater.cancel();
     }
 
     @Override
     protected void onDestroy() {
         super.onDestroy();
         stopListeningToOrders();
-        if (updateHandler != null) {
-            updateHandler.removeCallbacksAndMessages(null);
-        }
-        // Shutdown executor to free resources
-        if (backgroundExecutor instanceof java.util.concurrent.ExecutorService) {
-            ((java.util.concurrent.ExecutorService) backgroundExecutor).shutdown();
-        }
+        listUpdater.shutdown();
     }
 
     /**
@@ -318,43 +293,4 @@ public class OrderHistoryActivity extends AppCompatActivity {
             }
         }
     }
-
-    /**
-     * DiffUtil callback for efficient list updates
-     */
-    private static class OrderDiffCallback extends DiffUtil.Callback {
-        private final List<Order> oldOrders;
-        private final List<Order> newOrders;
-
-        OrderDiffCallback(List<Order> oldOrders, List<Order> newOrders) {
-            this.oldOrders = oldOrders;
-            this.newOrders = newOrders;
-        }
-
-        @Override
-        public int getOldListSize() {
-            return oldOrders.size();
-        }
-
-        @Override
-        public int getNewListSize() {
-            return newOrders.size();
-        }
-
-        @Override
-        public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
-            return oldOrders.get(oldItemPosition).getOrderId()
-                    .equals(newOrders.get(newItemPosition).getOrderId());
-        }
-
-        @Override
-        public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
-            Order oldOrder = oldOrders.get(oldItemPosition);
-            Order newOrder = newOrders.get(newItemPosition);
-            return oldOrder.getStatus().equals(newOrder.getStatus()) &&
-                   oldOrder.getCreatedAt() == newOrder.getCreatedAt() &&
-                   oldOrder.getTotal() == newOrder.getTotal();
-        }
-    }
 }
-
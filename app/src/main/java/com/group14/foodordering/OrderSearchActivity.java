@@ -4,7 +4,6 @@ import android.content.Intent;
 import android.os.Bundle;
 import android.text.Editable;
 import android.text.TextWatcher;
-import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -17,17 +16,25 @@ import android.widget.Toast;
 
 import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.cardview.widget.CardView;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.group14.foodordering.model.Order;
 import com.group14.foodordering.service.FirebaseDatabaseService;
+import com.group14.foodordering.util.AppLog;
+import com.group14.foodordering.util.PermissionManager;
 
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Order Search Activity
@@ -44,6 +51,9 @@ public class OrderSearchActivity extends AppCompatActivity {
     private List<Order> filteredOrders;
     private EditText searchEditText;
     private Spinner statusFilterSpinner;
+    private final Set<String> selectedOrderIds = new LinkedHashSet<>(); // bulk selection, in tap order
+    private View bulkActionBar;
+    private TextView bulkSelectionTextView;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -68,6 +78,14 @@ public class OrderSearchActivity extends AppCompatActivity {
         ordersAdapter = new OrdersAdapter();
         ordersRecyclerView.setAdapter(ordersAdapter);
 
+        // Bulk actions for the selected orders
+        bulkActionBar = findViewById(R.id.bulkActionBar);
+        bulkSelectionTextView = findViewById(R.id.bulkSelectionTextView);
+        findViewById(R.id.bulkPreparingButton).setOnClickListener(v -> updateSelectedOrdersStatus("preparing"));
+        findViewById(R.id.bulkReadyButton).setOnClickListener(v -> updateSelectedOrdersStatus("ready"));
+        findViewById(R.id.bulkCompletedButton).setOnClickListener(v -> updateSelectedOrdersStatus("completed"));
+        findViewById(R.id.bulkClearButton).setOnClickListener(v -> clearSelection());
+
         // Setup status filter spinner
         ArrayAdapter<CharSequence> statusAdapter = ArrayAdapter.createFromResource(
                 this,
@@ -113,12 +131,12 @@ public class OrderSearchActivity extends AppCompatActivity {
                 allOrders.clear();
                 allOrders.addAll(orders);
                 filterOrders();
-                Log.d(TAG, "Loaded " + orders.size() + " active orders");
+                AppLog.d(TAG, "Loaded {} active orders", orders.size());
             }
 
             @Override
             public void onFailure(Exception e) {
-                Log.e(TAG, "Failed to load orders", e);
+                AppLog.e(TAG, "Failed to load orders", e);
                 Toast.makeText(OrderSearchActivity.this, "Failed to load orders: " + e.getMessage(), 
                         Toast.LENGTH_SHORT).show();
             }
@@ -158,9 +176,73 @@ public class OrderSearchActivity extends AppCompatActivity {
             }
         }
 
+        // Orders hidden by the search or filter cannot stay selected
+        Set<String> visibleIds = new HashSet<>();
+        for (Order order : filteredOrders) {
+            visibleIds.add(order.getOrderId());
+        }
+        for (Iterator<String> it = selectedOrderIds.iterator(); it.hasNext(); ) {
+            if (!visibleIds.contains(it.next())) {
+                it.remove();
+            }
+        }
+        updateBulkActionBar();
+        ordersAdapter.notifyDataSetChanged();
+    }
+
+    /**
+     * Select or unselect an order for a bulk action
+     */
+    private void toggleSelection(Order order) {
+        String orderId = order.getOrderId();
+        if (orderId == null) {
+            return;
+        }
+        if (!selectedOrderIds.remove(orderId)) {
+            selectedOrderIds.add(orderId);
+        }
+        updateBulkActionBar();
+        ordersAdapter.notifyDataSetChanged();
+    }
+
+    private void clearSelection() {
+        selectedOrderIds.clear();
+        updateBulkActionBar();
         ordersAdapter.notifyDataSetChanged();
     }
 
+    private void updateBulkActionBar() {
+        bulkActionBar.setVisibility(selectedOrderIds.isEmpty() ? View.GONE : View.VISIBLE);
+        bulkSelectionTextView.setText(selectedOrderIds.size() + " selected");
+    }
+
+    /**
+     * Move all selected orders to a status with one batched write, then reload
+     */
+    private void updateSelectedOrdersStatus(String newStatus) {
+        if (!PermissionManager.canUpdateOrders(this)) {
+            Toast.makeText(this, "Permission denied: You need order update permission", 
+                Toast.LENGTH_SHORT).show();
+            return;
+        }
+
+        List<String> orderIds = new ArrayList<>(selectedOrderIds);
+        clearSelection();
+        dbService.updateOrderStatuses(orderIds, newStatus, (updatedIds, failedIds) -> {
+            if (failedIds.isEmpty()) {
+                Toast.makeText(this, updatedIds.size() + " orders updated to " + newStatus, 
+                        Toast.LENGTH_SHORT).show();
+            } else {
+                for (Map.Entry<String, Exception> failure : failedIds.entrySet()) {
+                    AppLog.e(TAG, "Bulk update failed for order {}", failure.getKey(), failure.getValue());
+                }
+                Toast.makeText(this, updatedIds.size() + " orders updated, " + failedIds.size() + " failed", 
+                        Toast.LENGTH_LONG).show();
+            }
+            loadOrders();
+        });
+    }
+
     /**
      * Handle order click - navigate to TableOrderActivity
      */
@@ -206,6 +288,7 @@ public class OrderSearchActivity extends AppCompatActivity {
             TextView timeTextView;
             TextView totalTextView;
             TextView itemsCountTextView;
+            int defaultCardColor;
 
             OrderViewHolder(@NonNull View itemView) {
                 super(itemView);
@@ -215,6 +298,7 @@ public class OrderSearchActivity extends AppCompatActivity {
                 timeTextView = itemView.findViewById(R.id.timeTextView);
                 totalTextView = itemView.findViewById(R.id.totalTextView);
                 itemsCountTextView = itemView.findViewById(R.id.itemsCountTextView);
+                defaultCardColor = ((CardView) itemView).getCardBackgroundColor().getDefaultColor();
             }
 
             void bind(Order order) {
@@ -268,8 +352,20 @@ public class OrderSearchActivity extends AppCompatActivity {
                 int itemsCount = order.getItems() != null ? order.getItems().size() : 0;
                 itemsCountTextView.setText(itemsCount + " items");
 
-                // Set click listener
-                itemView.setOnClickListener(v -> onOrderClick(order));
+                // Tap opens the order, or toggles the selection while selecting; long-press starts selecting
+                boolean selected = selectedOrderIds.contains(order.getOrderId());
+                ((CardView) itemView).setCardBackgroundColor(selected ? 0xFFE3F2FD : defaultCardColor);
+                itemView.setOnClickListener(v -> {
+                    if (selectedOrderIds.isEmpty()) {
+                        onOrderClick(order);
+                    } else {
+                        toggleSelection(order);
+                    }
+                });
+                itemView.setOnLongClickListener(v -> {
+                    toggleSelection(order);
+                    return true;
+                });
             }
         }
     }
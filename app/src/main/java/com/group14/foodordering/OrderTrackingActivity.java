@@ -2,7 +2,6 @@ package com.group14.foodordering;
 
 import android.content.Intent;
 import android.os.Bundle;
-import android.util.Log;
 import android.widget.Button;
 import android.widget.TextView;
 import android.widget.Toast;
@@ -13,6 +12,8 @@ import com.group14.foodordering.model.Order;
 import com.group14.foodordering.model.OrderItem;
 import com.group14.foodordering.model.Restaurant;
 import com.group14.foodordering.service.FirebaseDatabaseService;
+import com.group14.foodordering.service.RestaurantDirectory;
+import com.group14.foodordering.util.AppLog;
 
 import java.util.List;
 
@@ -81,7 +82,7 @@ public class OrderTrackingActivity extends AppCompatActivity {
 
             @Override
             public void onFailure(Exception e) {
-                Log.e(TAG, "Failed to load order", e);
+                AppLog.e(TAG, "Failed to load order", e);
                 Toast.makeText(OrderTrackingActivity.this, "Failed to load order: " + e.getMessage(), 
                         Toast.LENGTH_SHORT).show();
             }
@@ -104,11 +105,14 @@ public class OrderTrackingActivity extends AppCompatActivity {
         // Fetch and display restaurant name
         String restaurantId = order.getRestaurantId();
         if (restaurantNameTextView != null && restaurantId != null && !restaurantId.isEmpty()) {
-            dbService.getRestaurantById(restaurantId, new FirebaseDatabaseService.RestaurantCallback() {
+            // From the restaurant directory: cached names show at once
+            RestaurantDirectory directory = dbService.getRestaurantDirectory();
+            directory.getRestaurants(new FirebaseDatabaseService.RestaurantsCallback() {
                 @Override
-                public void onSuccess(Restaurant restaurant) {
-                    if (restaurant != null && restaurant.getRestaurantName() != null) {
-                        restaurantNameTextView.setText("Restaurant: " + restaurant.getRestaurantName());
+                public void onSuccess(List<Restaurant> restaurants) {
+                    String restaurantName = directory.getRestaurantName(restaurantId);
+                    if (restaurantName != null) {
+                        restaurantNameTextView.setText("Restaurant: " + restaurantName);
                         restaurantNameTextView.setVisibility(android.view.View.VISIBLE);
                     } else {
                         restaurantNameTextView.setVisibility(android.view.View.GONE);
@@ -117,7 +121,7 @@ public class OrderTrackingActivity extends AppCompatActivity {
 
                 @Override
                 public void onFailure(Exception e) {
-                    Log.e(TAG, "Failed to fetch restaurant name", e);
+                    AppLog.e(TAG, "Failed to fetch restaurant name", e);
                     if (restaurantNameTextView != null) {
                         restaurantNameTextView.setVisibility(android.view.View.GONE);
                     }
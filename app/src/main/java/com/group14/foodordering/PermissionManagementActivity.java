@@ -1,7 +1,6 @@
 package com.group14.foodordering;
 
 import android.os.Bundle;
-import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -21,8 +20,10 @@ import androidx.recyclerview.widget.RecyclerView;
 import com.group14.foodordering.model.Admin;
 import com.group14.foodordering.model.Restaurant;
 import com.group14.foodordering.service.FirebaseDatabaseService;
+import com.group14.foodordering.service.RestaurantDirectory;
 import com.group14.foodordering.util.AdminRoleHelper;
 import com.group14.foodordering.util.AdminSessionHelper;
+import com.group14.foodordering.util.AppLog;
 import com.group14.foodordering.util.PermissionManager;
 
 import java.util.ArrayList;
@@ -38,7 +39,8 @@ public class PermissionManagementActivity extends AppCompatActivity {
     private AdminAdapter adminAdapter;
     private List<Admin> allAdmins = new ArrayList<>();
     private List<Admin> filteredAdmins = new ArrayList<>();
-    private List<Restaurant> allRestaurants = new ArrayList<>();
+    private RestaurantDirectory restaurantDirectory;
+    private RestaurantDirectory.Listener directoryListener;
     private String currentUserRole;
     private List<String> currentUserRestaurantIds;
 
@@ -74,18 +76,32 @@ public class PermissionManagementActivity extends AppCompatActivity {
         loadAdmins();
     }
     
+    /**
+     * Show restaurant names from the directory; rows are redrawn when the names change
+     */
     private void loadRestaurants() {
-        dbService.getAllRestaurants(new FirebaseDatabaseService.RestaurantsCallback() {
+        restaurantDirectory = dbService.getRestaurantDirectory();
+        directoryListener = new RestaurantDirectory.Listener() {
             @Override
-            public void onSuccess(List<Restaurant> restaurants) {
-                allRestaurants = restaurants;
+            public void onRestaurantsChanged(List<Restaurant> restaurants) {
+                adminAdapter.notifyDataSetChanged();
             }
             
             @Override
             public void onFailure(Exception e) {
-                Log.e(TAG, "Failed to load restaurants", e);
+                AppLog.e(TAG, "Failed to load restaurants", e);
             }
-        });
+        };
+        restaurantDirectory.addListener(directoryListener);
+    }
+    
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        if (directoryListener != null) {
+            restaurantDirectory.removeListener(directoryListener);
+            directoryListener = null;
+        }
     }
     
     private void loadAdmins() {
@@ -110,7 +126,7 @@ public class PermissionManagementActivity extends AppCompatActivity {
             
             @Override
             public void onFailure(Exception e) {
-                Log.e(TAG, "Failed to load admins", e);
+                AppLog.e(TAG, "Failed to load admins", e);
                 progressBar.setVisibility(View.GONE);
                 Toast.makeText(PermissionManagementActivity.this, 
                     "Failed to load admins: " + e.getMessage(), 
@@ -188,12 +204,8 @@ public class PermissionManagementActivity extends AppCompatActivity {
      * Get restaurant name by ID
      */
     private String getRestaurantName(String restaurantId) {
-        for (Restaurant restaurant : allRestaurants) {
-            if (restaurant.getRestaurantId().equals(restaurantId)) {
-                return restaurant.getRestaurantName();
-            }
-        }
-        return restaurantId;
+        String name = restaurantDirectory.getRestaurantName(restaurantId);
+        return name != null ? name : restaurantId;
     }
     
     private void showEditPermissionsDialog(Admin admin) {
@@ -264,7 +276,7 @@ public class PermissionManagementActivity extends AppCompatActivity {
             
             @Override
             public void onFailure(Exception e) {
-                Log.e(TAG, "Failed to update admin", e);
+                AppLog.e(TAG, "Failed to update admin", e);
                 Toast.makeText(PermissionManagementActivity.this, 
                     "Failed to update permissions: " + e.getMessage(), 
                     Toast.LENGTH_SHORT).show();
@@ -2,7 +2,6 @@ package com.group14.foodordering;
 
 import android.content.Intent;
 import android.os.Bundle;
-import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -17,6 +16,9 @@ import androidx.recyclerview.widget.RecyclerView;
 
 import com.group14.foodordering.model.Restaurant;
 import com.group14.foodordering.service.FirebaseDatabaseService;
+import com.group14.foodordering.service.RestaurantDirectory;
+import com.group14.foodordering.service.StartupWarmup;
+import com.group14.foodordering.util.AppLog;
 import com.group14.foodordering.util.RestaurantPreferenceHelper;
 
 import java.util.ArrayList;
@@ -35,6 +37,8 @@ public class RestaurantSelectionActivity extends AppCompatActivity {
     private List<Restaurant> restaurants;
     private TextView emptyTextView;
     private ProgressBar progressBar;
+    private RestaurantDirectory restaurantDirectory;
+    private RestaurantDirectory.Listener directoryListener;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -61,7 +65,9 @@ public class RestaurantSelectionActivity extends AppCompatActivity {
             RestaurantPreferenceHelper.setSelectedRestaurantId(this, restaurant.getRestaurantId());
             RestaurantPreferenceHelper.setSelectedRestaurantName(this, restaurant.getRestaurantName());
             
-            Log.d(TAG, "Restaurant selected: " + restaurant.getRestaurantName());
+            AppLog.d(TAG, "Restaurant selected: {}", restaurant.getRestaurantName());
+            // The menu is likely next
+            StartupWarmup.getInstance().prefetchMenu();
             Toast.makeText(this, "Selected: " + restaurant.getRestaurantName(), Toast.LENGTH_SHORT).show();
             
             // Check if this was called from MenuActivity (via startActivityForResult)
@@ -84,15 +90,17 @@ public class RestaurantSelectionActivity extends AppCompatActivity {
     }
 
     /**
-     * Load restaurants from Firebase
+     * Show restaurants from the directory: the cached ones at once, then any changes
      */
     private void loadRestaurants() {
-        progressBar.setVisibility(View.VISIBLE);
+        restaurantDirectory = dbService.getRestaurantDirectory();
+        boolean loaded = restaurantDirectory.isLoaded();
+        progressBar.setVisibility(loaded ? View.GONE : View.VISIBLE);
         emptyTextView.setVisibility(View.GONE);
-        
-        dbService.getAllRestaurants(new FirebaseDatabaseService.RestaurantsCallback() {
+
+        directoryListener = new RestaurantDirectory.Listener() {
             @Override
-            public void onSuccess(List<Restaurant> restaurantList) {
+            public void onRestaurantsChanged(List<Restaurant> restaurantList) {
                 progressBar.setVisibility(View.GONE);
                 restaurants.clear();
                 restaurants.addAll(restaurantList);
@@ -108,13 +116,23 @@ public class RestaurantSelectionActivity extends AppCompatActivity {
             @Override
             public void onFailure(Exception e) {
                 progressBar.setVisibility(View.GONE);
-                Log.e(TAG, "Failed to load restaurants", e);
+                AppLog.e(TAG, "Failed to load restaurants", e);
                 Toast.makeText(RestaurantSelectionActivity.this, 
                         "Failed to load restaurants: " + e.getMessage(), 
                         Toast.LENGTH_SHORT).show();
                 emptyTextView.setVisibility(View.VISIBLE);
             }
-        });
+        };
+        restaurantDirectory.addListener(directoryListener);
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        if (directoryListener != null) {
+            restaurantDirectory.removeListener(directoryListener);
+            directoryListener = null;
+        }
     }
 
     /**
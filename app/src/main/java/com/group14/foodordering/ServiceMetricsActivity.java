@@ -0,0 +1,112 @@
+package com.group14.foodordering;
+
+import android.content.Intent;
+import android.os.Bundle;
+import android.widget.Button;
+import android.widget.TextView;
+import android.widget.Toast;
+
+import androidx.appcompat.app.AppCompatActivity;
+
+import com.group14.foodordering.service.FirebaseDatabaseService;
+import com.group14.foodordering.service.ServiceMetrics;
+import com.group14.foodordering.util.AppLog;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Database metrics debug screen
+ * Shows latency, documents, payload and cache use per FirebaseDatabaseService operation, slowest
+ * first. Export saves the metrics as JSON in app storage and offers to share them with the recent log
+ * events, which works offline
+ */
+public class ServiceMetricsActivity extends AppCompatActivity {
+
+    private static final String TAG = "ServiceMetricsActivity";
+    private static final String EXPORT_DIR = "metrics";
+    private ServiceMetrics metrics;
+    private TextView metricsTextView;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_service_metrics);
+
+        metrics = FirebaseDatabaseService.getInstance().getMetrics();
+        metricsTextView = findViewById(R.id.metricsTextView);
+
+        Button btnRefresh = findViewById(R.id.btnRefresh);
+        btnRefresh.setOnClickListener(v -> showMetrics());
+        Button btnExport = findViewById(R.id.btnExport);
+        btnExport.setOnClickListener(v -> exportMetrics());
+        Button btnReset = findViewById(R.id.btnReset);
+        btnReset.setOnClickListener(v -> {
+            metrics.reset();
+            showMetrics();
+        });
+    }
+
+    @Override
+    protected void onResume() {
+        super.onResume();
+        showMetrics();
+    }
+
+    private void showMetrics() {
+        List<ServiceMetrics.OperationStats> operations = metrics.getSlowest();
+        if (operations.isEmpty()) {
+            metricsTextView.setText("No database calls recorded yet");
+            return;
+        }
+        StringBuilder text = new StringBuilder();
+        for (ServiceMetrics.OperationStats operation : operations) {
+            text.append(operation.getOperation()).append('\n');
+            text.append(String.format(Locale.ROOT, "  calls %d, failed %d, updates %d%n",
+                    operation.getCalls(), operation.getFailures(), operation.getUpdates()));
+            text.append(String.format(Locale.ROOT, "  p50 %d ms, p95 %d ms, mean %.0f ms, max %d ms%n",
+                    operation.getPercentileMillis(0.5), operation.getPercentileMillis(0.95),
+                    operation.getMeanMillis(), operation.getMaxMillis()));
+            text.append(String.format(Locale.ROOT, "  read %d, written %d docs, %.1f KB%n",
+                    operation.getDocumentsRead(), operation.getDocumentsWritten(), operation.getPayloadBytes() / 1024.0));
+            text.append(String.format(Locale.ROOT, "  cache %d, server %d%n%n",
+                    operation.getFromCache(), operation.getFromServer()));
+        }
+        metricsTextView.setText(text.toString());
+    }
+
+    /**
+     * Save the metrics as JSON and offer to share them
+     */
+    private void exportMetrics() {
+        long now = System.currentTimeMillis();
+        String json = metrics.toJson(now);
+        File dir = new File(getFilesDir(), EXPORT_DIR);
+        File file = new File(dir, "service_metrics_" + now + ".json");
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            Toast.makeText(this, "Failed to create " + dir, Toast.LENGTH_SHORT).show();
+            return;
+        }
+        try (OutputStream out = new FileOutputStream(file)) {
+            out.write(json.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            AppLog.e(TAG, "Failed to export metrics", e);
+            Toast.makeText(this, "Export failed: " + e.getMessage(), Toast.LENGTH_SHORT).show();
+            return;
+        }
+        AppLog.d(TAG, "Metrics exported to {}", file);
+        Toast.makeText(this, "Saved " + file.getName(), Toast.LENGTH_SHORT).show();
+
+        Intent share = new Intent(Intent.ACTION_SEND);
+        share.setType("application/json");
+        share.putExtra(Intent.EXTRA_SUBJECT, file.getName());
+        // Recent log events give the numbers their context in a bug report
+        share.putExtra(Intent.EXTRA_TEXT, json + "\n\nRecent log:\n" + AppLog.dumpRecent());
+        startActivity(Intent.createChooser(share, "Export metrics"));
+    }
+}
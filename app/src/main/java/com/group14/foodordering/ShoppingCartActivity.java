@@ -2,7 +2,6 @@ package com.group14.foodordering;
 
 import android.content.Intent;
 import android.os.Bundle;
-import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -17,6 +16,7 @@ import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.group14.foodordering.model.MenuItem;
+import com.group14.foodordering.util.AppLog;
 
 import java.io.Serializable;
 import java.util.ArrayList;
@@ -82,23 +82,23 @@ public class ShoppingCartActivity extends AppCompatActivity {
         cartRecyclerView.setClipChildren(false);
         
         // Debug initial state
-        Log.d(TAG, "RecyclerView initialized - visibility: " + cartRecyclerView.getVisibility());
-        Log.d(TAG, "RecyclerView ID: " + cartRecyclerView.getId());
+        AppLog.d(TAG, "RecyclerView initialized - visibility: {}", cartRecyclerView.getVisibility());
+        AppLog.d(TAG, "RecyclerView ID: {}", cartRecyclerView.getId());
         
         // Wait for layout to complete before setting up RecyclerView
         cartRecyclerView.getViewTreeObserver().addOnGlobalLayoutListener(new ViewTreeObserver.OnGlobalLayoutListener() {
             @Override
             public void onGlobalLayout() {
                 cartRecyclerView.getViewTreeObserver().removeOnGlobalLayoutListener(this);
-                Log.d(TAG, "Layout complete - RecyclerView size: " + cartRecyclerView.getWidth() + "x" + cartRecyclerView.getHeight());
+                AppLog.d(TAG, "Layout complete - RecyclerView size: {}x{}", cartRecyclerView.getWidth(), cartRecyclerView.getHeight());
                 
                 // Force layout if needed
                 if (cartRecyclerView.getWidth() == 0 || cartRecyclerView.getHeight() == 0) {
-                    Log.w(TAG, "RecyclerView still has 0 dimensions, forcing layout");
+                    AppLog.w(TAG, "RecyclerView still has 0 dimensions, forcing layout");
                     cartRecyclerView.requestLayout();
                 } else if (cartAdapter != null && cartItems.size() > 0) {
                     // Layout is complete and we have data, refresh the adapter
-                    Log.d(TAG, "Layout complete with proper dimensions, refreshing adapter");
+                    AppLog.d(TAG, "Layout complete with proper dimensions, refreshing adapter");
                     cartAdapter.notifyDataSetChanged();
                 }
             }
@@ -146,7 +146,7 @@ public class ShoppingCartActivity extends AppCompatActivity {
                     if (!intentCart.isEmpty()) {
                         cart = new HashMap<>(intentCart);
                         loadedFromIntent = true;
-                        Log.d(TAG, "Loaded cart from Intent: " + cart.size() + " items");
+                        AppLog.d(TAG, "Loaded cart from Intent: {} items", cart.size());
                     }
                 }
                 if (cartDrinkObj instanceof Map) {
@@ -159,11 +159,11 @@ public class ShoppingCartActivity extends AppCompatActivity {
                     List<MenuItem> intentMenuItems = (List<MenuItem>) menuItemsObj;
                     if (!intentMenuItems.isEmpty()) {
                         allMenuItems = new ArrayList<>(intentMenuItems);
-                        Log.d(TAG, "Loaded menu items from Intent: " + allMenuItems.size() + " items");
+                        AppLog.d(TAG, "Loaded menu items from Intent: {} items", allMenuItems.size());
                     }
                 }
             } catch (Exception e) {
-                Log.e(TAG, "Error loading from Intent", e);
+                AppLog.e(TAG, "Error loading from Intent", e);
             }
         }
         
@@ -184,7 +184,7 @@ public class ShoppingCartActivity extends AppCompatActivity {
                 if (menuItems != null && !menuItems.isEmpty()) {
                     allMenuItems = menuItems;
                 }
-                Log.d(TAG, "Loaded from MenuActivity: cart=" + (cart != null ? cart.size() : 0) + ", menuItems=" + (allMenuItems != null ? allMenuItems.size() : 0));
+                AppLog.d(TAG, "Loaded from MenuActivity: cart={}, menuItems={}", (cart != null ? cart.size() : 0), (allMenuItems != null ? allMenuItems.size() : 0));
             }
         }
         
@@ -201,27 +201,27 @@ public class ShoppingCartActivity extends AppCompatActivity {
             }
         }
         
-        Log.d(TAG, "Menu item map size: " + menuItemMap.size());
-        Log.d(TAG, "Cart size: " + cart.size());
+        AppLog.d(TAG, "Menu item map size: {}", menuItemMap.size());
+        AppLog.d(TAG, "Cart size: {}", cart.size());
         
         // Build and display cart items
         buildCartItems();
         
-        Log.d(TAG, "After buildCartItems: cartItems.size() = " + cartItems.size());
+        AppLog.d(TAG, "After buildCartItems: cartItems.size() = {}", cartItems.size());
         
         // Create and set adapter after data is loaded
         cartAdapter = new CartAdapter();
         cartRecyclerView.setAdapter(cartAdapter);
         
-        Log.d(TAG, "Adapter set. Item count: " + cartAdapter.getItemCount());
-        Log.d(TAG, "RecyclerView adapter after setting: " + cartRecyclerView.getAdapter());
+        AppLog.d(TAG, "Adapter set. Item count: {}", cartAdapter.getItemCount());
+        AppLog.d(TAG, "RecyclerView adapter after setting: {}", cartRecyclerView.getAdapter());
         
         updateDisplay();
         
         // Force RecyclerView to measure and layout after adapter is set
         cartRecyclerView.postDelayed(() -> {
             if (cartAdapter != null && cartAdapter.getItemCount() > 0) {
-                Log.d(TAG, "Delayed refresh - forcing RecyclerView to update");
+                AppLog.d(TAG, "Delayed refresh - forcing RecyclerView to update");
                 cartAdapter.notifyDataSetChanged();
                 cartRecyclerView.requestLayout();
                 cartRecyclerView.invalidate();
@@ -231,18 +231,18 @@ public class ShoppingCartActivity extends AppCompatActivity {
         // Post a runnable to ensure RecyclerView is refreshed after layout
         cartRecyclerView.post(() -> {
             // Debug RecyclerView state
-            Log.d(TAG, "RecyclerView visibility: " + cartRecyclerView.getVisibility());
-            Log.d(TAG, "RecyclerView width: " + cartRecyclerView.getWidth() + ", height: " + cartRecyclerView.getHeight());
-            Log.d(TAG, "RecyclerView measured: " + cartRecyclerView.getMeasuredWidth() + "x" + cartRecyclerView.getMeasuredHeight());
-            Log.d(TAG, "RecyclerView layout manager: " + cartRecyclerView.getLayoutManager());
-            Log.d(TAG, "RecyclerView adapter: " + cartRecyclerView.getAdapter());
-            Log.d(TAG, "Adapter item count: " + (cartAdapter != null ? cartAdapter.getItemCount() : "null"));
-            Log.d(TAG, "Cart items size: " + cartItems.size());
+            AppLog.d(TAG, "RecyclerView visibility: {}", cartRecyclerView.getVisibility());
+            AppLog.d(TAG, "RecyclerView width: {}, height: {}", cartRecyclerView.getWidth(), cartRecyclerView.getHeight());
+            AppLog.d(TAG, "RecyclerView measured: {}x{}", cartRecyclerView.getMeasuredWidth(), cartRecyclerView.getMeasuredHeight());
+            AppLog.d(TAG, "RecyclerView layout manager: {}", cartRecyclerView.getLayoutManager());
+            AppLog.d(TAG, "RecyclerView adapter: {}", cartRecyclerView.getAdapter());
+            AppLog.d(TAG, "Adapter item count: {}", (cartAdapter != null ? cartAdapter.getItemCount() : "null"));
+            AppLog.d(TAG, "Cart items size: {}", cartItems.size());
             
             if (cartAdapter != null && cartItems.size() > 0) {
                 // Force a full refresh
                 cartAdapter.notifyDataSetChanged();
-                Log.d(TAG, "Post-layout refresh: " + cartItems.size() + " items");
+                AppLog.d(TAG, "Post-layout refresh: {} items", cartItems.size());
                 
                 // Force layout pass
                 cartRecyclerView.requestLayout();
@@ -254,11 +254,10 @@ public class ShoppingCartActivity extends AppCompatActivity {
                 // Try scrolling to position 0 to trigger rendering
                 if (cartAdapter.getItemCount() > 0) {
                     cartRecyclerView.scrollToPosition(0);
-                    Log.d(TAG, "Scrolled to position 0");
+                    AppLog.d(TAG, "Scrolled to position 0");
                 }
             } else {
-                Log.w(TAG, "Cannot refresh: adapter=" + (cartAdapter != null ? "not null" : "null") + 
-                      ", cartItems.size()=" + cartItems.size());
+                AppLog.w(TAG, "Cannot refresh: adapter={}, cartItems.size()={}", (cartAdapter != null ? "not null" : "null"), cartItems.size());
             }
         });
     }
@@ -270,11 +269,11 @@ public class ShoppingCartActivity extends AppCompatActivity {
         cartItems.clear();
         
         if (cart == null || cart.isEmpty()) {
-            Log.d(TAG, "Cart is empty");
+            AppLog.d(TAG, "Cart is empty");
             return;
         }
         
-        Log.d(TAG, "Building cart items from " + cart.size() + " entries");
+        AppLog.d(TAG, "Building cart items from {} entries", cart.size());
         
         for (Map.Entry<String, Integer> entry : cart.entrySet()) {
             String itemId = entry.getKey();
@@ -301,13 +300,13 @@ public class ShoppingCartActivity extends AppCompatActivity {
                 double drinkAddition = cartDrinkAdditions != null ? cartDrinkAdditions.getOrDefault(itemId, 0.0) : 0.0;
                 CartItem cartItem = new CartItem(menuItem, quantity, drinkAddition);
                 cartItems.add(cartItem);
-                Log.d(TAG, "Added: " + menuItem.getName() + " x" + quantity);
+                AppLog.d(TAG, "Added: {} x{}", menuItem.getName(), quantity);
             } else {
-                Log.w(TAG, "Menu item not found for ID: " + itemId);
+                AppLog.w(TAG, "Menu item not found for ID: {}", itemId);
             }
         }
         
-        Log.d(TAG, "Built " + cartItems.size() + " cart items");
+        AppLog.d(TAG, "Built {} cart items", cartItems.size());
     }
 
     /**
@@ -389,7 +388,7 @@ public class ShoppingCartActivity extends AppCompatActivity {
         // Notify adapter
         if (cartAdapter != null) {
             cartAdapter.notifyDataSetChanged();
-            Log.d(TAG, "Adapter notified. Item count: " + cartItems.size());
+            AppLog.d(TAG, "Adapter notified. Item count: {}", cartItems.size());
             
             // Force RecyclerView to refresh
             if (cartRecyclerView != null && cartItems.size() > 0) {
@@ -402,7 +401,7 @@ public class ShoppingCartActivity extends AppCompatActivity {
                 });
             }
         } else {
-            Log.e(TAG, "Adapter is null!");
+            AppLog.e(TAG, "Adapter is null!");
         }
     }
 
@@ -437,13 +436,13 @@ public class ShoppingCartActivity extends AppCompatActivity {
         @NonNull
         @Override
         public CartViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
-            Log.d(TAG, "onCreateViewHolder called");
+            AppLog.d(TAG, "onCreateViewHolder called");
             View view = LayoutInflater.from(parent.getContext())
                     .inflate(R.layout.item_cart, parent, false);
             if (view == null) {
-                Log.e(TAG, "Failed to inflate item_cart layout!");
+                AppLog.e(TAG, "Failed to inflate item_cart layout!");
             } else {
-                Log.d(TAG, "Successfully inflated item_cart layout, view: " + view.getClass().getSimpleName());
+                AppLog.d(TAG, "Successfully inflated item_cart layout, view: {}", view.getClass().getSimpleName());
             }
             return new CartViewHolder(view);
         }
@@ -452,18 +451,17 @@ public class ShoppingCartActivity extends AppCompatActivity {
         public void onBindViewHolder(@NonNull CartViewHolder holder, int position) {
             if (position >= 0 && position < cartItems.size()) {
                 CartItem cartItem = cartItems.get(position);
-                Log.d(TAG, "Binding item at position " + position + ": " + 
-                    (cartItem != null && cartItem.menuItem != null ? cartItem.menuItem.getName() : "null"));
+                AppLog.d(TAG, "Binding item at position {}: {}", position, (cartItem != null && cartItem.menuItem != null ? cartItem.menuItem.getName() : "null"));
                 holder.bind(cartItem);
             } else {
-                Log.e(TAG, "Invalid position in onBindViewHolder: " + position + ", size: " + cartItems.size());
+                AppLog.e(TAG, "Invalid position in onBindViewHolder: {}, size: {}", position, cartItems.size());
             }
         }
 
         @Override
         public int getItemCount() {
             int count = cartItems != null ? cartItems.size() : 0;
-            Log.d(TAG, "getItemCount() called, returning: " + count);
+            AppLog.d(TAG, "getItemCount() called, returning: {}", count);
             return count;
         }
 
@@ -494,31 +492,30 @@ public class ShoppingCartActivity extends AppCompatActivity {
                 removeButton = itemView.findViewById(R.id.removeButton);
                 
                 // Debug: Log if any views are null
-                if (itemNameTextView == null) Log.e(TAG, "itemNameTextView is NULL!");
-                if (itemDescriptionTextView == null) Log.e(TAG, "itemDescriptionTextView is NULL!");
-                if (itemPriceTextView == null) Log.e(TAG, "itemPriceTextView is NULL!");
-                if (itemSubtotalTextView == null) Log.e(TAG, "itemSubtotalTextView is NULL!");
-                if (quantityTextView == null) Log.e(TAG, "quantityTextView is NULL!");
-                if (customizationTextView == null) Log.e(TAG, "customizationTextView is NULL!");
-                if (decreaseButton == null) Log.e(TAG, "decreaseButton is NULL!");
-                if (increaseButton == null) Log.e(TAG, "increaseButton is NULL!");
-                if (removeButton == null) Log.e(TAG, "removeButton is NULL!");
+                if (itemNameTextView == null) AppLog.e(TAG, "itemNameTextView is NULL!");
+                if (itemDescriptionTextView == null) AppLog.e(TAG, "itemDescriptionTextView is NULL!");
+                if (itemPriceTextView == null) AppLog.e(TAG, "itemPriceTextView is NULL!");
+                if (itemSubtotalTextView == null) AppLog.e(TAG, "itemSubtotalTextView is NULL!");
+                if (quantityTextView == null) AppLog.e(TAG, "quantityTextView is NULL!");
+                if (customizationTextView == null) AppLog.e(TAG, "customizationTextView is NULL!");
+                if (decreaseButton == null) AppLog.e(TAG, "decreaseButton is NULL!");
+                if (increaseButton == null) AppLog.e(TAG, "increaseButton is NULL!");
+                if (removeButton == null) AppLog.e(TAG, "removeButton is NULL!");
                 
-                Log.d(TAG, "ViewHolder created - all views found: " + 
-                    (itemNameTextView != null && itemPriceTextView != null && 
+                AppLog.d(TAG, "ViewHolder created - all views found: {}", (itemNameTextView != null && itemPriceTextView != null && 
                      itemSubtotalTextView != null && quantityTextView != null));
             }
 
             void bind(CartItem cartItem) {
-                Log.d(TAG, "bind() called for position " + getAdapterPosition());
+                AppLog.d(TAG, "bind() called for position {}", getAdapterPosition());
                 if (cartItem == null || cartItem.menuItem == null) {
-                    Log.e(TAG, "CartItem or MenuItem is null in bind()");
+                    AppLog.e(TAG, "CartItem or MenuItem is null in bind()");
                     return;
                 }
                 
                 MenuItem menuItem = cartItem.menuItem;
                 String itemName = menuItem.getName() != null ? menuItem.getName() : "Unknown Item";
-                Log.d(TAG, "Binding item: " + itemName + ", quantity: " + cartItem.quantity);
+                AppLog.d(TAG, "Binding item: {}, quantity: {}", itemName, cartItem.quantity);
                 
                 // Set item name
                 if (itemNameTextView != null) {
@@ -2,7 +2,6 @@ package com.group14.foodordering;
 
 import android.content.Intent;
 import android.os.Bundle;
-import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -18,8 +17,11 @@ import androidx.recyclerview.widget.RecyclerView;
 import com.google.firebase.firestore.ListenerRegistration;
 import com.group14.foodordering.model.Table;
 import com.group14.foodordering.service.FirebaseDatabaseService;
+import com.group14.foodordering.service.TableFloorStore;
+import com.group14.foodordering.service.TableOrderIndex;
+import com.group14.foodordering.util.AppLog;
+import com.group14.foodordering.util.RestaurantPreferenceHelper;
 
-import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -33,9 +35,10 @@ public class TableMapActivity extends AppCompatActivity {
     private FirebaseDatabaseService dbService;
     private RecyclerView tablesRecyclerView;
     private TablesAdapter tablesAdapter;
-    private List<Table> tables;
+    private TableFloorStore tables; // natural order; redraws only the tables that changed
     private ListenerRegistration tablesListener;
     private String branchId;
+    private TableOrderIndex tableOrders; // held so opening a table finds the index already live
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -43,7 +46,8 @@ public class TableMapActivity extends AppCompatActivity {
         setContentView(R.layout.activity_table_map);
 
         dbService = FirebaseDatabaseService.getInstance();
-        tables = new ArrayList<>();
+        tables = new TableFloorStore();
+        tableOrders = dbService.acquireTableOrderIndex(RestaurantPreferenceHelper.getSelectedRestaurantId(this));
 
         setupViews();
         // Use default branch ID from test data
@@ -61,6 +65,32 @@ public class TableMapActivity extends AppCompatActivity {
         
         tablesAdapter = new TablesAdapter();
         tablesRecyclerView.setAdapter(tablesAdapter);
+        tables.setListener(new TableFloorStore.Listener() {
+            @Override
+            public void onTablesReset() {
+                tablesAdapter.notifyDataSetChanged();
+            }
+
+            @Override
+            public void onTableInserted(int position) {
+                tablesAdapter.notifyItemInserted(position);
+            }
+
+            @Override
+            public void onTableRemoved(int position) {
+                tablesAdapter.notifyItemRemoved(position);
+            }
+
+            @Override
+            public void onTableChanged(int position) {
+                tablesAdapter.notifyItemChanged(position);
+            }
+
+            @Override
+            public void onTableMoved(int fromPosition, int toPosition) {
+                tablesAdapter.notifyItemMoved(fromPosition, toPosition);
+            }
+        });
 
         // Setup search orders button
         Button searchOrdersButton = findViewById(R.id.searchOrdersButton);
@@ -74,19 +104,17 @@ public class TableMapActivity extends AppCompatActivity {
      * Load tables from Firebase
      */
     private void loadTables() {
-        // Use real-time listener for live updates
-        tablesListener = dbService.listenToTablesByBranchId(branchId, new FirebaseDatabaseService.TablesCallback() {
+        // Use real-time listener for live updates; only changed tables are decoded and redrawn
+        tablesListener = dbService.listenToTableChangesByBranchId(branchId, new FirebaseDatabaseService.TableChangesCallback() {
             @Override
-            public void onSuccess(List<Table> tablesList) {
-                tables.clear();
-                tables.addAll(tablesList);
-                tablesAdapter.notifyDataSetChanged();
-                Log.d(TAG, "Loaded " + tables.size() + " tables");
+            public void onChanges(List<Table> changed, List<String> removedIds) {
+                tables.apply(changed, removedIds);
+                AppLog.d(TAG, "Applied {} table changes, {} removals, total: {}", changed.size(), removedIds.size(), tables.size());
             }
 
             @Override
             public void onFailure(Exception e) {
-                Log.e(TAG, "Failed to load tables", e);
+                AppLog.e(TAG, "Failed to load tables", e);
                 Toast.makeText(TableMapActivity.this, "Failed to load tables: " + e.getMessage(), 
                         Toast.LENGTH_SHORT).show();
             }
@@ -109,6 +137,7 @@ public class TableMapActivity extends AppCompatActivity {
         if (tablesListener != null) {
             tablesListener.remove();
         }
+        dbService.releaseTableOrderIndex(tableOrders);
     }
 
     /**
@@ -2,7 +2,6 @@ package com.group14.foodordering;
 
 import android.os.Bundle;
 import android.text.InputType;
-import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -18,10 +17,15 @@ import androidx.appcompat.app.AppCompatActivity;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
+import com.google.android.gms.tasks.CancellationTokenSource;
 import com.group14.foodordering.model.MenuItem;
 import com.group14.foodordering.model.Order;
+import com.group14.foodordering.model.OrderCodec;
 import com.group14.foodordering.model.OrderItem;
 import com.group14.foodordering.service.FirebaseDatabaseService;
+import com.group14.foodordering.service.TableOrderIndex;
+import com.group14.foodordering.util.AppLog;
+import com.group14.foodordering.util.RestaurantPreferenceHelper;
 
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -46,11 +50,18 @@ public class TableOrderActivity extends AppCompatActivity {
     private List<OrderItem> currentOrderItems;
     private String currentTableNumber;
     private String currentOrderId;
+    // Copy of the current order that records edits, so an update sends only what changed
+    private Order editingOrder;
+    private String checkoutKey; // idempotency key of the order being created
     private TextView tableNumberTextView;
     private TextView orderTotalTextView;
     private Button createOrderButton;
     private Button updateOrderButton;
     private Button loadExistingOrderButton;
+    // Cancels in-flight database work when the activity is destroyed
+    private final CancellationTokenSource lifecycleCancellation = new CancellationTokenSource();
+    // Active orders by table, kept live by one restaurant-scoped listener
+    private TableOrderIndex tableOrders;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -60,6 +71,7 @@ public class TableOrderActivity extends AppCompatActivity {
         dbService = FirebaseDatabaseService.getInstance();
         menuItems = new ArrayList<>();
         currentOrderItems = new ArrayList<>();
+        tableOrders = dbService.acquireTableOrderIndex(RestaurantPreferenceHelper.getSelectedRestaurantId(this));
 
         setupViews();
         loadMenuItems();
@@ -145,6 +157,7 @@ public class TableOrderActivity extends AppCompatActivity {
      */
     private void enableCreateOrderMode() {
         currentOrderId = null;
+        editingOrder = null;
         currentOrderItems.clear();
         orderItemsAdapter.notifyDataSetChanged();
         updateTotal();
@@ -152,6 +165,22 @@ public class TableOrderActivity extends AppCompatActivity {
         updateOrderButton.setEnabled(false);
     }
 
+    /**
+     * The order was changed on another device in a way these edits cannot be merged with
+     */
+    private void showOrderConflict(Order storedOrder) {
+        AlertDialog.Builder builder = new AlertDialog.Builder(this);
+        builder.setTitle("Order Changed");
+        builder.setMessage("Order " + storedOrder.getOrderId() + " was changed on another device. "
+                + "Reload it and make your changes again?");
+        builder.setPositiveButton("Reload", (dialog, which) -> {
+            tableOrders.put(storedOrder);
+            loadOrder(storedOrder);
+        });
+        builder.setNegativeButton("Cancel", null);
+        builder.show();
+    }
+
     /**
      * Show explanation for button states when user cancels order selection
      */
@@ -196,15 +225,43 @@ public class TableOrderActivity extends AppCompatActivity {
     }
 
     /**
-     * Load all orders for a table
+     * Show the active orders of a table from the table order index
+     * Needs no reads once the index is live; past orders are loaded only when asked for
      */
     private void loadExistingOrdersForTable(String tableNumber) {
+        tableOrders.whenReady(() -> {
+            if (isDestroyed()) {
+                return;
+            }
+            if (!tableOrders.isReady()) {
+                // The index listener failed: query the table instead
+                loadOrderHistoryForTable(tableNumber);
+                return;
+            }
+            List<Order> orders = tableOrders.getActiveOrders(tableNumber);
+            if (!orders.isEmpty()) {
+                // Show dialog for user to select order to load
+                showOrderSelectionDialog(orders, tableNumber);
+            } else {
+                // No active orders, enable Create Order button
+                enableCreateOrderMode();
+                Toast.makeText(TableOrderActivity.this, 
+                        "No active orders found for this table. You can now create a new order.", 
+                        Toast.LENGTH_LONG).show();
+            }
+        });
+    }
+
+    /**
+     * Load all orders of a table, including completed ones
+     */
+    private void loadOrderHistoryForTable(String tableNumber) {
         dbService.getOrdersByTableNumber(tableNumber, new FirebaseDatabaseService.OrdersCallback() {
             @Override
             public void onSuccess(List<Order> orders) {
                 if (!orders.isEmpty()) {
                     // Show dialog for user to select order to load
-                    showOrderSelectionDialog(orders);
+                    showOrderSelectionDialog(orders, null);
                 } else {
                     // No existing orders, enable Create Order button
                     enableCreateOrderMode();
@@ -216,7 +273,7 @@ public class TableOrderActivity extends AppCompatActivity {
 
             @Override
             public void onFailure(Exception e) {
-                Log.d(TAG, "No existing orders for this table");
+                AppLog.d(TAG, "No existing orders for this table");
                 // No existing orders, enable Create Order button
                 enableCreateOrderMode();
                 Toast.makeText(TableOrderActivity.this, 
@@ -228,19 +285,27 @@ public class TableOrderActivity extends AppCompatActivity {
 
     /**
      * Show order selection dialog
+     * @param historyTableNumber when set, the last entry loads the past orders of that table
      */
-    private void showOrderSelectionDialog(List<Order> orders) {
-        String[] orderIds = new String[orders.size()];
+    private void showOrderSelectionDialog(List<Order> orders, String historyTableNumber) {
+        String[] orderIds = new String[orders.size() + (historyTableNumber != null ? 1 : 0)];
         for (int i = 0; i < orders.size(); i++) {
             Order order = orders.get(i);
             orderIds[i] = "Order ID: " + order.getOrderId() + 
                     " (Status: " + order.getStatus() + ", Total: $" + order.getTotal() + ")";
         }
+        if (historyTableNumber != null) {
+            orderIds[orders.size()] = "Show past orders\u2026";
+        }
 
         AlertDialog.Builder builder = new AlertDialog.Builder(this);
         builder.setTitle("Select Order to Load");
         builder.setItems(orderIds, (dialog, which) -> {
-            loadOrder(orders.get(which));
+            if (which < orders.size()) {
+                loadOrder(orders.get(which));
+            } else {
+                loadOrderHistoryForTable(historyTableNumber);
+            }
         });
         builder.setNegativeButton("Create New Order", (dialog, which) -> {
             // Enable create order mode
@@ -269,7 +334,16 @@ public class TableOrderActivity extends AppCompatActivity {
 
         builder.setPositiveButton("Load", (dialog, which) -> {
             String orderId = input.getText().toString().trim();
-            if (!orderId.isEmpty()) {
+            Order indexed = tableOrders.getOrder(orderId);
+            if (indexed != null) {
+                // Active order: already in the index
+                if (indexed.getTableNumber().equals(currentTableNumber)) {
+                    loadOrder(indexed);
+                } else {
+                    Toast.makeText(TableOrderActivity.this, 
+                            "This order does not belong to current table", Toast.LENGTH_SHORT).show();
+                }
+            } else if (!orderId.isEmpty()) {
                 dbService.getOrderById(orderId, new FirebaseDatabaseService.OrderCallback() {
                     @Override
                     public void onSuccess(Order order) {
@@ -298,19 +372,22 @@ public class TableOrderActivity extends AppCompatActivity {
      * Load order by ID
      */
     private void loadOrderById(String orderId) {
+        tableOrders.whenReady(() -> {
+            Order indexed = tableOrders.getOrder(orderId);
+            if (indexed != null) {
+                loadOrderForTable(indexed);
+            } else if (!isDestroyed()) {
+                // Not active (or the index is unavailable): read it
+                readOrderById(orderId);
+            }
+        });
+    }
+
+    private void readOrderById(String orderId) {
         dbService.getOrderById(orderId, new FirebaseDatabaseService.OrderCallback() {
             @Override
             public void onSuccess(Order order) {
-                if (order.getTableNumber() != null && order.getTableNumber().equals(currentTableNumber)) {
-                    loadOrder(order);
-                } else {
-                    // Update table number if different
-                    if (order.getTableNumber() != null && !order.getTableNumber().isEmpty()) {
-                        currentTableNumber = order.getTableNumber();
-                        tableNumberTextView.setText("Table: " + currentTableNumber);
-                    }
-                    loadOrder(order);
-                }
+                loadOrderForTable(order);
             }
 
             @Override
@@ -321,14 +398,24 @@ public class TableOrderActivity extends AppCompatActivity {
         });
     }
 
+    /**
+     * Load order, switching to its table if it belongs to another one
+     */
+    private void loadOrderForTable(Order order) {
+        if (order.getTableNumber() != null && !order.getTableNumber().isEmpty()
+                && !order.getTableNumber().equals(currentTableNumber)) {
+            // Update table number if different
+            currentTableNumber = order.getTableNumber();
+            tableNumberTextView.setText("Table: " + currentTableNumber);
+        }
+        loadOrder(order);
+    }
+
     /**
      * Load order
      */
     private void loadOrder(Order order) {
-        currentOrderId = order.getOrderId();
-        currentOrderItems.clear();
-        currentOrderItems.addAll(order.getItems());
-        orderItemsAdapter.notifyDataSetChanged();
+        startEditing(order);
         updateOrderButton.setEnabled(true);
         createOrderButton.setEnabled(false);
         updateTotal();
@@ -349,13 +436,30 @@ public class TableOrderActivity extends AppCompatActivity {
 
             @Override
             public void onFailure(Exception e) {
-                Log.e(TAG, "Failed to load menu items", e);
+                AppLog.e(TAG, "Failed to load menu items", e);
                 Toast.makeText(TableOrderActivity.this, "Failed to load menu: " + e.getMessage(), 
                         Toast.LENGTH_SHORT).show();
             }
         });
     }
 
+    /**
+     * Edit a copy of the order, leaving the indexed order as the server has it
+     */
+    private void startEditing(Order order) {
+        currentOrderId = order.getOrderId();
+        editingOrder = copyOf(order);
+        currentOrderItems.clear();
+        currentOrderItems.addAll(editingOrder.getItems());
+        orderItemsAdapter.notifyDataSetChanged();
+    }
+
+    private static Order copyOf(Order order) {
+        Order copy = OrderCodec.fromMap(order.toMap());
+        copy.clearChanges();
+        return copy;
+    }
+
     /**
      * Add order item
      */
@@ -372,7 +476,11 @@ public class TableOrderActivity extends AppCompatActivity {
                     if (existingItem.getMenuItemId().equals(menuItemId) &&
                         existingItem.getCustomization().equals(customization) &&
                         existingItem.getCookingDetails().equals(cookingDetails)) {
-                        existingItem.setQuantity(existingItem.getQuantity() + 1);
+                        if (editingOrder != null) {
+                            editingOrder.setItemQuantity(existingItem, existingItem.getQuantity() + 1);
+                        } else {
+                            existingItem.setQuantity(existingItem.getQuantity() + 1);
+                        }
                         found = true;
                         break;
                     }
@@ -380,6 +488,9 @@ public class TableOrderActivity extends AppCompatActivity {
                 
                 if (!found) {
                     currentOrderItems.add(orderItem);
+                    if (editingOrder != null) {
+                        editingOrder.addItem(orderItem);
+                    }
                 }
                 
                 orderItemsAdapter.notifyDataSetChanged();
@@ -394,7 +505,10 @@ public class TableOrderActivity extends AppCompatActivity {
      */
     private void removeOrderItem(int position) {
         if (position >= 0 && position < currentOrderItems.size()) {
-            currentOrderItems.remove(position);
+            OrderItem removed = currentOrderItems.remove(position);
+            if (editingOrder != null) {
+                editingOrder.removeItem(removed);
+            }
             orderItemsAdapter.notifyDataSetChanged();
             updateTotal();
         }
@@ -404,79 +518,150 @@ public class TableOrderActivity extends AppCompatActivity {
      * Update total
      */
     private void updateTotal() {
-        double total = 0.0;
+        // Changed items make a new order to create
+        checkoutKey = null;
+        long totalCents = 0;
         for (OrderItem item : currentOrderItems) {
-            total += item.getTotalPrice();
+            totalCents += item.getTotalPriceCents();
         }
-        orderTotalTextView.setText(String.format("Total: $%.2f", total));
+        orderTotalTextView.setText(String.format("Total: $%.2f", totalCents / 100.0));
     }
 
     /**
      * Create order
+     * Placed like a menu checkout: the stock of tracked items is reserved, and repeating the
+     * checkout key (a retry after a lost answer) gets the order created first
      */
     private void createOrder() {
         if (currentOrderItems.isEmpty()) {
             Toast.makeText(this, "Order items cannot be empty", Toast.LENGTH_SHORT).show();
             return;
         }
+        if (checkoutKey == null) {
+            checkoutKey = UUID.randomUUID().toString();
+        }
+        String idempotencyKey = checkoutKey;
+
+        // Only claim an order number if no earlier attempt placed this order
+        dbService.findCheckout(idempotencyKey, new FirebaseDatabaseService.DatabaseCallback() {
+            @Override
+            public void onSuccess(String placedId) {
+                if (placedId != null) {
+                    Order order = buildOrder(placedId);
+                    order.clearChanges();
+                    onOrderCreated(order);
+                    return;
+                }
+                placeNewOrder(idempotencyKey);
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                placeNewOrder(idempotencyKey);
+            }
+        });
+    }
 
+    private void placeNewOrder(String idempotencyKey) {
         // Get next order number (0001-1000)
         dbService.getNextOrderNumber(new FirebaseDatabaseService.OrderNumberCallback() {
             @Override
             public void onSuccess(String orderNumber) {
                 // Create order with formatted order number
-                String orderId = orderNumber; // Use the formatted number as orderId
-                Order order = new Order(orderId, "table");
-                order.setTableNumber(currentTableNumber);
-
-                for (OrderItem item : currentOrderItems) {
-                    order.addItem(item);
-                }
-
-                order.setServiceCharge(0.0);
+                Order order = buildOrder(orderNumber); // Use the formatted number as orderId
 
                 // Validate order has items before saving
                 if (order.getItems() == null || order.getItems().isEmpty()) {
                     Toast.makeText(TableOrderActivity.this, "Cannot create order: no items found", 
                             Toast.LENGTH_SHORT).show();
-                    Log.e(TAG, "Order creation failed: order has no items after building");
+                    AppLog.e(TAG, "Order creation failed: order has no items after building");
                     return;
                 }
 
-                dbService.createOrder(order, new FirebaseDatabaseService.DatabaseCallback() {
+                dbService.placeOrder(order, menuItems, idempotencyKey, new FirebaseDatabaseService.DatabaseCallback() {
                     @Override
                     public void onSuccess(String documentId) {
-                        Log.d(TAG, "Order created successfully: " + documentId);
-                        Toast.makeText(TableOrderActivity.this, "Order created successfully! Order Number: " + orderNumber, 
-                                Toast.LENGTH_SHORT).show();
-                        currentOrderId = documentId;
-                        createOrderButton.setEnabled(false);
-                        updateOrderButton.setEnabled(true);
+                        if (!documentId.equals(order.getOrderId())) {
+                            // Placed by an earlier attempt with the same items; this number goes unused
+                            AppLog.d(TAG, "Repeated checkout, order already created: {}", documentId);
+                            order.setOrderId(documentId);
+                            order.clearChanges();
+                        }
+                        onOrderCreated(order);
                     }
 
                     @Override
                     public void onFailure(Exception e) {
-                        Log.e(TAG, "Order creation failed", e);
-                        Toast.makeText(TableOrderActivity.this, "Order creation failed: " + e.getMessage(), 
-                                Toast.LENGTH_SHORT).show();
+                        AppLog.e(TAG, "Order creation failed", e);
+                        FirebaseDatabaseService.OutOfStockException outOfStock = outOfStockCause(e);
+                        String message = outOfStock != null
+                                ? "Sold out: " + menuItemNames(outOfStock.getMenuItemIds())
+                                : "Order creation failed: " + e.getMessage();
+                        Toast.makeText(TableOrderActivity.this, message, Toast.LENGTH_SHORT).show();
                     }
                 });
             }
 
             @Override
             public void onFailure(Exception e) {
-                Log.e(TAG, "Failed to get order number", e);
+                AppLog.e(TAG, "Failed to get order number", e);
                 Toast.makeText(TableOrderActivity.this, "Failed to generate order number: " + e.getMessage(), 
                         Toast.LENGTH_SHORT).show();
             }
         });
     }
 
+    private Order buildOrder(String orderId) {
+        Order order = new Order(orderId, "table");
+        order.setTableNumber(currentTableNumber);
+        // Scopes the order to the restaurant's table order index
+        order.setRestaurantId(tableOrders.getRestaurantId());
+
+        for (OrderItem item : currentOrderItems) {
+            order.addItem(item);
+        }
+
+        order.setServiceCharge(0.0);
+        return order;
+    }
+
+    private void onOrderCreated(Order order) {
+        AppLog.d(TAG, "Order created successfully: {}", order.getOrderId());
+        Toast.makeText(TableOrderActivity.this, "Order created successfully! Order Number: " + order.getOrderId(), 
+                Toast.LENGTH_SHORT).show();
+        checkoutKey = null;
+        tableOrders.put(order);
+        startEditing(order);
+        createOrderButton.setEnabled(false);
+        updateOrderButton.setEnabled(true);
+    }
+
+    private static FirebaseDatabaseService.OutOfStockException outOfStockCause(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof FirebaseDatabaseService.OutOfStockException) {
+                return (FirebaseDatabaseService.OutOfStockException) cause;
+            }
+        }
+        return null;
+    }
+
+    private String menuItemNames(List<String> menuItemIds) {
+        List<String> names = new ArrayList<>();
+        for (MenuItem item : menuItems) {
+            if (menuItemIds.contains(item.getItemId())) {
+                names.add(item.getName());
+            }
+        }
+        return names.isEmpty() ? String.join(", ", menuItemIds) : String.join(", ", names);
+    }
+
     /**
      * Update order
+     * Sends only the edits made since the order was loaded or last saved: new items are appended,
+     * and the item list is rewritten only when an existing item changed or was removed
      */
     private void updateOrder() {
-        if (currentOrderId == null) {
+        if (currentOrderId == null || editingOrder == null) {
             Toast.makeText(this, "No order to update", Toast.LENGTH_SHORT).show();
             return;
         }
@@ -486,41 +671,32 @@ public class TableOrderActivity extends AppCompatActivity {
             return;
         }
 
-        dbService.getOrderById(currentOrderId, new FirebaseDatabaseService.OrderCallback() {
-            @Override
-            public void onSuccess(Order order) {
-                order.getItems().clear();
-                for (OrderItem item : currentOrderItems) {
-                    order.addItem(item);
-                }
-
-                // Validate order has items before updating
-                if (order.getItems() == null || order.getItems().isEmpty()) {
-                    Toast.makeText(TableOrderActivity.this, "Cannot update order: order must have at least one item", 
-                            Toast.LENGTH_SHORT).show();
-                    Log.e(TAG, "Order update failed: order has no items after building");
-                    return;
-                }
-
-                dbService.updateOrder(order, new FirebaseDatabaseService.DatabaseCallback() {
-                    @Override
-                    public void onSuccess(String documentId) {
-                        Log.d(TAG, "Order updated successfully: " + documentId);
-                        Toast.makeText(TableOrderActivity.this, "Order updated successfully!", Toast.LENGTH_SHORT).show();
-                    }
+        if (!editingOrder.hasChanges()) {
+            Toast.makeText(this, "No changes to save", Toast.LENGTH_SHORT).show();
+            return;
+        }
 
-                    @Override
-                    public void onFailure(Exception e) {
-                        Log.e(TAG, "Order update failed", e);
-                        Toast.makeText(TableOrderActivity.this, "Order update failed: " + e.getMessage(), 
-                                Toast.LENGTH_SHORT).show();
-                    }
-                });
+        Order order = editingOrder;
+        // No timeout on the write: a slow update may still commit
+        dbService.updateOrderAsync(order, lifecycleCancellation.getToken()).addOnCompleteListener(task -> {
+            if (task.isCanceled()) {
+                return;
             }
-
-            @Override
-            public void onFailure(Exception e) {
-                Toast.makeText(TableOrderActivity.this, "Failed to load order: " + e.getMessage(), 
+            if (task.isSuccessful()) {
+                Order saved = task.getResult();
+                tableOrders.put(copyOf(saved));
+                if (saved != order && editingOrder == order) {
+                    // Merged with items another device added meanwhile: show them too
+                    startEditing(saved);
+                    updateTotal();
+                }
+                AppLog.d(TAG, "Order updated successfully: {}", saved.getOrderId());
+                Toast.makeText(TableOrderActivity.this, "Order updated successfully!", Toast.LENGTH_SHORT).show();
+            } else if (task.getException() instanceof FirebaseDatabaseService.OrderConflictException) {
+                showOrderConflict(((FirebaseDatabaseService.OrderConflictException) task.getException()).getStoredOrder());
+            } else {
+                AppLog.e(TAG, "Order update failed", task.getException());
+                Toast.makeText(TableOrderActivity.this, "Order update failed: " + task.getException().getMessage(), 
                         Toast.LENGTH_SHORT).show();
             }
         });
@@ -1,7 +1,7 @@
 package com.group14.foodordering;
 
+import android.content.Intent;
 import android.os.Bundle;
-import android.util.Log;
 import android.view.View;
 import android.widget.Button;
 import android.widget.TextView;
@@ -15,6 +15,7 @@ import com.group14.foodordering.model.Order;
 import com.group14.foodordering.model.OrderItem;
 import com.group14.foodordering.model.User;
 import com.group14.foodordering.service.FirebaseDatabaseService;
+import com.group14.foodordering.util.AppLog;
 import com.group14.foodordering.util.FirebaseDataImporter;
 import com.group14.foodordering.util.MenuJsonParser;
 
@@ -56,6 +57,10 @@ public class TestDataActivity extends AppCompatActivity {
             btnClearDatabase.setOnClickListener(v -> clearDatabase());
         }
 
+        // Per-operation database metrics
+        Button btnServiceMetrics = findViewById(R.id.btnServiceMetrics);
+        btnServiceMetrics.setOnClickListener(v -> startActivity(new Intent(this, ServiceMetricsActivity.class)));
+
         // Clear results
         Button btnClear = findViewById(R.id.btnClear);
         btnClear.setOnClickListener(v -> resultTextView.setText(""));
@@ -72,7 +77,7 @@ public class TestDataActivity extends AppCompatActivity {
             @Override
             public void onSuccess(String documentId) {
                 String message = "User created successfully: " + documentId;
-                Log.d(TAG, message);
+                AppLog.d(TAG, message);
                 runOnUiThread(() -> {
                     resultTextView.append(message + "\n");
                     Toast.makeText(TestDataActivity.this, message, Toast.LENGTH_SHORT).show();
@@ -82,7 +87,7 @@ public class TestDataActivity extends AppCompatActivity {
             @Override
             public void onFailure(Exception e) {
                 String message = "User creation failed: " + e.getMessage();
-                Log.e(TAG, message, e);
+                AppLog.e(TAG, message, e);
                 runOnUiThread(() -> {
                     resultTextView.append(message + "\n");
                     Toast.makeText(TestDataActivity.this, message, Toast.LENGTH_SHORT).show();
@@ -104,7 +109,7 @@ public class TestDataActivity extends AppCompatActivity {
             @Override
             public void onSuccess(String documentId) {
                 String message = "Admin created successfully: " + documentId;
-                Log.d(TAG, message);
+                AppLog.d(TAG, message);
                 runOnUiThread(() -> {
                     resultTextView.append(message + "\n");
                     Toast.makeText(TestDataActivity.this, message, Toast.LENGTH_SHORT).show();
@@ -114,7 +119,7 @@ public class TestDataActivity extends AppCompatActivity {
             @Override
             public void onFailure(Exception e) {
                 String message = "Admin creation failed: " + e.getMessage();
-                Log.e(TAG, message, e);
+                AppLog.e(TAG, message, e);
                 runOnUiThread(() -> {
                     resultTextView.append(message + "\n");
                     Toast.makeText(TestDataActivity.this, message, Toast.LENGTH_SHORT).show();
@@ -135,7 +140,7 @@ public class TestDataActivity extends AppCompatActivity {
             @Override
             public void onSuccess(String documentId) {
                 String message = "Menu item created successfully: " + documentId;
-                Log.d(TAG, message);
+                AppLog.d(TAG, message);
                 runOnUiThread(() -> {
                     resultTextView.append(message + "\n");
                     Toast.makeText(TestDataActivity.this, message, Toast.LENGTH_SHORT).show();
@@ -145,7 +150,7 @@ public class TestDataActivity extends AppCompatActivity {
             @Override
             public void onFailure(Exception e) {
                 String message = "Menu item creation failed: " + e.getMessage();
-                Log.e(TAG, message, e);
+                AppLog.e(TAG, message, e);
                 runOnUiThread(() -> {
                     resultTextView.append(message + "\n");
                     Toast.makeText(TestDataActivity.this, message, Toast.LENGTH_SHORT).show();
@@ -177,7 +182,7 @@ public class TestDataActivity extends AppCompatActivity {
             @Override
             public void onSuccess(String documentId) {
                 String message = "Order created successfully: " + documentId + "\nTotal: $" + order.getTotal();
-                Log.d(TAG, message);
+                AppLog.d(TAG, message);
                 runOnUiThread(() -> {
                     resultTextView.append(message + "\n");
                     Toast.makeText(TestDataActivity.this, "Order created successfully", Toast.LENGTH_SHORT).show();
@@ -187,7 +192,7 @@ public class TestDataActivity extends AppCompatActivity {
             @Override
             public void onFailure(Exception e) {
                 String message = "Order creation failed: " + e.getMessage();
-                Log.e(TAG, message, e);
+                AppLog.e(TAG, message, e);
                 runOnUiThread(() -> {
                     resultTextView.append(message + "\n");
                     Toast.makeText(TestDataActivity.this, message, Toast.LENGTH_SHORT).show();
@@ -209,7 +214,7 @@ public class TestDataActivity extends AppCompatActivity {
                             .append(" ($").append(item.getPrice()).append(")\n");
                 }
                 final String message = messageBuilder.toString();
-                Log.d(TAG, message);
+                AppLog.d(TAG, message);
                 runOnUiThread(() -> {
                     resultTextView.append(message);
                     Toast.makeText(TestDataActivity.this, "Retrieved " + items.size() + " menu items", 
@@ -220,7 +225,7 @@ public class TestDataActivity extends AppCompatActivity {
             @Override
             public void onFailure(Exception e) {
                 String message = "Failed to retrieve menu items: " + e.getMessage();
-                Log.e(TAG, message, e);
+                AppLog.e(TAG, message, e);
                 runOnUiThread(() -> {
                     resultTextView.append(message + "\n");
                     Toast.makeText(TestDataActivity.this, message, Toast.LENGTH_SHORT).show();
@@ -243,7 +248,7 @@ public class TestDataActivity extends AppCompatActivity {
                             .append(", Total: $").append(order.getTotal()).append("\n");
                 }
                 final String message = messageBuilder.toString();
-                Log.d(TAG, message);
+                AppLog.d(TAG, message);
                 runOnUiThread(() -> {
                     resultTextView.append(message);
                     Toast.makeText(TestDataActivity.this, "Retrieved " + orders.size() + " pending orders", 
@@ -254,7 +259,7 @@ public class TestDataActivity extends AppCompatActivity {
             @Override
             public void onFailure(Exception e) {
                 String message = "Failed to retrieve orders: " + e.getMessage();
-                Log.e(TAG, message, e);
+                AppLog.e(TAG, message, e);
                 runOnUiThread(() -> {
                     resultTextView.append(message + "\n");
                     Toast.makeText(TestDataActivity.this, message, Toast.LENGTH_SHORT).show();
@@ -275,7 +280,7 @@ public class TestDataActivity extends AppCompatActivity {
             resultTextView.append("Reading menu from assets...\n");
             menuItems = MenuJsonParser.parseMenuFromAssets(this, "menu.json");
         } catch (Exception e) {
-            Log.e(TAG, "Failed to read from assets", e);
+            AppLog.e(TAG, "Failed to read from assets", e);
             // Fallback: Try to read from information folder (for development)
             String filePath = null;
             File projectRoot = new File(getFilesDir().getParentFile().getParentFile().getParentFile(), "information/menu.json");
@@ -325,7 +330,7 @@ public class TestDataActivity extends AppCompatActivity {
                 @Override
                 public void onFailure(Exception e) {
                     failCount[0]++;
-                    Log.e(TAG, "Failed to import item: " + item.getName(), e);
+                    AppLog.e(TAG, "Failed to import item: {}", item.getName(), e);
                     if (successCount[0] + failCount[0] == totalItems) {
                         final String message = "Import completed: " + successCount[0] + " succeeded, " + failCount[0] + " failed";
                         runOnUiThread(() -> {
@@ -353,7 +358,7 @@ public class TestDataActivity extends AppCompatActivity {
                 runOnUiThread(() -> {
                     resultTextView.append(message + "\n");
                 });
-                Log.d(TAG, message);
+                AppLog.d(TAG, message);
             }
 
             @Override
@@ -363,7 +368,7 @@ public class TestDataActivity extends AppCompatActivity {
                 runOnUiThread(() -> {
                     resultTextView.append(message);
                 });
-                Log.d(TAG, message);
+                AppLog.d(TAG, message);
             }
 
             @Override
@@ -380,8 +385,10 @@ public class TestDataActivity extends AppCompatActivity {
                     Toast.makeText(TestDataActivity.this, 
                             "Database cleared: " + totalSuccess + " deleted, " + totalFail + " failed", 
                             Toast.LENGTH_LONG).show();
+                    // Deleted restaurants must leave the cached directory
+                    dbService.getRestaurantDirectory().invalidate();
                 });
-                Log.d(TAG, message);
+                AppLog.d(TAG, message);
             }
 
             @Override
@@ -391,7 +398,7 @@ public class TestDataActivity extends AppCompatActivity {
                     resultTextView.append(message + "\n");
                     Toast.makeText(TestDataActivity.this, message, Toast.LENGTH_LONG).show();
                 });
-                Log.e(TAG, message, e);
+                AppLog.e(TAG, message, e);
             }
         };
         
@@ -415,7 +422,7 @@ public class TestDataActivity extends AppCompatActivity {
                 runOnUiThread(() -> {
                     resultTextView.append(message + "\n");
                 });
-                Log.d(TAG, message);
+                AppLog.d(TAG, message);
             }
 
             @Override
@@ -425,7 +432,7 @@ public class TestDataActivity extends AppCompatActivity {
                 runOnUiThread(() -> {
                     resultTextView.append(message);
                 });
-                Log.d(TAG, message);
+                AppLog.d(TAG, message);
             }
 
             @Override
@@ -447,8 +454,10 @@ public class TestDataActivity extends AppCompatActivity {
                     Toast.makeText(TestDataActivity.this, 
                             "Import complete: " + totalSuccess + " succeeded, " + totalFail + " failed", 
                             Toast.LENGTH_LONG).show();
+                    // Imported restaurants keep their own updatedAt, so reload the directory in full
+                    dbService.getRestaurantDirectory().invalidate();
                 });
-                Log.d(TAG, message);
+                AppLog.d(TAG, message);
             }
 
             @Override
@@ -458,7 +467,7 @@ public class TestDataActivity extends AppCompatActivity {
                     resultTextView.append(message + "\n");
                     Toast.makeText(TestDataActivity.this, message, Toast.LENGTH_LONG).show();
                 });
-                Log.e(TAG, message, e);
+                AppLog.e(TAG, message, e);
             }
         };
         
@@ -470,7 +479,7 @@ public class TestDataActivity extends AppCompatActivity {
             testStream.close();
             foundInAssets = true;
         } catch (Exception e) {
-            Log.d(TAG, "File not found in assets, will try file system", e);
+            AppLog.d(TAG, "File not found in assets, will try file system", e);
         }
         
         if (foundInAssets) {
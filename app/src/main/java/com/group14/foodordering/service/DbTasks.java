@@ -0,0 +1,192 @@
+package com.group14.foodordering.service;
+
+import com.google.android.gms.tasks.CancellationToken;
+import com.google.android.gms.tasks.CancellationTokenSource;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.TaskCompletionSource;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Composition helpers for the Task-based API of FirebaseDatabaseService
+ * Fan-out (allOf / anyOf) and timeouts on top of Play services Tasks. Cancellation uses the
+ * standard CancellationToken (typically cancelled in onDestroy); a cancelled input cancels
+ * the combined task instead of failing it, so failure listeners never fire for it
+ */
+public final class DbTasks {
+    // Listeners that only forward a result do not need a thread hop
+    private static final Executor DIRECT = Runnable::run;
+    private static final ScheduledExecutorService TIMER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "db-task-timeout");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private DbTasks() {
+    }
+
+    /**
+     * Complete when every task succeeds; fail (or cancel) as soon as any task fails (or is cancelled)
+     */
+    public static Task<Void> allOf(Task<?>... tasks) {
+        return allOf(Arrays.asList(tasks));
+    }
+
+    /**
+     * Complete when every task succeeds; fail (or cancel) as soon as any task fails (or is cancelled)
+     */
+    public static Task<Void> allOf(List<? extends Task<?>> tasks) {
+        Completion<Void> completion = new Completion<>();
+        if (tasks.isEmpty()) {
+            completion.succeed(null);
+            return completion.getTask();
+        }
+        AtomicInteger remaining = new AtomicInteger(tasks.size());
+        for (Task<?> task : tasks) {
+            task.addOnCompleteListener(DIRECT, completed -> {
+                if (!completed.isSuccessful()) {
+                    completion.failLike(completed);
+                } else if (remaining.decrementAndGet() == 0) {
+                    completion.succeed(null);
+                }
+            });
+        }
+        return completion.getTask();
+    }
+
+    /**
+     * Complete with the results of every task, in order; fails like {@link #allOf(List)}
+     */
+    public static <T> Task<List<T>> allResults(List<Task<T>> tasks) {
+        Completion<List<T>> completion = new Completion<>();
+        allOf(tasks).addOnCompleteListener(DIRECT, done -> {
+            if (!done.isSuccessful()) {
+                completion.failLike(done);
+                return;
+            }
+            List<T> results = new ArrayList<>(tasks.size());
+            for (Task<T> task : tasks) {
+                results.add(task.getResult());
+            }
+            completion.succeed(results);
+        });
+        return completion.getTask();
+    }
+
+    /**
+     * Complete with the first successful result; fail only when every task has failed
+     */
+    public static <T> Task<T> anyOf(List<Task<T>> tasks) {
+        Completion<T> completion = new Completion<>();
+        if (tasks.isEmpty()) {
+            completion.fail(new IllegalArgumentException("anyOf needs at least one task"));
+            return completion.getTask();
+        }
+        AtomicInteger remaining = new AtomicInteger(tasks.size());
+        for (Task<T> task : tasks) {
+            task.addOnCompleteListener(DIRECT, completed -> {
+                if (completed.isSuccessful()) {
+                    completion.succeed(completed.getResult());
+                } else if (remaining.decrementAndGet() == 0) {
+                    completion.failLike(completed);
+                }
+            });
+        }
+        return completion.getTask();
+    }
+
+    /**
+     * Complete with the successful result that comes first in list order, running all tasks in parallel
+     * A later task's result is used only once every earlier task has failed; fails only when every task has failed
+     */
+    public static <T> Task<T> firstOf(List<Task<T>> tasks) {
+        Completion<T> completion = new Completion<>();
+        if (tasks.isEmpty()) {
+            completion.fail(new IllegalArgumentException("firstOf needs at least one task"));
+            return completion.getTask();
+        }
+        for (Task<T> task : tasks) {
+            task.addOnCompleteListener(DIRECT, completed -> {
+                synchronized (completion) {
+                    for (Task<T> candidate : tasks) {
+                        if (!candidate.isComplete()) {
+                            return;
+                        }
+                        if (candidate.isSuccessful()) {
+                            completion.succeed(candidate.getResult());
+                            return;
+                        }
+                    }
+                    completion.failLike(tasks.get(tasks.size() - 1));
+                }
+            });
+        }
+        return completion.getTask();
+    }
+
+    /**
+     * Fail with a TimeoutException if the task has not completed within timeoutMs
+     * The underlying operation is not stopped; cancel its CancellationToken for that
+     */
+    public static <T> Task<T> withTimeout(Task<T> task, long timeoutMs) {
+        Completion<T> completion = new Completion<>();
+        ScheduledFuture<?> timeout = TIMER.schedule(
+                () -> completion.fail(new TimeoutException("Timed out after " + timeoutMs + " ms")),
+                timeoutMs, TimeUnit.MILLISECONDS);
+        task.addOnCompleteListener(DIRECT, completed -> {
+            timeout.cancel(false);
+            if (completed.isSuccessful()) {
+                completion.succeed(completed.getResult());
+            } else {
+                completion.failLike(completed);
+            }
+        });
+        return completion.getTask();
+    }
+
+    /**
+     * Create a completion source whose task is cancelled together with the token (if any)
+     */
+    static <T> TaskCompletionSource<T> newSource(CancellationToken cancellationToken) {
+        return cancellationToken != null
+                ? new TaskCompletionSource<>(cancellationToken)
+                : new TaskCompletionSource<>();
+    }
+
+    /**
+     * Completion source that can also end up cancelled (TaskCompletionSource alone cannot)
+     */
+    private static class Completion<T> {
+        private final CancellationTokenSource cancellation = new CancellationTokenSource();
+        private final TaskCompletionSource<T> source = new TaskCompletionSource<>(cancellation.getToken());
+
+        Task<T> getTask() {
+            return source.getTask();
+        }
+
+        void succeed(T result) {
+            source.trySetResult(result);
+        }
+
+        void fail(Exception e) {
+            source.trySetException(e);
+        }
+
+        void failLike(Task<?> completed) {
+            if (completed.isCanceled()) {
+                cancellation.cancel();
+            } else {
+                source.trySetException(completed.getException());
+            }
+        }
+    }
+}
@@ -1,29 +1,74 @@
 package com.group14.foodordering.service;
 
-import android.util.Log;
-
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.Network;
+
+import com.google.android.gms.tasks.CancellationToken;
+import com.google.android.gms.tasks.OnCompleteListener;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.TaskCompletionSource;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.DocumentChange;
 import com.google.firebase.firestore.DocumentReference;
 import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldValue;
 import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.FirebaseFirestoreException;
 import com.google.firebase.firestore.ListenerRegistration;
 import com.google.firebase.firestore.Query;
 import com.google.firebase.firestore.QueryDocumentSnapshot;
 import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.SetOptions;
 import com.google.firebase.firestore.Transaction;
+import com.google.firebase.firestore.WriteBatch;
+import com.google.firebase.perf.FirebasePerformance;
+import com.google.firebase.perf.metrics.Trace;
+import com.group14.foodordering.core.OrderSearch;
 import com.group14.foodordering.model.Admin;
+import com.group14.foodordering.model.AdminCodec;
+import com.group14.foodordering.model.AppConfig;
+import com.group14.foodordering.model.MenuCategory;
 import com.group14.foodordering.model.MenuItem;
+import com.group14.foodordering.model.MenuItemCodec;
 import com.group14.foodordering.model.Order;
+import com.group14.foodordering.model.OrderCodec;
+import com.group14.foodordering.model.OrderItem;
+import com.group14.foodordering.model.OrderItemCodec;
 import com.group14.foodordering.model.Restaurant;
+import com.group14.foodordering.model.RestaurantCodec;
+import com.group14.foodordering.model.SalesRollup;
+import com.group14.foodordering.model.SalesRollupCodec;
 import com.group14.foodordering.model.Table;
+import com.group14.foodordering.model.TableCodec;
 import com.group14.foodordering.model.User;
+import com.group14.foodordering.util.AppLog;
+import com.group14.foodordering.util.LoginKeyHelper;
+import com.group14.foodordering.util.NaturalSortHelper;
 
+import java.io.File;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
  * Firebase database service class
@@ -31,22 +76,66 @@ import java.util.Map;
  */
 public class FirebaseDatabaseService {
     private static final String TAG = "FirebaseDatabaseService";
+    private static final AppLog.Sampler MENU_DOCUMENT_LOGS = new AppLog.Sampler(20);
     private final FirebaseFirestore db;
+    private final QueryPlanner queryPlanner;
+    private final ResultDispatcher dispatcher;
+    private final SalesRollups salesRollups = new SalesRollups(TimeZone.getDefault());
+    private final Random stockShardRandom = new Random();
+    private final ServiceMetrics metrics = new ServiceMetrics();
+    private final OrderNumbers orderNumbers = new OrderNumbers();
+    private volatile WriteOutbox outbox; // null until enableWriteOutbox
+    private final List<DroppedWriteListener> droppedWriteListeners = new CopyOnWriteArrayList<>();
+    // Shared table-to-active-orders index and its listener; main thread only
+    private TableOrderIndex tableOrderIndex;
+    private ListenerRegistration tableOrderIndexListener;
+    private int tableOrderIndexUsers;
+    // Order history per user; main thread only
+    private final Map<String, OrderHistoryRepository> orderHistories = new HashMap<>();
+    private volatile File orderHistoryCacheDir; // null until enableOrderHistoryCache
+    // Shared restaurant directory; main thread only
+    private RestaurantDirectory restaurantDirectory;
+    private volatile File restaurantCacheFile; // null until enableRestaurantCache
     
     // Collection names
     private static final String COLLECTION_USERS = "users";
     private static final String COLLECTION_ADMINS = "admins";
-    private static final String COLLECTION_MENU_ITEMS = "menuItems";
-    private static final String COLLECTION_ORDERS = "orders";
+    private static final String COLLECTION_USER_LOGINS = "userLoginIndex";
+    private static final String COLLECTION_ADMIN_LOGINS = "adminLoginIndex";
+    static final String COLLECTION_MENU_ITEMS = "menuItems";
+    static final String COLLECTION_ORDERS = "orders";
     private static final String COLLECTION_RESTAURANTS = "restaurants";
     private static final String COLLECTION_TABLES = "tables";
-    private static final String COLLECTION_COUNTERS = "counters";
-    private static final String COUNTER_DOC_ID = "orderCounter";
+    static final String COLLECTION_COUNTERS = "counters";
+    private static final String COLLECTION_SALES_ROLLUPS = "salesRollups";
+    static final String COLLECTION_STOCK_SHARDS = "stockShards"; // under each tracked menu item
+    static final String COLLECTION_STOCK_STATUS = "stockStatus";
+    static final String COLLECTION_STOCK_RESERVATIONS = "stockReservations";
+    static final String COLLECTION_CHECKOUTS = "checkouts";
+    // A retried checkout comes within minutes; its record is kept a week, then deleted by Firestore TTL
+    static final long CHECKOUT_TTL_MILLIS = 7 * 24 * 60 * 60 * 1000L;
+    static final String CHECKOUT_EXPIRE_FIELD = "expireAt";
+    private static final String COLLECTION_MENU_CATEGORIES = "menuCategories";
+    private static final String COLLECTION_APP_CONFIG = "appConfig";
+    private static final String APP_CONFIG_DOC_ID = "settings";
+    static final String COUNTER_DOC_ID = "orderCounter";
+    private static final String OUTBOX_FILE_NAME = "write_outbox.journal";
+    private static final String ORDER_HISTORY_CACHE_DIR = "order_history";
+    private static final String RESTAURANT_CACHE_FILE_NAME = "restaurants.cache";
+    // Order fields whose changes must be based on the stored version
+    private static final List<String> VERSIONED_ORDER_FIELDS =
+            Arrays.asList("items", "subtotal", "total", "serviceCharge", "discount");
+    private static final int MAX_ORDER_MERGE_ATTEMPTS = 3;
+    // Statuses that can move an order into or out of the sales rollups; the kitchen statuses never
+    // follow completion, so their writes stay blind (the rollup rebuild repairs any that do)
 
     private static FirebaseDatabaseService instance;
 
     private FirebaseDatabaseService() {
         db = FirebaseFirestore.getInstance();
+        // Query results are decoded, filtered and sorted in the background and delivered on the main thread
+        dispatcher = new ResultDispatcher();
+        queryPlanner = new QueryPlanner(dispatcher.background());
     }
 
     public static synchronized FirebaseDatabaseService getInstance() {
@@ -63,6 +152,103 @@ public class FirebaseDatabaseService {
         return db;
     }
 
+    /**
+     * Route all writes through a durable local outbox (see WriteOutbox), flushed when connectivity returns
+     * Write callbacks then fire once the write is accepted locally instead of waiting for the server
+     */
+    public synchronized void enableWriteOutbox(Context context) {
+        if (outbox != null) {
+            return;
+        }
+        Context appContext = context.getApplicationContext();
+        WriteOutbox writeOutbox = new WriteOutbox(new File(appContext.getFilesDir(), OUTBOX_FILE_NAME),
+                this::commitOutboxRecords, this::onOutboxWriteDropped);
+        ConnectivityManager connectivityManager =
+                (ConnectivityManager) appContext.getSystemService(Context.CONNECTIVITY_SERVICE);
+        if (connectivityManager != null) {
+            connectivityManager.registerDefaultNetworkCallback(new ConnectivityManager.NetworkCallback() {
+                @Override
+                public void onAvailable(Network network) {
+                    writeOutbox.flush();
+                }
+            });
+        }
+        outbox = writeOutbox;
+    }
+
+    /**
+     * Keep the newest orders of each order history on disk, so history screens show them at once
+     */
+    public void enableOrderHistoryCache(Context context) {
+        orderHistoryCacheDir = new File(context.getApplicationContext().getFilesDir(), ORDER_HISTORY_CACHE_DIR);
+    }
+
+    /**
+     * Keep the restaurant directory on disk, so restaurant lists and names show without a read
+     * Call before the first getRestaurantDirectory
+     */
+    public void enableRestaurantCache(Context context) {
+        restaurantCacheFile = new File(context.getApplicationContext().getFilesDir(), RESTAURANT_CACHE_FILE_NAME);
+    }
+
+    /**
+     * Be told when a write reported as accepted is dropped later because the server rejects it
+     * (e.g. permission denied, or the document was deleted). Called on the main thread
+     */
+    public void addDroppedWriteListener(DroppedWriteListener listener) {
+        droppedWriteListeners.add(listener);
+    }
+
+    public void removeDroppedWriteListener(DroppedWriteListener listener) {
+        droppedWriteListeners.remove(listener);
+    }
+
+    private void onOutboxWriteDropped(WriteOutbox.Record record, Exception e) {
+        List<WriteOutbox.Operation> operations = record.getOperations();
+        String collection = operations.isEmpty() ? null : operations.get(0).getCollection();
+        dispatcher.deliver(() -> {
+            for (DroppedWriteListener listener : droppedWriteListeners) {
+                listener.onWriteDropped(collection, record.getDocumentId(), e);
+            }
+        });
+    }
+
+    /**
+     * Number of accepted writes not yet committed to the server (0 without the outbox)
+     */
+    public int getPendingWriteCount() {
+        WriteOutbox writeOutbox = outbox;
+        return writeOutbox != null ? writeOutbox.getPendingCount() : 0;
+    }
+
+    /**
+     * Get the query planner (decision metrics and rejected query shapes)
+     */
+    public QueryPlanner getQueryPlanner() {
+        return queryPlanner;
+    }
+
+    /**
+     * Set the executor used to decode, filter and sort query results (a small background pool by default)
+     */
+    public void setBackgroundExecutor(Executor executor) {
+        dispatcher.setBackgroundExecutor(executor);
+    }
+
+    /**
+     * Set the executor callbacks of read operations are delivered on (the main thread by default)
+     */
+    public void setCallbackExecutor(Executor executor) {
+        dispatcher.setCallbackExecutor(executor);
+    }
+
+    /**
+     * Get the result dispatcher (count of dropped stale results)
+     */
+    public ResultDispatcher getResultDispatcher() {
+        return dispatcher;
+    }
+
     // ==================== User Operations ====================
 
     /**
@@ -72,15 +258,32 @@ public class FirebaseDatabaseService {
         Map<String, Object> userMap = user.toMap();
         userMap.put("updatedAt", System.currentTimeMillis());
         
-        db.collection(COLLECTION_USERS)
-                .document(user.getUserId())
-                .set(userMap)
+        // Write the user and its login index entries together
+        List<WriteOutbox.Operation> operations = new ArrayList<>();
+        operations.add(WriteOutbox.Operation.set(COLLECTION_USERS, user.getUserId(), userMap));
+        operations.addAll(loginIndexOperations(COLLECTION_USER_LOGINS, user.getUserId(), LoginKeyHelper.keysForUser(user)));
+        write("createOrUpdateUser", newWriteKey(), user.getUserId(), operations, "User creation/update", callback);
+    }
+
+    /**
+     * Add loyalty points to a user as a server-side increment
+     * Awards made at the same time on other devices all count, unlike writing back a points total
+     * that was read earlier
+     */
+    public void addUserPoints(String userId, int points, DatabaseCallback callback) {
+        DocumentReference reference = db.collection(COLLECTION_USERS).document(userId);
+        Map<String, Object> updates = new HashMap<>();
+        updates.put("points", FieldValue.increment(points));
+        updates.put("updatedAt", System.currentTimeMillis());
+        reference.update(updates)
+                .addOnCompleteListener(dispatcher.background(), tracedWrite("addUserPoints", 1,
+                        ServiceMetrics.estimateDocumentBytes(reference.getPath(), updates)))
                 .addOnSuccessListener(aVoid -> {
-                    Log.d(TAG, "User created/updated successfully: " + user.getUserId());
-                    if (callback != null) callback.onSuccess(user.getUserId());
+                    AppLog.d(TAG, "Added {} points to user: {}", points, userId);
+                    if (callback != null) callback.onSuccess(userId);
                 })
                 .addOnFailureListener(e -> {
-                    Log.e(TAG, "User creation/update failed", e);
+                    AppLog.e(TAG, "Failed to add points to user: {}", userId, e);
                     if (callback != null) callback.onFailure(e);
                 });
     }
@@ -92,17 +295,18 @@ public class FirebaseDatabaseService {
         db.collection(COLLECTION_USERS)
                 .document(userId)
                 .get()
-                .addOnCompleteListener(task -> {
+                .addOnCompleteListener(dispatcher.background(), traced("getUserById"))
+                .addOnCompleteListener(dispatcher.background(), task -> {
                     if (task.isSuccessful()) {
                         DocumentSnapshot document = task.getResult();
                         if (document != null && document.exists()) {
                             User user = document.toObject(User.class);
-                            if (callback != null) callback.onSuccess(user);
+                            if (callback != null) dispatcher.deliver(() -> callback.onSuccess(user));
                         } else {
-                            if (callback != null) callback.onFailure(new Exception("User not found"));
+                            if (callback != null) dispatcher.deliver(() -> callback.onFailure(new Exception("User not found")));
                         }
                     } else {
-                        if (callback != null) callback.onFailure(task.getException());
+                        if (callback != null) dispatcher.deliver(() -> callback.onFailure(task.getException()));
                     }
                 });
     }
@@ -116,18 +320,19 @@ public class FirebaseDatabaseService {
                 .whereEqualTo("email", normalized)
                 .limit(1)
                 .get()
-                .addOnCompleteListener(task -> {
+                .addOnCompleteListener(dispatcher.background(), traced("getUserByEmail"))
+                .addOnCompleteListener(dispatcher.background(), task -> {
                     if (task.isSuccessful()) {
                         QuerySnapshot querySnapshot = task.getResult();
                         if (querySnapshot != null && !querySnapshot.isEmpty()) {
                             DocumentSnapshot document = querySnapshot.getDocuments().get(0);
                             User user = document.toObject(User.class);
-                            if (callback != null) callback.onSuccess(user);
+                            if (callback != null) dispatcher.deliver(() -> callback.onSuccess(user));
                         } else {
-                            if (callback != null) callback.onFailure(new Exception("User not found"));
+                            if (callback != null) dispatcher.deliver(() -> callback.onFailure(new Exception("User not found")));
                         }
                     } else {
-                        if (callback != null) callback.onFailure(task.getException());
+                        if (callback != null) dispatcher.deliver(() -> callback.onFailure(task.getException()));
                     }
                 });
     }
@@ -140,42 +345,53 @@ public class FirebaseDatabaseService {
                 .whereEqualTo("phone", phone)
                 .limit(1)
                 .get()
-                .addOnCompleteListener(task -> {
+                .addOnCompleteListener(dispatcher.background(), traced("getUserByPhone"))
+                .addOnCompleteListener(dispatcher.background(), task -> {
                     if (task.isSuccessful()) {
                         QuerySnapshot querySnapshot = task.getResult();
                         if (querySnapshot != null && !querySnapshot.isEmpty()) {
                             DocumentSnapshot document = querySnapshot.getDocuments().get(0);
                             User user = document.toObject(User.class);
-                            if (callback != null) callback.onSuccess(user);
+                            if (callback != null) dispatcher.deliver(() -> callback.onSuccess(user));
                         } else {
-                            if (callback != null) callback.onFailure(new Exception("User not found"));
+                            if (callback != null) dispatcher.deliver(() -> callback.onFailure(new Exception("User not found")));
                         }
                     } else {
-                        if (callback != null) callback.onFailure(task.getException());
+                        if (callback != null) dispatcher.deliver(() -> callback.onFailure(task.getException()));
                     }
                 });
     }
 
     /**
      * Get user by email or phone for login
+     * Resolved through the login index; see lookupLogin
      */
     public void getUserByEmailOrPhone(String emailOrPhone, UserCallback callback) {
-        // Try by email first
-        String normalized = emailOrPhone != null && emailOrPhone.contains("@")
+        if (emailOrPhone == null || emailOrPhone.trim().isEmpty()) {
+            if (callback != null) dispatcher.deliver(() -> callback.onFailure(new Exception("User not found")));
+            return;
+        }
+        
+        Function<DocumentSnapshot, User> toUser = document -> document.toObject(User.class);
+        List<Task<User>> indexed = new ArrayList<>();
+        for (String key : LoginKeyHelper.keysForLogin(emailOrPhone, false)) {
+            indexed.add(readIndexedPrincipal(COLLECTION_USER_LOGINS, COLLECTION_USERS, key, document -> {
+                User user = toUser.apply(document);
+                return user != null && LoginKeyHelper.keysForUser(user).contains(key) ? user : null;
+            }));
+        }
+        
+        // Legacy users without index entries: try email and phone at the same time
+        String normalized = emailOrPhone.contains("@")
                 ? emailOrPhone.toLowerCase(Locale.ROOT)
                 : emailOrPhone;
-        getUserByEmail(normalized, new UserCallback() {
-            @Override
-            public void onSuccess(User user) {
-                if (callback != null) callback.onSuccess(user);
-            }
-
-            @Override
-            public void onFailure(Exception e) {
-                // If not found by email, try by phone
-                getUserByPhone(emailOrPhone, callback);
-            }
-        });
+        Supplier<List<Task<User>>> legacy = () -> Arrays.asList(
+                firstMatch(db.collection(COLLECTION_USERS).whereEqualTo("email", normalized).limit(1).get(), toUser),
+                firstMatch(db.collection(COLLECTION_USERS).whereEqualTo("phone", emailOrPhone).limit(1).get(), toUser));
+        
+        lookupLogin(indexed, legacy,
+                user -> indexLogin(COLLECTION_USER_LOGINS, user.getUserId(), LoginKeyHelper.keysForUser(user)),
+                "User not found", callback != null ? callback::onSuccess : null, callback != null ? callback::onFailure : null);
     }
 
     // ==================== Admin Operations ====================
@@ -187,17 +403,11 @@ public class FirebaseDatabaseService {
         Map<String, Object> adminMap = admin.toMap();
         adminMap.put("updatedAt", System.currentTimeMillis());
         
-        db.collection(COLLECTION_ADMINS)
-                .document(admin.getAdminId())
-                .set(adminMap)
-                .addOnSuccessListener(aVoid -> {
-                    Log.d(TAG, "Admin created/updated successfully: " + admin.getAdminId());
-                    if (callback != null) callback.onSuccess(admin.getAdminId());
-                })
-                .addOnFailureListener(e -> {
-                    Log.e(TAG, "Admin creation/update failed", e);
-                    if (callback != null) callback.onFailure(e);
-                });
+        // Write the admin and its login index entries together
+        List<WriteOutbox.Operation> operations = new ArrayList<>();
+        operations.add(WriteOutbox.Operation.set(COLLECTION_ADMINS, admin.getAdminId(), adminMap));
+        operations.addAll(loginIndexOperations(COLLECTION_ADMIN_LOGINS, admin.getAdminId(), LoginKeyHelper.keysForAdmin(admin)));
+        write("createOrUpdateAdmin", newWriteKey(), admin.getAdminId(), operations, "Admin creation/update", callback);
     }
 
     /**
@@ -207,155 +417,97 @@ public class FirebaseDatabaseService {
         db.collection(COLLECTION_ADMINS)
                 .document(adminId)
                 .get()
-                .addOnCompleteListener(task -> {
+                .addOnCompleteListener(dispatcher.background(), traced("getAdminById"))
+                .addOnCompleteListener(dispatcher.background(), task -> {
                     if (task.isSuccessful()) {
                         DocumentSnapshot document = task.getResult();
                         if (document != null && document.exists()) {
                             Admin admin = documentToAdmin(document);
                             if (admin != null) {
-                                if (callback != null) callback.onSuccess(admin);
+                                if (callback != null) dispatcher.deliver(() -> callback.onSuccess(admin));
                             } else {
-                                if (callback != null) callback.onFailure(new Exception("Admin data is invalid"));
+                                if (callback != null) dispatcher.deliver(() -> callback.onFailure(new Exception("Admin data is invalid")));
                             }
                         } else {
-                            if (callback != null) callback.onFailure(new Exception("Admin not found"));
+                            if (callback != null) dispatcher.deliver(() -> callback.onFailure(new Exception("Admin not found")));
                         }
                     } else {
-                        if (callback != null) callback.onFailure(task.getException());
+                        if (callback != null) dispatcher.deliver(() -> callback.onFailure(task.getException()));
                     }
                 });
     }
 
     /**
-     * Convert Admin document to Admin object, handling permissions conversion
+     * Convert Admin document to Admin object through the generated codec
+     * (permissions and restaurantIds accept both List and legacy String[] values)
      */
     private Admin documentToAdmin(DocumentSnapshot document) {
         if (document == null || !document.exists()) {
             return null;
         }
         
-        Admin admin = new Admin();
-        admin.setAdminId(document.getString("adminId"));
-        admin.setUserId(document.getString("userId"));
-        admin.setEmail(document.getString("email"));
-        admin.setName(document.getString("name"));
-        admin.setPhone(document.getString("phone"));
-        Boolean isActive = document.getBoolean("isActive");
-        admin.setActive(isActive != null && isActive);
-        
-        // Handle permissions conversion - Firestore stores as List<String>
-        Object permissionsObj = document.get("permissions");
-        if (permissionsObj instanceof List) {
-            @SuppressWarnings("unchecked")
-            List<String> permissionsList = (List<String>) permissionsObj;
-            admin.setPermissions(permissionsList);
-        } else if (permissionsObj instanceof String[]) {
-            // Legacy support: convert String[] to List
-            String[] permissionsArray = (String[]) permissionsObj;
-            List<String> permissionsList = new ArrayList<>();
-            Collections.addAll(permissionsList, permissionsArray);
-            admin.setPermissions(permissionsList);
-        } else {
-            admin.setPermissions(new ArrayList<>());
-        }
-        
-        // Handle restaurantIds conversion
-        Object restaurantIdsObj = document.get("restaurantIds");
-        if (restaurantIdsObj instanceof List) {
-            @SuppressWarnings("unchecked")
-            List<String> restaurantIdsList = (List<String>) restaurantIdsObj;
-            admin.setRestaurantIds(restaurantIdsList);
-        } else if (restaurantIdsObj instanceof String[]) {
-            // Legacy support: convert String[] to List
-            String[] restaurantIdsArray = (String[]) restaurantIdsObj;
-            List<String> restaurantIdsList = new ArrayList<>();
-            Collections.addAll(restaurantIdsList, restaurantIdsArray);
-            admin.setRestaurantIds(restaurantIdsList);
-        } else {
-            admin.setRestaurantIds(new ArrayList<>());
-        }
-        
-        Long createdAt = document.getLong("createdAt");
-        if (createdAt != null) {
-            admin.setCreatedAt(createdAt);
-        }
-        
-        Long updatedAt = document.getLong("updatedAt");
-        if (updatedAt != null) {
-            admin.setUpdatedAt(updatedAt);
+        try {
+            return AdminCodec.fromMap(document.getData());
+        } catch (Exception e) {
+            AppLog.e(TAG, "Failed to convert document to Admin: {}", document.getId(), e);
+            return null;
         }
-        
-        return admin;
     }
 
     /**
      * Get admin by adminId (staff ID), email, or phone for login
+     * Resolved through the login index; see lookupLogin
      */
     public void getAdminByStaffIdOrPhone(String staffIdOrPhone, AdminCallback callback) {
-        // Try by adminId first
-        db.collection(COLLECTION_ADMINS)
-                .document(staffIdOrPhone)
-                .get()
-                .addOnCompleteListener(task -> {
-                    if (task.isSuccessful() && task.getResult() != null && task.getResult().exists()) {
-                        Admin admin = documentToAdmin(task.getResult());
-                        if (admin != null && admin.isActive()) {
-                            if (callback != null) callback.onSuccess(admin);
-                            return;
-                        }
-                    }
-                    // If not found by adminId or admin is null/inactive, try by phone
-                    db.collection(COLLECTION_ADMINS)
-                            .whereEqualTo("phone", staffIdOrPhone)
-                            .whereEqualTo("isActive", true)
-                            .limit(1)
-                            .get()
-                            .addOnCompleteListener(phoneTask -> {
-                                if (phoneTask.isSuccessful()) {
-                                    QuerySnapshot querySnapshot = phoneTask.getResult();
-                                    if (querySnapshot != null && !querySnapshot.isEmpty()) {
-                                        Admin admin = documentToAdmin(querySnapshot.getDocuments().get(0));
-                                        if (admin != null) {
-                                            if (callback != null) callback.onSuccess(admin);
-                                            return;
-                                        }
-                                    }
-                                }
-                                // If not found by phone, try by email
-                                String normalized = staffIdOrPhone != null ? staffIdOrPhone.toLowerCase(Locale.ROOT) : null;
-                                db.collection(COLLECTION_ADMINS)
-                                        .whereEqualTo("email", normalized)
-                                        .whereEqualTo("isActive", true)
-                                        .limit(1)
-                                        .get()
-                                        .addOnCompleteListener(emailTask -> {
-                                            if (emailTask.isSuccessful()) {
-                                                QuerySnapshot emailSnapshot = emailTask.getResult();
-                                                if (emailSnapshot != null && !emailSnapshot.isEmpty()) {
-                                                    Admin admin = documentToAdmin(emailSnapshot.getDocuments().get(0));
-                                                    if (admin != null) {
-                                                        if (callback != null) callback.onSuccess(admin);
-                                                    } else {
-                                                        if (callback != null) callback.onFailure(new Exception("Admin data is invalid"));
-                                                    }
-                                                } else {
-                                                    if (callback != null) callback.onFailure(new Exception("Admin not found"));
-                                                }
-                                            } else {
-                                                if (callback != null) callback.onFailure(emailTask.getException());
-                                            }
-                                        });
-                            });
-                });
+        if (staffIdOrPhone == null || staffIdOrPhone.trim().isEmpty()) {
+            if (callback != null) dispatcher.deliver(() -> callback.onFailure(new Exception("Admin not found")));
+            return;
+        }
+        
+        Function<DocumentSnapshot, Admin> toActiveAdmin = document -> {
+            Admin admin = documentToAdmin(document);
+            return admin != null && admin.isActive() ? admin : null;
+        };
+        List<Task<Admin>> indexed = new ArrayList<>();
+        // The staff ID is the document ID, so it needs no index entry
+        if (!staffIdOrPhone.contains("/")) {
+            indexed.add(acceptDocument(db.collection(COLLECTION_ADMINS).document(staffIdOrPhone).get(), toActiveAdmin));
+        }
+        for (String key : LoginKeyHelper.keysForLogin(staffIdOrPhone, true)) {
+            indexed.add(readIndexedPrincipal(COLLECTION_ADMIN_LOGINS, COLLECTION_ADMINS, key, document -> {
+                Admin admin = toActiveAdmin.apply(document);
+                return admin != null && LoginKeyHelper.keysForAdmin(admin).contains(key) ? admin : null;
+            }));
+        }
+        
+        // Legacy admins without index entries: try phone and email at the same time
+        String normalized = staffIdOrPhone.toLowerCase(Locale.ROOT);
+        Supplier<List<Task<Admin>>> legacy = () -> Arrays.asList(
+                firstMatch(db.collection(COLLECTION_ADMINS)
+                        .whereEqualTo("phone", staffIdOrPhone)
+                        .whereEqualTo("isActive", true)
+                        .limit(1)
+                        .get(), toActiveAdmin),
+                firstMatch(db.collection(COLLECTION_ADMINS)
+                        .whereEqualTo("email", normalized)
+                        .whereEqualTo("isActive", true)
+                        .limit(1)
+                        .get(), toActiveAdmin));
+        
+        lookupLogin(indexed, legacy,
+                admin -> indexLogin(COLLECTION_ADMIN_LOGINS, admin.getAdminId(), LoginKeyHelper.keysForAdmin(admin)),
+                "Admin not found", callback != null ? callback::onSuccess : null, callback != null ? callback::onFailure : null);
     }
 
     /**
      * Get all admins
      */
     public void getAllAdmins(AdminsCallback callback) {
+        long requestToken = dispatcher.issue();
         db.collection(COLLECTION_ADMINS)
                 .get()
-                .addOnCompleteListener(task -> {
+                .addOnCompleteListener(dispatcher.background(), traced("getAllAdmins"))
+                .addOnCompleteListener(dispatcher.background(), task -> {
                     if (task.isSuccessful()) {
                         List<Admin> admins = new ArrayList<>();
                         QuerySnapshot querySnapshot = task.getResult();
@@ -367,14 +519,133 @@ public class FirebaseDatabaseService {
                                 }
                             }
                         }
-                        if (callback != null) callback.onSuccess(admins);
+                        if (callback != null) dispatcher.deliverFreshest("getAllAdmins", requestToken, admins, FirebaseDatabaseService::copyOf, callback::onSuccess);
+                    } else {
+                        AppLog.e(TAG, "Failed to get admins", task.getException());
+                        if (callback != null) dispatcher.deliver(() -> callback.onFailure(task.getException()));
+                    }
+                });
+    }
+
+    // ==================== Login Index ====================
+    // Login lookups go through index entries: loginIndex collection / normalized key -> principalId
+    // (see LoginKeyHelper). Entries are written with the principal by createOrUpdateUser and
+    // createOrUpdateAdmin. An entry left behind by a changed email or phone is harmless:
+    // the principal is only accepted if it still has the key.
+
+    /**
+     * Resolve a login: the point reads run in parallel and the first in list order that matches wins.
+     * If none matches (e.g. imported documents without index entries), the legacy queries race
+     * in parallel and the principal found gets its index entries, so the next login is a point read
+     */
+    private <T> void lookupLogin(List<Task<T>> pointReads, Supplier<List<Task<T>>> legacyQueries,
+                                 Consumer<T> backfill, String notFoundMessage,
+                                 Consumer<T> onSuccess, Consumer<Exception> onFailure) {
+        DbTasks.firstOf(pointReads)
+                .continueWithTask(dispatcher.background(), indexed -> {
+                    if (indexed.isSuccessful()) {
+                        AppLog.d(TAG, "Login resolved by point read");
+                        return indexed;
+                    }
+                    return DbTasks.firstOf(legacyQueries.get())
+                            .onSuccessTask(dispatcher.background(), principal -> {
+                                AppLog.d(TAG, "Login resolved by legacy query, adding login index entries");
+                                backfill.accept(principal);
+                                return Tasks.forResult(principal);
+                            });
+                })
+                .addOnCompleteListener(dispatcher.background(), task -> {
+                    if (task.isSuccessful()) {
+                        T principal = task.getResult();
+                        if (onSuccess != null) dispatcher.deliver(() -> onSuccess.accept(principal));
                     } else {
-                        Log.e(TAG, "Failed to get admins", task.getException());
-                        if (callback != null) callback.onFailure(task.getException());
+                        Exception e = task.getException() instanceof LoginNotFoundException
+                                ? new Exception(notFoundMessage)
+                                : task.getException();
+                        if (onFailure != null) dispatcher.deliver(() -> onFailure.accept(e));
+                    }
+                });
+    }
+
+    /**
+     * Read an index entry, then the principal it points to; fails with LoginNotFoundException if
+     * there is no entry or the accept function rejects the principal
+     */
+    private <T> Task<T> readIndexedPrincipal(String indexCollection, String principalCollection, String key,
+                                            Function<DocumentSnapshot, T> accept) {
+        return db.collection(indexCollection)
+                .document(key)
+                .get()
+                .addOnCompleteListener(dispatcher.background(), traced("readLoginIndex"))
+                .onSuccessTask(dispatcher.background(), entry -> {
+                    String principalId = entry != null && entry.exists() ? entry.getString("principalId") : null;
+                    if (principalId == null || principalId.isEmpty() || principalId.contains("/")) {
+                        return Tasks.forException(new LoginNotFoundException());
                     }
+                    return acceptDocument(db.collection(principalCollection).document(principalId).get(), accept);
                 });
     }
 
+    /**
+     * Map a document read through the accept function; fails with LoginNotFoundException on a miss
+     */
+    private <T> Task<T> acceptDocument(Task<DocumentSnapshot> read, Function<DocumentSnapshot, T> accept) {
+        read.addOnCompleteListener(dispatcher.background(), traced("readLoginPrincipal"));
+        return read.onSuccessTask(dispatcher.background(), document -> {
+            T principal = document != null && document.exists() ? accept.apply(document) : null;
+            return principal != null
+                    ? Tasks.forResult(principal)
+                    : Tasks.forException(new LoginNotFoundException());
+        });
+    }
+
+    /**
+     * Map the first document of a query through the accept function; fails with LoginNotFoundException on a miss
+     */
+    private <T> Task<T> firstMatch(Task<QuerySnapshot> query, Function<DocumentSnapshot, T> accept) {
+        query.addOnCompleteListener(dispatcher.background(), traced("queryLegacyLogin"));
+        return query.onSuccessTask(dispatcher.background(), querySnapshot -> {
+            T principal = querySnapshot != null && !querySnapshot.isEmpty()
+                    ? accept.apply(querySnapshot.getDocuments().get(0))
+                    : null;
+            return principal != null
+                    ? Tasks.forResult(principal)
+                    : Tasks.forException(new LoginNotFoundException());
+        });
+    }
+
+    /**
+     * Write the login index entries of a principal
+     */
+    private void indexLogin(String indexCollection, String principalId, List<String> keys) {
+        if (keys.isEmpty()) {
+            return;
+        }
+        write("indexLogin", newWriteKey(), principalId, loginIndexOperations(indexCollection, principalId, keys),
+                "Login index update", null);
+    }
+
+    private List<WriteOutbox.Operation> loginIndexOperations(String indexCollection, String principalId, List<String> keys) {
+        long now = System.currentTimeMillis();
+        List<WriteOutbox.Operation> operations = new ArrayList<>();
+        for (String key : keys) {
+            Map<String, Object> entry = new HashMap<>();
+            entry.put("principalId", principalId);
+            entry.put("updatedAt", now);
+            operations.add(WriteOutbox.Operation.set(indexCollection, key, entry));
+        }
+        return operations;
+    }
+
+    /**
+     * No principal matched a login lookup step
+     */
+    private static class LoginNotFoundException extends Exception {
+        LoginNotFoundException() {
+            super("Login not found");
+        }
+    }
+
     // ==================== MenuItem Operations ====================
 
     /**
@@ -384,27 +655,21 @@ public class FirebaseDatabaseService {
         Map<String, Object> itemMap = menuItem.toMap();
         itemMap.put("updatedAt", System.currentTimeMillis());
         
-        db.collection(COLLECTION_MENU_ITEMS)
-                .document(menuItem.getItemId())
-                .set(itemMap)
-                .addOnSuccessListener(aVoid -> {
-                    Log.d(TAG, "Menu item created/updated successfully: " + menuItem.getItemId());
-                    if (callback != null) callback.onSuccess(menuItem.getItemId());
-                })
-                .addOnFailureListener(e -> {
-                    Log.e(TAG, "Menu item creation/update failed", e);
-                    if (callback != null) callback.onFailure(e);
-                });
+        write("createOrUpdateMenuItem", newWriteKey(), menuItem.getItemId(), Collections.singletonList(
+                WriteOutbox.Operation.set(COLLECTION_MENU_ITEMS, menuItem.getItemId(), itemMap)), "Menu item creation/update", callback);
     }
 
     /**
      * Get all menu items
      */
     public void getAllMenuItems(MenuItemsCallback callback) {
+        // Stamp the request so a slower, older response never replaces a newer menu
+        long requestToken = dispatcher.issue();
         // Get all items without filters to avoid index requirements, then filter/sort in memory
         db.collection(COLLECTION_MENU_ITEMS)
                 .get()
-                .addOnCompleteListener(task -> {
+                .addOnCompleteListener(dispatcher.background(), traced("getAllMenuItems"))
+                .addOnCompleteListener(dispatcher.background(), task -> {
                     if (task.isSuccessful()) {
                         List<MenuItem> menuItems = new ArrayList<>();
                         int totalDocs = task.getResult().size();
@@ -412,38 +677,23 @@ public class FirebaseDatabaseService {
                         int nullCount = 0;
                         int unavailableCount = 0;
                         
-                        Log.d(TAG, "Total documents retrieved: " + totalDocs);
+                        AppLog.d(TAG, "Total documents retrieved: {}", totalDocs);
                         
                         for (QueryDocumentSnapshot document : task.getResult()) {
                             try {
-                                MenuItem item = document.toObject(MenuItem.class);
+                                // Generated codec reads isAvailable and hasDrink by their document keys
+                                MenuItem item = MenuItemCodec.fromMap(document.getData());
                                 if (item == null) {
                                     nullCount++;
-                                    Log.w(TAG, "Failed to convert document to MenuItem: " + document.getId());
+                                    AppLog.w(TAG, "Failed to convert document to MenuItem: {}", document.getId());
                                     continue;
                                 }
                                 
-                                // Debug: Check if isAvailable field is being read correctly
-                                Boolean isAvailable = document.getBoolean("isAvailable");
-                                if (isAvailable == null) {
-                                    // If isAvailable field is missing, try to set it manually
-                                    isAvailable = item.isAvailable();
-                                    Log.d(TAG, "isAvailable field missing in document, using default: " + isAvailable + " for item: " + item.getItemId());
-                                }
-                                
-                                // Manually set isAvailable if it wasn't read correctly
-                                if (isAvailable != null && !isAvailable.equals(item.isAvailable())) {
-                                    item.setAvailable(isAvailable);
-                                }
-                                
-                                // Check if hasDrink field is being read correctly
-                                Boolean hasDrink = document.getBoolean("hasDrink");
-                                if (hasDrink != null && hasDrink != item.isHasDrink()) {
-                                    item.setHasDrink(hasDrink);
+                                // Per-document logging is sampled and compiled out of release builds
+                                if (AppLog.VERBOSE && MENU_DOCUMENT_LOGS.sample()) {
+                                    AppLog.v(TAG, "Item: {}, Name: {}, isAvailable: {}, hasDrink: {}", item.getItemId(), item.getName(), item.isAvailable(), item.isHasDrink());
                                 }
                                 
-                                Log.d(TAG, "Item: " + item.getItemId() + ", Name: " + item.getName() + ", isAvailable: " + item.isAvailable() + ", hasDrink: " + item.isHasDrink());
-                                
                                 if (item.isAvailable()) {
                                     menuItems.add(item);
                                     availableCount++;
@@ -451,12 +701,12 @@ public class FirebaseDatabaseService {
                                     unavailableCount++;
                                 }
                             } catch (Exception e) {
-                                Log.e(TAG, "Error processing document: " + document.getId(), e);
+                                AppLog.e(TAG, "Error processing document: {}", document.getId(), e);
                                 nullCount++;
                             }
                         }
                         
-                        Log.d(TAG, "Menu items summary - Total: " + totalDocs + ", Available: " + availableCount + ", Unavailable: " + unavailableCount + ", Null: " + nullCount);
+                        AppLog.d(TAG, "Menu items summary - Total: {}, Available: {}, Unavailable: {}, Null: {}", totalDocs, availableCount, unavailableCount, nullCount);
                         
                         // Sort by name in memory
                         menuItems.sort((a, b) -> {
@@ -464,10 +714,33 @@ public class FirebaseDatabaseService {
                             String nameB = b.getName() != null ? b.getName() : "";
                             return nameA.compareToIgnoreCase(nameB);
                         });
-                        if (callback != null) callback.onSuccess(menuItems);
+                        if (callback != null) dispatcher.deliverFreshest("getAllMenuItems", requestToken, menuItems, FirebaseDatabaseService::copyOf, callback::onSuccess);
+                    } else {
+                        AppLog.e(TAG, "Failed to get menu items", task.getException());
+                        if (callback != null) dispatcher.deliver(() -> callback.onFailure(task.getException()));
+                    }
+                });
+    }
+
+    /**
+     * Get the active menu categories in display order
+     */
+    public void getActiveMenuCategories(MenuCategoriesCallback callback) {
+        db.collection(COLLECTION_MENU_CATEGORIES)
+                .whereEqualTo("isActive", true)
+                .orderBy("displayOrder")
+                .get()
+                .addOnCompleteListener(dispatcher.background(), traced("getActiveMenuCategories"))
+                .addOnCompleteListener(dispatcher.background(), task -> {
+                    if (task.isSuccessful()) {
+                        List<MenuCategory> categories = new ArrayList<>();
+                        for (QueryDocumentSnapshot document : task.getResult()) {
+                            categories.add(document.toObject(MenuCategory.class));
+                        }
+                        if (callback != null) dispatcher.deliver(() -> callback.onSuccess(categories));
                     } else {
-                        Log.e(TAG, "Failed to get menu items", task.getException());
-                        if (callback != null) callback.onFailure(task.getException());
+                        AppLog.e(TAG, "Failed to get menu categories", task.getException());
+                        if (callback != null) dispatcher.deliver(() -> callback.onFailure(task.getException()));
                     }
                 });
     }
@@ -479,17 +752,18 @@ public class FirebaseDatabaseService {
         db.collection(COLLECTION_MENU_ITEMS)
                 .document(itemId)
                 .get()
-                .addOnCompleteListener(task -> {
+                .addOnCompleteListener(dispatcher.background(), traced("getMenuItemById"))
+                .addOnCompleteListener(dispatcher.background(), task -> {
                     if (task.isSuccessful()) {
                         DocumentSnapshot document = task.getResult();
                         if (document != null && document.exists()) {
-                            MenuItem item = document.toObject(MenuItem.class);
-                            if (callback != null) callback.onSuccess(item);
+                            MenuItem item = MenuItemCodec.fromMap(document.getData());
+                            if (callback != null) dispatcher.deliver(() -> callback.onSuccess(item));
                         } else {
-                            if (callback != null) callback.onFailure(new Exception("Menu item not found"));
+                            if (callback != null) dispatcher.deliver(() -> callback.onFailure(new Exception("Menu item not found")));
                         }
                     } else {
-                        if (callback != null) callback.onFailure(task.getException());
+                        if (callback != null) dispatcher.deliver(() -> callback.onFailure(task.getException()));
                     }
                 });
     }
@@ -498,21 +772,23 @@ public class FirebaseDatabaseService {
      * Get menu items by category
      */
     public void getMenuItemsByCategory(String category, MenuItemsCallback callback) {
+        long requestToken = dispatcher.issue();
         db.collection(COLLECTION_MENU_ITEMS)
                 .whereEqualTo("category", category)
                 .whereEqualTo("isAvailable", true)
                 .orderBy("name")
                 .get()
-                .addOnCompleteListener(task -> {
+                .addOnCompleteListener(dispatcher.background(), traced("getMenuItemsByCategory"))
+                .addOnCompleteListener(dispatcher.background(), task -> {
                     if (task.isSuccessful()) {
                         List<MenuItem> menuItems = new ArrayList<>();
                         for (QueryDocumentSnapshot document : task.getResult()) {
-                            MenuItem item = document.toObject(MenuItem.class);
+                            MenuItem item = MenuItemCodec.fromMap(document.getData());
                             menuItems.add(item);
                         }
-                        if (callback != null) callback.onSuccess(menuItems);
+                        if (callback != null) dispatcher.deliverFreshest("getMenuItemsByCategory:" + category, requestToken, menuItems, FirebaseDatabaseService::copyOf, callback::onSuccess);
                     } else {
-                        if (callback != null) callback.onFailure(task.getException());
+                        if (callback != null) dispatcher.deliver(() -> callback.onFailure(task.getException()));
                     }
                 });
     }
@@ -525,72 +801,114 @@ public class FirebaseDatabaseService {
         updates.put("isAvailable", false);
         updates.put("updatedAt", System.currentTimeMillis());
         
-        db.collection(COLLECTION_MENU_ITEMS)
-                .document(itemId)
-                .update(updates)
-                .addOnSuccessListener(aVoid -> {
-                    Log.d(TAG, "Menu item deleted successfully: " + itemId);
-                    if (callback != null) callback.onSuccess(itemId);
-                })
-                .addOnFailureListener(e -> {
-                    Log.e(TAG, "Menu item deletion failed", e);
-                    if (callback != null) callback.onFailure(e);
-                });
+        write("deleteMenuItem", newWriteKey(), itemId, Collections.singletonList(
+                WriteOutbox.Operation.update(COLLECTION_MENU_ITEMS, itemId, updates)), "Menu item deletion", callback);
+    }
+
+    /**
+     * Listen to menu items updated after a time, as changes (for MenuCatalog)
+     * Every menu write stamps updatedAt, so availability and price edits arrive without reloading
+     * the menu; the first delivery holds the items already updated after the time, if any
+     */
+    public ListenerRegistration listenToMenuItemChanges(long updatedAfter, MenuItemChangesCallback callback) {
+        ServiceMetrics.Watch watch = metrics.watch("listenToMenuItemChanges");
+        ResultDispatcher.SnapshotSequence sequence = dispatcher.newSnapshotSequence();
+        return sequence.attach(db.collection(COLLECTION_MENU_ITEMS)
+                .whereGreaterThan("updatedAt", updatedAfter)
+                .orderBy("updatedAt")
+                .addSnapshotListener(sequence, (querySnapshot, e) -> {
+                    traced(watch, querySnapshot, e);
+                    if (e != null) {
+                        AppLog.e(TAG, "Error listening to menu item changes", e);
+                        if (callback != null) dispatcher.deliver(() -> {
+                            if (!sequence.isCancelled()) callback.onFailure(e);
+                        });
+                        return;
+                    }
+                    if (querySnapshot == null) {
+                        return;
+                    }
+
+                    List<MenuItem> changed = new ArrayList<>();
+                    List<String> removedIds = new ArrayList<>();
+                    for (DocumentChange change : querySnapshot.getDocumentChanges()) {
+                        QueryDocumentSnapshot document = change.getDocument();
+                        if (change.getType() == DocumentChange.Type.REMOVED) {
+                            // updatedAt only moves forward, so an item leaves the query only when deleted
+                            removedIds.add(document.getId());
+                            continue;
+                        }
+                        MenuItem item = MenuItemCodec.fromMap(document.getData());
+                        if (item != null) {
+                            if (item.getItemId() == null) {
+                                item.setItemId(document.getId());
+                            }
+                            changed.add(item);
+                        }
+                    }
+                    if (changed.isEmpty() && removedIds.isEmpty()) {
+                        return; // metadata-only snapshot
+                    }
+                    AppLog.d(TAG, "Menu item changes: {} changed, {} removed", changed.size(), removedIds.size());
+                    if (callback != null) dispatcher.deliver(() -> {
+                        if (!sequence.isCancelled()) callback.onChanges(changed, removedIds);
+                    });
+                }));
     }
 
     // ==================== Order Operations ====================
 
     /**
      * Get next order number (0001-1000, cycles back to 0001 after 1000)
+     * Numbers are claimed from the counter in blocks (see OrderNumbers), so most calls need no transaction
      */
     public void getNextOrderNumber(OrderNumberCallback callback) {
-        DocumentReference counterRef = db.collection(COLLECTION_COUNTERS).document(COUNTER_DOC_ID);
+        Long unused = orderNumbers.poll();
+        if (unused != null) {
+            if (callback != null) dispatcher.deliver(() -> callback.onSuccess(formatOrderNumber(unused)));
+            return;
+        }
+        ServiceMetrics.Call call = metrics.start("getNextOrderNumber");
         
         db.runTransaction((Transaction transaction) -> {
-            DocumentSnapshot snapshot = transaction.get(counterRef);
-            long currentNumber;
-            
-            if (snapshot.exists() && snapshot.contains("currentNumber")) {
-                Long currentNumberObj = snapshot.getLong("currentNumber");
-                currentNumber = currentNumberObj != null ? currentNumberObj : 0;
-            } else {
-                currentNumber = 0;
-            }
-            
-            // Increment and wrap around at 1000
-            currentNumber++;
-            if (currentNumber > 1000) {
-                currentNumber = 1;
-            }
-            
-            // Update the counter
-            Map<String, Object> counterData = new HashMap<>();
-            counterData.put("currentNumber", currentNumber);
-            counterData.put("updatedAt", System.currentTimeMillis());
-            transaction.set(counterRef, counterData);
-            
-            return currentNumber;
-        }).addOnSuccessListener(orderNumber -> {
-            // Format as 4-digit string (0001-1000)
-            String formattedNumber = String.format(Locale.getDefault(), "%04d", orderNumber);
+            // Claim the next block, wrapping around at 1000
+            return OrderWrites.claimOrderNumbers(documents(call, transaction));
+        }).addOnCompleteListener(dispatcher.background(), traced(call)).addOnSuccessListener(block -> {
+            String formattedNumber = formatOrderNumber(orderNumbers.claimed(block));
             if (callback != null) {
                 callback.onSuccess(formattedNumber);
             }
         }).addOnFailureListener(e -> {
-            Log.e(TAG, "Failed to get next order number", e);
+            AppLog.e(TAG, "Failed to get next order number", e);
             if (callback != null) {
                 callback.onFailure(e);
             }
         });
     }
 
+    /**
+     * Format as 4-digit string (0001-1000)
+     */
+    private static String formatOrderNumber(long orderNumber) {
+        return String.format(Locale.getDefault(), "%04d", orderNumber);
+    }
+
     /**
      * Create order
      */
     public void createOrder(Order order, DatabaseCallback callback) {
+        createOrder(order, newWriteKey(), callback);
+    }
+
+    /**
+     * Create order with an idempotency key (e.g. one per checkout)
+     * Repeating a key that is still pending or was recently written does not create a second order;
+     * the callback gets the ID of the order created first
+     */
+    public void createOrder(Order order, String idempotencyKey, DatabaseCallback callback) {
         // Validate that order has items
         if (order == null || order.getItems() == null || order.getItems().isEmpty()) {
-            Log.e(TAG, "Cannot create order: order is null or has no items");
+            AppLog.e(TAG, "Cannot create order: order is null or has no items");
             if (callback != null) {
                 callback.onFailure(new Exception("Order must contain at least one item"));
             }
@@ -599,71 +917,385 @@ public class FirebaseDatabaseService {
         
         Map<String, Object> orderMap = order.toMap();
         orderMap.put("updatedAt", System.currentTimeMillis());
+        // Later updates of this order only send what changes after it was written in full
+        order.clearChanges();
         
-        db.collection(COLLECTION_ORDERS)
-                .document(order.getOrderId())
-                .set(orderMap)
-                .addOnSuccessListener(aVoid -> {
-                    Log.d(TAG, "Order created successfully: " + order.getOrderId());
-                    if (callback != null) callback.onSuccess(order.getOrderId());
-                })
-                .addOnFailureListener(e -> {
-                    Log.e(TAG, "Order creation failed", e);
-                    if (callback != null) callback.onFailure(e);
+        // A create: items, version and status written directly later are not overwritten by a resend
+        write("createOrder", idempotencyKey, order.getOrderId(), Collections.singletonList(
+                WriteOutbox.Operation.create(COLLECTION_ORDERS, order.getOrderId(), orderMap)), "Order creation", callback);
+    }
+
+    /**
+     * Check out a cart filled from menu
+     * Only a cart with stock-tracked items needs the checkout transaction, which needs the server;
+     * any other cart is created like createOrder, through the outbox, so it can be placed offline.
+     * An ordered item missing from menu counts as tracked
+     */
+    public void placeOrder(Order order, Collection<MenuItem> menu, String idempotencyKey, DatabaseCallback callback) {
+        if (order != null && order.getItems() != null && !StockReservations.tracksAny(order, menu)) {
+            createOrder(order, idempotencyKey, callback);
+            return;
+        }
+        placeOrder(order, idempotencyKey, callback);
+    }
+
+    /**
+     * Find the order an earlier attempt of a checkout created, by its idempotency key; null if none
+     * Looks in the outbox, then at the checkout record. A failed lookup (e.g. offline, record not
+     * cached) also answers null: placing the order is idempotent by itself, the lookup only saves
+     * claiming an order number for a checkout that already has one
+     */
+    public void findCheckout(String idempotencyKey, DatabaseCallback callback) {
+        WriteOutbox writeOutbox = outbox;
+        if (writeOutbox == null) {
+            findCheckoutRecord(idempotencyKey, callback);
+            return;
+        }
+        writeOutbox.find(idempotencyKey, orderId -> {
+            if (orderId != null) {
+                if (callback != null) dispatcher.deliver(() -> callback.onSuccess(orderId));
+            } else {
+                findCheckoutRecord(idempotencyKey, callback);
+            }
+        });
+    }
+
+    private void findCheckoutRecord(String idempotencyKey, DatabaseCallback callback) {
+        db.collection(COLLECTION_CHECKOUTS).document(idempotencyKey).get()
+                .addOnCompleteListener(dispatcher.background(), traced("findCheckout"))
+                .addOnCompleteListener(dispatcher.background(), task -> {
+                    String orderId = null;
+                    if (task.isSuccessful()) {
+                        orderId = task.getResult().exists() ? task.getResult().getString("orderId") : null;
+                    } else {
+                        AppLog.w(TAG, "Checkout lookup failed, treating it as new: {}", idempotencyKey, task.getException());
+                    }
+                    String foundId = orderId;
+                    if (callback != null) dispatcher.deliver(() -> callback.onSuccess(foundId));
                 });
     }
 
     /**
-     * Update order
+     * Create an order and reserve the stock of its tracked items in one transaction (checkout)
+     * Fails with OutOfStockException, creating nothing, when an item has too little stock left.
+     * Repeating an idempotency key gets the ID of the order created first and reserves nothing;
+     * the checkout record that remembers the key expires after CHECKOUT_TTL_MILLIS.
+     * Transactions need the server: this checkout is not queued in the outbox
      */
-    public void updateOrder(Order order, DatabaseCallback callback) {
-        // Validate that order has items
+    public void placeOrder(Order order, String idempotencyKey, DatabaseCallback callback) {
         if (order == null || order.getItems() == null || order.getItems().isEmpty()) {
-            Log.e(TAG, "Cannot update order: order is null or has no items");
+            AppLog.e(TAG, "Cannot place order: order is null or has no items");
             if (callback != null) {
                 callback.onFailure(new Exception("Order must contain at least one item"));
             }
             return;
         }
-        
+
+        Map<String, Integer> quantities = OrderWrites.quantities(order);
         Map<String, Object> orderMap = order.toMap();
         orderMap.put("updatedAt", System.currentTimeMillis());
-        
-        db.collection(COLLECTION_ORDERS)
-                .document(order.getOrderId())
-                .update(orderMap)
+        String orderId = order.getOrderId();
+        ServiceMetrics.Call call = metrics.start("placeOrder");
+        db.runTransaction((Transaction transaction) -> {
+            return OrderWrites.placeOrder(documents(call, transaction), orderId, orderMap, quantities,
+                    idempotencyKey, stockShardRandom).orderId;
+        }).addOnCompleteListener(dispatcher.background(), traced(call)).addOnSuccessListener(placedId -> {
+            // Later updates of this order only send what changes after it was written in full
+            order.clearChanges();
+            AppLog.d(TAG, "Order placed: {}", placedId);
+            if (callback != null) callback.onSuccess(placedId);
+        }).addOnFailureListener(e -> {
+            AppLog.e(TAG, "Order placement failed: {}", orderId, e);
+            if (callback != null) callback.onFailure(e);
+        });
+    }
+
+    /**
+     * Set the stock of a menu item (inventory management); a negative stock stops tracking it
+     * The stock is split over the item's stock shards, replacing what was left. A checkout that read
+     * a shard before this commits is retried against the new stock
+     */
+    public void restockMenuItem(String itemId, int stock, DatabaseCallback callback) {
+        long[] shards = StockReservations.split(Math.max(0, stock));
+        WriteBatch batch = db.batch();
+        for (int shard = 0; shard < StockReservations.SHARDS; shard++) {
+            if (stock < 0) {
+                batch.delete(stockShard(itemId, shard));
+            } else {
+                Map<String, Object> shardData = new HashMap<>();
+                shardData.put("available", shards[shard]);
+                batch.set(stockShard(itemId, shard), shardData);
+            }
+        }
+        batch.set(db.collection(COLLECTION_STOCK_STATUS).document(itemId), OrderWrites.stockStatus(stock == 0));
+        Map<String, Object> itemUpdates = new HashMap<>();
+        itemUpdates.put("stock", stock);
+        itemUpdates.put("updatedAt", System.currentTimeMillis());
+        batch.set(db.collection(COLLECTION_MENU_ITEMS).document(itemId), itemUpdates, SetOptions.merge());
+        batch.commit()
+                .addOnCompleteListener(dispatcher.background(), tracedWrite("restockMenuItem", StockReservations.SHARDS + 2,
+                        ServiceMetrics.estimateValueBytes(itemUpdates)))
                 .addOnSuccessListener(aVoid -> {
-                    Log.d(TAG, "Order updated successfully: " + order.getOrderId());
-                    if (callback != null) callback.onSuccess(order.getOrderId());
+                    AppLog.d(TAG, "Menu item restocked: {} to {}", itemId, stock);
+                    if (callback != null) callback.onSuccess(itemId);
                 })
                 .addOnFailureListener(e -> {
-                    Log.e(TAG, "Order update failed", e);
+                    AppLog.e(TAG, "Menu item restock failed: {}", itemId, e);
                     if (callback != null) callback.onFailure(e);
                 });
     }
 
     /**
-     * Get order by ID
+     * Listen to the IDs of sold-out menu items
+     * Returns a ListenerRegistration that should be removed when done
      */
-    public void getOrderById(String orderId, OrderCallback callback) {
-        db.collection(COLLECTION_ORDERS)
+    public ListenerRegistration listenToSoldOutMenuItems(SoldOutCallback callback) {
+        ServiceMetrics.Watch watch = metrics.watch("listenToSoldOutMenuItems");
+        ResultDispatcher.SnapshotSequence sequence = dispatcher.newSnapshotSequence();
+        return sequence.attach(db.collection(COLLECTION_STOCK_STATUS)
+                .whereEqualTo("soldOut", true)
+                .addSnapshotListener(sequence, (querySnapshot, e) -> {
+                    traced(watch, querySnapshot, e);
+                    long token = sequence.current();
+                    if (!sequence.isLatest(token)) {
+                        return;
+                    }
+                    if (e != null) {
+                        AppLog.e(TAG, "Error listening to sold-out menu items", e);
+                        if (callback != null) dispatcher.deliver(sequence, token, () -> callback.onFailure(e));
+                        return;
+                    }
+                    Set<String> soldOut = new HashSet<>();
+                    if (querySnapshot != null) {
+                        for (QueryDocumentSnapshot document : querySnapshot) {
+                            soldOut.add(document.getId());
+                        }
+                    }
+                    if (callback != null) dispatcher.deliver(sequence, token, () -> callback.onSuccess(soldOut));
+                }));
+    }
+
+    private DocumentReference stockShard(String menuItemId, int shard) {
+        return db.document(OrderWrites.stockShardPath(menuItemId, shard));
+    }
+
+    /**
+     * Put the stock reserved by an order back into the shards it came from
+     * @param released what StockReservations.release left of the reservation, so every shard exists
+     */
+    private void releaseStock(Transaction transaction, String orderId, Map<String, long[]> released) {
+        for (Map.Entry<String, long[]> entry : released.entrySet()) {
+            for (int shard = 0; shard < StockReservations.SHARDS; shard++) {
+                if (entry.getValue()[shard] > 0) {
+                    transaction.update(stockShard(entry.getKey(), shard),
+                            "available", FieldValue.increment(entry.getValue()[shard]));
+                }
+            }
+            transaction.set(db.collection(COLLECTION_STOCK_STATUS).document(entry.getKey()), OrderWrites.stockStatus(false));
+        }
+        transaction.delete(db.collection(COLLECTION_STOCK_RESERVATIONS).document(orderId));
+    }
+
+    /**
+     * The items of an order have too little stock left
+     */
+    public static class OutOfStockException extends FirebaseFirestoreException {
+        private final List<String> menuItemIds;
+
+        OutOfStockException(List<String> menuItemIds) {
+            super("Not enough stock for " + menuItemIds, Code.FAILED_PRECONDITION);
+            this.menuItemIds = menuItemIds;
+        }
+
+        public List<String> getMenuItemIds() {
+            return menuItemIds;
+        }
+    }
+
+    /**
+     * Update order
+     * Saves the changes tracked since the order was read, see saveOrderChanges
+     */
+    public void updateOrder(Order order, DatabaseCallback callback) {
+        saveOrderChanges(order, new OrderCallback() {
+            @Override
+            public void onSuccess(Order saved) {
+                if (callback != null) callback.onSuccess(saved.getOrderId());
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                if (callback != null) callback.onFailure(e);
+            }
+        });
+    }
+
+    /**
+     * Save the tracked changes of an order
+     * Sends only the fields changed since the order was read (see Order.takeChanges); items added
+     * since are appended to the stored list instead of rewriting it. If the write fails the changes
+     * are tracked again, so a retry sends them
+     * Changes to items or money are conditional on the order's version (enforced by the security
+     * rules) and are sent directly, so a version mismatch fails fast instead of overwriting another
+     * device's edit. On a mismatch the stored order is read: when this edit only appended items and
+     * set plain fields it is merged onto it and sent again; otherwise the callback gets an
+     * OrderConflictException with the stored order. Other changes (e.g. status) go through the outbox
+     * The callback gets the order as saved, which is a new merged order after a merge
+     */
+    public void saveOrderChanges(Order order, OrderCallback callback) {
+        // Validate that order has items
+        if (order == null || order.getItems() == null || order.getItems().isEmpty()) {
+            AppLog.e(TAG, "Cannot update order: order is null or has no items");
+            if (callback != null) {
+                callback.onFailure(new Exception("Order must contain at least one item"));
+            }
+            return;
+        }
+
+        Order.Changes changes = order.takeChanges();
+        if (isVersionedChange(changes)) {
+            commitVersionedOrderChanges(order, changes, () -> order.restoreChanges(changes), 1, callback);
+            return;
+        }
+        write("saveOrderChanges", newWriteKey(), order.getOrderId(), Collections.singletonList(
+                WriteOutbox.Operation.update(COLLECTION_ORDERS, order.getOrderId(), orderPatch(order, changes))),
+                "Order update", new DatabaseCallback() {
+                    @Override
+                    public void onSuccess(String documentId) {
+                        if (callback != null) callback.onSuccess(order);
+                    }
+
+                    @Override
+                    public void onFailure(Exception e) {
+                        order.restoreChanges(changes);
+                        if (callback != null) callback.onFailure(e);
+                    }
+                });
+    }
+
+    /**
+     * The stored order changed since this device read it, in a way its edit cannot be merged with
+     */
+    public static class OrderConflictException extends Exception {
+        private final Order storedOrder;
+
+        OrderConflictException(Order storedOrder) {
+            super("Order was changed on another device");
+            this.storedOrder = storedOrder;
+        }
+
+        /**
+         * The order as stored now, to edit again
+         */
+        public Order getStoredOrder() {
+            return storedOrder;
+        }
+    }
+
+    private static boolean isVersionedChange(Order.Changes changes) {
+        if (!changes.getAppendedItems().isEmpty()) {
+            return true;
+        }
+        for (String field : VERSIONED_ORDER_FIELDS) {
+            if (changes.getFields().contains(field)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Update map of the changes: changed fields, appended items and the time of the update
+     */
+    private static Map<String, Object> orderPatch(Order order, Order.Changes changes) {
+        Map<String, Object> updates = new HashMap<>();
+        for (String field : changes.getFields()) {
+            updates.put(field, OrderCodec.encodeField(order, field));
+        }
+        if (!changes.getAppendedItems().isEmpty()) {
+            List<Map<String, Object>> appended = new ArrayList<>();
+            for (OrderItem item : changes.getAppendedItems()) {
+                appended.add(OrderItemCodec.toMap(item));
+            }
+            updates.put("items", new WriteOutbox.ArrayUnion(appended));
+        }
+        updates.put("updatedAt", System.currentTimeMillis());
+        AppLog.d(TAG, "Order update {}: fields {}, {} appended items", order.getOrderId(), changes.getFields(), changes.getAppendedItems().size());
+        return updates;
+    }
+
+    /**
+     * @param restore tracks the caller's changes again when the update finally fails
+     */
+    private void commitVersionedOrderChanges(Order order, Order.Changes changes, Runnable restore, int attempt,
+                                             OrderCallback callback) {
+        long nextVersion = order.getVersion() + 1;
+        Map<String, Object> updates = orderPatch(order, changes);
+        updates.put("version", nextVersion);
+        DocumentReference reference = db.collection(COLLECTION_ORDERS).document(order.getOrderId());
+        reference.update(toFirestoreUpdate(updates))
+                .addOnCompleteListener(dispatcher.background(), tracedWrite("saveOrderChanges", 1,
+                        ServiceMetrics.estimateDocumentBytes(reference.getPath(), updates)))
+                .addOnSuccessListener(aVoid -> {
+                    order.setVersion(nextVersion);
+                    AppLog.d(TAG, "Order update succeeded: {} at version {}", order.getOrderId(), nextVersion);
+                    if (callback != null) callback.onSuccess(order);
+                })
+                .addOnFailureListener(e -> {
+                    if (!(e instanceof FirebaseFirestoreException) || ((FirebaseFirestoreException) e).getCode()
+                            != FirebaseFirestoreException.Code.PERMISSION_DENIED) {
+                        failOrderChanges(order, e, restore, callback);
+                        return;
+                    }
+                    // The rules reject a stale version; read the stored order to tell and to merge
+                    reference.get().addOnCompleteListener(dispatcher.background(), traced("readConflictingOrder"))
+                            .addOnCompleteListener(task -> {
+                        Order stored = task.isSuccessful() ? documentToOrder(task.getResult()) : null;
+                        if (stored == null || stored.getVersion() == order.getVersion()) {
+                            failOrderChanges(order, e, restore, callback);
+                            return;
+                        }
+                        Order merged = attempt < MAX_ORDER_MERGE_ATTEMPTS ? OrderMerge.merge(order, changes, stored) : null;
+                        if (merged == null) {
+                            AppLog.w(TAG, "Order update conflicts with version {}: {}", stored.getVersion(), order.getOrderId());
+                            failOrderChanges(order, new OrderConflictException(stored), restore, callback);
+                            return;
+                        }
+                        AppLog.d(TAG, "Merged order update onto version {}: {}", stored.getVersion(), order.getOrderId());
+                        commitVersionedOrderChanges(merged, merged.takeChanges(), restore, attempt + 1, callback);
+                    });
+                });
+    }
+
+    private static void failOrderChanges(Order order, Exception e, Runnable restore, OrderCallback callback) {
+        AppLog.e(TAG, "Order update failed: {}", order.getOrderId(), e);
+        restore.run();
+        if (callback != null) callback.onFailure(e);
+    }
+
+    /**
+     * Get order by ID
+     */
+    public void getOrderById(String orderId, OrderCallback callback) {
+        db.collection(COLLECTION_ORDERS)
                 .document(orderId)
                 .get()
-                .addOnCompleteListener(task -> {
+                .addOnCompleteListener(dispatcher.background(), traced("getOrderById"))
+                .addOnCompleteListener(dispatcher.background(), task -> {
                     if (task.isSuccessful()) {
                         DocumentSnapshot document = task.getResult();
                         if (document != null && document.exists()) {
                             Order order = documentToOrder(document);
                             if (order != null) {
-                                if (callback != null) callback.onSuccess(order);
+                                if (callback != null) dispatcher.deliver(() -> callback.onSuccess(order));
                             } else {
-                                if (callback != null) callback.onFailure(new Exception("Failed to deserialize order"));
+                                if (callback != null) dispatcher.deliver(() -> callback.onFailure(new Exception("Failed to deserialize order")));
                             }
                         } else {
-                            if (callback != null) callback.onFailure(new Exception("Order not found"));
+                            if (callback != null) dispatcher.deliver(() -> callback.onFailure(new Exception("Order not found")));
                         }
                     } else {
-                        if (callback != null) callback.onFailure(task.getException());
+                        if (callback != null) dispatcher.deliver(() -> callback.onFailure(task.getException()));
                     }
                 });
     }
@@ -672,59 +1304,73 @@ public class FirebaseDatabaseService {
      * Get all pending orders (for kitchen view)
      */
     public void getPendingOrders(OrdersCallback callback) {
+        long requestToken = dispatcher.issue();
         List<String> statusList = new ArrayList<>();
         statusList.add("pending");
         statusList.add("preparing");
         
-        // Try query with orderBy first (requires composite index)
-        db.collection(COLLECTION_ORDERS)
-                .whereIn("status", statusList)
-                .orderBy("createdAt", Query.Direction.ASCENDING)
-                .get()
-                .addOnCompleteListener(task -> {
-                    if (task.isSuccessful()) {
-                        List<Order> orders = new ArrayList<>();
-                        QuerySnapshot querySnapshot = task.getResult();
-                        if (querySnapshot != null) {
-                            for (QueryDocumentSnapshot document : querySnapshot) {
-                                Order order = documentToOrder(document);
-                                if (order != null) {
-                                    orders.add(order);
-                                }
-                            }
+        // Prefer the query with orderBy (requires composite index); the planner remembers
+        // if the index is missing and goes straight to the query without orderBy
+        List<QueryPlanner.Plan> plans = new ArrayList<>();
+        plans.add(new QueryPlanner.Plan(QueryShapes.ORDERS_BY_STATUSES_SORTED,
+                db.collection(COLLECTION_ORDERS)
+                        .whereIn("status", statusList)
+                        .orderBy("createdAt", Query.Direction.ASCENDING)));
+        plans.add(new QueryPlanner.Plan(QueryShapes.ORDERS_BY_STATUSES,
+                db.collection(COLLECTION_ORDERS)
+                        .whereIn("status", statusList)));
+
+        ServiceMetrics.Call call = metrics.start("getPendingOrders");
+        queryPlanner.get("getPendingOrders", plans, new QueryPlanner.PlanCallback() {
+            @Override
+            public void onSuccess(QuerySnapshot querySnapshot, QueryShape shape) {
+                if (querySnapshot != null) recordRead(call, querySnapshot);
+                call.succeed();
+                List<Order> orders = new ArrayList<>();
+                if (querySnapshot != null) {
+                    for (QueryDocumentSnapshot document : querySnapshot) {
+                        Order order = documentToOrder(document);
+                        if (order != null) {
+                            orders.add(order);
                         }
-                        // Sort by createdAt if not already sorted (fallback)
-                        orders.sort(Comparator.comparingLong(Order::getCreatedAt));
-                        if (callback != null) callback.onSuccess(orders);
-                    } else {
-                        Exception exception = task.getException();
-                        Log.w(TAG, "Failed to get pending orders with orderBy, trying without orderBy", exception);
-                        // If query fails (likely due to missing index), try without orderBy
-                        db.collection(COLLECTION_ORDERS)
-                                .whereIn("status", statusList)
-                                .get()
-                                .addOnCompleteListener(fallbackTask -> {
-                                    if (fallbackTask.isSuccessful()) {
-                                        List<Order> orders = new ArrayList<>();
-                                        QuerySnapshot querySnapshot = fallbackTask.getResult();
-                                        if (querySnapshot != null) {
-                                            for (QueryDocumentSnapshot document : querySnapshot) {
-                                                Order order = documentToOrder(document);
-                                                if (order != null) {
-                                                    orders.add(order);
-                                                }
-                                            }
-                                        }
-                                        // Sort by createdAt manually
-                                        orders.sort(Comparator.comparingLong(Order::getCreatedAt));
-                                        if (callback != null) callback.onSuccess(orders);
-                                    } else {
-                                        Log.e(TAG, "Failed to get pending orders", fallbackTask.getException());
-                                        if (callback != null) callback.onFailure(fallbackTask.getException());
-                                    }
-                                });
                     }
-                });
+                }
+                // Sort by createdAt (needed when the fallback plan was used)
+                orders.sort(Comparator.comparingLong(Order::getCreatedAt));
+                if (callback != null) dispatcher.deliverFreshest("getPendingOrders", requestToken, orders, FirebaseDatabaseService::copyOf, callback::onSuccess);
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                call.fail();
+                AppLog.e(TAG, "Failed to get pending orders", e);
+                if (callback != null) dispatcher.deliver(() -> callback.onFailure(e));
+            }
+        });
+    }
+
+    // Deep copies through the generated codecs, for callers that must not share model objects
+
+    private static Order copyOf(Order order) {
+        Order copy = OrderCodec.fromMap(OrderCodec.toMap(order));
+        copy.clearChanges();
+        return copy;
+    }
+
+    private static MenuItem copyOf(MenuItem item) {
+        return MenuItemCodec.fromMap(MenuItemCodec.toMap(item));
+    }
+
+    private static Admin copyOf(Admin admin) {
+        return AdminCodec.fromMap(AdminCodec.toMap(admin));
+    }
+
+    private static Restaurant copyOf(Restaurant restaurant) {
+        return RestaurantCodec.fromMap(RestaurantCodec.toMap(restaurant));
+    }
+
+    private static Table copyOf(Table table) {
+        return TableCodec.fromMap(TableCodec.toMap(table));
     }
 
     /**
@@ -736,26 +1382,22 @@ public class FirebaseDatabaseService {
         }
         
         try {
-            Order order = document.toObject(Order.class);
+            // Generated codec: no reflection, missing items become an empty list
+            Order order = OrderCodec.fromMap(document.getData());
             if (order == null) {
-                Log.w(TAG, "Failed to deserialize order from document: " + document.getId());
+                AppLog.w(TAG, "Failed to deserialize order from document: {}", document.getId());
                 return null;
             }
             
-            // Ensure items list is not null
-            if (order.getItems() == null) {
-                order.setItems(new ArrayList<>());
-                Log.w(TAG, "Order " + order.getOrderId() + " has null items, initializing empty list");
-            }
-            
             // Ensure orderId is set from document ID if missing
             if (order.getOrderId() == null || order.getOrderId().isEmpty()) {
                 order.setOrderId(document.getId());
             }
+            order.clearChanges();
             
             return order;
         } catch (Exception e) {
-            Log.e(TAG, "Error deserializing order from document: " + document.getId(), e);
+            AppLog.e(TAG, "Error deserializing order from document: {}", document.getId(), e);
             return null;
         }
     }
@@ -764,11 +1406,13 @@ public class FirebaseDatabaseService {
      * Get all orders by user ID
      */
     public void getOrdersByUserId(String userId, OrdersCallback callback) {
+        long requestToken = dispatcher.issue();
         db.collection(COLLECTION_ORDERS)
                 .whereEqualTo("userId", userId)
                 .orderBy("createdAt", Query.Direction.DESCENDING)
                 .get()
-                .addOnCompleteListener(task -> {
+                .addOnCompleteListener(dispatcher.background(), traced("getOrdersByUserId"))
+                .addOnCompleteListener(dispatcher.background(), task -> {
                     if (task.isSuccessful()) {
                         List<Order> orders = new ArrayList<>();
                         QuerySnapshot querySnapshot = task.getResult();
@@ -780,30 +1424,39 @@ public class FirebaseDatabaseService {
                                 }
                             }
                         }
-                        if (callback != null) callback.onSuccess(orders);
+                        if (callback != null) dispatcher.deliverFreshest("getOrdersByUserId:" + userId, requestToken, orders, FirebaseDatabaseService::copyOf, callback::onSuccess);
                     } else {
-                        if (callback != null) callback.onFailure(task.getException());
+                        if (callback != null) dispatcher.deliver(() -> callback.onFailure(task.getException()));
                     }
                 });
     }
 
     /**
      * Listen to orders by user ID with real-time updates
+     * Streams the whole history; history screens use getOrderHistory, which streams only recent orders
      * Returns a ListenerRegistration that should be removed when done
      * Note: Requires Firestore composite index on (userId, createdAt)
      * Firestore will automatically suggest creating the index if missing
      */
     public com.google.firebase.firestore.ListenerRegistration listenToOrdersByUserId(
             String userId, OrdersCallback callback) {
-        return db.collection(COLLECTION_ORDERS)
+        ServiceMetrics.Watch watch = metrics.watch("listenToOrdersByUserId");
+        ResultDispatcher.SnapshotSequence sequence = dispatcher.newSnapshotSequence();
+        return sequence.attach(db.collection(COLLECTION_ORDERS)
                 .whereEqualTo("userId", userId)
                 .orderBy("createdAt", Query.Direction.DESCENDING)
-                .addSnapshotListener((querySnapshot, e) -> {
+                .addSnapshotListener(sequence, (querySnapshot, e) -> {
+                    traced(watch, querySnapshot, e);
+                    long token = sequence.current();
+                    if (!sequence.isLatest(token)) {
+                        return; // A newer snapshot is already queued, skip decoding this one
+                    }
+
                     if (e != null) {
-                        Log.e(TAG, "Error listening to orders", e);
+                        AppLog.e(TAG, "Error listening to orders", e);
                         // If index is missing, Firestore error will include a link to create it
                         // Check the logcat for the index creation link
-                        if (callback != null) callback.onFailure(e);
+                        if (callback != null) dispatcher.deliver(sequence, token, () -> callback.onFailure(e));
                         return;
                     }
 
@@ -815,237 +1468,882 @@ public class FirebaseDatabaseService {
                                 orders.add(order);
                             }
                         }
-                        if (callback != null) callback.onSuccess(orders);
+                        if (callback != null) dispatcher.deliver(sequence, token, () -> callback.onSuccess(orders));
                     } else {
-                        if (callback != null) callback.onSuccess(new ArrayList<>());
+                        if (callback != null) dispatcher.deliver(sequence, token, () -> callback.onSuccess(new ArrayList<>()));
                     }
-                });
+                }));
     }
 
     /**
-     * Get all orders by table number
+     * Get the order history of a user, shared by every screen showing it
+     * Call start and stop on it to stream its recent orders (see OrderHistoryRepository)
      */
-    public void getOrdersByTableNumber(String tableNumber, OrdersCallback callback) {
-        db.collection(COLLECTION_ORDERS)
-                .whereEqualTo("tableNumber", tableNumber)
-                .whereEqualTo("orderType", "table")
-                .orderBy("createdAt", Query.Direction.DESCENDING)
-                .get()
-                .addOnCompleteListener(task -> {
-                    if (task.isSuccessful()) {
-                        List<Order> orders = new ArrayList<>();
-                        QuerySnapshot querySnapshot = task.getResult();
-                        if (querySnapshot != null) {
-                            for (QueryDocumentSnapshot document : querySnapshot) {
-                                Order order = documentToOrder(document);
-                                if (order != null) {
-                                    orders.add(order);
-                                }
-                            }
-                        }
-                        if (callback != null) callback.onSuccess(orders);
-                    } else {
-                        if (callback != null) callback.onFailure(task.getException());
-                    }
-                });
+    public OrderHistoryRepository getOrderHistory(String userId) {
+        OrderHistoryRepository repository = orderHistories.get(userId);
+        if (repository == null) {
+            File cacheDir = orderHistoryCacheDir;
+            repository = new OrderHistoryRepository(userId, new OrderHistoryRepository.Source() {
+                @Override
+                public ListenerRegistration listenToRecentOrders(String id, int limit, OrdersCallback callback) {
+                    return listenToRecentOrdersByUserId(id, limit, callback);
+                }
+
+                @Override
+                public void getOrdersBefore(String id, long createdAtBefore, int limit, OrdersCallback callback) {
+                    getOrdersByUserIdBefore(id, createdAtBefore, limit, callback);
+                }
+            }, cacheDir != null ? new OrderHistoryRepository.FileCache(cacheDir) : null,
+                    dispatcher.background(), dispatcher::deliver);
+            orderHistories.put(userId, repository);
+        }
+        return repository;
     }
 
     /**
-     * Update order status
+     * Listen to the newest orders of a user in real-time, newest first
      */
-    public void updateOrderStatus(String orderId, String status, DatabaseCallback callback) {
-        Map<String, Object> updates = new HashMap<>();
-        updates.put("status", status);
-        updates.put("updatedAt", System.currentTimeMillis());
-        
-        db.collection(COLLECTION_ORDERS)
-                .document(orderId)
-                .update(updates)
-                .addOnSuccessListener(aVoid -> {
-                    Log.d(TAG, "Order status updated successfully: " + orderId + " -> " + status);
-                    if (callback != null) callback.onSuccess(orderId);
-                })
-                .addOnFailureListener(e -> {
-                    Log.e(TAG, "Order status update failed", e);
-                    if (callback != null) callback.onFailure(e);
-                });
-    }
+    public ListenerRegistration listenToRecentOrdersByUserId(String userId, int limit, OrdersCallback callback) {
+        ServiceMetrics.Watch watch = metrics.watch("listenToRecentOrdersByUserId");
+        ResultDispatcher.SnapshotSequence sequence = dispatcher.newSnapshotSequence();
+        return sequence.attach(db.collection(COLLECTION_ORDERS)
+                .whereEqualTo("userId", userId)
+                .orderBy("createdAt", Query.Direction.DESCENDING)
+                .limit(limit)
+                .addSnapshotListener(sequence, (querySnapshot, e) -> {
+                    traced(watch, querySnapshot, e);
+                    long token = sequence.current();
+                    if (!sequence.isLatest(token)) {
+                        return; // A newer snapshot is already queued, skip decoding this one
+                    }
 
-    /**
-     * Listen to pending orders in real-time (for kitchen view)
-     * Returns a ListenerRegistration that should be removed when done
-     */
-    public ListenerRegistration listenToPendingOrders(OrdersCallback callback) {
-        List<String> statusList = new ArrayList<>();
-        statusList.add("pending");
-        statusList.add("preparing");
-        
-        // Use query without orderBy for listener (simpler, works without index)
-        // We'll sort manually in the callback
-        return db.collection(COLLECTION_ORDERS)
-                .whereIn("status", statusList)
-                .addSnapshotListener((snapshot, error) -> {
-                    if (error != null) {
-                        Log.e(TAG, "Real-time listener error", error);
-                        if (callback != null) callback.onFailure(error);
+                    if (e != null) {
+                        AppLog.e(TAG, "Error listening to recent orders", e);
+                        if (callback != null) dispatcher.deliver(sequence, token, () -> callback.onFailure(e));
                         return;
                     }
-                    
-                    if (snapshot != null) {
-                        List<Order> orders = new ArrayList<>();
-                        for (QueryDocumentSnapshot document : snapshot) {
+
+                    List<Order> orders = new ArrayList<>();
+                    if (querySnapshot != null) {
+                        for (QueryDocumentSnapshot document : querySnapshot) {
                             Order order = documentToOrder(document);
                             if (order != null) {
                                 orders.add(order);
                             }
                         }
-                        // Sort by createdAt manually (oldest first)
-                        orders.sort(Comparator.comparingLong(Order::getCreatedAt));
-                        if (callback != null) callback.onSuccess(orders);
                     }
-                });
+                    if (callback != null) dispatcher.deliver(sequence, token, () -> callback.onSuccess(orders));
+                }));
     }
 
-    // ==================== Restaurant Operations ====================
-
     /**
-     * Get all active restaurants
+     * Get one page of a user's orders created before a time, newest first (cursor paging)
      */
-    public void getAllRestaurants(RestaurantsCallback callback) {
-        // Try query with orderBy first (requires composite index)
-        db.collection(COLLECTION_RESTAURANTS)
-                .whereEqualTo("isActive", true)
-                .orderBy("restaurantName")
+    public void getOrdersByUserIdBefore(String userId, long createdAtBefore, int limit, OrdersCallback callback) {
+        db.collection(COLLECTION_ORDERS)
+                .whereEqualTo("userId", userId)
+                .orderBy("createdAt", Query.Direction.DESCENDING)
+                .startAfter(createdAtBefore)
+                .limit(limit)
                 .get()
-                .addOnCompleteListener(task -> {
+                .addOnCompleteListener(dispatcher.background(), traced("getOrdersByUserIdBefore"))
+                .addOnCompleteListener(dispatcher.background(), task -> {
                     if (task.isSuccessful()) {
-                        List<Restaurant> restaurants = new ArrayList<>();
+                        List<Order> orders = new ArrayList<>();
                         QuerySnapshot querySnapshot = task.getResult();
                         if (querySnapshot != null) {
                             for (QueryDocumentSnapshot document : querySnapshot) {
-                                Restaurant restaurant = documentToRestaurant(document);
-                                if (restaurant != null) {
-                                    restaurants.add(restaurant);
+                                Order order = documentToOrder(document);
+                                if (order != null) {
+                                    orders.add(order);
                                 }
                             }
                         }
-                        // Sort by name if not already sorted (fallback)
-                        restaurants.sort((r1, r2) -> {
-                            String name1 = r1.getRestaurantName() != null ? r1.getRestaurantName() : "";
-                            String name2 = r2.getRestaurantName() != null ? r2.getRestaurantName() : "";
-                            return name1.compareToIgnoreCase(name2);
-                        });
-                        if (callback != null) callback.onSuccess(restaurants);
+                        if (callback != null) dispatcher.deliver(() -> callback.onSuccess(orders));
                     } else {
-                        Exception exception = task.getException();
-                        Log.w(TAG, "Failed to get restaurants with orderBy, trying without orderBy", exception);
-                        // If query fails (likely due to missing index), try without orderBy
-                        db.collection(COLLECTION_RESTAURANTS)
-                                .whereEqualTo("isActive", true)
-                                .get()
-                                .addOnCompleteListener(fallbackTask -> {
-                                    if (fallbackTask.isSuccessful()) {
-                                        List<Restaurant> restaurants = new ArrayList<>();
-                                        QuerySnapshot querySnapshot = fallbackTask.getResult();
-                                        if (querySnapshot != null) {
-                                            for (QueryDocumentSnapshot document : querySnapshot) {
-                                                Restaurant restaurant = documentToRestaurant(document);
-                                                if (restaurant != null) {
-                                                    restaurants.add(restaurant);
-                                                }
-                                            }
-                                        }
-                                        // Sort by name manually
-                                        restaurants.sort((r1, r2) -> {
-                                            String name1 = r1.getRestaurantName() != null ? r1.getRestaurantName() : "";
-                                            String name2 = r2.getRestaurantName() != null ? r2.getRestaurantName() : "";
-                                            return name1.compareToIgnoreCase(name2);
-                                        });
-                                        if (callback != null) callback.onSuccess(restaurants);
-                                    } else {
-                                        Log.w(TAG, "Failed to get restaurants with filter, trying without filter", fallbackTask.getException());
-                                        // Last resort: get all restaurants without filter
-                                        db.collection(COLLECTION_RESTAURANTS)
-                                                .get()
-                                                .addOnCompleteListener(lastResortTask -> {
-                                                    if (lastResortTask.isSuccessful()) {
-                                                        List<Restaurant> restaurants = new ArrayList<>();
-                                                        QuerySnapshot querySnapshot = lastResortTask.getResult();
-                                                        if (querySnapshot != null) {
-                                                            for (QueryDocumentSnapshot document : querySnapshot) {
-                                                                Restaurant restaurant = documentToRestaurant(document);
-                                                                // Filter by isActive in memory
-                                                                if (restaurant != null && restaurant.isActive()) {
-                                                                    restaurants.add(restaurant);
-                                                                }
-                                                            }
-                                                        }
-                                                        // Sort by name manually
-                                                        restaurants.sort((r1, r2) -> {
-                                                            String name1 = r1.getRestaurantName() != null ? r1.getRestaurantName() : "";
-                                                            String name2 = r2.getRestaurantName() != null ? r2.getRestaurantName() : "";
-                                                            return name1.compareToIgnoreCase(name2);
-                                                        });
-                                                        if (callback != null) callback.onSuccess(restaurants);
-                                                    } else {
-                                                        Log.e(TAG, "Failed to get restaurants", lastResortTask.getException());
-                                                        if (callback != null) callback.onFailure(lastResortTask.getException());
-                                                    }
-                                                });
-                                    }
-                                });
+                        AppLog.e(TAG, "Failed to get older orders", task.getException());
+                        if (callback != null) dispatcher.deliver(() -> callback.onFailure(task.getException()));
                     }
                 });
     }
 
     /**
-     * Get restaurant by ID
+     * Get all orders by table number
      */
-    public void getRestaurantById(String restaurantId, RestaurantCallback callback) {
-        db.collection(COLLECTION_RESTAURANTS)
-                .document(restaurantId)
+    public void getOrdersByTableNumber(String tableNumber, OrdersCallback callback) {
+        long requestToken = dispatcher.issue();
+        db.collection(COLLECTION_ORDERS)
+                .whereEqualTo("tableNumber", tableNumber)
+                .whereEqualTo("orderType", "table")
+                .orderBy("createdAt", Query.Direction.DESCENDING)
                 .get()
-                .addOnCompleteListener(task -> {
+                .addOnCompleteListener(dispatcher.background(), traced("getOrdersByTableNumber"))
+                .addOnCompleteListener(dispatcher.background(), task -> {
                     if (task.isSuccessful()) {
-                        DocumentSnapshot document = task.getResult();
-                        if (document != null && document.exists()) {
-                            Restaurant restaurant = documentToRestaurant(document);
-                            if (callback != null) callback.onSuccess(restaurant);
-                        } else {
-                            if (callback != null) callback.onFailure(new Exception("Restaurant not found"));
+                        List<Order> orders = new ArrayList<>();
+                        QuerySnapshot querySnapshot = task.getResult();
+                        if (querySnapshot != null) {
+                            for (QueryDocumentSnapshot document : querySnapshot) {
+                                Order order = documentToOrder(document);
+                                if (order != null) {
+                                    orders.add(order);
+                                }
+                            }
                         }
+                        if (callback != null) dispatcher.deliverFreshest("getOrdersByTableNumber:" + tableNumber, requestToken, orders, FirebaseDatabaseService::copyOf, callback::onSuccess);
                     } else {
-                        Log.e(TAG, "Failed to get restaurant", task.getException());
-                        if (callback != null) callback.onFailure(task.getException());
+                        if (callback != null) dispatcher.deliver(() -> callback.onFailure(task.getException()));
                     }
                 });
     }
 
     /**
-     * Convert DocumentSnapshot to Restaurant
+     * Update order status
+     * Completing or cancelling an order also updates the sales rollup of its day, in one transaction
+     * Completed and cancelled orders cannot be reopened: the transaction refuses it, and so do the
+     * security rules for a queued write, which is then reported to the DroppedWriteListeners
      */
-    private Restaurant documentToRestaurant(DocumentSnapshot document) {
-        try {
-            Restaurant restaurant = new Restaurant();
-            restaurant.setRestaurantId(document.getString("restaurantId"));
-            restaurant.setRestaurantName(document.getString("restaurantName"));
-            restaurant.setAddress(document.getString("address"));
-            restaurant.setPhoneNumber(document.getString("phoneNumber"));
-            Boolean isActive = document.getBoolean("isActive");
-            restaurant.setActive(isActive != null && isActive);
-            Long createdAt = document.getLong("createdAt");
-            restaurant.setCreatedAt(createdAt != null ? createdAt : 0);
-            Long updatedAt = document.getLong("updatedAt");
-            restaurant.setUpdatedAt(updatedAt != null ? updatedAt : 0);
-            return restaurant;
-        } catch (Exception e) {
-            Log.e(TAG, "Failed to convert document to Restaurant", e);
-            return null;
+    public void updateOrderStatus(String orderId, String status, DatabaseCallback callback) {
+        updateOrderStatus(orderId, status, false, callback);
+    }
+
+    private void updateOrderStatus(String orderId, String status, boolean untilCommitted, DatabaseCallback callback) {
+        if (SalesRollups.FINAL_STATUSES.contains(status)) {
+            transitionOrder(orderId, "status", status, callback);
+            return;
+        }
+        write("updateOrderStatus", newWriteKey(), orderId, Collections.singletonList(
+                OrderWrites.statusUpdate(orderId, status, System.currentTimeMillis())), "Order status update",
+                untilCommitted, callback);
+    }
+
+    /**
+     * Update the status of several orders (expediter bulk actions)
+     * Orders are written in chunks of one batch each; when a chunk fails its orders are retried one by
+     * one, so a missing or locked order does not fail the rest. Reports the outcome of every order
+     */
+    public void updateOrderStatuses(Collection<String> orderIds, String status, BulkStatusCallback callback) {
+        updateOrderStatuses(orderIds, status, false, callback);
+    }
+
+    /**
+     * @param untilCommitted report an order only once the server has its status, also through the outbox
+     *                       (for callers that show the status as unconfirmed until then)
+     */
+    public void updateOrderStatuses(Collection<String> orderIds, String status, boolean untilCommitted,
+                                    BulkStatusCallback callback) {
+        List<String> ids = new ArrayList<>(new LinkedHashSet<>(orderIds));
+        BulkStatusResult result = new BulkStatusResult(ids.size(), callback);
+        if (ids.isEmpty()) {
+            dispatcher.deliver(result::finish);
+            return;
+        }
+        if (SalesRollups.FINAL_STATUSES.contains(status)) {
+            // One transaction per order, so each order's rollup change is counted once
+            for (String orderId : ids) {
+                transitionOrder(orderId, "status", status, new DatabaseCallback() {
+                    @Override
+                    public void onSuccess(String documentId) {
+                        result.succeeded(orderId);
+                    }
+
+                    @Override
+                    public void onFailure(Exception e) {
+                        result.failed(orderId, e);
+                    }
+                });
+            }
+            return;
+        }
+        long now = System.currentTimeMillis();
+        for (int start = 0; start < ids.size(); start += WriteOutbox.MAX_OPERATIONS_PER_BATCH) {
+            List<String> chunk = ids.subList(start, Math.min(ids.size(), start + WriteOutbox.MAX_OPERATIONS_PER_BATCH));
+            List<WriteOutbox.Operation> operations = new ArrayList<>(chunk.size());
+            for (String orderId : chunk) {
+                operations.add(OrderWrites.statusUpdate(orderId, status, now));
+            }
+            write("updateOrderStatuses", newWriteKey(), chunk.get(0), operations, "Bulk status update (" + chunk.size() + ")",
+                    untilCommitted, new DatabaseCallback() {
+                        @Override
+                        public void onSuccess(String documentId) {
+                            for (String orderId : chunk) {
+                                result.succeeded(orderId);
+                            }
+                        }
+
+                        @Override
+                        public void onFailure(Exception e) {
+                            if (chunk.size() == 1) {
+                                result.failed(chunk.get(0), e);
+                                return;
+                            }
+                            // A batch is all-or-nothing: find the orders that can still be updated
+                            for (String orderId : chunk) {
+                                updateOrderStatus(orderId, status, untilCommitted, new DatabaseCallback() {
+                                    @Override
+                                    public void onSuccess(String documentId) {
+                                        result.succeeded(orderId);
+                                    }
+
+                                    @Override
+                                    public void onFailure(Exception orderError) {
+                                        result.failed(orderId, orderError);
+                                    }
+                                });
+                            }
+                        }
+                    });
+        }
+    }
+
+    /**
+     * Mark the payment of an order refunded, counting the refund in the sales rollup of its day
+     */
+    public void refundOrder(String orderId, DatabaseCallback callback) {
+        transitionOrder(orderId, "paymentStatus", "refunded", callback);
+    }
+
+    /**
+     * Set one field of an order and apply the resulting change to its day's sales rollup, in a transaction
+     * The rollup change is computed from the stored order, so a retried or concurrent transition is
+     * counted once. Transactions need the server: these writes are not queued in the outbox
+     */
+    private void transitionOrder(String orderId, String field, String value, DatabaseCallback callback) {
+        DocumentReference orderRef = db.collection(COLLECTION_ORDERS).document(orderId);
+        ServiceMetrics.Call call = metrics.start("status".equals(field) ? "updateOrderStatus" : "refundOrder");
+        db.runTransaction((Transaction transaction) -> {
+            Order before = documentToOrder(read(call, transaction, orderRef));
+            if (before == null) {
+                throw new FirebaseFirestoreException("Order not found: " + orderId,
+                        FirebaseFirestoreException.Code.NOT_FOUND);
+            }
+            // Cancelling puts the order's reserved stock back into the shards that still exist
+            // (all reads come before the first write)
+            DocumentSnapshot reservation = "status".equals(field) && "cancelled".equals(value)
+                    ? read(call, transaction, db.collection(COLLECTION_STOCK_RESERVATIONS).document(orderId)) : null;
+            Map<String, long[]> released = reservation != null && reservation.exists()
+                    ? StockReservations.release(StockReservations.fromDocument(reservation.getData()),
+                            OrderWrites.shardReader(documents(call, transaction)))
+                    : null;
+            Map<String, Object> updates = new HashMap<>();
+            updates.put(field, value);
+            Order after = OrderCodec.fromMap(before.toMap());
+            OrderCodec.decodeField(after, field, value);
+            if (SalesRollups.reopens(before, after)) {
+                throw new FirebaseFirestoreException("Order " + orderId + " is " + before.getStatus()
+                        + " and cannot be reopened", FirebaseFirestoreException.Code.FAILED_PRECONDITION);
+            }
+            SalesRollup delta = salesRollups.delta(before, after);
+            if (delta != null) {
+                DocumentReference rollupRef = db.collection(COLLECTION_SALES_ROLLUPS)
+                        .document(SalesRollups.documentId(delta.getRestaurantId(), delta.getDay()));
+                transaction.set(rollupRef, toIncrements(delta.toMap()), SetOptions.merge());
+            }
+            if (released != null) {
+                releaseStock(transaction, orderId, released);
+            }
+            updates.put("updatedAt", System.currentTimeMillis());
+            transaction.update(orderRef, updates);
+            call.wrote(delta != null ? 2 : 1, ServiceMetrics.estimateDocumentBytes(orderRef.getPath(), updates));
+            return delta;
+        }).addOnCompleteListener(dispatcher.background(), traced(call)).addOnSuccessListener(delta -> {
+            if (delta != null) {
+                AppLog.d(TAG, "Order {} set to {}: {}, rollup {} updated", field, value, orderId, delta.getDay());
+            } else {
+                AppLog.d(TAG, "Order {} set to {}: {}", field, value, orderId);
+            }
+            if (callback != null) callback.onSuccess(orderId);
+        }).addOnFailureListener(e -> {
+            AppLog.e(TAG, "Order {} update failed: {}", field, orderId, e);
+            if (callback != null) callback.onFailure(e);
+        });
+    }
+
+    /**
+     * Turn signed counts into a merge of Firestore increments, leaving out the zero ones
+     */
+    private static Map<String, Object> toIncrements(Map<String, Object> counts) {
+        Map<String, Object> increments = new HashMap<>();
+        for (Map.Entry<String, Object> entry : counts.entrySet()) {
+            Object value = entry.getValue();
+            if (value instanceof Map) {
+                @SuppressWarnings("unchecked")
+                Map<String, Object> nested = toIncrements((Map<String, Object>) value);
+                if (!nested.isEmpty()) {
+                    increments.put(entry.getKey(), nested);
+                }
+            } else if (value instanceof Number) {
+                if (((Number) value).longValue() != 0) {
+                    increments.put(entry.getKey(), FieldValue.increment(((Number) value).longValue()));
+                }
+            } else {
+                increments.put(entry.getKey(), value);
+            }
+        }
+        return increments;
+    }
+
+    /**
+     * Get the sales rollups of a restaurant for the days from one time to another (report view)
+     * Reads one small document per day; days without sales come back empty
+     */
+    public void getSalesRollups(String restaurantId, long from, long to, SalesRollupsCallback callback) {
+        List<Long> dayStarts = salesRollups.dayStarts(from, to);
+        List<Task<DocumentSnapshot>> reads = new ArrayList<>(dayStarts.size());
+        ServiceMetrics.Call call = metrics.start("getSalesRollups");
+        for (long dayStart : dayStarts) {
+            reads.add(db.collection(COLLECTION_SALES_ROLLUPS)
+                    .document(SalesRollups.documentId(restaurantId, salesRollups.dayOf(dayStart))).get());
+        }
+        Tasks.<DocumentSnapshot>whenAllSuccess(reads).addOnCompleteListener(dispatcher.background(), task -> {
+            if (!task.isSuccessful()) {
+                call.fail();
+                AppLog.e(TAG, "Failed to read sales rollups for restaurant: {}", restaurantId, task.getException());
+                if (callback != null) dispatcher.deliver(() -> callback.onFailure(task.getException()));
+                return;
+            }
+            List<SalesRollup> rollups = new ArrayList<>(dayStarts.size());
+            for (int i = 0; i < dayStarts.size(); i++) {
+                DocumentSnapshot document = task.getResult().get(i);
+                recordRead(call, document);
+                SalesRollup rollup = document.exists() ? SalesRollupCodec.fromMap(document.getData()) : null;
+                rollups.add(rollup != null ? rollup
+                        : new SalesRollup(restaurantId, salesRollups.dayOf(dayStarts.get(i))));
+            }
+            call.succeed();
+            if (callback != null) dispatcher.deliver(() -> callback.onSuccess(rollups));
+        });
+    }
+
+    /**
+     * Recompute the sales rollups of a restaurant for the days from one time to another from its orders
+     * Each day's completed orders are queried in parallel, and every day's rollup is overwritten, days
+     * without sales included. Completions recorded while a day is rebuilt can be lost; run it off-peak
+     */
+    public void rebuildSalesRollups(String restaurantId, long from, long to, SalesRollupsCallback callback) {
+        List<Long> dayStarts = salesRollups.dayStarts(from, to);
+        List<Task<QuerySnapshot>> queries = new ArrayList<>(dayStarts.size());
+        ServiceMetrics.Call call = metrics.start("rebuildSalesRollups");
+        for (long dayStart : dayStarts) {
+            queries.add(db.collection(COLLECTION_ORDERS)
+                    .whereEqualTo("restaurantId", restaurantId)
+                    .whereEqualTo("status", "completed")
+                    .whereGreaterThanOrEqualTo("createdAt", dayStart)
+                    .whereLessThan("createdAt", salesRollups.startOfNextDay(dayStart))
+                    .orderBy("createdAt")
+                    .get());
+        }
+        Tasks.<QuerySnapshot>whenAllSuccess(queries).onSuccessTask(dispatcher.background(), snapshots -> {
+            List<Order> orders = new ArrayList<>();
+            for (QuerySnapshot snapshot : snapshots) {
+                recordRead(call, snapshot);
+                for (QueryDocumentSnapshot document : snapshot) {
+                    Order order = documentToOrder(document);
+                    if (order != null) {
+                        orders.add(order);
+                    }
+                }
+            }
+            List<SalesRollup> rollups = new ArrayList<>(
+                    salesRollups.aggregate(restaurantId, dayStarts, orders).values());
+            List<Task<Void>> commits = new ArrayList<>();
+            for (int start = 0; start < rollups.size(); start += WriteOutbox.MAX_OPERATIONS_PER_BATCH) {
+                WriteBatch batch = db.batch();
+                for (SalesRollup rollup : rollups.subList(start,
+                        Math.min(rollups.size(), start + WriteOutbox.MAX_OPERATIONS_PER_BATCH))) {
+                    Map<String, Object> rollupData = rollup.toMap();
+                    DocumentReference rollupRef = db.collection(COLLECTION_SALES_ROLLUPS)
+                            .document(SalesRollups.documentId(restaurantId, rollup.getDay()));
+                    batch.set(rollupRef, rollupData);
+                    call.wrote(1, ServiceMetrics.estimateDocumentBytes(rollupRef.getPath(), rollupData));
+                }
+                commits.add(batch.commit());
+            }
+            AppLog.d(TAG, "Rebuilt {} sales rollups from {} orders for restaurant: {}", rollups.size(), orders.size(), restaurantId);
+            return Tasks.whenAll(commits).onSuccessTask(committed -> Tasks.forResult(rollups));
+        }).addOnCompleteListener(dispatcher.background(), task -> {
+            if (!task.isSuccessful()) {
+                call.fail();
+                AppLog.e(TAG, "Failed to rebuild sales rollups for restaurant: {}", restaurantId, task.getException());
+                if (callback != null) dispatcher.deliver(() -> callback.onFailure(task.getException()));
+                return;
+            }
+            call.succeed();
+            if (callback != null) dispatcher.deliver(() -> callback.onSuccess(task.getResult()));
+        });
+    }
+
+    /**
+     * Collects per-order outcomes of a bulk status update and reports once all are in
+     */
+    private static class BulkStatusResult {
+        private final int expected;
+        private final BulkStatusCallback callback;
+        private final List<String> updated = new ArrayList<>();
+        private final Map<String, Exception> failed = new LinkedHashMap<>();
+
+        BulkStatusResult(int expected, BulkStatusCallback callback) {
+            this.expected = expected;
+            this.callback = callback;
+        }
+
+        synchronized void succeeded(String orderId) {
+            updated.add(orderId);
+            finishIfDone();
+        }
+
+        synchronized void failed(String orderId, Exception e) {
+            failed.put(orderId, e);
+            finishIfDone();
+        }
+
+        private void finishIfDone() {
+            if (updated.size() + failed.size() == expected) {
+                finish();
+            }
+        }
+
+        void finish() {
+            AppLog.d(TAG, "Bulk status update: {} updated, {} failed", updated.size(), failed.size());
+            if (callback != null) callback.onComplete(updated, failed);
+        }
+    }
+
+    /**
+     * Listen to pending orders in real-time (for kitchen view)
+     * Returns a ListenerRegistration that should be removed when done
+     */
+    public ListenerRegistration listenToPendingOrders(OrdersCallback callback) {
+        List<String> statusList = new ArrayList<>();
+        statusList.add("pending");
+        statusList.add("preparing");
+        
+        // Use query without orderBy for listener (simpler, works without index)
+        // We'll sort manually in the callback
+        ServiceMetrics.Watch watch = metrics.watch("listenToPendingOrders");
+        ResultDispatcher.SnapshotSequence sequence = dispatcher.newSnapshotSequence();
+        return sequence.attach(db.collection(COLLECTION_ORDERS)
+                .whereIn("status", statusList)
+                .addSnapshotListener(sequence, (snapshot, error) -> {
+                    traced(watch, snapshot, error);
+                    long token = sequence.current();
+                    if (!sequence.isLatest(token)) {
+                        return; // A newer snapshot is already queued, skip decoding this one
+                    }
+
+                    if (error != null) {
+                        AppLog.e(TAG, "Real-time listener error", error);
+                        if (callback != null) dispatcher.deliver(sequence, token, () -> callback.onFailure(error));
+                        return;
+                    }
+                    
+                    if (snapshot != null) {
+                        List<Order> orders = new ArrayList<>();
+                        for (QueryDocumentSnapshot document : snapshot) {
+                            Order order = documentToOrder(document);
+                            if (order != null) {
+                                orders.add(order);
+                            }
+                        }
+                        // Sort by createdAt manually (oldest first)
+                        orders.sort(Comparator.comparingLong(Order::getCreatedAt));
+                        if (callback != null) dispatcher.deliver(sequence, token, () -> callback.onSuccess(orders));
+                    }
+                }));
+    }
+
+    /**
+     * Listen to pending orders of a single restaurant in real-time (for kitchen view)
+     * Only that restaurant's orders are sent to the device
+     * Returns a ListenerRegistration that should be removed when done
+     */
+    public ListenerRegistration listenToPendingOrdersByRestaurant(String restaurantId, OrdersCallback callback) {
+        if (restaurantId == null || restaurantId.isEmpty()) {
+            return listenToPendingOrders(callback);
+        }
+
+        List<String> statusList = new ArrayList<>();
+        statusList.add("pending");
+        statusList.add("preparing");
+
+        // Equality on restaurantId plus whereIn on status works without a composite index
+        ServiceMetrics.Watch watch = metrics.watch("listenToPendingOrdersByRestaurant");
+        ResultDispatcher.SnapshotSequence sequence = dispatcher.newSnapshotSequence();
+        return sequence.attach(db.collection(COLLECTION_ORDERS)
+                .whereEqualTo("restaurantId", restaurantId)
+                .whereIn("status", statusList)
+                .addSnapshotListener(sequence, (snapshot, error) -> {
+                    traced(watch, snapshot, error);
+                    long token = sequence.current();
+                    if (!sequence.isLatest(token)) {
+                        return; // A newer snapshot is already queued, skip decoding this one
+                    }
+
+                    if (error != null) {
+                        AppLog.e(TAG, "Real-time listener error for restaurant: {}", restaurantId, error);
+                        if (callback != null) dispatcher.deliver(sequence, token, () -> callback.onFailure(error));
+                        return;
+                    }
+
+                    if (snapshot != null) {
+                        List<Order> orders = new ArrayList<>();
+                        for (QueryDocumentSnapshot document : snapshot) {
+                            Order order = documentToOrder(document);
+                            if (order != null) {
+                                orders.add(order);
+                            }
+                        }
+                        // Sort by createdAt manually (oldest first)
+                        orders.sort(Comparator.comparingLong(Order::getCreatedAt));
+                        if (callback != null) dispatcher.deliver(sequence, token, () -> callback.onSuccess(orders));
+                    }
+                }));
+    }
+
+    /**
+     * Listen to pending orders of several restaurants in real-time (for multi-site managers)
+     * One listener is registered per restaurant and the results are merged, oldest first
+     * Null or empty restaurantIds means all restaurants
+     * Returns a single ListenerRegistration that removes every underlying listener
+     */
+    public ListenerRegistration listenToPendingOrdersByRestaurants(List<String> restaurantIds, OrdersCallback callback) {
+        if (restaurantIds == null || restaurantIds.isEmpty()) {
+            return listenToPendingOrders(callback);
+        }
+        if (restaurantIds.size() == 1) {
+            return listenToPendingOrdersByRestaurant(restaurantIds.get(0), callback);
+        }
+
+        // Latest orders per restaurant; listeners all deliver on the callback (main) thread
+        Map<String, List<Order>> ordersByRestaurant = new HashMap<>();
+        List<ListenerRegistration> registrations = new ArrayList<>();
+        for (String restaurantId : restaurantIds) {
+            if (restaurantId == null || restaurantId.isEmpty() || ordersByRestaurant.containsKey(restaurantId)) {
+                continue;
+            }
+            ordersByRestaurant.put(restaurantId, new ArrayList<>());
+            registrations.add(listenToPendingOrdersByRestaurant(restaurantId, new OrdersCallback() {
+                @Override
+                public void onSuccess(List<Order> orders) {
+                    ordersByRestaurant.put(restaurantId, orders);
+                    List<Order> merged = new ArrayList<>();
+                    for (List<Order> restaurantOrders : ordersByRestaurant.values()) {
+                        merged.addAll(restaurantOrders);
+                    }
+                    merged.sort(Comparator.comparingLong(Order::getCreatedAt));
+                    if (callback != null) callback.onSuccess(merged);
+                }
+
+                @Override
+                public void onFailure(Exception e) {
+                    if (callback != null) callback.onFailure(e);
+                }
+            }));
+        }
+
+        return () -> {
+            for (ListenerRegistration registration : registrations) {
+                registration.remove();
+            }
+        };
+    }
+
+    /**
+     * Listen to the active orders (pending, preparing, ready) of a restaurant as changes
+     * Every snapshot is delivered, in order, because each one builds on the previous; orders that
+     * become completed or cancelled are reported as removed. A null restaurant listens to all
+     */
+    public ListenerRegistration listenToActiveOrderChanges(String restaurantId, OrderChangesCallback callback) {
+        Query query = db.collection(COLLECTION_ORDERS)
+                .whereIn("status", new ArrayList<>(TableOrderIndex.ACTIVE_STATUSES));
+        if (restaurantId != null && !restaurantId.isEmpty()) {
+            query = query.whereEqualTo("restaurantId", restaurantId);
+        }
+        ServiceMetrics.Watch watch = metrics.watch("listenToActiveOrderChanges");
+        ResultDispatcher.SnapshotSequence sequence = dispatcher.newSnapshotSequence();
+        return sequence.attach(query.addSnapshotListener(sequence, (snapshot, error) -> {
+            traced(watch, snapshot, error);
+            if (error != null) {
+                AppLog.e(TAG, "Error listening to active order changes", error);
+                if (callback != null) dispatcher.deliver(() -> {
+                    if (!sequence.isCancelled()) callback.onFailure(error);
+                });
+                return;
+            }
+            if (snapshot == null) {
+                return;
+            }
+
+            List<Order> changed = new ArrayList<>();
+            List<String> removedIds = new ArrayList<>();
+            for (DocumentChange change : snapshot.getDocumentChanges()) {
+                QueryDocumentSnapshot document = change.getDocument();
+                if (change.getType() == DocumentChange.Type.REMOVED) {
+                    removedIds.add(document.getId());
+                    continue;
+                }
+                Order order = documentToOrder(document);
+                if (order != null) {
+                    changed.add(order);
+                }
+            }
+            // The first snapshot is delivered even when empty, so the index knows it is ready
+            if (callback != null) dispatcher.deliver(() -> {
+                if (!sequence.isCancelled()) callback.onChanges(changed, removedIds);
+            });
+        }));
+    }
+
+    /**
+     * Get the shared table-to-active-orders index of a restaurant and keep its listener running
+     * Call releaseTableOrderIndex when done; the listener stops when nobody uses the index.
+     * Asking for another restaurant replaces the index
+     */
+    public TableOrderIndex acquireTableOrderIndex(String restaurantId) {
+        if (tableOrderIndex != null && !Objects.equals(tableOrderIndex.getRestaurantId(), restaurantId)) {
+            stopTableOrderIndex();
+        }
+        if (tableOrderIndex == null) {
+            TableOrderIndex index = new TableOrderIndex(restaurantId);
+            tableOrderIndex = index;
+            tableOrderIndexUsers = 0;
+            tableOrderIndexListener = listenToActiveOrderChanges(restaurantId, new OrderChangesCallback() {
+                @Override
+                public void onChanges(List<Order> changed, List<String> removedIds) {
+                    index.apply(changed, removedIds);
+                }
+
+                @Override
+                public void onFailure(Exception e) {
+                    index.fail();
+                }
+            });
+            AppLog.d(TAG, "Table order index started for restaurant: {}", (restaurantId != null ? restaurantId : "all"));
+        }
+        tableOrderIndexUsers++;
+        return tableOrderIndex;
+    }
+
+    /**
+     * Release an index from acquireTableOrderIndex
+     */
+    public void releaseTableOrderIndex(TableOrderIndex index) {
+        if (index == null || index != tableOrderIndex) {
+            return;
+        }
+        if (--tableOrderIndexUsers <= 0) {
+            stopTableOrderIndex();
+        }
+    }
+
+    private void stopTableOrderIndex() {
+        if (tableOrderIndexListener != null) {
+            tableOrderIndexListener.remove();
+        }
+        tableOrderIndexListener = null;
+        tableOrderIndex = null;
+        tableOrderIndexUsers = 0;
+        AppLog.d(TAG, "Table order index stopped");
+    }
+
+    // ==================== Restaurant Operations ====================
+
+    /**
+     * Get all active restaurants
+     */
+    public void getAllRestaurants(RestaurantsCallback callback) {
+        long requestToken = dispatcher.issue();
+        // Plans from most to least selective; the planner skips plans the backend has rejected
+        List<QueryPlanner.Plan> plans = new ArrayList<>();
+        plans.add(new QueryPlanner.Plan(QueryShapes.RESTAURANTS_ACTIVE_SORTED,
+                db.collection(COLLECTION_RESTAURANTS)
+                        .whereEqualTo("isActive", true)
+                        .orderBy("restaurantName")));
+        plans.add(new QueryPlanner.Plan(QueryShapes.RESTAURANTS_ACTIVE,
+                db.collection(COLLECTION_RESTAURANTS)
+                        .whereEqualTo("isActive", true)));
+        // Last resort: get all restaurants without filter
+        plans.add(new QueryPlanner.Plan(QueryShapes.RESTAURANTS_ALL,
+                db.collection(COLLECTION_RESTAURANTS)));
+
+        ServiceMetrics.Call call = metrics.start("getAllRestaurants");
+        queryPlanner.get("getAllRestaurants", plans, new QueryPlanner.PlanCallback() {
+            @Override
+            public void onSuccess(QuerySnapshot querySnapshot, QueryShape shape) {
+                if (querySnapshot != null) recordRead(call, querySnapshot);
+                call.succeed();
+                List<Restaurant> restaurants = new ArrayList<>();
+                if (querySnapshot != null) {
+                    for (QueryDocumentSnapshot document : querySnapshot) {
+                        Restaurant restaurant = documentToRestaurant(document);
+                        // Filter by isActive in memory (needed for the unfiltered plan)
+                        if (restaurant != null && restaurant.isActive()) {
+                            restaurants.add(restaurant);
+                        }
+                    }
+                }
+                // Sort by name in memory (needed when a fallback plan was used)
+                restaurants.sort((r1, r2) -> {
+                    String name1 = r1.getRestaurantName() != null ? r1.getRestaurantName() : "";
+                    String name2 = r2.getRestaurantName() != null ? r2.getRestaurantName() : "";
+                    return name1.compareToIgnoreCase(name2);
+                });
+                if (callback != null) dispatcher.deliverFreshest("getAllRestaurants", requestToken, restaurants, FirebaseDatabaseService::copyOf, callback::onSuccess);
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                call.fail();
+                AppLog.e(TAG, "Failed to get restaurants", e);
+                if (callback != null) dispatcher.deliver(() -> callback.onFailure(e));
+            }
+        });
+    }
+
+    /**
+     * Get every restaurant, active or not, unsorted (for RestaurantDirectory)
+     */
+    public void getAllRestaurantsIncludingInactive(RestaurantsCallback callback) {
+        db.collection(COLLECTION_RESTAURANTS)
+                .get()
+                .addOnCompleteListener(dispatcher.background(), traced("getAllRestaurantsIncludingInactive"))
+                .addOnCompleteListener(dispatcher.background(), task -> {
+                    if (task.isSuccessful()) {
+                        List<Restaurant> restaurants = documentsToRestaurants(task.getResult());
+                        if (callback != null) dispatcher.deliver(() -> callback.onSuccess(restaurants));
+                    } else {
+                        AppLog.e(TAG, "Failed to get restaurants", task.getException());
+                        if (callback != null) dispatcher.deliver(() -> callback.onFailure(task.getException()));
+                    }
+                });
+    }
+
+    /**
+     * Get restaurants updated after a time, active or not (for RestaurantDirectory)
+     * Restaurant writes stamp updatedAt, so an unchanged directory costs a single empty read
+     */
+    public void getRestaurantsUpdatedAfter(long updatedAfter, RestaurantsCallback callback) {
+        db.collection(COLLECTION_RESTAURANTS)
+                .whereGreaterThan("updatedAt", updatedAfter)
+                .orderBy("updatedAt")
+                .get()
+                .addOnCompleteListener(dispatcher.background(), traced("getRestaurantsUpdatedAfter"))
+                .addOnCompleteListener(dispatcher.background(), task -> {
+                    if (task.isSuccessful()) {
+                        List<Restaurant> restaurants = documentsToRestaurants(task.getResult());
+                        if (callback != null) dispatcher.deliver(() -> callback.onSuccess(restaurants));
+                    } else {
+                        AppLog.e(TAG, "Failed to get changed restaurants", task.getException());
+                        if (callback != null) dispatcher.deliver(() -> callback.onFailure(task.getException()));
+                    }
+                });
+    }
+
+    /**
+     * Get the restaurant directory shared by every screen showing restaurants (see RestaurantDirectory)
+     */
+    public RestaurantDirectory getRestaurantDirectory() {
+        if (restaurantDirectory == null) {
+            File cacheFile = restaurantCacheFile;
+            restaurantDirectory = new RestaurantDirectory(new RestaurantDirectory.Source() {
+                @Override
+                public void getAllRestaurants(RestaurantsCallback callback) {
+                    getAllRestaurantsIncludingInactive(callback);
+                }
+
+                @Override
+                public void getRestaurantsUpdatedAfter(long updatedAfter, RestaurantsCallback callback) {
+                    FirebaseDatabaseService.this.getRestaurantsUpdatedAfter(updatedAfter, callback);
+                }
+            }, cacheFile != null ? new RestaurantDirectory.FileCache(cacheFile) : null,
+                    dispatcher.background(), dispatcher::deliver);
+        }
+        return restaurantDirectory;
+    }
+
+    /**
+     * Get restaurant by ID
+     */
+    public void getRestaurantById(String restaurantId, RestaurantCallback callback) {
+        db.collection(COLLECTION_RESTAURANTS)
+                .document(restaurantId)
+                .get()
+                .addOnCompleteListener(dispatcher.background(), traced("getRestaurantById"))
+                .addOnCompleteListener(dispatcher.background(), task -> {
+                    if (task.isSuccessful()) {
+                        DocumentSnapshot document = task.getResult();
+                        if (document != null && document.exists()) {
+                            Restaurant restaurant = documentToRestaurant(document);
+                            if (callback != null) dispatcher.deliver(() -> callback.onSuccess(restaurant));
+                        } else {
+                            if (callback != null) dispatcher.deliver(() -> callback.onFailure(new Exception("Restaurant not found")));
+                        }
+                    } else {
+                        AppLog.e(TAG, "Failed to get restaurant", task.getException());
+                        if (callback != null) dispatcher.deliver(() -> callback.onFailure(task.getException()));
+                    }
+                });
+    }
+
+    /**
+     * Get the app configuration; the defaults when it was never saved
+     */
+    public void getAppConfig(AppConfigCallback callback) {
+        db.collection(COLLECTION_APP_CONFIG)
+                .document(APP_CONFIG_DOC_ID)
+                .get()
+                .addOnCompleteListener(dispatcher.background(), traced("getAppConfig"))
+                .addOnCompleteListener(dispatcher.background(), task -> {
+                    if (task.isSuccessful()) {
+                        DocumentSnapshot document = task.getResult();
+                        AppConfig config = document != null && document.exists()
+                                ? document.toObject(AppConfig.class) : new AppConfig();
+                        if (callback != null) dispatcher.deliver(() -> callback.onSuccess(config));
+                    } else {
+                        AppLog.e(TAG, "Failed to get app config", task.getException());
+                        if (callback != null) dispatcher.deliver(() -> callback.onFailure(task.getException()));
+                    }
+                });
+    }
+
+    private List<Restaurant> documentsToRestaurants(QuerySnapshot querySnapshot) {
+        List<Restaurant> restaurants = new ArrayList<>();
+        if (querySnapshot != null) {
+            for (QueryDocumentSnapshot document : querySnapshot) {
+                Restaurant restaurant = documentToRestaurant(document);
+                if (restaurant != null) {
+                    if (restaurant.getRestaurantId() == null) {
+                        restaurant.setRestaurantId(document.getId());
+                    }
+                    restaurants.add(restaurant);
+                }
+            }
+        }
+        return restaurants;
+    }
+
+    /**
+     * Convert DocumentSnapshot to Restaurant
+     */
+    private Restaurant documentToRestaurant(DocumentSnapshot document) {
+        try {
+            return RestaurantCodec.fromMap(document.getData());
+        } catch (Exception e) {
+            AppLog.e(TAG, "Failed to convert document to Restaurant", e);
+            return null;
         }
     }
 
     // ==================== Callback Interfaces ====================
 
+    public interface DroppedWriteListener {
+        /**
+         * @param collection collection of the dropped write's first document
+         * @param documentId document ID the write reported when accepted
+         */
+        void onWriteDropped(String collection, String documentId, Exception e);
+    }
+
     public interface DatabaseCallback {
         void onSuccess(String documentId);
         void onFailure(Exception e);
@@ -1076,6 +2374,15 @@ public class FirebaseDatabaseService {
         void onFailure(Exception e);
     }
 
+    public interface MenuItemChangesCallback {
+        /**
+         * @param changed added or modified menu items
+         * @param removedIds IDs of deleted menu items
+         */
+        void onChanges(List<MenuItem> changed, List<String> removedIds);
+        void onFailure(Exception e);
+    }
+
     public interface OrderCallback {
         void onSuccess(Order order);
         void onFailure(Exception e);
@@ -1086,6 +2393,39 @@ public class FirebaseDatabaseService {
         void onFailure(Exception e);
     }
 
+    public interface BulkStatusCallback {
+        /**
+         * @param updatedIds orders whose status was written
+         * @param failedIds orders that could not be updated, with the reason
+         */
+        void onComplete(List<String> updatedIds, Map<String, Exception> failedIds);
+    }
+
+    public interface OrderChangesCallback {
+        /**
+         * @param changed added or modified orders
+         * @param removedIds IDs of orders that left the query
+         */
+        void onChanges(List<Order> changed, List<String> removedIds);
+        void onFailure(Exception e);
+    }
+
+    public interface SalesRollupsCallback {
+        /**
+         * @param rollups one per day, oldest first
+         */
+        void onSuccess(List<SalesRollup> rollups);
+        void onFailure(Exception e);
+    }
+
+    public interface SoldOutCallback {
+        /**
+         * @param menuItemIds IDs of the menu items with no stock left
+         */
+        void onSuccess(Set<String> menuItemIds);
+        void onFailure(Exception e);
+    }
+
     public interface OrderNumberCallback {
         void onSuccess(String orderNumber);
         void onFailure(Exception e);
@@ -1101,73 +2441,73 @@ public class FirebaseDatabaseService {
         void onFailure(Exception e);
     }
 
+    public interface MenuCategoriesCallback {
+        void onSuccess(List<MenuCategory> categories);
+        void onFailure(Exception e);
+    }
+
+    public interface AppConfigCallback {
+        void onSuccess(AppConfig config);
+        void onFailure(Exception e);
+    }
+
     public interface TablesCallback {
         void onSuccess(List<Table> tables);
         void onFailure(Exception e);
     }
 
+    public interface TableChangesCallback {
+        /**
+         * @param changed added or modified tables
+         * @param removedIds IDs of tables that left the query
+         */
+        void onChanges(List<Table> changed, List<String> removedIds);
+        void onFailure(Exception e);
+    }
+
     // ==================== Table Operations ====================
 
     /**
      * Get all tables by branch ID
      */
     public void getTablesByBranchId(String branchId, TablesCallback callback) {
-        db.collection(COLLECTION_TABLES)
-                .whereEqualTo("branchId", branchId)
-                .orderBy("tableNumber")
-                .get()
-                .addOnCompleteListener(task -> {
-                    if (task.isSuccessful()) {
-                        List<Table> tables = new ArrayList<>();
-                        QuerySnapshot querySnapshot = task.getResult();
-                        if (querySnapshot != null) {
-                            for (QueryDocumentSnapshot document : querySnapshot) {
-                                Table table = documentToTable(document);
-                                if (table != null) {
-                                    tables.add(table);
-                                }
-                            }
+        long requestToken = dispatcher.issue();
+        List<QueryPlanner.Plan> plans = new ArrayList<>();
+        plans.add(new QueryPlanner.Plan(QueryShapes.TABLES_BY_BRANCH_SORTED,
+                db.collection(COLLECTION_TABLES)
+                        .whereEqualTo("branchId", branchId)
+                        .orderBy("tableNumber")));
+        plans.add(new QueryPlanner.Plan(QueryShapes.TABLES_BY_BRANCH,
+                db.collection(COLLECTION_TABLES)
+                        .whereEqualTo("branchId", branchId)));
+
+        ServiceMetrics.Call call = metrics.start("getTablesByBranchId");
+        queryPlanner.get("getTablesByBranchId", plans, new QueryPlanner.PlanCallback() {
+            @Override
+            public void onSuccess(QuerySnapshot querySnapshot, QueryShape shape) {
+                if (querySnapshot != null) recordRead(call, querySnapshot);
+                call.succeed();
+                List<Table> tables = new ArrayList<>();
+                if (querySnapshot != null) {
+                    for (QueryDocumentSnapshot document : querySnapshot) {
+                        Table table = documentToTable(document);
+                        if (table != null) {
+                            tables.add(table);
                         }
-                        // Sort by table number if not already sorted
-                        tables.sort((t1, t2) -> {
-                            String num1 = t1.getTableNumber() != null ? t1.getTableNumber() : "";
-                            String num2 = t2.getTableNumber() != null ? t2.getTableNumber() : "";
-                            return num1.compareToIgnoreCase(num2);
-                        });
-                        if (callback != null) callback.onSuccess(tables);
-                    } else {
-                        Exception exception = task.getException();
-                        Log.w(TAG, "Failed to get tables with orderBy, trying without orderBy", exception);
-                        // Fallback: try without orderBy
-                        db.collection(COLLECTION_TABLES)
-                                .whereEqualTo("branchId", branchId)
-                                .get()
-                                .addOnCompleteListener(fallbackTask -> {
-                                    if (fallbackTask.isSuccessful()) {
-                                        List<Table> tables = new ArrayList<>();
-                                        QuerySnapshot querySnapshot = fallbackTask.getResult();
-                                        if (querySnapshot != null) {
-                                            for (QueryDocumentSnapshot document : querySnapshot) {
-                                                Table table = documentToTable(document);
-                                                if (table != null) {
-                                                    tables.add(table);
-                                                }
-                                            }
-                                        }
-                                        // Sort by table number manually
-                                        tables.sort((t1, t2) -> {
-                                            String num1 = t1.getTableNumber() != null ? t1.getTableNumber() : "";
-                                            String num2 = t2.getTableNumber() != null ? t2.getTableNumber() : "";
-                                            return num1.compareToIgnoreCase(num2);
-                                        });
-                                        if (callback != null) callback.onSuccess(tables);
-                                    } else {
-                                        Log.e(TAG, "Failed to get tables", fallbackTask.getException());
-                                        if (callback != null) callback.onFailure(fallbackTask.getException());
-                                    }
-                                });
                     }
-                });
+                }
+                // Sort by table number (needed when the fallback plan was used)
+                tables.sort((t1, t2) -> NaturalSortHelper.NATURAL_ORDER.compare(t1.getTableNumber(), t2.getTableNumber()));
+                if (callback != null) dispatcher.deliverFreshest("getTablesByBranchId:" + branchId, requestToken, tables, FirebaseDatabaseService::copyOf, callback::onSuccess);
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                call.fail();
+                AppLog.e(TAG, "Failed to get tables", e);
+                if (callback != null) dispatcher.deliver(() -> callback.onFailure(e));
+            }
+        });
     }
 
     /**
@@ -1175,12 +2515,20 @@ public class FirebaseDatabaseService {
      * Returns a ListenerRegistration that should be removed when done
      */
     public ListenerRegistration listenToTablesByBranchId(String branchId, TablesCallback callback) {
-        return db.collection(COLLECTION_TABLES)
+        ServiceMetrics.Watch watch = metrics.watch("listenToTablesByBranchId");
+        ResultDispatcher.SnapshotSequence sequence = dispatcher.newSnapshotSequence();
+        return sequence.attach(db.collection(COLLECTION_TABLES)
                 .whereEqualTo("branchId", branchId)
-                .addSnapshotListener((querySnapshot, e) -> {
+                .addSnapshotListener(sequence, (querySnapshot, e) -> {
+                    traced(watch, querySnapshot, e);
+                    long token = sequence.current();
+                    if (!sequence.isLatest(token)) {
+                        return; // A newer snapshot is already queued, skip decoding this one
+                    }
+
                     if (e != null) {
-                        Log.e(TAG, "Error listening to tables", e);
-                        if (callback != null) callback.onFailure(e);
+                        AppLog.e(TAG, "Error listening to tables", e);
+                        if (callback != null) dispatcher.deliver(sequence, token, () -> callback.onFailure(e));
                         return;
                     }
 
@@ -1192,17 +2540,62 @@ public class FirebaseDatabaseService {
                                 tables.add(table);
                             }
                         }
-                        // Sort by table number
-                        tables.sort((t1, t2) -> {
-                            String num1 = t1.getTableNumber() != null ? t1.getTableNumber() : "";
-                            String num2 = t2.getTableNumber() != null ? t2.getTableNumber() : "";
-                            return num1.compareToIgnoreCase(num2);
-                        });
-                        if (callback != null) callback.onSuccess(tables);
-                    } else {
-                        if (callback != null) callback.onSuccess(new ArrayList<>());
+                        // Sort by table number, in natural order ("2" before "10")
+                        tables.sort((t1, t2) -> NaturalSortHelper.NATURAL_ORDER.compare(t1.getTableNumber(), t2.getTableNumber()));
+                        if (callback != null) dispatcher.deliver(sequence, token, () -> callback.onSuccess(tables));
+                    } else {
+                        if (callback != null) dispatcher.deliver(sequence, token, () -> callback.onSuccess(new ArrayList<>()));
+                    }
+                }));
+    }
+
+    /**
+     * Listen to the tables of a branch as changes (for TableFloorStore)
+     * Only added or modified tables are decoded; every snapshot is delivered, in order, because
+     * each one builds on the previous. The first delivery holds all tables
+     */
+    public ListenerRegistration listenToTableChangesByBranchId(String branchId, TableChangesCallback callback) {
+        ServiceMetrics.Watch watch = metrics.watch("listenToTableChangesByBranchId");
+        ResultDispatcher.SnapshotSequence sequence = dispatcher.newSnapshotSequence();
+        return sequence.attach(db.collection(COLLECTION_TABLES)
+                .whereEqualTo("branchId", branchId)
+                .addSnapshotListener(sequence, (querySnapshot, e) -> {
+                    traced(watch, querySnapshot, e);
+                    if (e != null) {
+                        AppLog.e(TAG, "Error listening to table changes", e);
+                        if (callback != null) dispatcher.deliver(() -> {
+                            if (!sequence.isCancelled()) callback.onFailure(e);
+                        });
+                        return;
+                    }
+                    if (querySnapshot == null) {
+                        return;
+                    }
+
+                    List<Table> changed = new ArrayList<>();
+                    List<String> removedIds = new ArrayList<>();
+                    for (DocumentChange change : querySnapshot.getDocumentChanges()) {
+                        QueryDocumentSnapshot document = change.getDocument();
+                        if (change.getType() == DocumentChange.Type.REMOVED) {
+                            removedIds.add(document.getId());
+                            continue;
+                        }
+                        Table table = documentToTable(document);
+                        if (table != null) {
+                            if (table.getTableId() == null) {
+                                table.setTableId(document.getId());
+                            }
+                            changed.add(table);
+                        }
                     }
-                });
+                    if (changed.isEmpty() && removedIds.isEmpty()) {
+                        return; // metadata-only snapshot
+                    }
+                    AppLog.d(TAG, "Table changes: {} changed, {} removed", changed.size(), removedIds.size());
+                    if (callback != null) dispatcher.deliver(() -> {
+                        if (!sequence.isCancelled()) callback.onChanges(changed, removedIds);
+                    });
+                }));
     }
 
     /**
@@ -1213,17 +2606,8 @@ public class FirebaseDatabaseService {
         updates.put("status", status);
         updates.put("updatedAt", System.currentTimeMillis());
 
-        db.collection(COLLECTION_TABLES)
-                .document(tableId)
-                .update(updates)
-                .addOnSuccessListener(aVoid -> {
-                    Log.d(TAG, "Table status updated successfully: " + tableId + " -> " + status);
-                    if (callback != null) callback.onSuccess(tableId);
-                })
-                .addOnFailureListener(e -> {
-                    Log.e(TAG, "Table status update failed", e);
-                    if (callback != null) callback.onFailure(e);
-                });
+        write("updateTableStatus", newWriteKey(), tableId, Collections.singletonList(
+                WriteOutbox.Operation.update(COLLECTION_TABLES, tableId, updates)), "Table status update", callback);
     }
 
     /**
@@ -1240,17 +2624,8 @@ public class FirebaseDatabaseService {
             updates.put("status", "available");
         }
 
-        db.collection(COLLECTION_TABLES)
-                .document(tableId)
-                .update(updates)
-                .addOnSuccessListener(aVoid -> {
-                    Log.d(TAG, "Table order ID updated successfully: " + tableId);
-                    if (callback != null) callback.onSuccess(tableId);
-                })
-                .addOnFailureListener(e -> {
-                    Log.e(TAG, "Table order ID update failed", e);
-                    if (callback != null) callback.onFailure(e);
-                });
+        write("updateTableCurrentOrderId", newWriteKey(), tableId, Collections.singletonList(
+                WriteOutbox.Operation.update(COLLECTION_TABLES, tableId, updates)), "Table order ID update", callback);
     }
 
     /**
@@ -1260,18 +2635,19 @@ public class FirebaseDatabaseService {
         db.collection(COLLECTION_TABLES)
                 .document(tableId)
                 .get()
-                .addOnCompleteListener(task -> {
+                .addOnCompleteListener(dispatcher.background(), traced("getTableById"))
+                .addOnCompleteListener(dispatcher.background(), task -> {
                     if (task.isSuccessful()) {
                         DocumentSnapshot document = task.getResult();
                         if (document != null && document.exists()) {
                             Table table = documentToTable(document);
-                            if (callback != null) callback.onSuccess(table);
+                            if (callback != null) dispatcher.deliver(() -> callback.onSuccess(table));
                         } else {
-                            if (callback != null) callback.onFailure(new Exception("Table not found"));
+                            if (callback != null) dispatcher.deliver(() -> callback.onFailure(new Exception("Table not found")));
                         }
                     } else {
-                        Log.e(TAG, "Failed to get table", task.getException());
-                        if (callback != null) callback.onFailure(task.getException());
+                        AppLog.e(TAG, "Failed to get table", task.getException());
+                        if (callback != null) dispatcher.deliver(() -> callback.onFailure(task.getException()));
                     }
                 });
     }
@@ -1281,21 +2657,9 @@ public class FirebaseDatabaseService {
      */
     private Table documentToTable(DocumentSnapshot document) {
         try {
-            Table table = new Table();
-            table.setTableId(document.getString("tableId"));
-            table.setTableNumber(document.getString("tableNumber"));
-            table.setBranchId(document.getString("branchId"));
-            table.setStatus(document.getString("status"));
-            Long capacity = document.getLong("capacity");
-            table.setCapacity(capacity != null ? capacity.intValue() : 4);
-            table.setCurrentOrderId(document.getString("currentOrderId") != null ? document.getString("currentOrderId") : "");
-            Long createdAt = document.getLong("createdAt");
-            table.setCreatedAt(createdAt != null ? createdAt : 0);
-            Long updatedAt = document.getLong("updatedAt");
-            table.setUpdatedAt(updatedAt != null ? updatedAt : 0);
-            return table;
+            return TableCodec.fromMap(document.getData());
         } catch (Exception e) {
-            Log.e(TAG, "Failed to convert document to Table", e);
+            AppLog.e(TAG, "Failed to convert document to Table", e);
             return null;
         }
     }
@@ -1311,6 +2675,7 @@ public class FirebaseDatabaseService {
      * Search orders by various criteria
      */
     public void searchOrders(String searchQuery, String statusFilter, OrdersCallback callback) {
+        long requestToken = dispatcher.issue();
         Query query = db.collection(COLLECTION_ORDERS);
 
         // Apply status filter if provided
@@ -1319,36 +2684,25 @@ public class FirebaseDatabaseService {
         }
 
         query.get()
-                .addOnCompleteListener(task -> {
+                .addOnCompleteListener(dispatcher.background(), traced("searchOrders"))
+                .addOnCompleteListener(dispatcher.background(), task -> {
                     if (task.isSuccessful()) {
-                        List<Order> orders = new ArrayList<>();
+                        List<Order> candidates = new ArrayList<>();
                         QuerySnapshot querySnapshot = task.getResult();
                         if (querySnapshot != null) {
                             for (QueryDocumentSnapshot document : querySnapshot) {
                                 Order order = documentToOrder(document);
                                 if (order != null) {
-                                    // Apply search query filter if provided
-                                    if (searchQuery == null || searchQuery.isEmpty()) {
-                                        orders.add(order);
-                                    } else {
-                                        String queryLower = searchQuery.toLowerCase();
-                                        // Search in order ID, table number, customer name
-                                        boolean matches = (order.getOrderId() != null && order.getOrderId().toLowerCase().contains(queryLower))
-                                                || (order.getTableNumber() != null && order.getTableNumber().toLowerCase().contains(queryLower))
-                                                || (order.getUserId() != null && order.getUserId().toLowerCase().contains(queryLower));
-                                        if (matches) {
-                                            orders.add(order);
-                                        }
-                                    }
+                                    candidates.add(order);
                                 }
                             }
                         }
-                        // Sort by createdAt descending (newest first)
-                        orders.sort((o1, o2) -> Long.compare(o2.getCreatedAt(), o1.getCreatedAt()));
-                        if (callback != null) callback.onSuccess(orders);
+                        // Match order ID, table number and customer, newest first
+                        List<Order> orders = new OrderSearch(searchQuery).filter(candidates);
+                        if (callback != null) dispatcher.deliverFreshest("searchOrders:" + statusFilter + ":" + searchQuery, requestToken, orders, FirebaseDatabaseService::copyOf, callback::onSuccess);
                     } else {
-                        Log.e(TAG, "Failed to search orders", task.getException());
-                        if (callback != null) callback.onFailure(task.getException());
+                        AppLog.e(TAG, "Failed to search orders", task.getException());
+                        if (callback != null) dispatcher.deliver(() -> callback.onFailure(task.getException()));
                     }
                 });
     }
@@ -1357,6 +2711,7 @@ public class FirebaseDatabaseService {
      * Get all active orders (pending, preparing, ready)
      */
     public void getAllActiveOrders(OrdersCallback callback) {
+        long requestToken = dispatcher.issue();
         List<String> statusList = new ArrayList<>();
         statusList.add("pending");
         statusList.add("preparing");
@@ -1365,7 +2720,8 @@ public class FirebaseDatabaseService {
         db.collection(COLLECTION_ORDERS)
                 .whereIn("status", statusList)
                 .get()
-                .addOnCompleteListener(task -> {
+                .addOnCompleteListener(dispatcher.background(), traced("getAllActiveOrders"))
+                .addOnCompleteListener(dispatcher.background(), task -> {
                     if (task.isSuccessful()) {
                         List<Order> orders = new ArrayList<>();
                         QuerySnapshot querySnapshot = task.getResult();
@@ -1379,12 +2735,551 @@ public class FirebaseDatabaseService {
                         }
                         // Sort by createdAt descending (newest first)
                         orders.sort((o1, o2) -> Long.compare(o2.getCreatedAt(), o1.getCreatedAt()));
-                        if (callback != null) callback.onSuccess(orders);
+                        if (callback != null) dispatcher.deliverFreshest("getAllActiveOrders", requestToken, orders, FirebaseDatabaseService::copyOf, callback::onSuccess);
                     } else {
-                        Log.e(TAG, "Failed to get active orders", task.getException());
-                        if (callback != null) callback.onFailure(task.getException());
+                        AppLog.e(TAG, "Failed to get active orders", task.getException());
+                        if (callback != null) dispatcher.deliver(() -> callback.onFailure(task.getException()));
                     }
                 });
     }
-}
 
+    // ==================== Metrics ====================
+
+    /**
+     * Get the per-operation metrics (latency, documents, payload bytes, cache or server, failures)
+     */
+    public ServiceMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Also report every call as a Firebase Performance custom trace named after its operation
+     */
+    public void enablePerformanceTraces() {
+        FirebasePerformance performance = FirebasePerformance.getInstance();
+        metrics.setTracer(name -> {
+            Trace trace = performance.newTrace(name);
+            trace.start();
+            return new ServiceMetrics.Span() {
+                @Override
+                public void putMetric(String metric, long value) {
+                    trace.putMetric(metric, value);
+                }
+
+                @Override
+                public void putAttribute(String attribute, String value) {
+                    trace.putAttribute(attribute, value);
+                }
+
+                @Override
+                public void stop() {
+                    trace.stop();
+                }
+            };
+        });
+    }
+
+    /**
+     * Completion listener timing a call from now; snapshots in the result are counted as read
+     */
+    private <T> OnCompleteListener<T> traced(String operation) {
+        return traced(metrics.start(operation));
+    }
+
+    private <T> OnCompleteListener<T> traced(ServiceMetrics.Call call) {
+        return task -> {
+            if (!task.isSuccessful()) {
+                call.fail();
+                return;
+            }
+            T result = task.getResult();
+            if (result instanceof QuerySnapshot) {
+                recordRead(call, (QuerySnapshot) result);
+            } else if (result instanceof DocumentSnapshot) {
+                recordRead(call, (DocumentSnapshot) result);
+            } else if (result instanceof List) {
+                // whenAllSuccess of point reads
+                for (Object element : (List<?>) result) {
+                    if (element instanceof DocumentSnapshot) {
+                        recordRead(call, (DocumentSnapshot) element);
+                    }
+                }
+            }
+            call.succeed();
+        };
+    }
+
+    /**
+     * Completion listener timing a commit from now; the documents count as written once it succeeds
+     */
+    private <T> OnCompleteListener<T> tracedWrite(String operation, int documents, long bytes) {
+        ServiceMetrics.Call call = metrics.start(operation);
+        return task -> {
+            if (task.isSuccessful()) {
+                call.wrote(documents, bytes).succeed();
+            } else {
+                call.fail();
+            }
+        };
+    }
+
+    private <T> OnCompleteListener<T> tracedWrite(String operation, List<WriteOutbox.Operation> operations) {
+        return tracedWrite(operation, operations.size(), estimateBytes(operations));
+    }
+
+    /**
+     * Count a listener snapshot; its document changes are what it read (all documents the first time)
+     */
+    private static void traced(ServiceMetrics.Watch watch, QuerySnapshot snapshot, Exception error) {
+        if (error != null) {
+            watch.onError();
+            return;
+        }
+        if (snapshot == null) {
+            return;
+        }
+        List<DocumentChange> changes = snapshot.getDocumentChanges();
+        long bytes = 0;
+        for (DocumentChange change : changes) {
+            if (change.getType() != DocumentChange.Type.REMOVED) {
+                bytes += estimateBytes(change.getDocument());
+            }
+        }
+        watch.onSnapshot(changes.size(), bytes, snapshot.getMetadata().isFromCache());
+    }
+
+    /**
+     * Read a document in a transaction, counted in the call (every attempt of a retried transaction reads again)
+     */
+    private static DocumentSnapshot read(ServiceMetrics.Call call, Transaction transaction, DocumentReference reference)
+            throws FirebaseFirestoreException {
+        DocumentSnapshot document = transaction.get(reference);
+        call.read(1, estimateBytes(document), false);
+        return document;
+    }
+
+    private static void recordRead(ServiceMetrics.Call call, QuerySnapshot snapshot) {
+        long bytes = 0;
+        for (DocumentSnapshot document : snapshot.getDocuments()) {
+            bytes += estimateBytes(document);
+        }
+        // An empty result is still billed as one read
+        call.read(Math.max(1, snapshot.size()), bytes, snapshot.getMetadata().isFromCache());
+    }
+
+    private static void recordRead(ServiceMetrics.Call call, DocumentSnapshot document) {
+        call.read(1, estimateBytes(document), document.getMetadata().isFromCache());
+    }
+
+    private static long estimateBytes(DocumentSnapshot document) {
+        Map<String, Object> data = document.getData();
+        return ServiceMetrics.estimateDocumentBytes(document.getReference().getPath(),
+                data != null ? data : Collections.emptyMap());
+    }
+
+    private static long estimateBytes(List<WriteOutbox.Operation> operations) {
+        long bytes = 0;
+        for (WriteOutbox.Operation operation : operations) {
+            bytes += ServiceMetrics.estimateDocumentBytes(operation.getCollection() + "/" + operation.getDocumentId(),
+                    operation.getData());
+        }
+        return bytes;
+    }
+
+    // ==================== Writes ====================
+
+    /**
+     * Apply a write through the outbox when enabled, otherwise directly as one batch
+     * The callback gets documentId once the write is accepted locally (outbox) or committed (direct).
+     * The operation's metrics time the same thing; outbox commits are timed as flushOutbox
+     */
+    private void write(String operation, String idempotencyKey, String documentId, List<WriteOutbox.Operation> operations,
+                       String description, DatabaseCallback callback) {
+        write(operation, idempotencyKey, documentId, operations, description, false, callback);
+    }
+
+    /**
+     * @param untilCommitted answer only once the server has the write, also through the outbox
+     */
+    private void write(String operation, String idempotencyKey, String documentId, List<WriteOutbox.Operation> operations,
+                       String description, boolean untilCommitted, DatabaseCallback callback) {
+        WriteOutbox writeOutbox = outbox;
+        if (writeOutbox != null) {
+            ServiceMetrics.Call call = metrics.start(operation);
+            WriteOutbox.CommitCallback committed = !untilCommitted ? null : new WriteOutbox.CommitCallback() {
+                @Override
+                public void onCommitted(String committedId) {
+                    AppLog.d(TAG, "{} committed: {}", description, committedId);
+                    if (callback != null) dispatcher.deliver(() -> callback.onSuccess(committedId));
+                }
+
+                @Override
+                public void onDropped(Exception e) {
+                    if (callback != null) dispatcher.deliver(() -> callback.onFailure(e));
+                }
+            };
+            writeOutbox.enqueue(idempotencyKey, documentId, operations, new WriteOutbox.EnqueueCallback() {
+                @Override
+                public void onAccepted(String acceptedId) {
+                    call.wrote(operations.size(), estimateBytes(operations)).succeed();
+                    AppLog.d(TAG, "{} accepted: {}", description, acceptedId);
+                    if (callback != null && !untilCommitted) dispatcher.deliver(() -> callback.onSuccess(acceptedId));
+                }
+
+                @Override
+                public void onFailure(Exception e) {
+                    call.fail();
+                    AppLog.e(TAG, "{} failed", description, e);
+                    if (callback != null) dispatcher.deliver(() -> callback.onFailure(e));
+                }
+            }, committed);
+            return;
+        }
+        newBatch(operations).commit()
+                .addOnCompleteListener(dispatcher.background(), tracedWrite(operation, operations))
+                .addOnSuccessListener(aVoid -> {
+                    AppLog.d(TAG, "{} succeeded: {}", description, documentId);
+                    if (callback != null) callback.onSuccess(documentId);
+                })
+                .addOnFailureListener(e -> {
+                    AppLog.e(TAG, "{} failed", description, e);
+                    if (callback != null) callback.onFailure(e);
+                });
+    }
+
+    /**
+     * Outbox sink: commit consecutive records as one batch
+     * Records with creates are committed in a transaction instead, which skips a create whose
+     * document already carries the record's key (the record was committed but not acknowledged)
+     */
+    private void commitOutboxRecords(List<WriteOutbox.Record> records, WriteOutbox.SinkCallback callback) {
+        List<WriteOutbox.Operation> operations = new ArrayList<>();
+        boolean creates = false;
+        for (WriteOutbox.Record record : records) {
+            for (WriteOutbox.Operation operation : record.getOperations()) {
+                operations.add(operation);
+                creates |= WriteOutbox.OP_CREATE.equals(operation.getKind());
+            }
+        }
+        Task<Void> commit = creates ? commitCreatingOnce(records) : newBatch(operations).commit();
+        commit.addOnCompleteListener(dispatcher.background(), tracedWrite("flushOutbox", operations))
+                .addOnSuccessListener(aVoid -> callback.onCommitted())
+                .addOnFailureListener(e -> callback.onFailed(e, isPermanentWriteFailure(e)));
+    }
+
+    private Task<Void> commitCreatingOnce(List<WriteOutbox.Record> records) {
+        return db.runTransaction((Transaction transaction) -> {
+            OrderWrites.commitRecords(documents(null, transaction), records);
+            return null;
+        });
+    }
+
+    /**
+     * A transaction as OrderWrites documents, counting its reads and writes in call (if not null)
+     */
+    private OrderWrites.Documents documents(ServiceMetrics.Call call, Transaction transaction) {
+        return new OrderWrites.Documents() {
+            @Override
+            public Map<String, Object> get(String path) throws FirebaseFirestoreException {
+                DocumentReference reference = db.document(path);
+                DocumentSnapshot snapshot = call != null ? read(call, transaction, reference) : transaction.get(reference);
+                return snapshot.exists() ? snapshot.getData() : null;
+            }
+
+            @Override
+            public void set(String path, Map<String, Object> data) {
+                transaction.set(db.document(path), data);
+                if (call != null) call.wrote(1, ServiceMetrics.estimateDocumentBytes(path, data));
+            }
+
+            @Override
+            public void update(String path, Map<String, Object> fields) {
+                transaction.update(db.document(path), toFirestoreUpdate(fields));
+                if (call != null) call.wrote(1, ServiceMetrics.estimateDocumentBytes(path, fields));
+            }
+
+            @Override
+            public void increment(String path, String field, long delta) {
+                transaction.update(db.document(path), field, FieldValue.increment(delta));
+                if (call != null) call.wrote(1, ServiceMetrics.estimateDocumentBytes(path, Collections.singletonMap(field, delta)));
+            }
+        };
+    }
+
+    private DocumentReference outboxReference(WriteOutbox.Operation operation) {
+        return db.collection(operation.getCollection()).document(operation.getDocumentId());
+    }
+
+    private WriteBatch newBatch(List<WriteOutbox.Operation> operations) {
+        WriteBatch batch = db.batch();
+        for (WriteOutbox.Operation operation : operations) {
+            DocumentReference reference = outboxReference(operation);
+            if (WriteOutbox.OP_UPDATE.equals(operation.getKind())) {
+                batch.update(reference, toFirestoreUpdate(operation.getData()));
+            } else {
+                // Direct writes are not resent, so a create is a plain set
+                batch.set(reference, operation.getData());
+            }
+        }
+        return batch;
+    }
+
+    /**
+     * Replace outbox list appends with Firestore arrayUnion transforms
+     */
+    private static Map<String, Object> toFirestoreUpdate(Map<String, Object> data) {
+        Map<String, Object> update = data;
+        for (Map.Entry<String, Object> entry : data.entrySet()) {
+            if (entry.getValue() instanceof WriteOutbox.ArrayUnion) {
+                if (update == data) {
+                    update = new HashMap<>(data);
+                }
+                update.put(entry.getKey(), FieldValue.arrayUnion(
+                        ((WriteOutbox.ArrayUnion) entry.getValue()).getElements().toArray()));
+            }
+        }
+        return update;
+    }
+
+    /**
+     * Check if sending the same write again cannot succeed (e.g. updating a deleted document)
+     */
+    private static boolean isPermanentWriteFailure(Exception e) {
+        if (!(e instanceof FirebaseFirestoreException)) {
+            return e instanceof IllegalArgumentException;
+        }
+        switch (((FirebaseFirestoreException) e).getCode()) {
+            case INVALID_ARGUMENT:
+            case NOT_FOUND:
+            case ALREADY_EXISTS:
+            case PERMISSION_DENIED:
+            case FAILED_PRECONDITION:
+            case OUT_OF_RANGE:
+            case UNIMPLEMENTED:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static String newWriteKey() {
+        return UUID.randomUUID().toString();
+    }
+
+    // ==================== Task API ====================
+    // Future-style variants of the callback operations above. The callback versions stay the
+    // implementation and act as adapters: each method completes a Task from its callback.
+    // Compose with DbTasks (allOf / anyOf / withTimeout); pass a CancellationToken to cancel
+    // in-flight work, e.g. from onDestroy. Listeners without an executor run on the main thread.
+
+    public Task<User> getUserByIdAsync(String userId, CancellationToken cancellationToken) {
+        TaskCompletionSource<User> source = DbTasks.newSource(cancellationToken);
+        getUserById(userId, new UserCallback() {
+            @Override
+            public void onSuccess(User user) {
+                source.trySetResult(user);
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                source.trySetException(e);
+            }
+        });
+        return source.getTask();
+    }
+
+    public Task<String> createOrUpdateUserAsync(User user, CancellationToken cancellationToken) {
+        TaskCompletionSource<String> source = DbTasks.newSource(cancellationToken);
+        createOrUpdateUser(user, databaseCallback(source));
+        return source.getTask();
+    }
+
+    public Task<List<MenuItem>> getAllMenuItemsAsync(CancellationToken cancellationToken) {
+        TaskCompletionSource<List<MenuItem>> source = DbTasks.newSource(cancellationToken);
+        getAllMenuItems(new MenuItemsCallback() {
+            @Override
+            public void onSuccess(List<MenuItem> items) {
+                source.trySetResult(items);
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                source.trySetException(e);
+            }
+        });
+        return source.getTask();
+    }
+
+    public Task<String> getNextOrderNumberAsync(CancellationToken cancellationToken) {
+        TaskCompletionSource<String> source = DbTasks.newSource(cancellationToken);
+        getNextOrderNumber(new OrderNumberCallback() {
+            @Override
+            public void onSuccess(String orderNumber) {
+                source.trySetResult(orderNumber);
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                source.trySetException(e);
+            }
+        });
+        return source.getTask();
+    }
+
+    /**
+     * The result is the order ID an earlier attempt created, or null (see findCheckout)
+     */
+    public Task<String> findCheckoutAsync(String idempotencyKey, CancellationToken cancellationToken) {
+        TaskCompletionSource<String> source = DbTasks.newSource(cancellationToken);
+        findCheckout(idempotencyKey, databaseCallback(source));
+        return source.getTask();
+    }
+
+    public Task<String> placeOrderAsync(Order order, String idempotencyKey, CancellationToken cancellationToken) {
+        TaskCompletionSource<String> source = DbTasks.newSource(cancellationToken);
+        placeOrder(order, idempotencyKey, databaseCallback(source));
+        return source.getTask();
+    }
+
+    public Task<String> placeOrderAsync(Order order, Collection<MenuItem> menu, String idempotencyKey,
+                                        CancellationToken cancellationToken) {
+        TaskCompletionSource<String> source = DbTasks.newSource(cancellationToken);
+        placeOrder(order, menu, idempotencyKey, databaseCallback(source));
+        return source.getTask();
+    }
+
+    public Task<String> createOrderAsync(Order order, String idempotencyKey, CancellationToken cancellationToken) {
+        TaskCompletionSource<String> source = DbTasks.newSource(cancellationToken);
+        createOrder(order, idempotencyKey, databaseCallback(source));
+        return source.getTask();
+    }
+
+    /**
+     * Save the tracked changes of an order; the result is the order as saved (see saveOrderChanges)
+     */
+    public Task<Order> updateOrderAsync(Order order, CancellationToken cancellationToken) {
+        TaskCompletionSource<Order> source = DbTasks.newSource(cancellationToken);
+        saveOrderChanges(order, new OrderCallback() {
+            @Override
+            public void onSuccess(Order saved) {
+                source.trySetResult(saved);
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                source.trySetException(e);
+            }
+        });
+        return source.getTask();
+    }
+
+    public Task<Order> getOrderByIdAsync(String orderId, CancellationToken cancellationToken) {
+        TaskCompletionSource<Order> source = DbTasks.newSource(cancellationToken);
+        getOrderById(orderId, new OrderCallback() {
+            @Override
+            public void onSuccess(Order order) {
+                source.trySetResult(order);
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                source.trySetException(e);
+            }
+        });
+        return source.getTask();
+    }
+
+    public Task<List<Order>> getOrdersByTableNumberAsync(String tableNumber, CancellationToken cancellationToken) {
+        TaskCompletionSource<List<Order>> source = DbTasks.newSource(cancellationToken);
+        getOrdersByTableNumber(tableNumber, new OrdersCallback() {
+            @Override
+            public void onSuccess(List<Order> orders) {
+                source.trySetResult(orders);
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                source.trySetException(e);
+            }
+        });
+        return source.getTask();
+    }
+
+    public Task<List<Restaurant>> getAllRestaurantsAsync(CancellationToken cancellationToken) {
+        TaskCompletionSource<List<Restaurant>> source = DbTasks.newSource(cancellationToken);
+        getAllRestaurants(new RestaurantsCallback() {
+            @Override
+            public void onSuccess(List<Restaurant> restaurants) {
+                source.trySetResult(restaurants);
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                source.trySetException(e);
+            }
+        });
+        return source.getTask();
+    }
+
+    public Task<Restaurant> getRestaurantByIdAsync(String restaurantId, CancellationToken cancellationToken) {
+        TaskCompletionSource<Restaurant> source = DbTasks.newSource(cancellationToken);
+        getRestaurantById(restaurantId, new RestaurantCallback() {
+            @Override
+            public void onSuccess(Restaurant restaurant) {
+                source.trySetResult(restaurant);
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                source.trySetException(e);
+            }
+        });
+        return source.getTask();
+    }
+
+    public Task<List<MenuCategory>> getActiveMenuCategoriesAsync(CancellationToken cancellationToken) {
+        TaskCompletionSource<List<MenuCategory>> source = DbTasks.newSource(cancellationToken);
+        getActiveMenuCategories(new MenuCategoriesCallback() {
+            @Override
+            public void onSuccess(List<MenuCategory> categories) {
+                source.trySetResult(categories);
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                source.trySetException(e);
+            }
+        });
+        return source.getTask();
+    }
+
+    public Task<AppConfig> getAppConfigAsync(CancellationToken cancellationToken) {
+        TaskCompletionSource<AppConfig> source = DbTasks.newSource(cancellationToken);
+        getAppConfig(new AppConfigCallback() {
+            @Override
+            public void onSuccess(AppConfig config) {
+                source.trySetResult(config);
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                source.trySetException(e);
+            }
+        });
+        return source.getTask();
+    }
+
+    private static DatabaseCallback databaseCallback(TaskCompletionSource<String> source) {
+        return new DatabaseCallback() {
+            @Override
+            public void onSuccess(String documentId) {
+                source.trySetResult(documentId);
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                source.trySetException(e);
+            }
+        };
+    }
+}
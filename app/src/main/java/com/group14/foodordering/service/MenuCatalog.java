@@ -0,0 +1,155 @@
+package com.group14.foodordering.service;
+
+import com.group14.foodordering.model.MenuItem;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * In-memory menu kept up to date from menu item changes (menu screen)
+ * The menu is loaded once in name order; later changes replace items in place, so the screen only
+ * redraws the rows that changed and never re-sorts. A change that does not alter what a row shows
+ * (e.g. only stock or updatedAt) is applied silently. Changes are listened to from the newest
+ * updatedAt seen, less an allowance for writers whose clocks run behind
+ * Not thread-safe: use it from the main thread only
+ */
+public class MenuCatalog {
+    // Writers stamp updatedAt with their own clock; re-reading this far back catches slow clocks
+    static final long CLOCK_SKEW_MILLIS = 5 * 60 * 1000L;
+
+    public interface Listener {
+        /**
+         * An item was replaced in place by a version that shows differently
+         */
+        void onItemChanged(MenuItem previous, MenuItem item);
+
+        /**
+         * An item that was not in the menu became available
+         */
+        void onItemInserted(int position, MenuItem item);
+
+        void onItemRemoved(MenuItem item);
+    }
+
+    private final List<MenuItem> items = new ArrayList<>();
+    private final Map<String, Integer> positions = new HashMap<>();
+    private long updatedAt;
+    private boolean loaded;
+    private Listener listener;
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Replace the whole menu with a full load, already in name order
+     */
+    public void reset(List<MenuItem> loadedItems) {
+        items.clear();
+        items.addAll(loadedItems);
+        updatedAt = 0;
+        for (MenuItem item : items) {
+            updatedAt = Math.max(updatedAt, item.getUpdatedAt());
+        }
+        reindex();
+        loaded = true;
+    }
+
+    /**
+     * Apply the changes of one snapshot: added or modified items, and IDs of deleted items
+     */
+    public void apply(Collection<MenuItem> changed, Collection<String> removedIds) {
+        boolean removed = false;
+        for (String itemId : removedIds) {
+            Integer position = positions.remove(itemId);
+            if (position != null) {
+                MenuItem item = items.remove((int) position);
+                reindex();
+                removed = true;
+                if (listener != null) listener.onItemRemoved(item);
+            }
+        }
+        for (MenuItem item : changed) {
+            if (item == null || item.getItemId() == null) {
+                continue;
+            }
+            updatedAt = Math.max(updatedAt, item.getUpdatedAt());
+            Integer position = positions.get(item.getItemId());
+            if (position != null) {
+                MenuItem previous = items.set(position, item);
+                if (!sameDisplay(previous, item) && listener != null) listener.onItemChanged(previous, item);
+            } else if (item.isAvailable()) {
+                // Unavailable items were never loaded, so only a newly available one joins the menu
+                int insertAt = insertionPoint(item);
+                items.add(insertAt, item);
+                reindex();
+                if (listener != null) listener.onItemInserted(insertAt, item);
+            }
+        }
+    }
+
+    /**
+     * Live list of the menu items in display order; do not modify
+     */
+    public List<MenuItem> getItems() {
+        return items;
+    }
+
+    public MenuItem get(String itemId) {
+        Integer position = positions.get(itemId);
+        return position != null ? items.get(position) : null;
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Newest updatedAt of the menu, including applied changes
+     */
+    public long getUpdatedAt() {
+        return updatedAt;
+    }
+
+    /**
+     * updatedAt to listen for changes after; items re-read within the allowance replace themselves silently
+     */
+    public long getListenFrom() {
+        return Math.max(0, updatedAt - CLOCK_SKEW_MILLIS);
+    }
+
+    private void reindex() {
+        positions.clear();
+        for (int i = 0; i < items.size(); i++) {
+            positions.put(items.get(i).getItemId(), i);
+        }
+    }
+
+    // First item whose name sorts after the new one's, matching the load order
+    private int insertionPoint(MenuItem item) {
+        String name = item.getName() != null ? item.getName() : "";
+        for (int i = 0; i < items.size(); i++) {
+            String other = items.get(i).getName() != null ? items.get(i).getName() : "";
+            if (other.compareToIgnoreCase(name) > 0) {
+                return i;
+            }
+        }
+        return items.size();
+    }
+
+    /**
+     * Check that a change leaves what a menu row shows untouched
+     */
+    private static boolean sameDisplay(MenuItem a, MenuItem b) {
+        return a.isAvailable() == b.isAvailable()
+                && a.getPrice() == b.getPrice()
+                && Objects.equals(a.getName(), b.getName())
+                && Objects.equals(a.getDescription(), b.getDescription())
+                && Objects.equals(a.getImageUrl(), b.getImageUrl())
+                && Objects.equals(a.getCategory(), b.getCategory());
+    }
+}
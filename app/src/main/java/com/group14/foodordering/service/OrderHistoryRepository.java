@@ -0,0 +1,390 @@
+package com.group14.foodordering.service;
+
+import com.google.firebase.firestore.ListenerRegistration;
+import com.group14.foodordering.model.Order;
+import com.group14.foodordering.model.OrderCodec;
+import com.group14.foodordering.util.AppLog;
+import com.group14.foodordering.util.DebouncedListUpdater;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+/**
+ * Order history of one user (order history and member screens)
+ * Only the most recent orders are streamed live; older orders are loaded a page at a time with a
+ * createdAt cursor, and the newest orders are kept in a local cache so the list shows at once on
+ * the next start. Orders are published newest first as a whole list, for a diffing adapter
+ * State is used from the main thread; the cache is read and written on the io executor
+ */
+public class OrderHistoryRepository {
+    private static final String TAG = "OrderHistoryRepository";
+    static final int RECENT_LIMIT = 20;
+    static final int PAGE_SIZE = 20;
+    static final int MAX_CACHED_ORDERS = 100;
+
+    // Newest first; the order ID keeps orders created in the same millisecond in a stable order
+    private static final Comparator<Order> NEWEST_FIRST = (a, b) -> {
+        int result = Long.compare(b.getCreatedAt(), a.getCreatedAt());
+        return result != 0 ? result : String.valueOf(b.getOrderId()).compareTo(String.valueOf(a.getOrderId()));
+    };
+
+    /**
+     * Order rows are the same order when IDs match, and unchanged when status, time and total are
+     */
+    public static final DebouncedListUpdater.ItemDiff<Order> ORDER_DIFF = new DebouncedListUpdater.ItemDiff<Order>() {
+        @Override
+        public boolean areItemsTheSame(Order oldItem, Order newItem) {
+            return Objects.equals(oldItem.getOrderId(), newItem.getOrderId());
+        }
+
+        @Override
+        public boolean areContentsTheSame(Order oldItem, Order newItem) {
+            return Objects.equals(oldItem.getStatus(), newItem.getStatus())
+                    && oldItem.getCreatedAt() == newItem.getCreatedAt()
+                    && oldItem.getTotalCents() == newItem.getTotalCents();
+        }
+    };
+
+    /**
+     * Where orders come from (FirebaseDatabaseService in the app)
+     */
+    public interface Source {
+        ListenerRegistration listenToRecentOrders(String userId, int limit, FirebaseDatabaseService.OrdersCallback callback);
+
+        /**
+         * Orders created strictly before the cursor, newest first
+         */
+        void getOrdersBefore(String userId, long createdAtBefore, int limit, FirebaseDatabaseService.OrdersCallback callback);
+    }
+
+    /**
+     * Local copy of the newest orders; called on the io executor
+     */
+    public interface Cache {
+        List<Order> read(String userId);
+
+        void write(String userId, List<Order> orders);
+    }
+
+    public interface Listener {
+        /**
+         * @param orders all known orders, newest first
+         */
+        void onOrdersChanged(List<Order> orders);
+
+        void onFailure(Exception e);
+    }
+
+    private final String userId;
+    private final Source source;
+    private final Cache cache;
+    private final Executor io;
+    private final Executor main;
+    private final Map<String, Order> ordersById = new HashMap<>();
+    private final List<Listener> listeners = new ArrayList<>();
+    private List<Order> published = Collections.emptyList();
+    private ListenerRegistration recentRegistration;
+    private int activeUsers;
+    private boolean cacheRequested;
+    private boolean liveLoaded;
+    private long windowStart = Long.MAX_VALUE; // createdAt of the oldest order in the live window
+    private boolean hasMore = true;
+    private boolean loadingMore;
+
+    public OrderHistoryRepository(String userId, Source source, Cache cache, Executor io, Executor main) {
+        this.userId = userId;
+        this.source = source;
+        this.cache = cache;
+        this.io = io;
+        this.main = main;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    /**
+     * Start streaming the recent orders (first start also restores the cache); pair with stop
+     */
+    public void start() {
+        if (activeUsers++ > 0) {
+            return;
+        }
+        if (!cacheRequested && cache != null) {
+            cacheRequested = true;
+            io.execute(() -> {
+                List<Order> cached = cache.read(userId);
+                main.execute(() -> restore(cached));
+            });
+        }
+        recentRegistration = source.listenToRecentOrders(userId, RECENT_LIMIT, new FirebaseDatabaseService.OrdersCallback() {
+            @Override
+            public void onSuccess(List<Order> orders) {
+                applyRecent(orders);
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                AppLog.e(TAG, "Recent orders listener failed for user: {}", userId, e);
+                for (Listener listener : new ArrayList<>(listeners)) {
+                    listener.onFailure(e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Stop streaming once every start has been paired with a stop; loaded orders are kept
+     */
+    public void stop() {
+        if (activeUsers == 0 || --activeUsers > 0) {
+            return;
+        }
+        if (recentRegistration != null) {
+            recentRegistration.remove();
+            recentRegistration = null;
+        }
+    }
+
+    /**
+     * Add a listener; it gets the current orders right away if there are any
+     */
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+        if (!published.isEmpty()) {
+            listener.onOrdersChanged(published);
+        }
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Load the next page of older orders, unless one is loading or all are loaded
+     */
+    public void loadMore() {
+        if (loadingMore || !hasMore || published.isEmpty()) {
+            return;
+        }
+        loadingMore = true;
+        long cursor = published.get(published.size() - 1).getCreatedAt();
+        source.getOrdersBefore(userId, cursor, PAGE_SIZE, new FirebaseDatabaseService.OrdersCallback() {
+            @Override
+            public void onSuccess(List<Order> orders) {
+                loadingMore = false;
+                if (orders.size() < PAGE_SIZE) {
+                    hasMore = false;
+                }
+                for (Order order : orders) {
+                    put(order);
+                }
+                AppLog.d(TAG, "Loaded {} older orders for user: {}", orders.size(), userId);
+                publish();
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                loadingMore = false;
+                AppLog.e(TAG, "Failed to load older orders for user: {}", userId, e);
+                for (Listener listener : new ArrayList<>(listeners)) {
+                    listener.onFailure(e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Check whether older orders may still be loaded
+     */
+    public boolean hasMore() {
+        return hasMore;
+    }
+
+    public boolean isLoadingMore() {
+        return loadingMore;
+    }
+
+    public List<Order> getOrders() {
+        return published;
+    }
+
+    private void restore(List<Order> cached) {
+        if (cached == null || cached.isEmpty()) {
+            return;
+        }
+        if (liveLoaded) {
+            // The live window is newer; keep only older cached orders that continue it without a gap
+            if (!hasMore || !reaches(cached, windowStart)) {
+                return;
+            }
+            for (Order order : cached) {
+                if (order.getCreatedAt() < windowStart) {
+                    put(order);
+                }
+            }
+        } else {
+            for (Order order : cached) {
+                put(order);
+            }
+        }
+        AppLog.d(TAG, "Restored {} cached orders for user: {}", cached.size(), userId);
+        publish();
+    }
+
+    /**
+     * Merge the live window of recent orders
+     * Known orders inside the window's time range that the window lacks were deleted; older ones
+     * only slid out of the window and stay
+     */
+    private void applyRecent(List<Order> recent) {
+        Set<String> recentIds = new HashSet<>();
+        long oldestRecent = Long.MAX_VALUE;
+        for (Order order : recent) {
+            recentIds.add(order.getOrderId());
+            oldestRecent = Math.min(oldestRecent, order.getCreatedAt());
+        }
+        boolean wholeHistory = recent.size() < RECENT_LIMIT;
+        if (!liveLoaded && !wholeHistory && !reaches(ordersById.values(), oldestRecent)) {
+            // More orders were placed since the cache was written than the window holds: the cached
+            // orders may not continue the window, so page them in again instead
+            ordersById.clear();
+        }
+        liveLoaded = true;
+        windowStart = oldestRecent;
+        for (Iterator<Order> it = ordersById.values().iterator(); it.hasNext(); ) {
+            Order known = it.next();
+            if (!recentIds.contains(known.getOrderId()) && (wholeHistory || known.getCreatedAt() >= oldestRecent)) {
+                it.remove();
+            }
+        }
+        if (wholeHistory) {
+            hasMore = false;
+        }
+        for (Order order : recent) {
+            put(order);
+        }
+        publish();
+    }
+
+    /**
+     * Check whether any of the orders is at or after the given time
+     */
+    private static boolean reaches(Iterable<Order> orders, long createdAt) {
+        for (Order order : orders) {
+            if (order.getCreatedAt() >= createdAt) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void put(Order order) {
+        if (order != null && order.getOrderId() != null) {
+            ordersById.put(order.getOrderId(), order);
+        }
+    }
+
+    private void publish() {
+        List<Order> orders = new ArrayList<>(ordersById.values());
+        orders.sort(NEWEST_FIRST);
+        published = Collections.unmodifiableList(orders);
+        for (Listener listener : new ArrayList<>(listeners)) {
+            listener.onOrdersChanged(published);
+        }
+        if (cache != null) {
+            List<Order> newest = new ArrayList<>(orders.subList(0, Math.min(orders.size(), MAX_CACHED_ORDERS)));
+            io.execute(() -> cache.write(userId, newest));
+        }
+    }
+
+    /**
+     * Cache with one file per user in a directory
+     */
+    public static class FileCache implements Cache {
+        private static final int FORMAT_VERSION = 1;
+        private final File directory;
+
+        public FileCache(File directory) {
+            this.directory = directory;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public List<Order> read(String userId) {
+            File file = fileFor(userId);
+            List<Order> orders = new ArrayList<>();
+            if (!file.exists()) {
+                return orders;
+            }
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+                if (in.readInt() != FORMAT_VERSION) {
+                    return orders;
+                }
+                int count = in.readInt();
+                for (int i = 0; i < count; i++) {
+                    Order order = OrderCodec.fromMap((Map<String, Object>) ValueCodec.decodeValue(in));
+                    if (order != null) {
+                        orders.add(order);
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                AppLog.e(TAG, "Discarding unreadable order history cache: {}", file.getName(), e);
+                orders.clear();
+            }
+            return orders;
+        }
+
+        @Override
+        public void write(String userId, List<Order> orders) {
+            if (!directory.exists() && !directory.mkdirs()) {
+                AppLog.e(TAG, "Cannot create order history cache directory");
+                return;
+            }
+            File file = fileFor(userId);
+            File temp = new File(directory, file.getName() + ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+                out.writeInt(FORMAT_VERSION);
+                out.writeInt(orders.size());
+                for (Order order : orders) {
+                    ValueCodec.encodeValue(out, order.toMap());
+                }
+            } catch (IOException | RuntimeException e) {
+                AppLog.e(TAG, "Failed to write order history cache", e);
+                temp.delete();
+                return;
+            }
+            // Replace the old file only once the new one is complete
+            if (!temp.renameTo(file)) {
+                AppLog.e(TAG, "Failed to replace order history cache: {}", file.getName());
+                temp.delete();
+            }
+        }
+
+        private File fileFor(String userId) {
+            StringBuilder name = new StringBuilder("orders_");
+            for (byte b : String.valueOf(userId).getBytes(StandardCharsets.UTF_8)) {
+                name.append(String.format("%02x", b));
+            }
+            return new File(directory, name.toString());
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.group14.foodordering.service;
+
+import com.group14.foodordering.model.Order;
+import com.group14.foodordering.model.OrderCodec;
+import com.group14.foodordering.model.OrderItem;
+import com.group14.foodordering.model.OrderItemCodec;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Three-way merge of an order edit that lost a version race (see FirebaseDatabaseService.updateOrder)
+ * The base is the version the edit started from, so the local changes are exactly the edit. An edit
+ * that only appended items and set plain fields is replayed on top of the stored order; an edit that
+ * rewrote the item list cannot be, since the other device may have changed the same items
+ */
+final class OrderMerge {
+    // Recomputed from the merged items, or written by the service
+    private static final Set<String> DERIVED_FIELDS = new HashSet<>(
+            Arrays.asList("items", "subtotal", "total", "updatedAt"));
+
+    private OrderMerge() {
+    }
+
+    /**
+     * Apply local changes to the stored order
+     * @return the merged order, with the replayed changes tracked; null if the changes conflict
+     */
+    static Order merge(Order local, Order.Changes changes, Order stored) {
+        if (changes.getFields().contains("items")) {
+            return null;
+        }
+        Order merged = OrderCodec.fromMap(stored.toMap());
+        merged.setVersion(stored.getVersion());
+        merged.clearChanges();
+        for (String field : changes.getFields()) {
+            if (!DERIVED_FIELDS.contains(field)) {
+                OrderCodec.decodeField(merged, field, OrderCodec.encodeField(local, field));
+            }
+        }
+        Set<String> storedItemIds = new HashSet<>();
+        for (OrderItem item : stored.getItems()) {
+            storedItemIds.add(item.getOrderItemId());
+        }
+        for (OrderItem item : changes.getAppendedItems()) {
+            // Already stored when an earlier attempt did commit
+            if (!storedItemIds.contains(item.getOrderItemId())) {
+                merged.addItem(OrderItemCodec.fromMap(item.toMap()));
+            }
+        }
+        return merged;
+    }
+}
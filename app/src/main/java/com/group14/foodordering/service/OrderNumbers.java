@@ -0,0 +1,46 @@
+package com.group14.foodordering.service;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Order numbers 0001-1000 claimed from the shared counter in blocks (see FirebaseDatabaseService.getNextOrderNumber)
+ * Every device used to run the counter transaction for each order, so at a busy lunch the transactions
+ * kept invalidating each other until they ran out of attempts. A device now moves the counter past a
+ * block of BLOCK_SIZE numbers at once and hands those out itself. Numbers from different devices
+ * interleave, and the rest of a block is skipped when the app is closed
+ */
+final class OrderNumbers {
+    static final int BLOCK_SIZE = 10;
+    static final long MAX_NUMBER = 1000;
+
+    // Claimed numbers not handed out yet, in order
+    private final Deque<Long> unused = new ArrayDeque<>();
+
+    /**
+     * @return a number from a block this device already claimed, or null if a block has to be claimed
+     */
+    synchronized Long poll() {
+        return unused.poll();
+    }
+
+    /**
+     * Keep a block claimed from the counter
+     * @return its first number, for the caller that claimed it
+     */
+    synchronized long claimed(long[] block) {
+        for (long number = block[0] + 1; number <= block[1]; number++) {
+            unused.add(number);
+        }
+        return block[0];
+    }
+
+    /**
+     * The block after the counter's current number: first and last number, wrapping back to 0001 after 1000
+     * The last number is what the counter is set to
+     */
+    static long[] block(long currentNumber) {
+        long first = currentNumber >= MAX_NUMBER ? 1 : currentNumber + 1;
+        return new long[]{first, Math.min(first + BLOCK_SIZE - 1, MAX_NUMBER)};
+    }
+}
@@ -0,0 +1,308 @@
+package com.group14.foodordering.service;
+
+import com.group14.foodordering.model.Order;
+import com.group14.foodordering.model.OrderCodec;
+import com.group14.foodordering.util.AppLog;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Latency-compensated order status changes for a live order feed (kitchen view)
+ * A requested status is shown at once and tracked as pending; repeated taps within the coalescing
+ * window (or while a write is in flight) collapse into one write of the latest status, and orders
+ * moved to the same status within one window share a single bulk write. The pending status is
+ * dropped when a snapshot confirms it, when the confirmation window passes (the server state
+ * wins), or when the write fails, in which case the order is rolled back and flagged
+ * Not thread-safe: use it from the main thread only
+ */
+public class OrderStatusUpdater {
+    private static final String TAG = "OrderStatusUpdater";
+    private static final long DEFAULT_COALESCE_MS = 300;
+    private static final long DEFAULT_CONFIRM_TIMEOUT_MS = 5000;
+    private static final long ROLLBACK_FLAG_MS = 5000;
+
+    /**
+     * Writes a status to several orders (FirebaseDatabaseService.updateOrderStatuses in the app)
+     * Reports an order once the server has its status, not when the write is queued locally:
+     * the confirmation window starts then, and a write dropped later is rolled back
+     */
+    public interface StatusWriter {
+        void write(List<String> orderIds, String status, FirebaseDatabaseService.BulkStatusCallback callback);
+    }
+
+    /**
+     * Runs a task later on the same thread (a main-thread Handler in the app)
+     */
+    public interface Scheduler {
+        void schedule(Runnable task, long delayMs);
+    }
+
+    public interface Listener {
+        /**
+         * Visible orders or their pending/rolled-back flags changed; redraw from getVisibleOrders
+         */
+        void onStatusesChanged();
+
+        void onRollback(String orderId, String status, Exception e);
+    }
+
+    private static class PendingStatus {
+        final String orderId;
+        String target;
+        String written; // last status written successfully
+        boolean writeScheduled; // changed since the last write; picked up by the next flush
+        boolean inFlight;
+        int generation; // bumped by every write, so stale confirmation timeouts are ignored
+
+        PendingStatus(String orderId) {
+            this.orderId = orderId;
+        }
+
+        boolean settled() {
+            return !writeScheduled && !inFlight && target.equals(written);
+        }
+    }
+
+    private final StatusWriter writer;
+    private final Scheduler scheduler;
+    private final Listener listener;
+    private final Set<String> feedStatuses;
+    private final long coalesceMs;
+    private final long confirmTimeoutMs;
+    private final Map<String, PendingStatus> pending = new LinkedHashMap<>(); // in request order
+    private final Set<String> rolledBack = new HashSet<>();
+    private boolean flushScheduled;
+    private List<Order> snapshot = new ArrayList<>();
+    private final Map<String, String> serverStatuses = new HashMap<>();
+
+    /**
+     * @param feedStatuses statuses shown by the feed; an order moved to any other status leaves it
+     */
+    public OrderStatusUpdater(StatusWriter writer, Scheduler scheduler, Listener listener, Set<String> feedStatuses) {
+        this(writer, scheduler, listener, feedStatuses, DEFAULT_COALESCE_MS, DEFAULT_CONFIRM_TIMEOUT_MS);
+    }
+
+    public OrderStatusUpdater(StatusWriter writer, Scheduler scheduler, Listener listener, Set<String> feedStatuses,
+                              long coalesceMs, long confirmTimeoutMs) {
+        this.writer = writer;
+        this.scheduler = scheduler;
+        this.listener = listener;
+        this.feedStatuses = feedStatuses;
+        this.coalesceMs = coalesceMs;
+        this.confirmTimeoutMs = confirmTimeoutMs;
+    }
+
+    /**
+     * Request a status change: shown right away, written after the coalescing window
+     */
+    public void request(String orderId, String status) {
+        request(Collections.singletonList(orderId), status);
+    }
+
+    /**
+     * Request the same status for several orders; they are written together as one bulk update
+     */
+    public void request(Collection<String> orderIds, String status) {
+        boolean changed = false;
+        for (String orderId : orderIds) {
+            changed |= mark(orderId, status);
+        }
+        if (!changed) {
+            return;
+        }
+        if (!flushScheduled) {
+            flushScheduled = true;
+            scheduler.schedule(this::flush, coalesceMs);
+        }
+        listener.onStatusesChanged();
+    }
+
+    private boolean mark(String orderId, String status) {
+        PendingStatus entry = pending.get(orderId);
+        if (entry == null) {
+            entry = new PendingStatus(orderId);
+            pending.put(orderId, entry);
+        } else if (status.equals(entry.target)) {
+            AppLog.d(TAG, "Repeated tap coalesced: {} -> {}", orderId, status);
+            return false;
+        }
+        entry.target = status;
+        rolledBack.remove(orderId);
+        if (!entry.inFlight) {
+            entry.writeScheduled = true;
+        }
+        return true;
+    }
+
+    /**
+     * Take a new snapshot of the feed; pending statuses the snapshot confirms are settled
+     */
+    public void setSnapshot(List<Order> orders) {
+        snapshot = new ArrayList<>(orders);
+        serverStatuses.clear();
+        Set<String> present = new HashSet<>();
+        for (Order order : snapshot) {
+            serverStatuses.put(order.getOrderId(), order.getStatus());
+            present.add(order.getOrderId());
+        }
+        List<String> confirmed = new ArrayList<>();
+        for (PendingStatus entry : pending.values()) {
+            if (!entry.settled()) {
+                continue;
+            }
+            boolean leftFeed = !present.contains(entry.orderId) && !isShownInFeed(entry.target);
+            if (entry.target.equals(serverStatuses.get(entry.orderId)) || leftFeed) {
+                confirmed.add(entry.orderId);
+            }
+        }
+        for (String orderId : confirmed) {
+            pending.remove(orderId);
+        }
+    }
+
+    /**
+     * Orders of the last snapshot with pending statuses applied; orders moved out of the feed are left out
+     * An order showing a pending status is a copy, the snapshot's orders are not changed
+     */
+    public List<Order> getVisibleOrders() {
+        List<Order> visible = new ArrayList<>(snapshot.size());
+        for (Order order : snapshot) {
+            PendingStatus entry = pending.get(order.getOrderId());
+            String status = entry != null ? entry.target : serverStatuses.get(order.getOrderId());
+            if (!isShownInFeed(status)) {
+                continue;
+            }
+            visible.add(status == null || status.equals(order.getStatus()) ? order : withStatus(order, status));
+        }
+        return visible;
+    }
+
+    private static Order withStatus(Order order, String status) {
+        Map<String, Object> data = OrderCodec.toMap(order);
+        data.put("status", status);
+        Order shown = OrderCodec.fromMap(data);
+        shown.clearChanges();
+        return shown;
+    }
+
+    /**
+     * Check if the order shows a status the server has not confirmed yet
+     */
+    public boolean isPending(String orderId) {
+        return pending.containsKey(orderId);
+    }
+
+    /**
+     * Check if the last status change of the order failed and was rolled back
+     */
+    public boolean isRolledBack(String orderId) {
+        return rolledBack.contains(orderId);
+    }
+
+    private boolean isShownInFeed(String status) {
+        return feedStatuses == null || feedStatuses.contains(status);
+    }
+
+    /**
+     * Write every changed order, one bulk write per target status
+     */
+    private void flush() {
+        flushScheduled = false;
+        Map<String, List<PendingStatus>> byStatus = new LinkedHashMap<>();
+        for (PendingStatus entry : pending.values()) {
+            if (!entry.writeScheduled) {
+                continue;
+            }
+            entry.writeScheduled = false;
+            if (entry.inFlight || entry.target.equals(entry.written)) {
+                continue;
+            }
+            List<PendingStatus> group = byStatus.get(entry.target);
+            if (group == null) {
+                group = new ArrayList<>();
+                byStatus.put(entry.target, group);
+            }
+            group.add(entry);
+        }
+        for (Map.Entry<String, List<PendingStatus>> group : byStatus.entrySet()) {
+            write(group.getKey(), group.getValue());
+        }
+    }
+
+    private void write(String status, List<PendingStatus> entries) {
+        Map<String, PendingStatus> byId = new LinkedHashMap<>();
+        Map<String, Integer> generations = new HashMap<>();
+        for (PendingStatus entry : entries) {
+            entry.inFlight = true;
+            byId.put(entry.orderId, entry);
+            generations.put(entry.orderId, ++entry.generation);
+        }
+        writer.write(new ArrayList<>(byId.keySet()), status, (updatedIds, failedIds) -> {
+            boolean rewrite = false;
+            boolean rolledBackAny = false;
+            for (String orderId : updatedIds) {
+                PendingStatus entry = byId.get(orderId);
+                if (entry == null) {
+                    continue;
+                }
+                entry.inFlight = false;
+                entry.written = status;
+                if (!entry.target.equals(status)) {
+                    // Tapped again while the write was in flight
+                    entry.writeScheduled = true;
+                    rewrite = true;
+                    continue;
+                }
+                int generation = generations.get(orderId);
+                scheduler.schedule(() -> expire(entry, generation), confirmTimeoutMs);
+            }
+            for (Map.Entry<String, Exception> failure : failedIds.entrySet()) {
+                PendingStatus entry = byId.get(failure.getKey());
+                if (entry != null) {
+                    entry.inFlight = false;
+                    rolledBackAny |= rollBack(entry, status, failure.getValue());
+                }
+            }
+            if (rewrite) {
+                flush();
+            }
+            if (rolledBackAny) {
+                listener.onStatusesChanged();
+            }
+        });
+    }
+
+    private boolean rollBack(PendingStatus entry, String status, Exception e) {
+        if (pending.get(entry.orderId) != entry) {
+            return false;
+        }
+        pending.remove(entry.orderId);
+        rolledBack.add(entry.orderId);
+        scheduler.schedule(() -> {
+            if (rolledBack.remove(entry.orderId)) {
+                listener.onStatusesChanged();
+            }
+        }, ROLLBACK_FLAG_MS);
+        AppLog.e(TAG, "Status change rolled back: {} -> {}", entry.orderId, status, e);
+        listener.onRollback(entry.orderId, status, e);
+        return true;
+    }
+
+    /**
+     * No confirming snapshot arrived in time: fall back to the server state
+     */
+    private void expire(PendingStatus entry, int generation) {
+        if (pending.get(entry.orderId) == entry && entry.generation == generation && entry.settled()) {
+            pending.remove(entry.orderId);
+            listener.onStatusesChanged();
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package com.group14.foodordering.service;
+
+import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.FirebaseFirestoreException;
+import com.group14.foodordering.model.Order;
+import com.group14.foodordering.model.OrderItem;
+import com.group14.foodordering.util.AppLog;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * The reads and writes of the order transactions, over Documents instead of Firestore
+ * FirebaseDatabaseService runs them in Firestore transactions and batches; the checkout load
+ * generator runs the same code against an InMemoryDatastore, so the load it measures is the app's
+ */
+final class OrderWrites {
+    private static final String TAG = "OrderWrites";
+    static final String COUNTER_PATH = FirebaseDatabaseService.COLLECTION_COUNTERS + "/" + FirebaseDatabaseService.COUNTER_DOC_ID;
+
+    /**
+     * Documents by path ("collection/id", also for subcollections) within one transaction or batch
+     * Reads come before the writes, as in a Firestore transaction
+     */
+    interface Documents {
+        /**
+         * @return the document data, or null if it does not exist
+         */
+        Map<String, Object> get(String path) throws FirebaseFirestoreException;
+
+        void set(String path, Map<String, Object> data);
+
+        void update(String path, Map<String, Object> fields);
+
+        /**
+         * Add to a number field on the server (FieldValue.increment)
+         */
+        void increment(String path, String field, long delta);
+    }
+
+    /**
+     * What a checkout transaction wrote
+     */
+    static final class Placement {
+        final String orderId;
+        final StockReservations.Plan plan; // null when the idempotency key had placed an order already
+
+        Placement(String orderId, StockReservations.Plan plan) {
+            this.orderId = orderId;
+            this.plan = plan;
+        }
+    }
+
+    private OrderWrites() {
+    }
+
+    /**
+     * Move the order counter past the next block (see OrderNumbers)
+     * @return the block's first and last number
+     */
+    static long[] claimOrderNumbers(Documents documents) throws FirebaseFirestoreException {
+        Map<String, Object> counter = documents.get(COUNTER_PATH);
+        Object current = counter != null ? counter.get("currentNumber") : null;
+        long[] block = OrderNumbers.block(current instanceof Number ? ((Number) current).longValue() : 0);
+
+        Map<String, Object> counterData = new HashMap<>();
+        counterData.put("currentNumber", block[1]);
+        counterData.put("updatedAt", System.currentTimeMillis());
+        documents.set(COUNTER_PATH, counterData);
+        return block;
+    }
+
+    /**
+     * Ordered quantity per menu item
+     */
+    static Map<String, Integer> quantities(Order order) {
+        Map<String, Integer> quantities = new LinkedHashMap<>();
+        for (OrderItem item : order.getItems()) {
+            quantities.merge(item.getMenuItemId(), item.getQuantity(), Integer::sum);
+        }
+        return quantities;
+    }
+
+    /**
+     * The checkout transaction: reserve the stock, write the order and remember the idempotency key
+     * A key seen before writes nothing and answers the order placed first
+     * @throws FirebaseDatabaseService.OutOfStockException naming every item that has too little stock
+     */
+    static Placement placeOrder(Documents documents, String orderId, Map<String, Object> orderMap,
+                                Map<String, Integer> quantities, String idempotencyKey, Random random)
+            throws FirebaseFirestoreException {
+        String checkoutPath = FirebaseDatabaseService.COLLECTION_CHECKOUTS + "/" + idempotencyKey;
+        Map<String, Object> checkout = documents.get(checkoutPath);
+        if (checkout != null) {
+            return new Placement((String) checkout.get("orderId"), null);
+        }
+        StockReservations.Plan plan = StockReservations.plan(quantities, shardReader(documents), random);
+
+        for (Map.Entry<String, long[]> entry : plan.taken.entrySet()) {
+            for (int shard = 0; shard < StockReservations.SHARDS; shard++) {
+                if (entry.getValue()[shard] > 0) {
+                    documents.increment(stockShardPath(entry.getKey(), shard), "available", -entry.getValue()[shard]);
+                }
+            }
+        }
+        for (String menuItemId : plan.soldOut) {
+            documents.set(FirebaseDatabaseService.COLLECTION_STOCK_STATUS + "/" + menuItemId, stockStatus(true));
+        }
+        documents.set(FirebaseDatabaseService.COLLECTION_ORDERS + "/" + orderId, orderMap);
+        if (!plan.isEmpty()) {
+            documents.set(FirebaseDatabaseService.COLLECTION_STOCK_RESERVATIONS + "/" + orderId,
+                    StockReservations.toDocument(orderId, plan));
+        }
+        long now = System.currentTimeMillis();
+        Map<String, Object> checkoutData = new HashMap<>();
+        checkoutData.put("orderId", orderId);
+        checkoutData.put("createdAt", now);
+        // Deleted by the TTL policy on expireAt (see QueryShapes.TTL_FIELDS)
+        checkoutData.put(FirebaseDatabaseService.CHECKOUT_EXPIRE_FIELD,
+                new Timestamp(new Date(now + FirebaseDatabaseService.CHECKOUT_TTL_MILLIS)));
+        documents.set(checkoutPath, checkoutData);
+        return new Placement(orderId, plan);
+    }
+
+    /**
+     * Commit outbox records, skipping a create whose document already carries the record's key
+     * (the record was committed but not acknowledged). Reads only for creates
+     */
+    static void commitRecords(Documents documents, List<WriteOutbox.Record> records) throws FirebaseFirestoreException {
+        Set<WriteOutbox.Operation> written = new HashSet<>();
+        for (WriteOutbox.Record record : records) {
+            for (WriteOutbox.Operation operation : record.getOperations()) {
+                if (WriteOutbox.OP_CREATE.equals(operation.getKind())) {
+                    Map<String, Object> stored = documents.get(path(operation));
+                    if (stored != null && record.getIdempotencyKey().equals(stored.get(WriteOutbox.CREATE_KEY_FIELD))) {
+                        written.add(operation);
+                    }
+                }
+            }
+        }
+        for (WriteOutbox.Record record : records) {
+            for (WriteOutbox.Operation operation : record.getOperations()) {
+                if (WriteOutbox.OP_UPDATE.equals(operation.getKind())) {
+                    documents.update(path(operation), operation.getData());
+                } else if (WriteOutbox.OP_SET.equals(operation.getKind())) {
+                    documents.set(path(operation), operation.getData());
+                } else if (written.contains(operation)) {
+                    AppLog.d(TAG, "Create already committed, skipped: {}", record.getIdempotencyKey());
+                } else {
+                    Map<String, Object> data = new HashMap<>(operation.getData());
+                    data.put(WriteOutbox.CREATE_KEY_FIELD, record.getIdempotencyKey());
+                    documents.set(path(operation), data);
+                }
+            }
+        }
+    }
+
+    /**
+     * Check if committing the records needs a transaction (they have a create), not just a batch
+     */
+    static boolean hasCreates(List<WriteOutbox.Record> records) {
+        for (WriteOutbox.Record record : records) {
+            for (WriteOutbox.Operation operation : record.getOperations()) {
+                if (WriteOutbox.OP_CREATE.equals(operation.getKind())) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The outbox update that moves an order to a status without reading it (see updateOrderStatuses)
+     */
+    static WriteOutbox.Operation statusUpdate(String orderId, String status, long now) {
+        Map<String, Object> updates = new HashMap<>();
+        updates.put("status", status);
+        updates.put("updatedAt", now);
+        return WriteOutbox.Operation.update(FirebaseDatabaseService.COLLECTION_ORDERS, orderId, updates);
+    }
+
+    static String path(WriteOutbox.Operation operation) {
+        return operation.getCollection() + "/" + operation.getDocumentId();
+    }
+
+    static StockReservations.ShardReader shardReader(Documents documents) {
+        return (menuItemId, shard) -> {
+            Map<String, Object> shardData = documents.get(stockShardPath(menuItemId, shard));
+            return shardData != null ? ((Number) shardData.get("available")).longValue() : null;
+        };
+    }
+
+    static String stockShardPath(String menuItemId, int shard) {
+        return FirebaseDatabaseService.COLLECTION_MENU_ITEMS + "/" + menuItemId + "/"
+                + FirebaseDatabaseService.COLLECTION_STOCK_SHARDS + "/" + shard;
+    }
+
+    static Map<String, Object> stockStatus(boolean soldOut) {
+        Map<String, Object> status = new HashMap<>();
+        status.put("soldOut", soldOut);
+        status.put("updatedAt", System.currentTimeMillis());
+        return status;
+    }
+}
@@ -0,0 +1,203 @@
+package com.group14.foodordering.service;
+
+import com.google.android.gms.tasks.OnCompleteListener;
+import com.google.firebase.firestore.FirebaseFirestoreException;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.group14.foodordering.util.AppLog;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Query planner for queries that have simpler fallback plans
+ * Remembers which query shapes the backend rejected (missing composite index) and goes
+ * straight to the first working plan on later calls. Rejected shapes are re-probed
+ * once per re-probe interval, so a newly deployed index is picked up automatically
+ */
+public class QueryPlanner {
+    private static final String TAG = "QueryPlanner";
+    private static final long DEFAULT_REPROBE_INTERVAL_MS = 10 * 60 * 1000L; // 10 minutes
+
+    // Decision metric names
+    public static final String METRIC_PRIMARY = "primary";
+    public static final String METRIC_FALLBACK = "fallback";
+    public static final String METRIC_SKIPPED = "skipped";
+    public static final String METRIC_REJECTED = "rejected";
+    public static final String METRIC_REPROBE = "reprobe";
+    public static final String METRIC_RECOVERED = "recovered";
+    public static final String METRIC_FAILED = "failed";
+
+    private final long reprobeIntervalMs;
+    private final Executor callbackExecutor; // null means the main thread
+    private final Map<String, Long> rejectedShapes; // shape id -> time of last rejection or re-probe
+    private final Map<String, AtomicLong> metrics; // "operation.decision" -> count
+
+    public QueryPlanner() {
+        this(DEFAULT_REPROBE_INTERVAL_MS, null);
+    }
+
+    public QueryPlanner(Executor callbackExecutor) {
+        this(DEFAULT_REPROBE_INTERVAL_MS, callbackExecutor);
+    }
+
+    /**
+     * @param callbackExecutor executor the PlanCallback runs on, or null for the main thread
+     */
+    public QueryPlanner(long reprobeIntervalMs, Executor callbackExecutor) {
+        this.reprobeIntervalMs = reprobeIntervalMs;
+        this.callbackExecutor = callbackExecutor;
+        this.rejectedShapes = new ConcurrentHashMap<>();
+        this.metrics = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * A query plan: the shape used for memoization and the concrete query to run
+     */
+    public static class Plan {
+        private final QueryShape shape;
+        private final Query query;
+
+        public Plan(QueryShape shape, Query query) {
+            this.shape = shape;
+            this.query = query;
+        }
+
+        public QueryShape getShape() {
+            return shape;
+        }
+
+        public Query getQuery() {
+            return query;
+        }
+    }
+
+    public interface PlanCallback {
+        void onSuccess(QuerySnapshot snapshot, QueryShape shape);
+        void onFailure(Exception e);
+    }
+
+    /**
+     * Run the first plan that is not known to be rejected, falling back in order on failure
+     * Plans must be ordered from most preferred to most permissive
+     */
+    public void get(String operation, List<Plan> plans, PlanCallback callback) {
+        if (plans == null || plans.isEmpty()) {
+            if (callback != null) callback.onFailure(new IllegalArgumentException("No query plans for " + operation));
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        int start = 0;
+        // The last plan is always tried
+        while (start < plans.size() - 1 && isRejected(operation, plans.get(start).getShape(), now)) {
+            record(operation, METRIC_SKIPPED);
+            start++;
+        }
+        runPlan(operation, plans, start, callback);
+    }
+
+    private void runPlan(String operation, List<Plan> plans, int index, PlanCallback callback) {
+        Plan plan = plans.get(index);
+        String shapeId = plan.getShape().getId();
+        OnCompleteListener<QuerySnapshot> listener = task -> {
+            if (task.isSuccessful()) {
+                if (rejectedShapes.remove(shapeId) != null) {
+                    AppLog.d(TAG, "{}: shape accepted again, index is available: {}", operation, shapeId);
+                    record(operation, METRIC_RECOVERED);
+                }
+                record(operation, index == 0 ? METRIC_PRIMARY : METRIC_FALLBACK);
+                if (callback != null) callback.onSuccess(task.getResult(), plan.getShape());
+                return;
+            }
+
+            Exception exception = task.getException();
+            if (isMissingIndex(exception)) {
+                rejectedShapes.put(shapeId, System.currentTimeMillis());
+                record(operation, METRIC_REJECTED);
+                AppLog.w(TAG, "{}: shape rejected by backend, remembering: {}", operation, shapeId, exception);
+            }
+
+            if (index + 1 < plans.size()) {
+                AppLog.w(TAG, "{}: plan {} failed, trying {}", operation, shapeId, plans.get(index + 1).getShape().getId());
+                runPlan(operation, plans, index + 1, callback);
+            } else {
+                record(operation, METRIC_FAILED);
+                AppLog.e(TAG, "{}: all query plans failed", operation, exception);
+                if (callback != null) callback.onFailure(exception);
+            }
+        };
+        if (callbackExecutor != null) {
+            plan.getQuery().get().addOnCompleteListener(callbackExecutor, listener);
+        } else {
+            plan.getQuery().get().addOnCompleteListener(listener);
+        }
+    }
+
+    /**
+     * Check if a shape is currently known to be rejected
+     * Once the re-probe interval has passed, one call is let through to probe it again
+     */
+    private boolean isRejected(String operation, QueryShape shape, long now) {
+        Long rejectedAt = rejectedShapes.get(shape.getId());
+        if (rejectedAt == null) {
+            return false;
+        }
+        if (now - rejectedAt >= reprobeIntervalMs) {
+            // Push the timestamp forward so concurrent calls keep using the fallback
+            rejectedShapes.put(shape.getId(), now);
+            record(operation, METRIC_REPROBE);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * A missing composite index surfaces as FAILED_PRECONDITION; other errors
+     * (network, permissions) still fall back but are not remembered
+     */
+    private static boolean isMissingIndex(Exception e) {
+        return e instanceof FirebaseFirestoreException
+                && ((FirebaseFirestoreException) e).getCode() == FirebaseFirestoreException.Code.FAILED_PRECONDITION;
+    }
+
+    private void record(String operation, String decision) {
+        String key = operation + "." + decision;
+        AtomicLong counter = metrics.get(key);
+        if (counter == null) {
+            metrics.putIfAbsent(key, new AtomicLong());
+            counter = metrics.get(key);
+        }
+        counter.incrementAndGet();
+    }
+
+    /**
+     * Get planner decision counts, keyed by "operation.decision"
+     */
+    public Map<String, Long> getMetrics() {
+        Map<String, Long> snapshot = new TreeMap<>();
+        for (Map.Entry<String, AtomicLong> entry : metrics.entrySet()) {
+            snapshot.put(entry.getKey(), entry.getValue().get());
+        }
+        return snapshot;
+    }
+
+    /**
+     * Get the shapes currently known to be rejected
+     */
+    public List<String> getRejectedShapes() {
+        return new ArrayList<>(rejectedShapes.keySet());
+    }
+
+    /**
+     * Forget all rejections, e.g. after deploying firestore.indexes.json
+     */
+    public void reset() {
+        rejectedShapes.clear();
+    }
+}
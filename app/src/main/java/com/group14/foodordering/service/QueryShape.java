@@ -0,0 +1,117 @@
+package com.group14.foodordering.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Query shape descriptor
+ * Describes the fields a Firestore query filters and orders on (not the values),
+ * so the query planner can remember rejected shapes and the index manifest can be generated
+ */
+public class QueryShape {
+    public static final String ASCENDING = "ASCENDING";
+    public static final String DESCENDING = "DESCENDING";
+
+    private final String collection;
+    private final List<String> equalityFields;
+    private final List<String> inFields;
+    private final List<String> orderByFields;
+    private final List<String> orderByDirections;
+
+    public QueryShape(String collection) {
+        this.collection = collection;
+        this.equalityFields = new ArrayList<>();
+        this.inFields = new ArrayList<>();
+        this.orderByFields = new ArrayList<>();
+        this.orderByDirections = new ArrayList<>();
+    }
+
+    public QueryShape whereEqualTo(String field) {
+        equalityFields.add(field);
+        return this;
+    }
+
+    public QueryShape whereIn(String field) {
+        inFields.add(field);
+        return this;
+    }
+
+    public QueryShape orderBy(String field) {
+        return orderBy(field, ASCENDING);
+    }
+
+    public QueryShape orderBy(String field, String direction) {
+        orderByFields.add(field);
+        orderByDirections.add(direction);
+        return this;
+    }
+
+    public String getCollection() {
+        return collection;
+    }
+
+    public List<String> getEqualityFields() {
+        return Collections.unmodifiableList(equalityFields);
+    }
+
+    public List<String> getInFields() {
+        return Collections.unmodifiableList(inFields);
+    }
+
+    public List<String> getOrderByFields() {
+        return Collections.unmodifiableList(orderByFields);
+    }
+
+    public List<String> getOrderByDirections() {
+        return Collections.unmodifiableList(orderByDirections);
+    }
+
+    /**
+     * Check if this shape needs a composite index
+     * Equality/in filters alone are served by single-field indexes; ordering on a field
+     * other than the filtered ones (or on several fields) needs a composite index
+     */
+    public boolean needsCompositeIndex() {
+        if (orderByFields.isEmpty()) {
+            return false;
+        }
+        if (orderByFields.size() > 1) {
+            return true;
+        }
+        for (String field : equalityFields) {
+            if (!orderByFields.contains(field)) {
+                return true;
+            }
+        }
+        for (String field : inFields) {
+            if (!orderByFields.contains(field)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Stable identifier, e.g. "orders[status in][createdAt asc]"
+     */
+    public String getId() {
+        StringBuilder id = new StringBuilder(collection);
+        for (String field : equalityFields) {
+            id.append('[').append(field).append(" ==]");
+        }
+        for (String field : inFields) {
+            id.append('[').append(field).append(" in]");
+        }
+        for (int i = 0; i < orderByFields.size(); i++) {
+            id.append('[').append(orderByFields.get(i))
+                    .append(DESCENDING.equals(orderByDirections.get(i)) ? " desc]" : " asc]");
+        }
+        return id.toString();
+    }
+
+    @Override
+    public String toString() {
+        return getId();
+    }
+}
@@ -0,0 +1,161 @@
+package com.group14.foodordering.service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Registry of every query shape used by FirebaseDatabaseService
+ * Also generates the Firestore index manifest (firestore.indexes.json) from these shapes,
+ * so the deployed indexes always match the queries the app sends
+ */
+public final class QueryShapes {
+
+    // ==================== Users ====================
+    public static final QueryShape USERS_BY_EMAIL = new QueryShape("users").whereEqualTo("email");
+    public static final QueryShape USERS_BY_PHONE = new QueryShape("users").whereEqualTo("phone");
+
+    // ==================== Admins ====================
+    public static final QueryShape ADMINS_ALL = new QueryShape("admins");
+    public static final QueryShape ADMINS_BY_PHONE = new QueryShape("admins")
+            .whereEqualTo("phone").whereEqualTo("isActive");
+    public static final QueryShape ADMINS_BY_EMAIL = new QueryShape("admins")
+            .whereEqualTo("email").whereEqualTo("isActive");
+
+    // ==================== Menu Items ====================
+    public static final QueryShape MENU_ITEMS_ALL = new QueryShape("menuItems");
+    public static final QueryShape MENU_ITEMS_BY_CATEGORY = new QueryShape("menuItems")
+            .whereEqualTo("category").whereEqualTo("isAvailable").orderBy("name");
+    public static final QueryShape MENU_ITEMS_CHANGED_SINCE = new QueryShape("menuItems").orderBy("updatedAt");
+
+    // ==================== Menu Categories ====================
+    public static final QueryShape MENU_CATEGORIES_ACTIVE_SORTED = new QueryShape("menuCategories")
+            .whereEqualTo("isActive").orderBy("displayOrder");
+
+    // ==================== Stock ====================
+    public static final QueryShape STOCK_STATUS_SOLD_OUT = new QueryShape("stockStatus").whereEqualTo("soldOut");
+
+    // ==================== Orders ====================
+    public static final QueryShape ORDERS_ALL = new QueryShape("orders");
+    public static final QueryShape ORDERS_BY_STATUS = new QueryShape("orders").whereEqualTo("status");
+    public static final QueryShape ORDERS_BY_STATUSES = new QueryShape("orders").whereIn("status");
+    public static final QueryShape ORDERS_BY_STATUSES_SORTED = new QueryShape("orders")
+            .whereIn("status").orderBy("createdAt", QueryShape.ASCENDING);
+    public static final QueryShape ORDERS_BY_RESTAURANT_AND_STATUSES = new QueryShape("orders")
+            .whereEqualTo("restaurantId").whereIn("status");
+    public static final QueryShape ORDERS_BY_RESTAURANT_AND_STATUS_SORTED = new QueryShape("orders")
+            .whereEqualTo("restaurantId").whereEqualTo("status").orderBy("createdAt", QueryShape.ASCENDING);
+    public static final QueryShape ORDERS_BY_USER_SORTED = new QueryShape("orders")
+            .whereEqualTo("userId").orderBy("createdAt", QueryShape.DESCENDING);
+    public static final QueryShape ORDERS_BY_TABLE_SORTED = new QueryShape("orders")
+            .whereEqualTo("tableNumber").whereEqualTo("orderType").orderBy("createdAt", QueryShape.DESCENDING);
+
+    // ==================== Restaurants ====================
+    public static final QueryShape RESTAURANTS_ALL = new QueryShape("restaurants");
+    public static final QueryShape RESTAURANTS_ACTIVE = new QueryShape("restaurants").whereEqualTo("isActive");
+    public static final QueryShape RESTAURANTS_ACTIVE_SORTED = new QueryShape("restaurants")
+            .whereEqualTo("isActive").orderBy("restaurantName");
+    public static final QueryShape RESTAURANTS_CHANGED_SINCE = new QueryShape("restaurants").orderBy("updatedAt");
+
+    // ==================== Tables ====================
+    public static final QueryShape TABLES_BY_BRANCH = new QueryShape("tables").whereEqualTo("branchId");
+    public static final QueryShape TABLES_BY_BRANCH_SORTED = new QueryShape("tables")
+            .whereEqualTo("branchId").orderBy("tableNumber");
+
+    // ==================== TTL policies ====================
+    // Collection and Timestamp field of documents Firestore deletes once that time has passed
+    public static final String[][] TTL_FIELDS = {
+            {"checkouts", "expireAt"}, // FirebaseDatabaseService.placeOrder checkout records
+    };
+
+    private QueryShapes() {
+    }
+
+    /**
+     * Get all registered query shapes
+     */
+    public static List<QueryShape> all() {
+        List<QueryShape> shapes = new ArrayList<>();
+        shapes.add(USERS_BY_EMAIL);
+        shapes.add(USERS_BY_PHONE);
+        shapes.add(ADMINS_ALL);
+        shapes.add(ADMINS_BY_PHONE);
+        shapes.add(ADMINS_BY_EMAIL);
+        shapes.add(MENU_ITEMS_ALL);
+        shapes.add(MENU_ITEMS_BY_CATEGORY);
+        shapes.add(MENU_ITEMS_CHANGED_SINCE);
+        shapes.add(MENU_CATEGORIES_ACTIVE_SORTED);
+        shapes.add(STOCK_STATUS_SOLD_OUT);
+        shapes.add(ORDERS_ALL);
+        shapes.add(ORDERS_BY_STATUS);
+        shapes.add(ORDERS_BY_STATUSES);
+        shapes.add(ORDERS_BY_STATUSES_SORTED);
+        shapes.add(ORDERS_BY_RESTAURANT_AND_STATUSES);
+        shapes.add(ORDERS_BY_RESTAURANT_AND_STATUS_SORTED);
+        shapes.add(ORDERS_BY_USER_SORTED);
+        shapes.add(ORDERS_BY_TABLE_SORTED);
+        shapes.add(RESTAURANTS_ALL);
+        shapes.add(RESTAURANTS_ACTIVE);
+        shapes.add(RESTAURANTS_ACTIVE_SORTED);
+        shapes.add(RESTAURANTS_CHANGED_SINCE);
+        shapes.add(TABLES_BY_BRANCH);
+        shapes.add(TABLES_BY_BRANCH_SORTED);
+        return shapes;
+    }
+
+    /**
+     * Build the Firestore index manifest (firestore.indexes.json format)
+     * Contains one composite index per shape that needs one, de-duplicated, and a TTL override per
+     * TTL field; TTL fields are left unindexed
+     */
+    public static String buildIndexManifest() {
+        Map<String, QueryShape> composite = new LinkedHashMap<>();
+        for (QueryShape shape : all()) {
+            if (shape.needsCompositeIndex()) {
+                composite.put(shape.getId(), shape);
+            }
+        }
+
+        StringBuilder json = new StringBuilder();
+        json.append("{\n  \"indexes\": [");
+        boolean firstIndex = true;
+        for (QueryShape shape : composite.values()) {
+            json.append(firstIndex ? "\n" : ",\n");
+            firstIndex = false;
+            json.append("    {\n");
+            json.append("      \"collectionGroup\": \"").append(shape.getCollection()).append("\",\n");
+            json.append("      \"queryScope\": \"COLLECTION\",\n");
+            json.append("      \"fields\": [");
+            List<String[]> fields = new ArrayList<>();
+            for (String field : shape.getEqualityFields()) {
+                fields.add(new String[]{field, QueryShape.ASCENDING});
+            }
+            for (String field : shape.getInFields()) {
+                fields.add(new String[]{field, QueryShape.ASCENDING});
+            }
+            for (int i = 0; i < shape.getOrderByFields().size(); i++) {
+                fields.add(new String[]{shape.getOrderByFields().get(i), shape.getOrderByDirections().get(i)});
+            }
+            for (int i = 0; i < fields.size(); i++) {
+                json.append(i == 0 ? "\n" : ",\n");
+                json.append("        { \"fieldPath\": \"").append(fields.get(i)[0])
+                        .append("\", \"order\": \"").append(fields.get(i)[1]).append("\" }");
+            }
+            json.append("\n      ]\n    }");
+        }
+        json.append(firstIndex ? "],\n" : "\n  ],\n");
+        json.append("  \"fieldOverrides\": [");
+        for (int i = 0; i < TTL_FIELDS.length; i++) {
+            json.append(i == 0 ? "\n" : ",\n");
+            json.append("    {\n");
+            json.append("      \"collectionGroup\": \"").append(TTL_FIELDS[i][0]).append("\",\n");
+            json.append("      \"fieldPath\": \"").append(TTL_FIELDS[i][1]).append("\",\n");
+            json.append("      \"ttl\": true,\n");
+            json.append("      \"indexes\": []\n");
+            json.append("    }");
+        }
+        json.append(TTL_FIELDS.length == 0 ? "]\n}\n" : "\n  ]\n}\n");
+        return json.toString();
+    }
+}
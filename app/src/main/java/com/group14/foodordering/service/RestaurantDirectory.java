@@ -0,0 +1,448 @@
+package com.group14.foodordering.service;
+
+import com.group14.foodordering.model.Restaurant;
+import com.group14.foodordering.model.RestaurantCodec;
+import com.group14.foodordering.util.AppLog;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.function.LongSupplier;
+
+/**
+ * Every restaurant, for the screens that list restaurants or show their names
+ * Served stale-while-revalidate: the last known restaurants come from a local cache at once and
+ * are revalidated in the background once older than TTL_MS. A revalidation only reads restaurants
+ * whose updatedAt moved past the newest one known; a full reload every FULL_REFRESH_MS drops
+ * deleted restaurants. Concurrent requests share one fetch, and listeners hear only of changes
+ * State is used from the main thread; the cache is read and written on the io executor
+ */
+public class RestaurantDirectory {
+    private static final String TAG = "RestaurantDirectory";
+    static final long TTL_MS = 5 * 60_000;
+    static final long FULL_REFRESH_MS = 24 * 60 * 60_000;
+    // Writers stamp updatedAt with their own clock; look back this far so a slow clock is not missed
+    static final long CLOCK_SKEW_MS = 5 * 60_000;
+
+    private static final Comparator<Restaurant> BY_NAME = (r1, r2) -> {
+        String name1 = r1.getRestaurantName() != null ? r1.getRestaurantName() : "";
+        String name2 = r2.getRestaurantName() != null ? r2.getRestaurantName() : "";
+        return name1.compareToIgnoreCase(name2);
+    };
+
+    /**
+     * Where restaurants come from (FirebaseDatabaseService in the app)
+     */
+    public interface Source {
+        /**
+         * Every restaurant, active or not
+         */
+        void getAllRestaurants(FirebaseDatabaseService.RestaurantsCallback callback);
+
+        /**
+         * Restaurants whose updatedAt is strictly after the given time
+         */
+        void getRestaurantsUpdatedAfter(long updatedAfter, FirebaseDatabaseService.RestaurantsCallback callback);
+    }
+
+    /**
+     * Local copy of the directory; called on the io executor
+     */
+    public interface Cache {
+        Snapshot read();
+
+        void write(Snapshot snapshot);
+    }
+
+    public interface Listener {
+        /**
+         * @param restaurants the active restaurants, sorted by name
+         */
+        void onRestaurantsChanged(List<Restaurant> restaurants);
+
+        /**
+         * Only called while there are no restaurants to show; later failures keep the stale list
+         */
+        void onFailure(Exception e);
+    }
+
+    /**
+     * Restaurants and when they were last revalidated (wall clock)
+     */
+    public static final class Snapshot {
+        final List<Restaurant> restaurants;
+        final long validatedAt;
+        final long fullyLoadedAt;
+
+        Snapshot(List<Restaurant> restaurants, long validatedAt, long fullyLoadedAt) {
+            this.restaurants = restaurants;
+            this.validatedAt = validatedAt;
+            this.fullyLoadedAt = fullyLoadedAt;
+        }
+    }
+
+    private final Source source;
+    private final Cache cache;
+    private final Executor io;
+    private final Executor main;
+    private final LongSupplier clock;
+    private final Map<String, Restaurant> restaurantsById = new LinkedHashMap<>();
+    private final List<Listener> listeners = new ArrayList<>();
+    private final List<FirebaseDatabaseService.RestaurantsCallback> waiting = new ArrayList<>();
+    private List<Restaurant> published = Collections.emptyList();
+    private long validatedAt;
+    private long fullyLoadedAt;
+    private boolean cacheRequested;
+    private boolean cacheRestored;
+    private boolean refreshPending; // refresh asked for before the cache was restored
+    private boolean forceFullReload; // invalidated before the cache was restored
+    private boolean loaded; // restored from the cache or fetched at least once
+    private boolean fetching;
+    private boolean refetchPending; // invalidated while fetching
+
+    public RestaurantDirectory(Source source, Cache cache, Executor io, Executor main) {
+        this(source, cache, io, main, System::currentTimeMillis);
+    }
+
+    RestaurantDirectory(Source source, Cache cache, Executor io, Executor main, LongSupplier clock) {
+        this.source = source;
+        this.cache = cache;
+        this.io = io;
+        this.main = main;
+        this.clock = clock;
+    }
+
+    /**
+     * Add a listener; it gets the current restaurants right away if they are loaded, and the
+     * directory is revalidated if stale
+     */
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+        if (loaded) {
+            listener.onRestaurantsChanged(published);
+        }
+        refresh();
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Get the active restaurants once: at once when loaded, else after the first load
+     * Stale restaurants are delivered as they are and revalidated in the background
+     */
+    public void getRestaurants(FirebaseDatabaseService.RestaurantsCallback callback) {
+        if (loaded) {
+            callback.onSuccess(published);
+        } else {
+            waiting.add(callback);
+        }
+        refresh();
+    }
+
+    /**
+     * The active restaurants sorted by name; empty until loaded
+     */
+    public List<Restaurant> getRestaurants() {
+        return published;
+    }
+
+    /**
+     * A known restaurant, active or not, or null if unknown
+     */
+    public Restaurant getRestaurant(String restaurantId) {
+        return restaurantId != null ? restaurantsById.get(restaurantId) : null;
+    }
+
+    /**
+     * A known restaurant's name, or null if unknown
+     */
+    public String getRestaurantName(String restaurantId) {
+        Restaurant restaurant = getRestaurant(restaurantId);
+        return restaurant != null ? restaurant.getRestaurantName() : null;
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Revalidate if older than TTL_MS; first call also restores the cache
+     */
+    public void refresh() {
+        if (!cacheRestored) {
+            refreshPending = true;
+            restoreCache();
+            return;
+        }
+        if (!loaded || clock.getAsLong() - validatedAt >= TTL_MS) {
+            revalidate();
+        }
+    }
+
+    /**
+     * Reload every restaurant now, e.g. after importing or deleting restaurants
+     */
+    public void invalidate() {
+        if (!cacheRestored) {
+            forceFullReload = true;
+        }
+        if (fetching) {
+            refetchPending = true; // the running fetch may have been sent before the change
+        }
+        validatedAt = 0;
+        fullyLoadedAt = 0;
+        refresh();
+    }
+
+    private void restoreCache() {
+        if (cacheRequested) {
+            return;
+        }
+        cacheRequested = true;
+        if (cache == null) {
+            restore(null);
+            return;
+        }
+        io.execute(() -> {
+            Snapshot snapshot = cache.read();
+            main.execute(() -> restore(snapshot));
+        });
+    }
+
+    private void restore(Snapshot snapshot) {
+        cacheRestored = true;
+        if (snapshot != null && !snapshot.restaurants.isEmpty() && !loaded) {
+            for (Restaurant restaurant : snapshot.restaurants) {
+                put(restaurant);
+            }
+            validatedAt = forceFullReload ? 0 : snapshot.validatedAt;
+            fullyLoadedAt = forceFullReload ? 0 : snapshot.fullyLoadedAt;
+            loaded = true;
+            AppLog.d(TAG, "Restored {} cached restaurants", snapshot.restaurants.size());
+            publish();
+            serveWaiting();
+        }
+        if (refreshPending) {
+            refreshPending = false;
+            refresh();
+        }
+    }
+
+    /**
+     * Fetch what changed, unless a fetch is already running; its result serves every request
+     */
+    private void revalidate() {
+        if (fetching) {
+            return;
+        }
+        fetching = true;
+        long startedAt = clock.getAsLong();
+        boolean full = restaurantsById.isEmpty() || startedAt - fullyLoadedAt >= FULL_REFRESH_MS;
+        FirebaseDatabaseService.RestaurantsCallback callback = new FirebaseDatabaseService.RestaurantsCallback() {
+            @Override
+            public void onSuccess(List<Restaurant> restaurants) {
+                fetching = false;
+                apply(restaurants, full, startedAt);
+                if (refetchPending) {
+                    refetchPending = false;
+                    fullyLoadedAt = 0;
+                    revalidate();
+                }
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                fetching = false;
+                refetchPending = false;
+                AppLog.e(TAG, "Failed to revalidate restaurants", e);
+                if (loaded) {
+                    return; // keep serving the stale restaurants
+                }
+                for (Listener listener : new ArrayList<>(listeners)) {
+                    listener.onFailure(e);
+                }
+                List<FirebaseDatabaseService.RestaurantsCallback> failed = new ArrayList<>(waiting);
+                waiting.clear();
+                for (FirebaseDatabaseService.RestaurantsCallback request : failed) {
+                    request.onFailure(e);
+                }
+            }
+        };
+        if (full) {
+            source.getAllRestaurants(callback);
+        } else {
+            source.getRestaurantsUpdatedAfter(newestUpdatedAt() - CLOCK_SKEW_MS, callback);
+        }
+    }
+
+    private void apply(List<Restaurant> fetched, boolean full, long startedAt) {
+        boolean changed = !loaded;
+        if (full) {
+            Map<String, Restaurant> previous = new LinkedHashMap<>(restaurantsById);
+            restaurantsById.clear();
+            for (Restaurant restaurant : fetched) {
+                put(restaurant);
+            }
+            changed |= !sameRestaurants(previous, restaurantsById);
+            fullyLoadedAt = startedAt;
+        } else {
+            for (Restaurant restaurant : fetched) {
+                if (restaurant == null || restaurant.getRestaurantId() == null) {
+                    continue;
+                }
+                Restaurant known = restaurantsById.get(restaurant.getRestaurantId());
+                if (known == null || !Objects.equals(known.toMap(), restaurant.toMap())) {
+                    put(restaurant);
+                    changed = true;
+                }
+            }
+        }
+        validatedAt = startedAt;
+        loaded = true;
+        AppLog.d(TAG, "Revalidated restaurants ({}): {} fetched, changed: {}", full ? "full" : "delta",
+                fetched.size(), changed);
+        if (changed) {
+            publish();
+        }
+        writeCache();
+        serveWaiting();
+    }
+
+    private void serveWaiting() {
+        List<FirebaseDatabaseService.RestaurantsCallback> served = new ArrayList<>(waiting);
+        waiting.clear();
+        for (FirebaseDatabaseService.RestaurantsCallback request : served) {
+            request.onSuccess(published);
+        }
+    }
+
+    private static boolean sameRestaurants(Map<String, Restaurant> a, Map<String, Restaurant> b) {
+        if (!a.keySet().equals(b.keySet())) {
+            return false;
+        }
+        for (Map.Entry<String, Restaurant> entry : a.entrySet()) {
+            if (!Objects.equals(entry.getValue().toMap(), b.get(entry.getKey()).toMap())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private long newestUpdatedAt() {
+        long newest = 0;
+        for (Restaurant restaurant : restaurantsById.values()) {
+            newest = Math.max(newest, restaurant.getUpdatedAt());
+        }
+        return newest;
+    }
+
+    private void put(Restaurant restaurant) {
+        if (restaurant != null && restaurant.getRestaurantId() != null) {
+            restaurantsById.put(restaurant.getRestaurantId(), restaurant);
+        }
+    }
+
+    private void publish() {
+        List<Restaurant> active = new ArrayList<>();
+        for (Restaurant restaurant : restaurantsById.values()) {
+            if (restaurant.isActive()) {
+                active.add(restaurant);
+            }
+        }
+        active.sort(BY_NAME);
+        published = Collections.unmodifiableList(active);
+        for (Listener listener : new ArrayList<>(listeners)) {
+            listener.onRestaurantsChanged(published);
+        }
+    }
+
+    private void writeCache() {
+        if (cache == null) {
+            return;
+        }
+        Snapshot snapshot = new Snapshot(new ArrayList<>(restaurantsById.values()), validatedAt, fullyLoadedAt);
+        io.execute(() -> cache.write(snapshot));
+    }
+
+    /**
+     * Cache in a single file
+     */
+    public static class FileCache implements Cache {
+        private static final int FORMAT_VERSION = 1;
+        private final File file;
+
+        public FileCache(File file) {
+            this.file = file;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Snapshot read() {
+            if (!file.exists()) {
+                return null;
+            }
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+                if (in.readInt() != FORMAT_VERSION) {
+                    return null;
+                }
+                long validatedAt = in.readLong();
+                long fullyLoadedAt = in.readLong();
+                int count = in.readInt();
+                List<Restaurant> restaurants = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    Restaurant restaurant = RestaurantCodec.fromMap((Map<String, Object>) ValueCodec.decodeValue(in));
+                    if (restaurant != null) {
+                        restaurants.add(restaurant);
+                    }
+                }
+                return new Snapshot(restaurants, validatedAt, fullyLoadedAt);
+            } catch (IOException | RuntimeException e) {
+                AppLog.e(TAG, "Discarding unreadable restaurant cache", e);
+                return null;
+            }
+        }
+
+        @Override
+        public void write(Snapshot snapshot) {
+            File directory = file.getParentFile();
+            if (directory != null && !directory.exists() && !directory.mkdirs()) {
+                AppLog.e(TAG, "Cannot create restaurant cache directory");
+                return;
+            }
+            File temp = new File(file.getPath() + ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+                out.writeInt(FORMAT_VERSION);
+                out.writeLong(snapshot.validatedAt);
+                out.writeLong(snapshot.fullyLoadedAt);
+                out.writeInt(snapshot.restaurants.size());
+                for (Restaurant restaurant : snapshot.restaurants) {
+                    ValueCodec.encodeValue(out, restaurant.toMap());
+                }
+            } catch (IOException | RuntimeException e) {
+                AppLog.e(TAG, "Failed to write restaurant cache", e);
+                temp.delete();
+                return;
+            }
+            // Replace the old file only once the new one is complete
+            if (!temp.renameTo(file)) {
+                AppLog.e(TAG, "Failed to replace restaurant cache: {}", file.getName());
+                temp.delete();
+            }
+        }
+    }
+}
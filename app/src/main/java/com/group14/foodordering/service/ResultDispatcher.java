@@ -0,0 +1,287 @@
+package com.group14.foodordering.service;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import com.google.firebase.firestore.ListenerRegistration;
+import com.group14.foodordering.util.AppLog;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+
+/**
+ * Moves decode, filter and sort work of FirebaseDatabaseService off the main thread
+ * Firestore listeners are attached with a background executor, and results are handed
+ * back on the callback executor (the main thread by default). Results that a newer
+ * snapshot of the same query has already superseded are dropped
+ */
+public class ResultDispatcher {
+    private static final String TAG = "ResultDispatcher";
+    private static final int DEFAULT_BACKGROUND_THREADS = 2;
+    private static final int MAX_TRACKED_QUERIES = 32;
+
+    private volatile Executor backgroundExecutor;
+    private volatile Executor callbackExecutor;
+    private final Executor background = command -> backgroundExecutor.execute(command);
+    private final AtomicLong issuedTokens = new AtomicLong();
+    // Most recently delivered one-shot result per query key, least recently used evicted first
+    private final Map<String, Freshest> freshestByKey = new LinkedHashMap<String, Freshest>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Freshest> eldest) {
+            return size() > MAX_TRACKED_QUERIES;
+        }
+    };
+    private final AtomicLong droppedCount = new AtomicLong();
+
+    public ResultDispatcher() {
+        this(createDefaultBackgroundExecutor(), createMainThreadExecutor());
+    }
+
+    public ResultDispatcher(Executor backgroundExecutor, Executor callbackExecutor) {
+        this.backgroundExecutor = backgroundExecutor;
+        this.callbackExecutor = callbackExecutor;
+    }
+
+    /**
+     * Executor for Firestore listeners; always runs on the currently configured background executor
+     */
+    public Executor background() {
+        return background;
+    }
+
+    /**
+     * Replace the executor used for decode, filter and sort work
+     */
+    public void setBackgroundExecutor(Executor executor) {
+        if (executor != null) {
+            backgroundExecutor = executor;
+        }
+    }
+
+    /**
+     * Replace the executor callbacks are delivered on (main thread by default)
+     */
+    public void setCallbackExecutor(Executor executor) {
+        if (executor != null) {
+            callbackExecutor = executor;
+        }
+    }
+
+    /**
+     * Deliver a result on the callback executor
+     */
+    public void deliver(Runnable result) {
+        callbackExecutor.execute(result);
+    }
+
+    // ==================== Snapshot listeners ====================
+
+    /**
+     * Create a sequence for one snapshot listener
+     */
+    public SnapshotSequence newSnapshotSequence() {
+        return new SnapshotSequence(background);
+    }
+
+    /**
+     * Deliver a listener result unless a newer snapshot of the same listener arrived meanwhile
+     */
+    public void deliver(SnapshotSequence sequence, long token, Runnable result) {
+        if (!sequence.isLatest(token)) {
+            droppedCount.incrementAndGet();
+            return;
+        }
+        callbackExecutor.execute(() -> {
+            if (sequence.isLatest(token)) {
+                result.run();
+            } else {
+                droppedCount.incrementAndGet();
+            }
+        });
+    }
+
+    /**
+     * Per-listener executor that runs snapshot events one at a time, in arrival order,
+     * on the background executor. Every event is stamped with a token when it arrives,
+     * so older events can see that a newer snapshot is already waiting
+     */
+    public static class SnapshotSequence implements Executor {
+        private final Executor background;
+        private final AtomicLong latest = new AtomicLong();
+        private final ArrayDeque<Runnable> queue = new ArrayDeque<>();
+        private boolean running;
+        private volatile long current;
+        private volatile boolean cancelled;
+
+        SnapshotSequence(Executor background) {
+            this.background = background;
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            long token = latest.incrementAndGet();
+            synchronized (queue) {
+                queue.add(() -> {
+                    current = token;
+                    command.run();
+                });
+                if (!running) {
+                    running = true;
+                    background.execute(this::drain);
+                }
+            }
+        }
+
+        private void drain() {
+            while (true) {
+                Runnable next;
+                synchronized (queue) {
+                    next = queue.poll();
+                    if (next == null) {
+                        running = false;
+                        return;
+                    }
+                }
+                try {
+                    next.run();
+                } catch (RuntimeException e) {
+                    AppLog.e(TAG, "Snapshot handler failed", e);
+                }
+            }
+        }
+
+        /**
+         * Token of the snapshot event currently being handled
+         */
+        public long current() {
+            return current;
+        }
+
+        /**
+         * Check that no newer snapshot has arrived since the given token
+         */
+        public boolean isLatest(long token) {
+            return !cancelled && latest.get() == token;
+        }
+
+        /**
+         * Check whether the listener was removed
+         */
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        /**
+         * Wrap the listener registration so that removing it also drops results
+         * that were already decoded but not yet delivered
+         */
+        public ListenerRegistration attach(ListenerRegistration registration) {
+            return () -> {
+                cancelled = true;
+                registration.remove();
+            };
+        }
+    }
+
+    // ==================== One-shot queries ====================
+
+    /**
+     * Stamp a new one-shot request; tokens increase across all query keys
+     */
+    public long issue() {
+        return issuedTokens.incrementAndGet();
+    }
+
+    /**
+     * Deliver a one-shot result unless a newer request for the same key already delivered one
+     * A superseded request is not left without an answer: it receives copies of the newer result,
+     * made with copier from a snapshot taken before the newer caller got its list, so callers never
+     * share model objects and one caller's edits do not show up in another's
+     */
+    public <T> void deliverFreshest(String key, long token, List<T> result, UnaryOperator<T> copier,
+                                    Consumer<List<T>> sink) {
+        Freshest freshest = freshest(key);
+        // Copied on the calling thread, the callback executor is usually the main thread
+        List<T> snapshot = copy(result, copier);
+        callbackExecutor.execute(() -> {
+            List<T> freshestResult;
+            synchronized (freshest) {
+                if (token >= freshest.deliveredToken) {
+                    freshest.deliveredToken = token;
+                    freshest.delivered = snapshot;
+                    freshest.copier = copier;
+                    freshestResult = result;
+                } else {
+                    droppedCount.incrementAndGet();
+                    freshestResult = freshest.copy();
+                }
+            }
+            sink.accept(freshestResult);
+        });
+    }
+
+    private static <T> List<T> copy(List<T> items, UnaryOperator<T> copier) {
+        List<T> copies = new ArrayList<>(items.size());
+        for (T item : items) {
+            copies.add(item == null ? null : copier.apply(item));
+        }
+        return copies;
+    }
+
+    private Freshest freshest(String key) {
+        synchronized (freshestByKey) {
+            Freshest freshest = freshestByKey.get(key);
+            if (freshest == null) {
+                freshest = new Freshest();
+                freshestByKey.put(key, freshest);
+            }
+            return freshest;
+        }
+    }
+
+    private static class Freshest {
+        // Guarded by the Freshest instance
+        long deliveredToken;
+        List<?> delivered;
+        UnaryOperator<?> copier;
+
+        /**
+         * Fresh copies of the delivered result for a superseded caller
+         */
+        @SuppressWarnings("unchecked")
+        <T> List<T> copy() {
+            return ResultDispatcher.copy((List<T>) delivered, (UnaryOperator<T>) copier);
+        }
+    }
+
+    /**
+     * Number of stale results dropped so far
+     */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    private static Executor createDefaultBackgroundExecutor() {
+        AtomicInteger threadCount = new AtomicInteger();
+        return Executors.newFixedThreadPool(DEFAULT_BACKGROUND_THREADS, runnable -> {
+            Thread thread = new Thread(runnable, "db-results-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            thread.setPriority(Thread.NORM_PRIORITY - 1);
+            return thread;
+        });
+    }
+
+    private static Executor createMainThreadExecutor() {
+        Handler mainHandler = new Handler(Looper.getMainLooper());
+        return mainHandler::post;
+    }
+}
@@ -0,0 +1,134 @@
+package com.group14.foodordering.service;
+
+import com.group14.foodordering.model.Order;
+import com.group14.foodordering.model.SalesRollup;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+
+/**
+ * Sales rollup arithmetic shared by the live updates and the rebuild job (see FirebaseDatabaseService)
+ * Orders count in the day and hour they were placed, so a refund or a cancellation always lands in
+ * the rollup of the sale it reverses, and both paths produce the same rollups from the same orders
+ * Completed and cancelled orders are final: reopening one is refused (see reopens)
+ */
+final class SalesRollups {
+    /**
+     * Statuses that change the rollups; orders only reach them in a transaction
+     */
+    static final List<String> FINAL_STATUSES = Arrays.asList("completed", "cancelled");
+
+    private final TimeZone timeZone;
+
+    SalesRollups(TimeZone timeZone) {
+        this.timeZone = timeZone;
+    }
+
+    static String documentId(String restaurantId, String day) {
+        return restaurantId + "_" + day;
+    }
+
+    /**
+     * Day of a time as "yyyyMMdd"
+     */
+    String dayOf(long time) {
+        Calendar calendar = calendarAt(time);
+        return String.format(Locale.ROOT, "%04d%02d%02d", calendar.get(Calendar.YEAR),
+                calendar.get(Calendar.MONTH) + 1, calendar.get(Calendar.DAY_OF_MONTH));
+    }
+
+    int hourOf(long time) {
+        return calendarAt(time).get(Calendar.HOUR_OF_DAY);
+    }
+
+    /**
+     * Start of the day a time falls in
+     */
+    long startOfDay(long time) {
+        Calendar calendar = calendarAt(time);
+        calendar.set(Calendar.HOUR_OF_DAY, 0);
+        calendar.set(Calendar.MINUTE, 0);
+        calendar.set(Calendar.SECOND, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+        return calendar.getTimeInMillis();
+    }
+
+    /**
+     * Start of the day after the one a time falls in (days are not always 24 hours long)
+     */
+    long startOfNextDay(long time) {
+        Calendar calendar = calendarAt(startOfDay(time));
+        calendar.add(Calendar.DAY_OF_MONTH, 1);
+        return calendar.getTimeInMillis();
+    }
+
+    /**
+     * Start times of the days from the one containing from up to the one containing to, inclusive
+     */
+    List<Long> dayStarts(long from, long to) {
+        List<Long> starts = new ArrayList<>();
+        for (long start = startOfDay(from); start <= to; start = startOfNextDay(start)) {
+            starts.add(start);
+        }
+        return starts;
+    }
+
+    /**
+     * Change to the rollup of an order's day when the order changes from before to after
+     * @return the signed counts to add, or null if the rollup does not change
+     */
+    SalesRollup delta(Order before, Order after) {
+        String restaurantId = after.getRestaurantId();
+        if (restaurantId == null || restaurantId.isEmpty()) {
+            return null;
+        }
+        long placedAt = after.getCreatedAt();
+        SalesRollup delta = new SalesRollup(restaurantId, dayOf(placedAt));
+        delta.addOrder(before, hourOf(placedAt), -1);
+        delta.addOrder(after, hourOf(placedAt), 1);
+        return delta.isEmpty() ? null : delta;
+    }
+
+    /**
+     * Check whether a change takes a completed or cancelled order back to a kitchen status
+     * Such a change is refused: kitchen statuses are plain writes that cannot reverse the sale
+     */
+    static boolean reopens(Order before, Order after) {
+        return FINAL_STATUSES.contains(before.getStatus()) && !FINAL_STATUSES.contains(after.getStatus());
+    }
+
+    /**
+     * Rollups of one restaurant recomputed from its orders, by day
+     * Every day in the list gets a rollup, empty when nothing was sold
+     */
+    Map<String, SalesRollup> aggregate(String restaurantId, List<Long> dayStarts, Collection<Order> orders) {
+        Map<String, SalesRollup> rollups = new LinkedHashMap<>();
+        for (long dayStart : dayStarts) {
+            String day = dayOf(dayStart);
+            rollups.put(day, new SalesRollup(restaurantId, day));
+        }
+        for (Order order : orders) {
+            if (!restaurantId.equals(order.getRestaurantId())) {
+                continue;
+            }
+            SalesRollup rollup = rollups.get(dayOf(order.getCreatedAt()));
+            if (rollup != null) {
+                rollup.addOrder(order, hourOf(order.getCreatedAt()), 1);
+            }
+        }
+        return rollups;
+    }
+
+    private Calendar calendarAt(long time) {
+        Calendar calendar = Calendar.getInstance(timeZone, Locale.ROOT);
+        calendar.setTimeInMillis(time);
+        return calendar;
+    }
+}
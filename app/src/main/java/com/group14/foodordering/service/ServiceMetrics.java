@@ -0,0 +1,501 @@
+package com.group14.foodordering.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+
+/**
+ * Per-operation metrics of FirebaseDatabaseService calls and listeners
+ * Each operation keeps a latency histogram, documents read and written, approximate payload
+ * bytes, how many results came from the cache or the server, and failures. A listener's latency
+ * is the time to its first snapshot; later snapshots only add documents and bytes. Every call can
+ * also be reported as a trace (see setTracer). Thread-safe: calls finish on background threads
+ */
+public class ServiceMetrics {
+    // Upper bounds of the latency buckets in milliseconds; one more bucket holds everything slower
+    static final long[] LATENCY_BOUNDS_MS = {5, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000};
+    // Trace metric and attribute names
+    public static final String TRACE_PREFIX = "db_";
+    public static final String METRIC_DOCUMENTS_READ = "documents_read";
+    public static final String METRIC_DOCUMENTS_WRITTEN = "documents_written";
+    public static final String METRIC_PAYLOAD_BYTES = "payload_bytes";
+    public static final String ATTRIBUTE_SOURCE = "source";
+    public static final String ATTRIBUTE_OUTCOME = "outcome";
+
+    /**
+     * Starts a trace per call, e.g. a Firebase Performance custom trace
+     */
+    public interface Tracer {
+        Span start(String name);
+    }
+
+    public interface Span {
+        void putMetric(String name, long value);
+        void putAttribute(String name, String value);
+        void stop();
+    }
+
+    private final Map<String, Stats> stats = new ConcurrentHashMap<>();
+    private final LongSupplier nanoClock;
+    private volatile Tracer tracer;
+
+    public ServiceMetrics() {
+        this(System::nanoTime);
+    }
+
+    /**
+     * @param nanoClock monotonic time in nanoseconds
+     */
+    public ServiceMetrics(LongSupplier nanoClock) {
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * Report every call as a trace, or stop reporting with null
+     */
+    public void setTracer(Tracer tracer) {
+        this.tracer = tracer;
+    }
+
+    /**
+     * Start timing one call of an operation; finish it with succeed or fail
+     */
+    public Call start(String operation) {
+        return new Call(operation);
+    }
+
+    /**
+     * Start timing a listener from the moment it is attached
+     */
+    public Watch watch(String operation) {
+        return new Watch(operation);
+    }
+
+    /**
+     * Snapshot of every operation's metrics, by operation name
+     */
+    public Map<String, OperationStats> getStats() {
+        Map<String, OperationStats> snapshot = new TreeMap<>();
+        for (Map.Entry<String, Stats> entry : stats.entrySet()) {
+            snapshot.put(entry.getKey(), entry.getValue().snapshot(entry.getKey()));
+        }
+        return snapshot;
+    }
+
+    /**
+     * Snapshot of the operations, slowest 95th percentile first
+     */
+    public List<OperationStats> getSlowest() {
+        List<OperationStats> operations = new ArrayList<>(getStats().values());
+        Collections.sort(operations, (a, b) -> Long.compare(b.getPercentileMillis(0.95), a.getPercentileMillis(0.95)));
+        return operations;
+    }
+
+    public void reset() {
+        stats.clear();
+    }
+
+    private Stats statsOf(String operation) {
+        Stats operationStats = stats.get(operation);
+        if (operationStats == null) {
+            stats.putIfAbsent(operation, new Stats());
+            operationStats = stats.get(operation);
+        }
+        return operationStats;
+    }
+
+    /**
+     * One call in flight; documents and bytes can be added from any thread until it finishes
+     */
+    public final class Call {
+        private final String operation;
+        private final long startNanos;
+        private final Span span;
+        private final AtomicLong documentsRead = new AtomicLong();
+        private final AtomicLong documentsWritten = new AtomicLong();
+        private final AtomicLong payloadBytes = new AtomicLong();
+        private final AtomicLong fromCache = new AtomicLong();
+        private final AtomicLong fromServer = new AtomicLong();
+        private final AtomicBoolean finished = new AtomicBoolean();
+
+        private Call(String operation) {
+            this.operation = operation;
+            this.startNanos = nanoClock.getAsLong();
+            Tracer current = tracer;
+            this.span = current != null ? current.start(TRACE_PREFIX + operation) : null;
+        }
+
+        public Call read(int documents, long bytes, boolean cached) {
+            documentsRead.addAndGet(documents);
+            payloadBytes.addAndGet(bytes);
+            (cached ? fromCache : fromServer).incrementAndGet();
+            return this;
+        }
+
+        public Call wrote(int documents, long bytes) {
+            documentsWritten.addAndGet(documents);
+            payloadBytes.addAndGet(bytes);
+            return this;
+        }
+
+        /**
+         * Add an attribute to the call's trace, e.g. which path the call took
+         */
+        public Call attribute(String name, String value) {
+            if (span != null) {
+                span.putAttribute(name, value);
+            }
+            return this;
+        }
+
+        public void succeed() {
+            finish(false);
+        }
+
+        public void fail() {
+            finish(true);
+        }
+
+        /**
+         * @return true if the call is finished (succeeded or failed)
+         */
+        public boolean isFinished() {
+            return finished.get();
+        }
+
+        private void finish(boolean failed) {
+            if (!finished.compareAndSet(false, true)) {
+                return;
+            }
+            long millis = (nanoClock.getAsLong() - startNanos) / 1_000_000L;
+            Stats operationStats = statsOf(operation);
+            operationStats.addCall(millis, failed);
+            operationStats.add(documentsRead.get(), documentsWritten.get(), payloadBytes.get(),
+                    fromCache.get(), fromServer.get());
+            if (span != null) {
+                span.putMetric(METRIC_DOCUMENTS_READ, documentsRead.get());
+                span.putMetric(METRIC_DOCUMENTS_WRITTEN, documentsWritten.get());
+                span.putMetric(METRIC_PAYLOAD_BYTES, payloadBytes.get());
+                span.putAttribute(ATTRIBUTE_SOURCE, fromServer.get() > 0 ? "server" : fromCache.get() > 0 ? "cache" : "none");
+                span.putAttribute(ATTRIBUTE_OUTCOME, failed ? "failure" : "success");
+                span.stop();
+            }
+        }
+    }
+
+    /**
+     * One attached listener: the first snapshot or error finishes its call, later snapshots are updates
+     */
+    public final class Watch {
+        private final String operation;
+        private final Call first;
+
+        private Watch(String operation) {
+            this.operation = operation;
+            this.first = new Call(operation);
+        }
+
+        public void onSnapshot(int documents, long bytes, boolean cached) {
+            if (!first.isFinished()) {
+                first.read(documents, bytes, cached);
+                first.succeed();
+                return;
+            }
+            Stats operationStats = statsOf(operation);
+            operationStats.updates.incrementAndGet();
+            operationStats.add(documents, 0, bytes, cached ? 1 : 0, cached ? 0 : 1);
+        }
+
+        public void onError() {
+            if (!first.isFinished()) {
+                first.fail();
+                return;
+            }
+            statsOf(operation).failures.incrementAndGet();
+        }
+    }
+
+    /**
+     * Running totals of one operation
+     */
+    private static final class Stats {
+        final AtomicLong calls = new AtomicLong();
+        final AtomicLong failures = new AtomicLong();
+        final AtomicLong updates = new AtomicLong();
+        final AtomicLong documentsRead = new AtomicLong();
+        final AtomicLong documentsWritten = new AtomicLong();
+        final AtomicLong payloadBytes = new AtomicLong();
+        final AtomicLong fromCache = new AtomicLong();
+        final AtomicLong fromServer = new AtomicLong();
+        final AtomicLong totalMillis = new AtomicLong();
+        final AtomicLong maxMillis = new AtomicLong();
+        final AtomicLongArray buckets = new AtomicLongArray(LATENCY_BOUNDS_MS.length + 1);
+
+        void addCall(long millis, boolean failed) {
+            calls.incrementAndGet();
+            if (failed) {
+                failures.incrementAndGet();
+            }
+            totalMillis.addAndGet(millis);
+            maxMillis.accumulateAndGet(millis, Math::max);
+            buckets.incrementAndGet(bucketOf(millis));
+        }
+
+        void add(long read, long written, long bytes, long cached, long server) {
+            documentsRead.addAndGet(read);
+            documentsWritten.addAndGet(written);
+            payloadBytes.addAndGet(bytes);
+            fromCache.addAndGet(cached);
+            fromServer.addAndGet(server);
+        }
+
+        OperationStats snapshot(String operation) {
+            long[] counts = new long[buckets.length()];
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = buckets.get(i);
+            }
+            return new OperationStats(operation, calls.get(), failures.get(), updates.get(), documentsRead.get(),
+                    documentsWritten.get(), payloadBytes.get(), fromCache.get(), fromServer.get(),
+                    totalMillis.get(), maxMillis.get(), counts);
+        }
+    }
+
+    static int bucketOf(long millis) {
+        for (int i = 0; i < LATENCY_BOUNDS_MS.length; i++) {
+            if (millis <= LATENCY_BOUNDS_MS[i]) {
+                return i;
+            }
+        }
+        return LATENCY_BOUNDS_MS.length;
+    }
+
+    /**
+     * Metrics of one operation at the time of the snapshot
+     */
+    public static final class OperationStats {
+        private final String operation;
+        private final long calls;
+        private final long failures;
+        private final long updates;
+        private final long documentsRead;
+        private final long documentsWritten;
+        private final long payloadBytes;
+        private final long fromCache;
+        private final long fromServer;
+        private final long totalMillis;
+        private final long maxMillis;
+        private final long[] buckets;
+
+        OperationStats(String operation, long calls, long failures, long updates, long documentsRead,
+                       long documentsWritten, long payloadBytes, long fromCache, long fromServer,
+                       long totalMillis, long maxMillis, long[] buckets) {
+            this.operation = operation;
+            this.calls = calls;
+            this.failures = failures;
+            this.updates = updates;
+            this.documentsRead = documentsRead;
+            this.documentsWritten = documentsWritten;
+            this.payloadBytes = payloadBytes;
+            this.fromCache = fromCache;
+            this.fromServer = fromServer;
+            this.totalMillis = totalMillis;
+            this.maxMillis = maxMillis;
+            this.buckets = buckets;
+        }
+
+        public String getOperation() {
+            return operation;
+        }
+
+        /**
+         * Finished calls, including failed ones; for a listener, first snapshots or errors
+         */
+        public long getCalls() {
+            return calls;
+        }
+
+        public long getFailures() {
+            return failures;
+        }
+
+        /**
+         * Listener snapshots after the first
+         */
+        public long getUpdates() {
+            return updates;
+        }
+
+        public long getDocumentsRead() {
+            return documentsRead;
+        }
+
+        public long getDocumentsWritten() {
+            return documentsWritten;
+        }
+
+        /**
+         * Approximate bytes read and written (Firestore storage size rules)
+         */
+        public long getPayloadBytes() {
+            return payloadBytes;
+        }
+
+        public long getFromCache() {
+            return fromCache;
+        }
+
+        public long getFromServer() {
+            return fromServer;
+        }
+
+        public double getMeanMillis() {
+            return calls == 0 ? 0 : (double) totalMillis / calls;
+        }
+
+        public long getMaxMillis() {
+            return maxMillis;
+        }
+
+        /**
+         * Calls per latency bucket; bucket i holds calls up to LATENCY_BOUNDS_MS[i], the last one the rest
+         */
+        public long[] getBuckets() {
+            return buckets.clone();
+        }
+
+        /**
+         * Upper bound of the bucket holding the given fraction of calls, at most the slowest call
+         */
+        public long getPercentileMillis(double fraction) {
+            if (calls == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(fraction * calls);
+            long seen = 0;
+            for (int i = 0; i < buckets.length; i++) {
+                seen += buckets[i];
+                if (seen >= rank && i < LATENCY_BOUNDS_MS.length) {
+                    return Math.min(LATENCY_BOUNDS_MS[i], maxMillis);
+                }
+            }
+            return maxMillis;
+        }
+    }
+
+    /**
+     * Export every operation as JSON, e.g. to share from the metrics screen while offline
+     */
+    public String toJson(long exportedAt) {
+        StringBuilder json = new StringBuilder();
+        json.append("{\n  \"exportedAt\": ").append(exportedAt).append(",\n  \"latencyBoundsMs\": [");
+        for (int i = 0; i < LATENCY_BOUNDS_MS.length; i++) {
+            json.append(i == 0 ? "" : ", ").append(LATENCY_BOUNDS_MS[i]);
+        }
+        json.append("],\n  \"operations\": [");
+        boolean firstOperation = true;
+        for (OperationStats operation : getStats().values()) {
+            json.append(firstOperation ? "\n" : ",\n");
+            firstOperation = false;
+            json.append("    {\n");
+            json.append("      \"operation\": \"").append(escape(operation.getOperation())).append("\",\n");
+            json.append("      \"calls\": ").append(operation.getCalls()).append(",\n");
+            json.append("      \"failures\": ").append(operation.getFailures()).append(",\n");
+            json.append("      \"updates\": ").append(operation.getUpdates()).append(",\n");
+            json.append("      \"documentsRead\": ").append(operation.getDocumentsRead()).append(",\n");
+            json.append("      \"documentsWritten\": ").append(operation.getDocumentsWritten()).append(",\n");
+            json.append("      \"payloadBytes\": ").append(operation.getPayloadBytes()).append(",\n");
+            json.append("      \"fromCache\": ").append(operation.getFromCache()).append(",\n");
+            json.append("      \"fromServer\": ").append(operation.getFromServer()).append(",\n");
+            json.append("      \"meanMs\": ").append(Math.round(operation.getMeanMillis())).append(",\n");
+            json.append("      \"p50Ms\": ").append(operation.getPercentileMillis(0.5)).append(",\n");
+            json.append("      \"p95Ms\": ").append(operation.getPercentileMillis(0.95)).append(",\n");
+            json.append("      \"maxMs\": ").append(operation.getMaxMillis()).append(",\n");
+            json.append("      \"buckets\": [");
+            long[] buckets = operation.getBuckets();
+            for (int i = 0; i < buckets.length; i++) {
+                json.append(i == 0 ? "" : ", ").append(buckets[i]);
+            }
+            json.append("]\n    }");
+        }
+        json.append(firstOperation ? "]\n}\n" : "\n  ]\n}\n");
+        return json.toString();
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+
+    // ==================== Payload Estimates ====================
+    // Firestore storage size rules: strings are their UTF-8 length + 1, numbers, dates and
+    // timestamps 8, booleans and nulls 1; a document adds its name and 32 bytes
+
+    /**
+     * Approximate size of a document at the given path ("collection/id/...")
+     */
+    public static long estimateDocumentBytes(String path, Map<String, Object> data) {
+        long bytes = 16 + 32;
+        for (String segment : path.split("/")) {
+            bytes += utf8Length(segment) + 1;
+        }
+        return bytes + estimateValueBytes(data);
+    }
+
+    /**
+     * Approximate size of a field value; maps count their field names too
+     */
+    public static long estimateValueBytes(Object value) {
+        if (value == null || value instanceof Boolean) {
+            return 1;
+        }
+        if (value instanceof String) {
+            return utf8Length((String) value) + 1;
+        }
+        if (value instanceof Map) {
+            long bytes = 0;
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                bytes += utf8Length(String.valueOf(entry.getKey())) + 1 + estimateValueBytes(entry.getValue());
+            }
+            return bytes;
+        }
+        if (value instanceof Collection) {
+            long bytes = 0;
+            for (Object element : (Collection<?>) value) {
+                bytes += estimateValueBytes(element);
+            }
+            return bytes;
+        }
+        if (value instanceof WriteOutbox.ArrayUnion) {
+            return estimateValueBytes(((WriteOutbox.ArrayUnion) value).getElements());
+        }
+        if (value instanceof byte[]) {
+            return ((byte[]) value).length;
+        }
+        return 8;
+    }
+
+    private static int utf8Length(String value) {
+        int length = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c)) {
+                length += 4;
+                i++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+}
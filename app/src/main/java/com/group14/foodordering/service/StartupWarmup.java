@@ -0,0 +1,159 @@
+package com.group14.foodordering.service;
+
+import android.content.Context;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import com.google.android.gms.tasks.CancellationTokenSource;
+import com.google.android.gms.tasks.Task;
+import com.group14.foodordering.model.AppConfig;
+import com.group14.foodordering.model.MenuCategory;
+import com.group14.foodordering.model.MenuItem;
+import com.group14.foodordering.util.AdminSessionHelper;
+import com.group14.foodordering.util.AppLog;
+import com.group14.foodordering.util.RestaurantPreferenceHelper;
+
+import java.util.List;
+
+/**
+ * Startup orchestrator
+ * Started from the Application, it fetches what the first screens need in parallel while the
+ * launcher draws: the restaurant directory and AppConfig always, the menu and its categories once
+ * a restaurant is selected. Screens take a prefetched result while it is fresh and fetch it themselves
+ * otherwise. Work that the first frame does not need runs when the main thread is idle.
+ * The time from start to the first menu shown is traced as the timeToFirstMenu operation
+ */
+public final class StartupWarmup {
+    private static final String TAG = "StartupWarmup";
+    // Older prefetched results are fetched again by the screens
+    static final long MAX_AGE_MS = 2 * 60_000;
+    public static final String OPERATION_TIME_TO_FIRST_MENU = "timeToFirstMenu";
+    public static final String ATTRIBUTE_PREFETCH = "prefetch";
+
+    private static final StartupWarmup INSTANCE = new StartupWarmup();
+
+    private final CancellationTokenSource cancellation = new CancellationTokenSource();
+    private volatile Prefetch<List<MenuItem>> menuItems;
+    private volatile Prefetch<List<MenuCategory>> menuCategories;
+    private volatile Prefetch<AppConfig> appConfig;
+    private volatile ServiceMetrics.Call timeToFirstMenu; // null once reported
+    private boolean started;
+
+    /**
+     * A prefetched result and when it arrived
+     */
+    private static final class Prefetch<T> {
+        final Task<T> task;
+        volatile long completedAt; // elapsedRealtime, 0 while in flight
+
+        Prefetch(String name, Task<T> task) {
+            this.task = task;
+            task.addOnCompleteListener(completed -> {
+                completedAt = SystemClock.elapsedRealtime();
+                if (!completed.isSuccessful()) {
+                    AppLog.w(TAG, "Prefetch of {} failed", name, completed.getException());
+                }
+            });
+        }
+
+        /**
+         * The task while in flight or fresh and successful, otherwise null
+         */
+        Task<T> take() {
+            if (!task.isComplete()) {
+                return task;
+            }
+            boolean fresh = SystemClock.elapsedRealtime() - completedAt <= MAX_AGE_MS;
+            return fresh && task.isSuccessful() && !task.isCanceled() ? task : null;
+        }
+    }
+
+    private StartupWarmup() {
+    }
+
+    public static StartupWarmup getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Start the prefetches; later calls do nothing. Call on the main thread
+     */
+    public void start(Context context) {
+        if (started) {
+            return;
+        }
+        started = true;
+        FirebaseDatabaseService dbService = FirebaseDatabaseService.getInstance();
+        timeToFirstMenu = dbService.getMetrics().start(OPERATION_TIME_TO_FIRST_MENU);
+        // Restores the cached restaurants and revalidates them if stale (see RestaurantDirectory)
+        dbService.getRestaurantDirectory().refresh();
+        appConfig = new Prefetch<>("appConfig", dbService.getAppConfigAsync(cancellation.getToken()));
+        // Customers go to the menu of their selected restaurant; admins land on the admin panel
+        if (RestaurantPreferenceHelper.hasSelectedRestaurant(context) && !AdminSessionHelper.isAdminLoggedIn(context)) {
+            prefetchMenu();
+        }
+        AppLog.d(TAG, "Startup prefetch started");
+    }
+
+    /**
+     * Prefetch the menu and its categories, e.g. once a restaurant is chosen
+     */
+    public void prefetchMenu() {
+        FirebaseDatabaseService dbService = FirebaseDatabaseService.getInstance();
+        if (menuItems == null || menuItems.take() == null) {
+            menuItems = new Prefetch<>("menuItems", dbService.getAllMenuItemsAsync(cancellation.getToken()));
+        }
+        if (menuCategories == null || menuCategories.take() == null) {
+            menuCategories = new Prefetch<>("menuCategories", dbService.getActiveMenuCategoriesAsync(cancellation.getToken()));
+        }
+    }
+
+    /**
+     * Prefetched menu items (available ones, sorted by name), or null if the caller should fetch them
+     */
+    public Task<List<MenuItem>> getMenuItems() {
+        return take(menuItems);
+    }
+
+    /**
+     * Prefetched active menu categories in display order, or null if the caller should fetch them
+     */
+    public Task<List<MenuCategory>> getMenuCategories() {
+        return take(menuCategories);
+    }
+
+    /**
+     * Prefetched app configuration, or null if the caller should fetch it
+     */
+    public Task<AppConfig> getAppConfig() {
+        return take(appConfig);
+    }
+
+    /**
+     * Record the first menu shown since start; later calls do nothing
+     * @param warm whether the menu came from the prefetch
+     */
+    public void reportMenuShown(boolean warm) {
+        ServiceMetrics.Call call = timeToFirstMenu;
+        if (call == null) {
+            return;
+        }
+        timeToFirstMenu = null;
+        call.attribute(ATTRIBUTE_PREFETCH, warm ? "warm" : "cold").succeed();
+        AppLog.d(TAG, "First menu shown ({})", warm ? "warm" : "cold");
+    }
+
+    /**
+     * Run work on the main thread once it has nothing else to do, after the first frames
+     */
+    public static void whenIdle(Runnable work) {
+        Looper.getMainLooper().getQueue().addIdleHandler(() -> {
+            work.run();
+            return false;
+        });
+    }
+
+    private static <T> Task<T> take(Prefetch<T> prefetch) {
+        return prefetch != null ? prefetch.take() : null;
+    }
+}
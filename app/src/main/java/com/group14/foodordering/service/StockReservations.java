@@ -0,0 +1,221 @@
+package com.group14.foodordering.service;
+
+import com.google.firebase.firestore.FirebaseFirestoreException;
+import com.group14.foodordering.codec.CodecSupport;
+import com.group14.foodordering.model.MenuItem;
+import com.group14.foodordering.model.Order;
+import com.group14.foodordering.model.OrderItem;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Stock reservation arithmetic over striped stock counters (see FirebaseDatabaseService.placeOrder)
+ * The stock of a tracked menu item is split over SHARDS counter documents. A checkout reads one shard
+ * picked at random and takes from it alone while it has more than enough, so concurrent checkouts of
+ * the same item mostly touch different documents. Only a shard that would run dry makes it read the
+ * others, which is also how a sold-out item is noticed. Items without shards are not tracked
+ */
+final class StockReservations {
+    static final int SHARDS = 8;
+
+    /**
+     * Reads a stock shard inside a checkout or cancel transaction
+     */
+    interface ShardReader {
+        /**
+         * @return the stock left in the shard, or null if the item has no shards
+         */
+        Long read(String menuItemId, int shard) throws FirebaseFirestoreException;
+    }
+
+    /**
+     * What one checkout takes from which shards
+     */
+    static final class Plan {
+        // Menu item ID -> quantity taken per shard; untracked items are left out
+        final Map<String, long[]> taken = new LinkedHashMap<>();
+        // Tracked items this checkout sells out
+        final Set<String> soldOut = new HashSet<>();
+
+        boolean isEmpty() {
+            return taken.isEmpty();
+        }
+
+        /**
+         * Number of shard documents the checkout takes from
+         */
+        int shardWrites() {
+            int shards = 0;
+            for (long[] quantities : taken.values()) {
+                for (long quantity : quantities) {
+                    if (quantity > 0) {
+                        shards++;
+                    }
+                }
+            }
+            return shards;
+        }
+    }
+
+    private StockReservations() {
+    }
+
+    /**
+     * Check if an order has an item whose stock is tracked, so checking it out must reserve stock
+     * An ordered item missing from menu counts as tracked
+     */
+    static boolean tracksAny(Order order, Collection<MenuItem> menu) {
+        Map<String, MenuItem> itemsById = new HashMap<>();
+        for (MenuItem item : menu) {
+            itemsById.put(item.getItemId(), item);
+        }
+        for (OrderItem ordered : order.getItems()) {
+            MenuItem item = itemsById.get(ordered.getMenuItemId());
+            if (item == null || item.getStock() >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Plan taking the ordered quantities from the shards
+     * @throws FirebaseDatabaseService.OutOfStockException naming every item that has too little stock
+     */
+    static Plan plan(Map<String, Integer> quantities, ShardReader reader, Random random) throws FirebaseFirestoreException {
+        Plan plan = new Plan();
+        List<String> outOfStock = new ArrayList<>();
+        for (Map.Entry<String, Integer> entry : quantities.entrySet()) {
+            String menuItemId = entry.getKey();
+            long quantity = entry.getValue();
+            int first = random.nextInt(SHARDS);
+            Long firstAvailable = reader.read(menuItemId, first);
+            if (firstAvailable == null) {
+                continue;
+            }
+            long[] taken = new long[SHARDS];
+            if (firstAvailable > quantity) {
+                taken[first] = quantity;
+                plan.taken.put(menuItemId, taken);
+                continue;
+            }
+            long[] available = new long[SHARDS];
+            available[first] = firstAvailable;
+            long total = firstAvailable;
+            for (int shard = 0; shard < SHARDS; shard++) {
+                if (shard != first) {
+                    Long value = reader.read(menuItemId, shard);
+                    available[shard] = value != null ? value : 0;
+                    total += available[shard];
+                }
+            }
+            if (total < quantity) {
+                outOfStock.add(menuItemId);
+                continue;
+            }
+            long remaining = quantity;
+            for (int i = 0; i < SHARDS && remaining > 0; i++) {
+                int shard = (first + i) % SHARDS;
+                taken[shard] = Math.min(remaining, Math.max(0, available[shard]));
+                remaining -= taken[shard];
+            }
+            plan.taken.put(menuItemId, taken);
+            if (total == quantity) {
+                plan.soldOut.add(menuItemId);
+            }
+        }
+        if (!outOfStock.isEmpty()) {
+            throw new FirebaseDatabaseService.OutOfStockException(outOfStock);
+        }
+        return plan;
+    }
+
+    /**
+     * Split a stock evenly over the shards
+     */
+    static long[] split(long stock) {
+        long[] shards = new long[SHARDS];
+        for (int shard = 0; shard < SHARDS; shard++) {
+            shards[shard] = stock / SHARDS + (shard < stock % SHARDS ? 1 : 0);
+        }
+        return shards;
+    }
+
+    /**
+     * What a cancelled order puts back: its reserved quantities, without the shards that are gone
+     * Shards are deleted when an item stops being tracked, and the stock went with them
+     * @return menu item ID -> quantity per shard, only for items that still have a shard to put back into
+     */
+    static Map<String, long[]> release(Map<String, long[]> reserved, ShardReader reader) throws FirebaseFirestoreException {
+        Map<String, long[]> released = new LinkedHashMap<>();
+        for (Map.Entry<String, long[]> entry : reserved.entrySet()) {
+            long[] quantities = new long[SHARDS];
+            boolean tracked = false;
+            for (int shard = 0; shard < SHARDS; shard++) {
+                if (entry.getValue()[shard] > 0 && reader.read(entry.getKey(), shard) != null) {
+                    quantities[shard] = entry.getValue()[shard];
+                    tracked = true;
+                }
+            }
+            if (tracked) {
+                released.put(entry.getKey(), quantities);
+            }
+        }
+        return released;
+    }
+
+    /**
+     * Reservation document of an order: the quantities taken per item and shard, to put back on cancel
+     */
+    static Map<String, Object> toDocument(String orderId, Plan plan) {
+        Map<String, Object> items = new HashMap<>();
+        for (Map.Entry<String, long[]> entry : plan.taken.entrySet()) {
+            Map<String, Object> shards = new HashMap<>();
+            for (int shard = 0; shard < SHARDS; shard++) {
+                if (entry.getValue()[shard] > 0) {
+                    shards.put(String.valueOf(shard), entry.getValue()[shard]);
+                }
+            }
+            items.put(entry.getKey(), shards);
+        }
+        Map<String, Object> document = new HashMap<>();
+        document.put("orderId", orderId);
+        document.put("items", items);
+        document.put("createdAt", System.currentTimeMillis());
+        return document;
+    }
+
+    /**
+     * Quantities of a reservation document per item and shard
+     */
+    static Map<String, long[]> fromDocument(Map<String, Object> document) {
+        Map<String, long[]> taken = new LinkedHashMap<>();
+        Map<String, Object> items = document != null ? CodecSupport.asMap(document.get("items")) : null;
+        if (items == null) {
+            return taken;
+        }
+        for (Map.Entry<String, Object> item : items.entrySet()) {
+            Map<String, Object> shards = CodecSupport.asMap(item.getValue());
+            if (shards == null) {
+                continue;
+            }
+            long[] quantities = new long[SHARDS];
+            for (Map.Entry<String, Object> shard : shards.entrySet()) {
+                int index = Integer.parseInt(shard.getKey());
+                if (index >= 0 && index < SHARDS) {
+                    quantities[index] = CodecSupport.asLong(shard.getValue());
+                }
+            }
+            taken.put(item.getKey(), quantities);
+        }
+        return taken;
+    }
+}
@@ -0,0 +1,186 @@
+package com.group14.foodordering.service;
+
+import com.group14.foodordering.model.Table;
+import com.group14.foodordering.util.NaturalSortHelper;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Table floor state kept up to date from document changes (table map)
+ * Tables are kept in natural order of their table number; the sort key is computed once per change.
+ * Every change is reported with its position, and a change that does not alter what the floor shows
+ * (e.g. only updatedAt) is not reported, so a big floor redraws only the tables that changed
+ * Not thread-safe: use it from the main thread only
+ */
+public class TableFloorStore {
+
+    public interface Listener {
+        /**
+         * The whole floor was replaced (first load)
+         */
+        void onTablesReset();
+
+        void onTableInserted(int position);
+
+        void onTableRemoved(int position);
+
+        void onTableChanged(int position);
+
+        void onTableMoved(int fromPosition, int toPosition);
+    }
+
+    private static class Entry {
+        final Table table;
+        final String sortKey;
+
+        Entry(Table table) {
+            this.table = table;
+            this.sortKey = NaturalSortHelper.sortKey(table.getTableNumber());
+        }
+    }
+
+    private final List<Entry> entries = new ArrayList<>();
+    private final Map<String, Entry> byId = new HashMap<>();
+    private Listener listener;
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Apply the changes of one snapshot: added or modified tables, and IDs of removed tables
+     */
+    public void apply(Collection<Table> changed, Collection<String> removedIds) {
+        if (entries.isEmpty() && removedIds.isEmpty()) {
+            for (Table table : changed) {
+                if (table != null && table.getTableId() != null) {
+                    byId.put(table.getTableId(), new Entry(table));
+                }
+            }
+            entries.addAll(byId.values());
+            entries.sort(TableFloorStore::compare);
+            if (listener != null) listener.onTablesReset();
+            return;
+        }
+        for (String tableId : removedIds) {
+            Entry entry = byId.remove(tableId);
+            if (entry != null) {
+                int position = indexOf(entry);
+                entries.remove(position);
+                if (listener != null) listener.onTableRemoved(position);
+            }
+        }
+        for (Table table : changed) {
+            if (table != null && table.getTableId() != null) {
+                put(new Entry(table));
+            }
+        }
+    }
+
+    /**
+     * Remove every table, e.g. when the floor is switched to another branch
+     */
+    public void clear() {
+        entries.clear();
+        byId.clear();
+        if (listener != null) listener.onTablesReset();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public Table get(int position) {
+        return entries.get(position).table;
+    }
+
+    /**
+     * Snapshot of the floor in display order
+     */
+    public List<Table> getTables() {
+        List<Table> tables = new ArrayList<>(entries.size());
+        for (Entry entry : entries) {
+            tables.add(entry.table);
+        }
+        return tables;
+    }
+
+    private void put(Entry entry) {
+        Entry old = byId.put(entry.table.getTableId(), entry);
+        if (old == null) {
+            int position = insertionPoint(entry);
+            entries.add(position, entry);
+            if (listener != null) listener.onTableInserted(position);
+            return;
+        }
+        int from = indexOf(old);
+        if (old.sortKey.equals(entry.sortKey)
+                && Objects.equals(old.table.getTableNumber(), entry.table.getTableNumber())) {
+            entries.set(from, entry);
+            if (!sameDisplay(old.table, entry.table) && listener != null) listener.onTableChanged(from);
+            return;
+        }
+        // Renumbered: the table moves to its new place
+        entries.remove(from);
+        int to = insertionPoint(entry);
+        entries.add(to, entry);
+        if (listener != null) {
+            if (from != to) listener.onTableMoved(from, to);
+            listener.onTableChanged(to);
+        }
+    }
+
+    private int indexOf(Entry entry) {
+        int low = 0;
+        int high = entries.size() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int result = compare(entries.get(mid), entry);
+            if (result < 0) {
+                low = mid + 1;
+            } else if (result > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        throw new IllegalStateException("Table not in floor order: " + entry.table.getTableId());
+    }
+
+    private int insertionPoint(Entry entry) {
+        int low = 0;
+        int high = entries.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (compare(entries.get(mid), entry) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // Natural order of table numbers; the table ID breaks ties so every table has one exact place
+    private static int compare(Entry a, Entry b) {
+        int result = a.sortKey.compareTo(b.sortKey);
+        if (result == 0) {
+            result = String.valueOf(a.table.getTableNumber()).compareTo(String.valueOf(b.table.getTableNumber()));
+        }
+        return result != 0 ? result : a.table.getTableId().compareTo(b.table.getTableId());
+    }
+
+    /**
+     * Check that a change leaves what the table map shows untouched
+     */
+    private static boolean sameDisplay(Table a, Table b) {
+        return Objects.equals(a.getStatus(), b.getStatus())
+                && Objects.equals(a.getCurrentOrderId(), b.getCurrentOrderId())
+                && a.getCapacity() == b.getCapacity();
+    }
+}
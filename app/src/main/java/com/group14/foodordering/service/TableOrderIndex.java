@@ -0,0 +1,160 @@
+package com.group14.foodordering.service;
+
+import com.group14.foodordering.model.Order;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * In-memory index from table number to the active orders of that table (table ordering)
+ * Kept up to date by one restaurant-scoped listener on active orders (see
+ * FirebaseDatabaseService.acquireTableOrderIndex), so opening a table or updating its order needs
+ * no reads. Completed and cancelled orders leave the index; load them on demand with
+ * FirebaseDatabaseService.getOrdersByTableNumber
+ * Not thread-safe: use it from the main thread only
+ */
+public class TableOrderIndex {
+    static final Set<String> ACTIVE_STATUSES = new HashSet<>(Arrays.asList("pending", "preparing", "ready"));
+
+    private final String restaurantId;
+    private final Map<String, Order> ordersById = new HashMap<>();
+    private final Map<String, List<Order>> ordersByTable = new HashMap<>();
+    private final List<Runnable> readyWaiters = new ArrayList<>();
+    private boolean ready;
+    private boolean failed;
+
+    /**
+     * @param restaurantId restaurant the index is scoped to; null for all restaurants
+     */
+    public TableOrderIndex(String restaurantId) {
+        this.restaurantId = restaurantId;
+    }
+
+    public String getRestaurantId() {
+        return restaurantId;
+    }
+
+    /**
+     * Apply the changes of one snapshot: added or modified orders, and IDs of orders that left it
+     */
+    public void apply(Collection<Order> changed, Collection<String> removedIds) {
+        for (String orderId : removedIds) {
+            remove(orderId);
+        }
+        for (Order order : changed) {
+            put(order);
+        }
+        if (!ready) {
+            ready = true;
+            failed = false;
+            runReadyWaiters();
+        }
+    }
+
+    /**
+     * Add or replace an order, e.g. right after this device wrote it
+     * Orders that are no longer active, or are not table orders, are dropped from the index
+     */
+    public void put(Order order) {
+        if (order == null || order.getOrderId() == null) {
+            return;
+        }
+        remove(order.getOrderId());
+        if (!isIndexed(order)) {
+            return;
+        }
+        ordersById.put(order.getOrderId(), order);
+        List<Order> tableOrders = ordersByTable.get(order.getTableNumber());
+        if (tableOrders == null) {
+            tableOrders = new ArrayList<>();
+            ordersByTable.put(order.getTableNumber(), tableOrders);
+        }
+        // Newest first
+        int position = 0;
+        while (position < tableOrders.size() && tableOrders.get(position).getCreatedAt() >= order.getCreatedAt()) {
+            position++;
+        }
+        tableOrders.add(position, order);
+    }
+
+    /**
+     * The listener could not be attached; waiters run so callers can fall back to queries
+     */
+    public void fail() {
+        failed = true;
+        runReadyWaiters();
+    }
+
+    /**
+     * Check that the first snapshot has been applied, so lookups reflect the server
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Run the task once the first snapshot is in, or right away if it already is
+     * The task also runs when the listener fails; check isReady to tell the two apart
+     */
+    public void whenReady(Runnable task) {
+        if (ready || failed) {
+            task.run();
+        } else {
+            readyWaiters.add(task);
+        }
+    }
+
+    /**
+     * Active orders of a table, newest first
+     */
+    public List<Order> getActiveOrders(String tableNumber) {
+        List<Order> tableOrders = ordersByTable.get(tableNumber);
+        return tableOrders != null ? new ArrayList<>(tableOrders) : new ArrayList<>();
+    }
+
+    /**
+     * Active order by ID, or null if it is not in the index
+     */
+    public Order getOrder(String orderId) {
+        return ordersById.get(orderId);
+    }
+
+    public int size() {
+        return ordersById.size();
+    }
+
+    private void remove(String orderId) {
+        Order old = ordersById.remove(orderId);
+        if (old == null) {
+            return;
+        }
+        List<Order> tableOrders = ordersByTable.get(old.getTableNumber());
+        if (tableOrders != null) {
+            tableOrders.remove(old);
+            if (tableOrders.isEmpty()) {
+                ordersByTable.remove(old.getTableNumber());
+            }
+        }
+    }
+
+    private boolean isIndexed(Order order) {
+        return "table".equalsIgnoreCase(order.getOrderType())
+                && order.getTableNumber() != null && !order.getTableNumber().isEmpty()
+                && ACTIVE_STATUSES.contains(order.getStatus())
+                && (restaurantId == null || restaurantId.equals(order.getRestaurantId()));
+    }
+
+    private void runReadyWaiters() {
+        List<Runnable> waiters = new ArrayList<>(readyWaiters);
+        readyWaiters.clear();
+        for (Runnable waiter : waiters) {
+            waiter.run();
+        }
+    }
+}
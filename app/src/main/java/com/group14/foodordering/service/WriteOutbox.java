@@ -0,0 +1,591 @@
+package com.group14.foodordering.service;
+
+import com.group14.foodordering.util.AppLog;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Durable, append-only outbox for FirebaseDatabaseService writes
+ * A write is accepted as soon as its record is appended (and synced) to the journal file, so callers
+ * are answered at local disk speed. Records are sent in order, with consecutive records grouped into
+ * one batch, and acknowledged once committed; pending records survive process death and are sent
+ * again on the next start. Every record carries an idempotency key: enqueueing a key that is still
+ * pending or was recently committed returns the original record instead of writing again
+ */
+public class WriteOutbox {
+    private static final String TAG = "WriteOutbox";
+    static final int MAX_OPERATIONS_PER_BATCH = 500; // Firestore batch limit
+    private static final int RECENT_KEYS = 256;
+    private static final long COMPACT_THRESHOLD_BYTES = 64 * 1024;
+    private static final int MAX_RECORD_BYTES = 16 * 1024 * 1024;
+
+    // Journal record kinds
+    private static final byte RECORD_WRITE = 1;
+    private static final byte RECORD_ACK = 2;
+
+    public static final String OP_SET = "set";
+    public static final String OP_UPDATE = "update";
+    public static final String OP_CREATE = "create";
+    // Field a create stores its record's idempotency key in
+    public static final String CREATE_KEY_FIELD = "createKey";
+
+    private final File journalFile;
+    private final Sink sink;
+    private final DropListener dropListener;
+    private final Executor executor; // all state below is confined to this executor
+    private FileOutputStream journal;
+    private final Map<String, Record> pending = new LinkedHashMap<>();
+    private final Map<String, Record> inFlight = new HashMap<>();
+    // Keys committed recently, with the document ID they produced (oldest first)
+    private final Map<String, String> recentKeys = new LinkedHashMap<String, String>(16, 0.75f, false) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+            return size() > RECENT_KEYS;
+        }
+    };
+    private final Set<String> sendAlone = new HashSet<>();
+    // Callers waiting for a pending record to reach the server, by idempotency key
+    private final Map<String, List<CommitCallback>> commitCallbacks = new HashMap<>();
+    private volatile int pendingCount;
+    private volatile long droppedCount;
+
+    /**
+     * A single document write
+     */
+    public static class Operation {
+        private final String kind;
+        private final String collection;
+        private final String documentId;
+        private final Map<String, Object> data;
+
+        private Operation(String kind, String collection, String documentId, Map<String, Object> data) {
+            this.kind = kind;
+            this.collection = collection;
+            this.documentId = documentId;
+            this.data = data;
+        }
+
+        /**
+         * Replace the whole document
+         */
+        public static Operation set(String collection, String documentId, Map<String, Object> data) {
+            return new Operation(OP_SET, collection, documentId, data);
+        }
+
+        /**
+         * Write the whole document once. The sink stores the record's idempotency key in CREATE_KEY_FIELD
+         * and skips a resend that finds the key already there, so a replayed create cannot overwrite
+         * what direct writes changed since (appended items, version, a newer status)
+         */
+        public static Operation create(String collection, String documentId, Map<String, Object> data) {
+            return new Operation(OP_CREATE, collection, documentId, data);
+        }
+
+        /**
+         * Update fields of an existing document
+         */
+        public static Operation update(String collection, String documentId, Map<String, Object> data) {
+            return new Operation(OP_UPDATE, collection, documentId, data);
+        }
+
+        public String getKind() {
+            return kind;
+        }
+
+        public String getCollection() {
+            return collection;
+        }
+
+        public String getDocumentId() {
+            return documentId;
+        }
+
+        public Map<String, Object> getData() {
+            return data;
+        }
+    }
+
+    /**
+     * Update value appending elements to a stored list (Firestore arrayUnion)
+     * Elements already in the list are not added again, so give each element a unique ID
+     */
+    public static final class ArrayUnion {
+        private final List<Object> elements;
+
+        public ArrayUnion(List<?> elements) {
+            this.elements = Collections.unmodifiableList(new ArrayList<>(elements));
+        }
+
+        public List<Object> getElements() {
+            return elements;
+        }
+    }
+
+    /**
+     * One accepted write: its operations are committed together
+     */
+    public static class Record {
+        private final String idempotencyKey;
+        private final String documentId;
+        private final long createdAt;
+        private final List<Operation> operations;
+
+        Record(String idempotencyKey, String documentId, long createdAt, List<Operation> operations) {
+            this.idempotencyKey = idempotencyKey;
+            this.documentId = documentId;
+            this.createdAt = createdAt;
+            this.operations = operations;
+        }
+
+        public String getIdempotencyKey() {
+            return idempotencyKey;
+        }
+
+        /**
+         * Document ID reported to the caller
+         */
+        public String getDocumentId() {
+            return documentId;
+        }
+
+        public long getCreatedAt() {
+            return createdAt;
+        }
+
+        public List<Operation> getOperations() {
+            return operations;
+        }
+    }
+
+    /**
+     * Commits a group of records atomically (a Firestore WriteBatch in the app)
+     */
+    public interface Sink {
+        void commit(List<Record> records, SinkCallback callback);
+    }
+
+    public interface SinkCallback {
+        void onCommitted();
+
+        /**
+         * @param permanent true if sending the same write again cannot succeed
+         */
+        void onFailed(Exception e, boolean permanent);
+    }
+
+    /**
+     * Told about a write that was accepted but then dropped because it cannot succeed; called on the
+     * outbox thread. The caller already heard onAccepted, so this is the only word of the loss
+     */
+    public interface DropListener {
+        void onDropped(Record record, Exception e);
+    }
+
+    public interface EnqueueCallback {
+        /**
+         * The write is durable locally; documentId is the original one for a repeated idempotency key
+         */
+        void onAccepted(String documentId);
+
+        void onFailure(Exception e);
+    }
+
+    /**
+     * Told when an accepted write reached the server or was dropped; called on the outbox thread
+     */
+    public interface CommitCallback {
+        void onCommitted(String documentId);
+
+        void onDropped(Exception e);
+    }
+
+    public WriteOutbox(File journalFile, Sink sink, DropListener dropListener) {
+        this(journalFile, sink, dropListener, Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "write-outbox");
+            thread.setDaemon(true);
+            return thread;
+        }));
+    }
+
+    public WriteOutbox(File journalFile, Sink sink, Executor executor) {
+        this(journalFile, sink, null, executor);
+    }
+
+    public WriteOutbox(File journalFile, Sink sink, DropListener dropListener, Executor executor) {
+        this.journalFile = journalFile;
+        this.sink = sink;
+        this.dropListener = dropListener;
+        this.executor = executor;
+        executor.execute(() -> {
+            replay();
+            send();
+        });
+    }
+
+    /**
+     * Append a write to the journal and send it in the background
+     */
+    public void enqueue(String idempotencyKey, String documentId, List<Operation> operations, EnqueueCallback callback) {
+        enqueue(idempotencyKey, documentId, operations, callback, null);
+    }
+
+    /**
+     * Append a write to the journal, and also tell committed once it reaches the server
+     * Only for callers that show the write as unconfirmed until then; the wait is not kept across restarts
+     */
+    public void enqueue(String idempotencyKey, String documentId, List<Operation> operations, EnqueueCallback callback,
+                        CommitCallback committed) {
+        Record record = new Record(idempotencyKey, documentId, System.currentTimeMillis(),
+                Collections.unmodifiableList(new ArrayList<>(operations)));
+        byte[] payload;
+        try {
+            // Encoded on the caller's thread, so values the journal cannot hold fail right away
+            payload = encodeWrite(record);
+        } catch (IOException | IllegalArgumentException e) {
+            callback.onFailure(e);
+            return;
+        }
+        executor.execute(() -> {
+            Record existing = pending.get(idempotencyKey);
+            if (existing != null || recentKeys.containsKey(idempotencyKey)) {
+                String originalId = existing != null ? existing.documentId : recentKeys.get(idempotencyKey);
+                AppLog.d(TAG, "Duplicate write ignored: {}", idempotencyKey);
+                callback.onAccepted(originalId);
+                if (committed != null && existing != null) {
+                    waitForCommit(idempotencyKey, committed);
+                } else if (committed != null) {
+                    committed.onCommitted(originalId);
+                }
+                return;
+            }
+            try {
+                appendRecord(payload, true);
+            } catch (IOException e) {
+                AppLog.e(TAG, "Failed to append write to the outbox journal", e);
+                callback.onFailure(e);
+                return;
+            }
+            pending.put(idempotencyKey, record);
+            pendingCount = pending.size();
+            if (committed != null) {
+                waitForCommit(idempotencyKey, committed);
+            }
+            callback.onAccepted(documentId);
+            send();
+        });
+    }
+
+    private void waitForCommit(String idempotencyKey, CommitCallback committed) {
+        List<CommitCallback> callbacks = commitCallbacks.get(idempotencyKey);
+        if (callbacks == null) {
+            callbacks = new ArrayList<>();
+            commitCallbacks.put(idempotencyKey, callbacks);
+        }
+        callbacks.add(committed);
+    }
+
+    /**
+     * Look up the document ID of a pending or recently committed record; null if the key is unknown
+     * Called on the outbox thread
+     */
+    public void find(String idempotencyKey, Consumer<String> callback) {
+        executor.execute(() -> {
+            Record existing = pending.get(idempotencyKey);
+            callback.accept(existing != null ? existing.documentId : recentKeys.get(idempotencyKey));
+        });
+    }
+
+    /**
+     * Send pending records that are not in flight (e.g. after connectivity returns)
+     */
+    public void flush() {
+        executor.execute(this::send);
+    }
+
+    /**
+     * Number of accepted writes not yet committed
+     */
+    public int getPendingCount() {
+        return pendingCount;
+    }
+
+    /**
+     * Number of writes dropped because they failed permanently
+     */
+    public long getDroppedCount() {
+        return droppedCount;
+    }
+
+    // ==================== Sending ====================
+
+    private void send() {
+        List<Record> batch = new ArrayList<>();
+        int operationCount = 0;
+        for (Record record : new ArrayList<>(pending.values())) {
+            if (inFlight.containsKey(record.idempotencyKey)) {
+                continue;
+            }
+            boolean alone = sendAlone.contains(record.idempotencyKey);
+            if (!batch.isEmpty() && (alone || operationCount + record.operations.size() > MAX_OPERATIONS_PER_BATCH)) {
+                dispatch(batch);
+                batch = new ArrayList<>();
+                operationCount = 0;
+            }
+            batch.add(record);
+            operationCount += record.operations.size();
+            if (alone) {
+                dispatch(batch);
+                batch = new ArrayList<>();
+                operationCount = 0;
+            }
+        }
+        if (!batch.isEmpty()) {
+            dispatch(batch);
+        }
+    }
+
+    private void dispatch(List<Record> records) {
+        for (Record record : records) {
+            inFlight.put(record.idempotencyKey, record);
+        }
+        sink.commit(records, new SinkCallback() {
+            @Override
+            public void onCommitted() {
+                executor.execute(() -> {
+                    for (Record record : records) {
+                        acknowledge(record);
+                    }
+                    compactIfIdle();
+                });
+            }
+
+            @Override
+            public void onFailed(Exception e, boolean permanent) {
+                executor.execute(() -> {
+                    for (Record record : records) {
+                        inFlight.remove(record.idempotencyKey);
+                    }
+                    if (!permanent) {
+                        // Kept pending; sent again on the next flush
+                        AppLog.w(TAG, "Outbox batch failed, will retry: {}", e.getMessage());
+                    } else if (records.size() > 1) {
+                        // Find the failing record by sending each one on its own
+                        for (Record record : records) {
+                            sendAlone.add(record.idempotencyKey);
+                        }
+                        send();
+                    } else {
+                        Record dropped = records.get(0);
+                        AppLog.e(TAG, "Dropping write that cannot succeed: {}", dropped.idempotencyKey, e);
+                        droppedCount++;
+                        List<CommitCallback> callbacks = commitCallbacks.remove(dropped.idempotencyKey);
+                        if (callbacks != null) {
+                            for (CommitCallback callback : callbacks) {
+                                callback.onDropped(e);
+                            }
+                        }
+                        acknowledge(dropped);
+                        compactIfIdle();
+                        if (dropListener != null) {
+                            dropListener.onDropped(dropped, e);
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    private void acknowledge(Record record) {
+        inFlight.remove(record.idempotencyKey);
+        sendAlone.remove(record.idempotencyKey);
+        if (pending.remove(record.idempotencyKey) == null) {
+            return;
+        }
+        pendingCount = pending.size();
+        recentKeys.put(record.idempotencyKey, record.documentId);
+        try {
+            // Synced, so a committed record is not sent again after a restart. One committed just before
+            // the process died still is: Operation.create keeps such a resend from overwriting newer fields
+            appendRecord(encodeAck(record.idempotencyKey), true);
+        } catch (IOException e) {
+            AppLog.e(TAG, "Failed to append acknowledgement", e);
+        }
+        List<CommitCallback> callbacks = commitCallbacks.remove(record.idempotencyKey);
+        if (callbacks != null) {
+            for (CommitCallback callback : callbacks) {
+                callback.onCommitted(record.documentId);
+            }
+        }
+    }
+
+    // ==================== Journal ====================
+
+    /**
+     * Load pending records from the journal, cutting off a torn or corrupt tail
+     */
+    private void replay() {
+        long validLength = 0;
+        if (journalFile.exists()) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(journalFile)))) {
+                while (true) {
+                    byte[] payload = readFrame(in);
+                    if (payload == null) {
+                        break;
+                    }
+                    applyReplayed(payload);
+                    validLength += 4 + payload.length + 8;
+                }
+            } catch (IOException e) {
+                AppLog.e(TAG, "Failed to read outbox journal", e);
+            }
+        }
+        try {
+            if (journalFile.exists() && journalFile.length() != validLength) {
+                AppLog.w(TAG, "Truncating outbox journal to {} bytes", validLength);
+                try (RandomAccessFile file = new RandomAccessFile(journalFile, "rw")) {
+                    file.setLength(validLength);
+                }
+            }
+            journal = new FileOutputStream(journalFile, true);
+            compactIfIdle();
+        } catch (IOException e) {
+            AppLog.e(TAG, "Failed to open outbox journal", e);
+        }
+        pendingCount = pending.size();
+        if (!pending.isEmpty()) {
+            AppLog.d(TAG, "Replaying {} pending writes", pending.size());
+        }
+    }
+
+    private void applyReplayed(byte[] payload) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        byte kind = in.readByte();
+        if (kind == RECORD_WRITE) {
+            Record record = decodeWrite(in);
+            pending.put(record.idempotencyKey, record);
+        } else if (kind == RECORD_ACK) {
+            String key = ValueCodec.readString(in);
+            Record record = pending.remove(key);
+            if (record != null) {
+                recentKeys.put(key, record.documentId);
+            }
+        }
+    }
+
+    /**
+     * Frame: payload length, payload, CRC32 of the payload. Returns null at the end or at a bad frame
+     */
+    private static byte[] readFrame(DataInputStream in) throws IOException {
+        try {
+            int length = in.readInt();
+            if (length <= 0 || length > MAX_RECORD_BYTES) {
+                return null;
+            }
+            byte[] payload = new byte[length];
+            in.readFully(payload);
+            long checksum = in.readLong();
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            return crc.getValue() == checksum ? payload : null;
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+
+    private void appendRecord(byte[] payload, boolean sync) throws IOException {
+        if (journal == null) {
+            throw new IOException("Outbox journal is not open");
+        }
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        ByteArrayOutputStream frame = new ByteArrayOutputStream(payload.length + 12);
+        DataOutputStream out = new DataOutputStream(frame);
+        out.writeInt(payload.length);
+        out.write(payload);
+        out.writeLong(crc.getValue());
+        journal.write(frame.toByteArray());
+        if (sync) {
+            journal.getFD().sync();
+        }
+    }
+
+    /**
+     * Rewrite the journal once nothing is pending so it does not grow without bound
+     */
+    private void compactIfIdle() {
+        if (!pending.isEmpty() || journal == null || journalFile.length() < COMPACT_THRESHOLD_BYTES) {
+            return;
+        }
+        try {
+            journal.getChannel().truncate(0);
+        } catch (IOException e) {
+            AppLog.e(TAG, "Failed to compact outbox journal", e);
+        }
+    }
+
+    // ==================== Encoding ====================
+
+    private static byte[] encodeWrite(Record record) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(RECORD_WRITE);
+        ValueCodec.writeString(out, record.idempotencyKey);
+        ValueCodec.writeString(out, record.documentId);
+        out.writeLong(record.createdAt);
+        out.writeInt(record.operations.size());
+        for (Operation operation : record.operations) {
+            ValueCodec.writeString(out, operation.kind);
+            ValueCodec.writeString(out, operation.collection);
+            ValueCodec.writeString(out, operation.documentId);
+            ValueCodec.encodeValue(out, operation.data);
+        }
+        return bytes.toByteArray();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Record decodeWrite(DataInputStream in) throws IOException {
+        String key = ValueCodec.readString(in);
+        String documentId = ValueCodec.readString(in);
+        long createdAt = in.readLong();
+        int count = in.readInt();
+        List<Operation> operations = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String kind = ValueCodec.readString(in);
+            String collection = ValueCodec.readString(in);
+            String operationDocumentId = ValueCodec.readString(in);
+            Map<String, Object> data = (Map<String, Object>) ValueCodec.decodeValue(in);
+            operations.add(new Operation(kind, collection, operationDocumentId, data));
+        }
+        return new Record(key, documentId, createdAt, Collections.unmodifiableList(operations));
+    }
+
+    private static byte[] encodeAck(String key) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(RECORD_ACK);
+        ValueCodec.writeString(out, key);
+        return bytes.toByteArray();
+    }
+}
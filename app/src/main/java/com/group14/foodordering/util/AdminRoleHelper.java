@@ -1,8 +1,8 @@
 package com.group14.foodordering.util;
 
 import android.content.Context;
-import android.util.Log;
 
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -123,7 +123,49 @@ public class AdminRoleHelper {
         
         return null;
     }
-    
+
+    /**
+     * Get the restaurant IDs the kitchen feed on this device is bound to
+     * Priority: admin's selected restaurant, STAFF restaurant, then the restaurant
+     * selected on this device (RestaurantPreferenceHelper), then all assigned restaurants
+     * Returns null only for ADMIN without any selection (all restaurants)
+     */
+    public static List<String> getKitchenRestaurantIds(Context context) {
+        if (!AdminSessionHelper.isAdminLoggedIn(context)) {
+            return null;
+        }
+
+        List<String> restaurantIds = new ArrayList<>();
+
+        String selectedRestaurantId = AdminSessionHelper.getAdminSelectedRestaurantId(context);
+        if (selectedRestaurantId != null && !selectedRestaurantId.isEmpty()
+                && hasAccessToRestaurant(context, selectedRestaurantId)) {
+            restaurantIds.add(selectedRestaurantId);
+            return restaurantIds;
+        }
+
+        String staffRestaurantId = getStaffRestaurantId(context);
+        if (staffRestaurantId != null) {
+            restaurantIds.add(staffRestaurantId);
+            return restaurantIds;
+        }
+
+        String deviceRestaurantId = RestaurantPreferenceHelper.getSelectedRestaurantId(context);
+        if (deviceRestaurantId != null && !deviceRestaurantId.isEmpty()
+                && hasAccessToRestaurant(context, deviceRestaurantId)) {
+            restaurantIds.add(deviceRestaurantId);
+            return restaurantIds;
+        }
+
+        // MANAGER without a selection: all assigned restaurants; ADMIN: null (all)
+        List<String> accessibleIds = getAccessibleRestaurantIds(context);
+        if (accessibleIds == null) {
+            AppLog.d(TAG, "No restaurant bound for kitchen feed, using all restaurants");
+            return null;
+        }
+        return new ArrayList<>(accessibleIds);
+    }
+
     /**
      * Get role display name
      */
@@ -2,7 +2,6 @@ package com.group14.foodordering.util;
 
 import android.content.Context;
 import android.content.SharedPreferences;
-import android.util.Log;
 
 import com.group14.foodordering.model.Admin;
 
@@ -82,9 +81,9 @@ public class AdminSessionHelper {
             // Use commit() instead of apply() to ensure synchronous save
             // This prevents onResume() from checking login status before session is saved
             editor.commit();
-            Log.d(TAG, "Admin session saved: " + admin.getAdminId());
+            AppLog.d(TAG, "Admin session saved: {}", admin.getAdminId());
         } catch (Exception e) {
-            Log.e(TAG, "Failed to save admin session", e);
+            AppLog.e(TAG, "Failed to save admin session", e);
         }
     }
 
@@ -95,9 +94,9 @@ public class AdminSessionHelper {
         try {
             SharedPreferences prefs = getPrefs(context);
             prefs.edit().clear().apply();
-            Log.d(TAG, "Admin session cleared");
+            AppLog.d(TAG, "Admin session cleared");
         } catch (Exception e) {
-            Log.e(TAG, "Failed to clear admin session", e);
+            AppLog.e(TAG, "Failed to clear admin session", e);
         }
     }
 
@@ -109,7 +108,7 @@ public class AdminSessionHelper {
             SharedPreferences prefs = getPrefs(context);
             return prefs.getBoolean(KEY_IS_LOGGED_IN, false);
         } catch (Exception e) {
-            Log.e(TAG, "Failed to check admin login status", e);
+            AppLog.e(TAG, "Failed to check admin login status", e);
             return false;
         }
     }
@@ -122,7 +121,7 @@ public class AdminSessionHelper {
             SharedPreferences prefs = getPrefs(context);
             return prefs.getString(KEY_ADMIN_ID, null);
         } catch (Exception e) {
-            Log.e(TAG, "Failed to get admin ID", e);
+            AppLog.e(TAG, "Failed to get admin ID", e);
             return null;
         }
     }
@@ -135,7 +134,7 @@ public class AdminSessionHelper {
             SharedPreferences prefs = getPrefs(context);
             return prefs.getString(KEY_ADMIN_NAME, null);
         } catch (Exception e) {
-            Log.e(TAG, "Failed to get admin name", e);
+            AppLog.e(TAG, "Failed to get admin name", e);
             return null;
         }
     }
@@ -157,10 +156,10 @@ public class AdminSessionHelper {
             }
             return new ArrayList<>();
         } catch (JSONException e) {
-            Log.e(TAG, "Failed to parse admin permissions JSON", e);
+            AppLog.e(TAG, "Failed to parse admin permissions JSON", e);
             return new ArrayList<>();
         } catch (Exception e) {
-            Log.e(TAG, "Failed to get admin permissions", e);
+            AppLog.e(TAG, "Failed to get admin permissions", e);
             return new ArrayList<>();
         }
     }
@@ -182,10 +181,10 @@ public class AdminSessionHelper {
             }
             return new ArrayList<>();
         } catch (JSONException e) {
-            Log.e(TAG, "Failed to parse restaurant IDs JSON", e);
+            AppLog.e(TAG, "Failed to parse restaurant IDs JSON", e);
             return new ArrayList<>();
         } catch (Exception e) {
-            Log.e(TAG, "Failed to get admin restaurant IDs", e);
+            AppLog.e(TAG, "Failed to get admin restaurant IDs", e);
             return new ArrayList<>();
         }
     }
@@ -198,7 +197,7 @@ public class AdminSessionHelper {
             SharedPreferences prefs = getPrefs(context);
             return prefs.getString(KEY_ADMIN_EMAIL, null);
         } catch (Exception e) {
-            Log.e(TAG, "Failed to get admin email", e);
+            AppLog.e(TAG, "Failed to get admin email", e);
             return null;
         }
     }
@@ -211,7 +210,7 @@ public class AdminSessionHelper {
             SharedPreferences prefs = getPrefs(context);
             return prefs.getString(KEY_ADMIN_PHONE, null);
         } catch (Exception e) {
-            Log.e(TAG, "Failed to get admin phone", e);
+            AppLog.e(TAG, "Failed to get admin phone", e);
             return null;
         }
     }
@@ -224,7 +223,7 @@ public class AdminSessionHelper {
             SharedPreferences prefs = getPrefs(context);
             return prefs.getLong(KEY_LOGIN_TIME, 0);
         } catch (Exception e) {
-            Log.e(TAG, "Failed to get login time", e);
+            AppLog.e(TAG, "Failed to get login time", e);
             return 0;
         }
     }
@@ -250,9 +249,9 @@ public class AdminSessionHelper {
         try {
             SharedPreferences prefs = getPrefs(context);
             prefs.edit().putString(KEY_SELECTED_RESTAURANT_ID, restaurantId).apply();
-            Log.d(TAG, "Saved admin selected restaurant ID: " + restaurantId);
+            AppLog.d(TAG, "Saved admin selected restaurant ID: {}", restaurantId);
         } catch (Exception e) {
-            Log.e(TAG, "Failed to save admin selected restaurant ID", e);
+            AppLog.e(TAG, "Failed to save admin selected restaurant ID", e);
         }
     }
     
@@ -264,7 +263,7 @@ public class AdminSessionHelper {
             SharedPreferences prefs = getPrefs(context);
             return prefs.getString(KEY_SELECTED_RESTAURANT_ID, null);
         } catch (Exception e) {
-            Log.e(TAG, "Failed to get admin selected restaurant ID", e);
+            AppLog.e(TAG, "Failed to get admin selected restaurant ID", e);
             return null;
         }
     }
@@ -276,9 +275,9 @@ public class AdminSessionHelper {
         try {
             SharedPreferences prefs = getPrefs(context);
             prefs.edit().putString(KEY_SELECTED_RESTAURANT_NAME, restaurantName).apply();
-            Log.d(TAG, "Saved admin selected restaurant name: " + restaurantName);
+            AppLog.d(TAG, "Saved admin selected restaurant name: {}", restaurantName);
         } catch (Exception e) {
-            Log.e(TAG, "Failed to save admin selected restaurant name", e);
+            AppLog.e(TAG, "Failed to save admin selected restaurant name", e);
         }
     }
     
@@ -290,7 +289,7 @@ public class AdminSessionHelper {
             SharedPreferences prefs = getPrefs(context);
             return prefs.getString(KEY_SELECTED_RESTAURANT_NAME, null);
         } catch (Exception e) {
-            Log.e(TAG, "Failed to get admin selected restaurant name", e);
+            AppLog.e(TAG, "Failed to get admin selected restaurant name", e);
             return null;
         }
     }
@@ -305,9 +304,9 @@ public class AdminSessionHelper {
                     .remove(KEY_SELECTED_RESTAURANT_ID)
                     .remove(KEY_SELECTED_RESTAURANT_NAME)
                     .apply();
-            Log.d(TAG, "Cleared admin selected restaurant");
+            AppLog.d(TAG, "Cleared admin selected restaurant");
         } catch (Exception e) {
-            Log.e(TAG, "Failed to clear admin selected restaurant", e);
+            AppLog.e(TAG, "Failed to clear admin selected restaurant", e);
         }
     }
     
@@ -0,0 +1,286 @@
+package com.group14.foodordering.util;
+
+import android.util.Log;
+
+import com.group14.foodordering.BuildConfig;
+
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Logging facade used instead of android.util.Log
+ * Levels below MIN_LEVEL are compiled out: debug builds keep everything, release builds keep info and
+ * above. Messages take {} placeholders and are only formatted when a message is written, so a
+ * dropped message costs no string building. A trailing Throwable argument without a placeholder is
+ * logged as the error. Guard per-document logs with DEBUG or VERBOSE and a Sampler; javac then
+ * removes the whole statement, arguments included, from release builds:
+ *     if (AppLog.VERBOSE && DOCUMENT_LOGS.sample()) AppLog.v(TAG, "Item {}: {}", id, name);
+ * Kept events also go to a ring buffer of recent events, dumped with bug reports
+ */
+public final class AppLog {
+    // Lowest level compiled in
+    public static final int MIN_LEVEL = BuildConfig.DEBUG ? Log.VERBOSE : Log.INFO;
+    public static final boolean VERBOSE = MIN_LEVEL <= Log.VERBOSE;
+    public static final boolean DEBUG = MIN_LEVEL <= Log.DEBUG;
+
+    static final int RECENT_CAPACITY = 256;
+
+    /**
+     * Where written messages go; logcat unless replaced
+     */
+    interface Sink {
+        void write(int level, String tag, String message, Throwable error);
+    }
+
+    private static final Sink LOGCAT = (level, tag, message, error) -> {
+        switch (level) {
+            case Log.VERBOSE: Log.v(tag, message, error); break;
+            case Log.DEBUG: Log.d(tag, message, error); break;
+            case Log.INFO: Log.i(tag, message, error); break;
+            case Log.WARN: Log.w(tag, message, error); break;
+            default: Log.e(tag, message, error); break;
+        }
+    };
+
+    private static volatile Sink sink = LOGCAT;
+    private static final RecentEvents RECENT = new RecentEvents(RECENT_CAPACITY);
+
+    private AppLog() {
+    }
+
+    /**
+     * Lets through the first of every n calls, for logs written per document or per item
+     */
+    public static final class Sampler {
+        private final int every;
+        private final AtomicInteger calls = new AtomicInteger();
+
+        public Sampler(int every) {
+            if (every < 1) {
+                throw new IllegalArgumentException("every must be at least 1");
+            }
+            this.every = every;
+        }
+
+        public boolean sample() {
+            return Math.floorMod(calls.getAndIncrement(), every) == 0;
+        }
+    }
+
+    public static void v(String tag, String message) {
+        if (VERBOSE) log(Log.VERBOSE, tag, message, 0, null, null, null, null);
+    }
+
+    public static void v(String tag, String format, Object a) {
+        if (VERBOSE) log(Log.VERBOSE, tag, format, 1, a, null, null, null);
+    }
+
+    public static void v(String tag, String format, Object a, Object b) {
+        if (VERBOSE) log(Log.VERBOSE, tag, format, 2, a, b, null, null);
+    }
+
+    public static void v(String tag, String format, Object a, Object b, Object c) {
+        if (VERBOSE) log(Log.VERBOSE, tag, format, 3, a, b, c, null);
+    }
+
+    public static void v(String tag, String format, Object a, Object b, Object c, Object d) {
+        if (VERBOSE) log(Log.VERBOSE, tag, format, 4, a, b, c, d);
+    }
+
+    public static void d(String tag, String message) {
+        if (DEBUG) log(Log.DEBUG, tag, message, 0, null, null, null, null);
+    }
+
+    public static void d(String tag, String format, Object a) {
+        if (DEBUG) log(Log.DEBUG, tag, format, 1, a, null, null, null);
+    }
+
+    public static void d(String tag, String format, Object a, Object b) {
+        if (DEBUG) log(Log.DEBUG, tag, format, 2, a, b, null, null);
+    }
+
+    public static void d(String tag, String format, Object a, Object b, Object c) {
+        if (DEBUG) log(Log.DEBUG, tag, format, 3, a, b, c, null);
+    }
+
+    public static void d(String tag, String format, Object a, Object b, Object c, Object d) {
+        if (DEBUG) log(Log.DEBUG, tag, format, 4, a, b, c, d);
+    }
+
+    public static void i(String tag, String message) {
+        log(Log.INFO, tag, message, 0, null, null, null, null);
+    }
+
+    public static void i(String tag, String format, Object a) {
+        log(Log.INFO, tag, format, 1, a, null, null, null);
+    }
+
+    public static void i(String tag, String format, Object a, Object b) {
+        log(Log.INFO, tag, format, 2, a, b, null, null);
+    }
+
+    public static void i(String tag, String format, Object a, Object b, Object c) {
+        log(Log.INFO, tag, format, 3, a, b, c, null);
+    }
+
+    public static void i(String tag, String format, Object a, Object b, Object c, Object d) {
+        log(Log.INFO, tag, format, 4, a, b, c, d);
+    }
+
+    public static void w(String tag, String message) {
+        log(Log.WARN, tag, message, 0, null, null, null, null);
+    }
+
+    public static void w(String tag, String format, Object a) {
+        log(Log.WARN, tag, format, 1, a, null, null, null);
+    }
+
+    public static void w(String tag, String format, Object a, Object b) {
+        log(Log.WARN, tag, format, 2, a, b, null, null);
+    }
+
+    public static void w(String tag, String format, Object a, Object b, Object c) {
+        log(Log.WARN, tag, format, 3, a, b, c, null);
+    }
+
+    public static void w(String tag, String format, Object a, Object b, Object c, Object d) {
+        log(Log.WARN, tag, format, 4, a, b, c, d);
+    }
+
+    public static void e(String tag, String message) {
+        log(Log.ERROR, tag, message, 0, null, null, null, null);
+    }
+
+    public static void e(String tag, String format, Object a) {
+        log(Log.ERROR, tag, format, 1, a, null, null, null);
+    }
+
+    public static void e(String tag, String format, Object a, Object b) {
+        log(Log.ERROR, tag, format, 2, a, b, null, null);
+    }
+
+    public static void e(String tag, String format, Object a, Object b, Object c) {
+        log(Log.ERROR, tag, format, 3, a, b, c, null);
+    }
+
+    public static void e(String tag, String format, Object a, Object b, Object c, Object d) {
+        log(Log.ERROR, tag, format, 4, a, b, c, d);
+    }
+
+    /**
+     * The recent events, oldest first, one per line, for bug reports
+     */
+    public static String dumpRecent() {
+        return RECENT.dump();
+    }
+
+    static void setSink(Sink newSink) {
+        sink = newSink != null ? newSink : LOGCAT;
+    }
+
+    static void clearRecent() {
+        RECENT.clear();
+    }
+
+    private static void log(int level, String tag, String format, int count,
+                            Object a, Object b, Object c, Object d) {
+        if (level < MIN_LEVEL) {
+            return;
+        }
+        Throwable error = null;
+        Object last = count == 4 ? d : count == 3 ? c : count == 2 ? b : a;
+        if (count > 0 && last instanceof Throwable && placeholders(format) < count) {
+            error = (Throwable) last;
+            count--;
+        }
+        String message = format(format, count, a, b, c, d);
+        RECENT.record(level, tag, message, error);
+        sink.write(level, tag, message, error);
+    }
+
+    private static int placeholders(String format) {
+        int found = 0;
+        for (int i = format.indexOf("{}"); i >= 0; i = format.indexOf("{}", i + 2)) {
+            found++;
+        }
+        return found;
+    }
+
+    /**
+     * Fill the {} placeholders in order; placeholders without an argument stay as they are
+     */
+    static String format(String format, int count, Object a, Object b, Object c, Object d) {
+        if (count == 0 || format == null) {
+            return String.valueOf(format);
+        }
+        StringBuilder message = new StringBuilder(format.length() + 16 * count);
+        int start = 0;
+        for (int arg = 0; arg < count; arg++) {
+            int at = format.indexOf("{}", start);
+            if (at < 0) {
+                break;
+            }
+            message.append(format, start, at).append(arg == 0 ? a : arg == 1 ? b : arg == 2 ? c : d);
+            start = at + 2;
+        }
+        return message.append(format, start, format.length()).toString();
+    }
+
+    /**
+     * Fixed ring of the last events; stores the formatted message, so the dump shows each argument as
+     * it was when logged and the ring holds no reference to models, activities or views
+     */
+    private static final class RecentEvents {
+        private final long[] times;
+        private final int[] levels;
+        private final String[] tags;
+        private final String[] messages;
+        private final String[] errors;
+        private long written;
+
+        RecentEvents(int capacity) {
+            times = new long[capacity];
+            levels = new int[capacity];
+            tags = new String[capacity];
+            messages = new String[capacity];
+            errors = new String[capacity];
+        }
+
+        synchronized void record(int level, String tag, String message, Throwable error) {
+            int slot = (int) (written++ % times.length);
+            times[slot] = System.currentTimeMillis();
+            levels[slot] = level;
+            tags[slot] = tag;
+            messages[slot] = message;
+            errors[slot] = error != null ? error.toString() : null;
+        }
+
+        synchronized void clear() {
+            written = 0;
+            Arrays.fill(tags, null);
+            Arrays.fill(messages, null);
+            Arrays.fill(errors, null);
+        }
+
+        synchronized String dump() {
+            SimpleDateFormat time = new SimpleDateFormat("MM-dd HH:mm:ss.SSS", Locale.ROOT);
+            StringBuilder text = new StringBuilder();
+            long first = Math.max(0, written - times.length);
+            for (long event = first; event < written; event++) {
+                int slot = (int) (event % times.length);
+                text.append(time.format(new Date(times[slot]))).append(' ')
+                        .append("VDIWE".charAt(levels[slot] - Log.VERBOSE)).append('/')
+                        .append(tags[slot]).append(": ")
+                        .append(messages[slot]);
+                if (errors[slot] != null) {
+                    text.append(" (").append(errors[slot]).append(')');
+                }
+                text.append('\n');
+            }
+            return text.toString();
+        }
+    }
+}
@@ -2,7 +2,6 @@ package com.group14.foodordering.util;
 
 import android.content.Context;
 import android.content.SharedPreferences;
-import android.util.Log;
 
 import com.group14.foodordering.model.User;
 
@@ -51,9 +50,9 @@ public class CustomerSessionHelper {
             // Use commit() instead of apply() to ensure synchronous save
             // This prevents onResume() from checking login status before session is saved
             editor.commit();
-            Log.d(TAG, "Customer session saved: " + user.getUserId());
+            AppLog.d(TAG, "Customer session saved: {}", user.getUserId());
         } catch (Exception e) {
-            Log.e(TAG, "Failed to save customer session", e);
+            AppLog.e(TAG, "Failed to save customer session", e);
         }
     }
 
@@ -64,9 +63,9 @@ public class CustomerSessionHelper {
         try {
             SharedPreferences prefs = getPrefs(context);
             prefs.edit().clear().apply();
-            Log.d(TAG, "Customer session cleared");
+            AppLog.d(TAG, "Customer session cleared");
         } catch (Exception e) {
-            Log.e(TAG, "Failed to clear customer session", e);
+            AppLog.e(TAG, "Failed to clear customer session", e);
         }
     }
 
@@ -78,7 +77,7 @@ public class CustomerSessionHelper {
             SharedPreferences prefs = getPrefs(context);
             return prefs.getBoolean(KEY_IS_LOGGED_IN, false);
         } catch (Exception e) {
-            Log.e(TAG, "Failed to check customer login status", e);
+            AppLog.e(TAG, "Failed to check customer login status", e);
             return false;
         }
     }
@@ -91,7 +90,7 @@ public class CustomerSessionHelper {
             SharedPreferences prefs = getPrefs(context);
             return prefs.getString(KEY_USER_ID, null);
         } catch (Exception e) {
-            Log.e(TAG, "Failed to get user ID", e);
+            AppLog.e(TAG, "Failed to get user ID", e);
             return null;
         }
     }
@@ -104,7 +103,7 @@ public class CustomerSessionHelper {
             SharedPreferences prefs = getPrefs(context);
             return prefs.getString(KEY_USER_NAME, null);
         } catch (Exception e) {
-            Log.e(TAG, "Failed to get user name", e);
+            AppLog.e(TAG, "Failed to get user name", e);
             return null;
         }
     }
@@ -117,7 +116,7 @@ public class CustomerSessionHelper {
             SharedPreferences prefs = getPrefs(context);
             return prefs.getString(KEY_USER_EMAIL, null);
         } catch (Exception e) {
-            Log.e(TAG, "Failed to get user email", e);
+            AppLog.e(TAG, "Failed to get user email", e);
             return null;
         }
     }
@@ -130,7 +129,7 @@ public class CustomerSessionHelper {
             SharedPreferences prefs = getPrefs(context);
             return prefs.getString(KEY_USER_PHONE, null);
         } catch (Exception e) {
-            Log.e(TAG, "Failed to get user phone", e);
+            AppLog.e(TAG, "Failed to get user phone", e);
             return null;
         }
     }
@@ -143,7 +142,7 @@ public class CustomerSessionHelper {
             SharedPreferences prefs = getPrefs(context);
             return prefs.getString(KEY_USER_ROLE, null);
         } catch (Exception e) {
-            Log.e(TAG, "Failed to get user role", e);
+            AppLog.e(TAG, "Failed to get user role", e);
             return null;
         }
     }
@@ -156,7 +155,7 @@ public class CustomerSessionHelper {
             SharedPreferences prefs = getPrefs(context);
             return prefs.getInt(KEY_USER_POINTS, 0);
         } catch (Exception e) {
-            Log.e(TAG, "Failed to get user points", e);
+            AppLog.e(TAG, "Failed to get user points", e);
             return 0;
         }
     }
@@ -168,9 +167,9 @@ public class CustomerSessionHelper {
         try {
             SharedPreferences prefs = getPrefs(context);
             prefs.edit().putInt(KEY_USER_POINTS, points).apply();
-            Log.d(TAG, "User points updated: " + points);
+            AppLog.d(TAG, "User points updated: {}", points);
         } catch (Exception e) {
-            Log.e(TAG, "Failed to update user points", e);
+            AppLog.e(TAG, "Failed to update user points", e);
         }
     }
 
@@ -182,7 +181,7 @@ public class CustomerSessionHelper {
             SharedPreferences prefs = getPrefs(context);
             return prefs.getLong(KEY_LOGIN_TIME, 0);
         } catch (Exception e) {
-            Log.e(TAG, "Failed to get login time", e);
+            AppLog.e(TAG, "Failed to get login time", e);
             return 0;
         }
     }
@@ -1,8 +1,8 @@
 package com.group14.foodordering.util;
 
 import android.content.Context;
-import android.util.Log;
 
+import com.group14.foodordering.core.AccessRules;
 import com.group14.foodordering.model.Order;
 
 import java.util.ArrayList;
@@ -14,6 +14,7 @@ import java.util.List;
  */
 public class DataFilterService {
     private static final String TAG = "DataFilterService";
+    private static final AppLog.Sampler FILTERED_ORDER_LOGS = new AppLog.Sampler(20);
 
     /**
      * Filter orders based on admin's restaurant access
@@ -34,7 +35,7 @@ public class DataFilterService {
         
         // If admin has no restaurant restrictions (empty list means all restaurants)
         if (adminRestaurantIds == null || adminRestaurantIds.isEmpty()) {
-            Log.d(TAG, "Admin has access to all restaurants, returning all orders");
+            AppLog.d(TAG, "Admin has access to all restaurants, returning all orders");
             return orders;
         }
 
@@ -44,22 +45,19 @@ public class DataFilterService {
             if (order != null && order.getRestaurantId() != null) {
                 if (adminRestaurantIds.contains(order.getRestaurantId())) {
                     filteredOrders.add(order);
-                } else {
-                    Log.d(TAG, "Filtered out order " + order.getOrderId() + 
-                        " - admin doesn't have access to restaurant " + order.getRestaurantId());
+                } else if (AppLog.DEBUG && FILTERED_ORDER_LOGS.sample()) {
+                    AppLog.d(TAG, "Filtered out order {} - admin doesn't have access to restaurant {}", order.getOrderId(), order.getRestaurantId());
                 }
             } else {
                 // If order has no restaurantId, include it (might be legacy data)
-                Log.w(TAG, "Order " + (order != null ? order.getOrderId() : "null") + 
-                    " has no restaurantId, including it");
+                AppLog.w(TAG, "Order {} has no restaurantId, including it", (order != null ? order.getOrderId() : "null"));
                 if (order != null) {
                     filteredOrders.add(order);
                 }
             }
         }
 
-        Log.d(TAG, "Filtered orders: " + orders.size() + " -> " + filteredOrders.size() + 
-            " (admin has access to " + adminRestaurantIds.size() + " restaurants)");
+        AppLog.d(TAG, "Filtered orders: {} -> {} (admin has access to {} restaurants)", orders.size(), filteredOrders.size(), adminRestaurantIds.size());
         return filteredOrders;
     }
 
@@ -136,19 +134,7 @@ public class DataFilterService {
             return items;
         }
 
-        // Filter items by restaurant access
-        List<T> filteredItems = new ArrayList<>();
-        for (T item : items) {
-            if (item != null) {
-                String restaurantId = extractor.getRestaurantId(item);
-                if (restaurantId == null || restaurantId.isEmpty() || 
-                    adminRestaurantIds.contains(restaurantId)) {
-                    filteredItems.add(item);
-                }
-            }
-        }
-
-        return filteredItems;
+        return AccessRules.filterByRestaurant(adminRestaurantIds, items, extractor::getRestaurantId);
     }
 
     /**
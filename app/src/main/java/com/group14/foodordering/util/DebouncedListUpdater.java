@@ -0,0 +1,135 @@
+package com.group14.foodordering.util;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Applies new versions of a RecyclerView list with debouncing and DiffUtil
+ * Lists submitted within the debounce window collapse into the last one; its diff against the shown
+ * list is calculated on a background thread and dispatched on the main thread. A diff that a newer
+ * list overtook is dropped, so the shown list and the adapter never disagree
+ * Use it from the main thread only
+ */
+public class DebouncedListUpdater<T> {
+
+    /**
+     * Identity and content checks of two items
+     */
+    public interface ItemDiff<T> {
+        boolean areItemsTheSame(T oldItem, T newItem);
+
+        boolean areContentsTheSame(T oldItem, T newItem);
+    }
+
+    private final List<T> items;
+    private final RecyclerView.Adapter<?> adapter;
+    private final ItemDiff<T> itemDiff;
+    private final long debounceMs;
+    private final Runnable onApplied;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final ExecutorService diffExecutor = Executors.newSingleThreadExecutor();
+    private Runnable pendingUpdate;
+    private int generation;
+
+    /**
+     * @param items the list the adapter shows; it is replaced in place
+     * @param onApplied run on the main thread after each applied update (e.g. empty state), may be null
+     */
+    public DebouncedListUpdater(List<T> items, RecyclerView.Adapter<?> adapter, ItemDiff<T> itemDiff,
+                                long debounceMs, Runnable onApplied) {
+        this.items = items;
+        this.adapter = adapter;
+        this.itemDiff = itemDiff;
+        this.debounceMs = debounceMs;
+        this.onApplied = onApplied;
+    }
+
+    /**
+     * Show a new version of the list after the debounce window
+     */
+    public void submit(List<T> newItems) {
+        int submitted = ++generation;
+        List<T> target = new ArrayList<>(newItems);
+        if (pendingUpdate != null) {
+            handler.removeCallbacks(pendingUpdate);
+        }
+        pendingUpdate = () -> {
+            pendingUpdate = null;
+            List<T> oldItems = new ArrayList<>(items);
+            diffExecutor.execute(() -> {
+                DiffUtil.DiffResult diffResult = DiffUtil.calculateDiff(new Callback<>(oldItems, target, itemDiff));
+                handler.post(() -> {
+                    if (submitted != generation) {
+                        return; // a newer list is on its way
+                    }
+                    items.clear();
+                    items.addAll(target);
+                    diffResult.dispatchUpdatesTo(adapter);
+                    if (onApplied != null) {
+                        onApplied.run();
+                    }
+                });
+            });
+        };
+        handler.postDelayed(pendingUpdate, debounceMs);
+    }
+
+    /**
+     * Drop updates that are not applied yet
+     */
+    public void cancel() {
+        generation++;
+        if (pendingUpdate != null) {
+            handler.removeCallbacks(pendingUpdate);
+            pendingUpdate = null;
+        }
+    }
+
+    /**
+     * Cancel and stop the diff thread; the updater cannot be used afterwards
+     */
+    public void shutdown() {
+        cancel();
+        diffExecutor.shutdown();
+    }
+
+    private static class Callback<T> extends DiffUtil.Callback {
+        private final List<T> oldItems;
+        private final List<T> newItems;
+        private final ItemDiff<T> itemDiff;
+
+        Callback(List<T> oldItems, List<T> newItems, ItemDiff<T> itemDiff) {
+            this.oldItems = oldItems;
+            this.newItems = newItems;
+            this.itemDiff = itemDiff;
+        }
+
+        @Override
+        public int getOldListSize() {
+            return oldItems.size();
+        }
+
+        @Override
+        public int getNewListSize() {
+            return newItems.size();
+        }
+
+        @Override
+        public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+            return itemDiff.areItemsTheSame(oldItems.get(oldItemPosition), newItems.get(newItemPosition));
+        }
+
+        @Override
+        public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+            return itemDiff.areContentsTheSame(oldItems.get(oldItemPosition), newItems.get(newItemPosition));
+        }
+    }
+}
@@ -2,7 +2,6 @@ package com.group14.foodordering.util;
 
 import android.content.Context;
 import android.provider.Settings;
-import android.util.Log;
 
 /**
  * Helper class to get unique device identifier for customer identification
@@ -21,11 +20,11 @@ public class DeviceIdHelper {
             if (androidId == null || androidId.isEmpty()) {
                 // Fallback: use a combination of device info
                 androidId = "device_" + System.currentTimeMillis();
-                Log.w(TAG, "Android ID not available, using fallback: " + androidId);
+                AppLog.w(TAG, "Android ID not available, using fallback: {}", androidId);
             }
             return PREFIX + androidId;
         } catch (Exception e) {
-            Log.e(TAG, "Failed to get device ID", e);
+            AppLog.e(TAG, "Failed to get device ID", e);
             // Fallback: use timestamp
             return PREFIX + System.currentTimeMillis();
         }
@@ -1,7 +1,6 @@
 package com.group14.foodordering.util;
 
 import android.content.Context;
-import android.util.Log;
 
 import com.google.firebase.firestore.FirebaseFirestore;
 import com.google.firebase.firestore.WriteBatch;
@@ -82,7 +81,7 @@ public class FirebaseDataImporter {
             importFromJson(jsonData);
             
         } catch (Exception e) {
-            Log.e(TAG, "Failed to read from assets", e);
+            AppLog.e(TAG, "Failed to read from assets", e);
             callback.onError(e);
         }
     }
@@ -121,7 +120,7 @@ public class FirebaseDataImporter {
             importFromJson(jsonData);
             
         } catch (Exception e) {
-            Log.e(TAG, "Failed to read file", e);
+            AppLog.e(TAG, "Failed to read file", e);
             callback.onError(e);
         }
     }
@@ -200,7 +199,7 @@ public class FirebaseDataImporter {
             callback.onComplete(totalSuccess, totalFail);
             
         } catch (JSONException e) {
-            Log.e(TAG, "Failed to parse JSON", e);
+            AppLog.e(TAG, "Failed to parse JSON", e);
             callback.onError(e);
         }
     }
@@ -228,15 +227,15 @@ public class FirebaseDataImporter {
                     .document(user.getUserId())
                     .set(user.toMap())
                     .addOnSuccessListener(aVoid -> {
-                        Log.d(TAG, "User imported: " + user.getUserId());
+                        AppLog.d(TAG, "User imported: {}", user.getUserId());
                     })
                     .addOnFailureListener(e -> {
-                        Log.e(TAG, "Failed to import user: " + user.getUserId(), e);
+                        AppLog.e(TAG, "Failed to import user: {}", user.getUserId(), e);
                     });
 
                 result.success++;
             } catch (Exception e) {
-                Log.e(TAG, "Failed to parse user", e);
+                AppLog.e(TAG, "Failed to parse user", e);
                 result.fail++;
             }
         }
@@ -287,15 +286,15 @@ public class FirebaseDataImporter {
                     .document(admin.getAdminId())
                     .set(admin.toMap())
                     .addOnSuccessListener(aVoid -> {
-                        Log.d(TAG, "Admin imported: " + admin.getAdminId());
+                        AppLog.d(TAG, "Admin imported: {}", admin.getAdminId());
                     })
                     .addOnFailureListener(e -> {
-                        Log.e(TAG, "Failed to import admin: " + admin.getAdminId(), e);
+                        AppLog.e(TAG, "Failed to import admin: {}", admin.getAdminId(), e);
                     });
 
                 result.success++;
             } catch (Exception e) {
-                Log.e(TAG, "Failed to parse admin", e);
+                AppLog.e(TAG, "Failed to parse admin", e);
                 result.fail++;
             }
         }
@@ -327,15 +326,15 @@ public class FirebaseDataImporter {
                     .document(restaurant.getRestaurantId())
                     .set(restaurant.toMap())
                     .addOnSuccessListener(aVoid -> {
-                        Log.d(TAG, "Restaurant imported: " + restaurant.getRestaurantId());
+                        AppLog.d(TAG, "Restaurant imported: {}", restaurant.getRestaurantId());
                     })
                     .addOnFailureListener(e -> {
-                        Log.e(TAG, "Failed to import restaurant: " + restaurant.getRestaurantId(), e);
+                        AppLog.e(TAG, "Failed to import restaurant: {}", restaurant.getRestaurantId(), e);
                     });
 
                 result.success++;
             } catch (Exception e) {
-                Log.e(TAG, "Failed to parse restaurant", e);
+                AppLog.e(TAG, "Failed to parse restaurant", e);
                 result.fail++;
             }
         }
@@ -391,15 +390,15 @@ public class FirebaseDataImporter {
                     .document(branch.getBranchId())
                     .set(branch.toMap())
                     .addOnSuccessListener(aVoid -> {
-                        Log.d(TAG, "Branch imported: " + branch.getBranchId());
+                        AppLog.d(TAG, "Branch imported: {}", branch.getBranchId());
                     })
                     .addOnFailureListener(e -> {
-                        Log.e(TAG, "Failed to import branch: " + branch.getBranchId(), e);
+                        AppLog.e(TAG, "Failed to import branch: {}", branch.getBranchId(), e);
                     });
 
                 result.success++;
             } catch (Exception e) {
-                Log.e(TAG, "Failed to parse branch", e);
+                AppLog.e(TAG, "Failed to parse branch", e);
                 result.fail++;
             }
         }
@@ -432,15 +431,15 @@ public class FirebaseDataImporter {
                     .document(table.getTableId())
                     .set(table.toMap())
                     .addOnSuccessListener(aVoid -> {
-                        Log.d(TAG, "Table imported: " + table.getTableId());
+                        AppLog.d(TAG, "Table imported: {}", table.getTableId());
                     })
                     .addOnFailureListener(e -> {
-                        Log.e(TAG, "Failed to import table: " + table.getTableId(), e);
+                        AppLog.e(TAG, "Failed to import table: {}", table.getTableId(), e);
                     });
 
                 result.success++;
             } catch (Exception e) {
-                Log.e(TAG, "Failed to parse table", e);
+                AppLog.e(TAG, "Failed to parse table", e);
                 result.fail++;
             }
         }
@@ -472,15 +471,15 @@ public class FirebaseDataImporter {
                     .document(category.getCategoryId())
                     .set(category.toMap())
                     .addOnSuccessListener(aVoid -> {
-                        Log.d(TAG, "Menu category imported: " + category.getCategoryId());
+                        AppLog.d(TAG, "Menu category imported: {}", category.getCategoryId());
                     })
                     .addOnFailureListener(e -> {
-                        Log.e(TAG, "Failed to import menu category: " + category.getCategoryId(), e);
+                        AppLog.e(TAG, "Failed to import menu category: {}", category.getCategoryId(), e);
                     });
 
                 result.success++;
             } catch (Exception e) {
-                Log.e(TAG, "Failed to parse menu category", e);
+                AppLog.e(TAG, "Failed to parse menu category", e);
                 result.fail++;
             }
         }
@@ -528,15 +527,15 @@ public class FirebaseDataImporter {
                     .document(item.getItemId())
                     .set(item.toMap())
                     .addOnSuccessListener(aVoid -> {
-                        Log.d(TAG, "Menu item imported: " + item.getItemId());
+                        AppLog.d(TAG, "Menu item imported: {}", item.getItemId());
                     })
                     .addOnFailureListener(e -> {
-                        Log.e(TAG, "Failed to import menu item: " + item.getItemId(), e);
+                        AppLog.e(TAG, "Failed to import menu item: {}", item.getItemId(), e);
                     });
 
                 result.success++;
             } catch (Exception e) {
-                Log.e(TAG, "Failed to parse menu item", e);
+                AppLog.e(TAG, "Failed to parse menu item", e);
                 result.fail++;
             }
         }
@@ -599,15 +598,15 @@ public class FirebaseDataImporter {
                     .document(modifier.getModifierId())
                     .set(modifier.toMap())
                     .addOnSuccessListener(aVoid -> {
-                        Log.d(TAG, "Item modifier imported: " + modifier.getModifierId());
+                        AppLog.d(TAG, "Item modifier imported: {}", modifier.getModifierId());
                     })
                     .addOnFailureListener(e -> {
-                        Log.e(TAG, "Failed to import item modifier: " + modifier.getModifierId(), e);
+                        AppLog.e(TAG, "Failed to import item modifier: {}", modifier.getModifierId(), e);
                     });
 
                 result.success++;
             } catch (Exception e) {
-                Log.e(TAG, "Failed to parse item modifier", e);
+                AppLog.e(TAG, "Failed to parse item modifier", e);
                 result.fail++;
             }
         }
@@ -652,18 +651,18 @@ public class FirebaseDataImporter {
                 .document(config.getConfigId())
                 .set(config.toMap())
                 .addOnSuccessListener(aVoid -> {
-                    Log.d(TAG, "App config imported: " + config.getConfigId());
+                    AppLog.d(TAG, "App config imported: {}", config.getConfigId());
                     result.success++;
                     callback.onCollectionComplete("appConfig", result.success, result.fail);
                 })
                 .addOnFailureListener(e -> {
-                    Log.e(TAG, "Failed to import app config", e);
+                    AppLog.e(TAG, "Failed to import app config", e);
                     result.fail++;
                     callback.onCollectionComplete("appConfig", result.success, result.fail);
                 });
 
         } catch (Exception e) {
-            Log.e(TAG, "Failed to parse app config", e);
+            AppLog.e(TAG, "Failed to parse app config", e);
             result.fail++;
             callback.onCollectionComplete("appConfig", result.success, result.fail);
         }
@@ -749,7 +748,7 @@ public class FirebaseDataImporter {
                         collections, index, lock, callback);
             })
             .addOnFailureListener(e -> {
-                Log.e(TAG, "Failed to get documents from collection: " + collectionName, e);
+                AppLog.e(TAG, "Failed to get documents from collection: {}", collectionName, e);
                 callback.onProgress("Error reading collection '" + collectionName + "': " + e.getMessage());
                 synchronized (lock) {
                     completedCollections[0]++;
@@ -811,7 +810,7 @@ public class FirebaseDataImporter {
                         collections, collectionIndex, lock, callback);
             })
             .addOnFailureListener(e -> {
-                Log.e(TAG, "Failed to delete batch from collection: " + collectionName, e);
+                AppLog.e(TAG, "Failed to delete batch from collection: {}", collectionName, e);
                 callback.onProgress("Error deleting batch from '" + collectionName + "': " + e.getMessage());
                 synchronized (lock) {
                     totalFailed[0] += batchCount;
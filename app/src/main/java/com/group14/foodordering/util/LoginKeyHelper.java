@@ -0,0 +1,111 @@
+package com.group14.foodordering.util;
+
+import com.group14.foodordering.model.Admin;
+import com.group14.foodordering.model.User;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Helper class to build login index keys
+ * A key is a normalized login value with its kind, e.g. "email:amy@example.com" or "phone:+85291234567",
+ * and is used as the document ID of a login index entry
+ */
+public class LoginKeyHelper {
+    public static final String KIND_EMAIL = "email";
+    public static final String KIND_PHONE = "phone";
+    public static final String KIND_STAFF_ID = "staff";
+
+    private static final int MIN_PHONE_DIGITS = 3;
+
+    /**
+     * Get the email key, or null if the value is not an email address
+     */
+    public static String emailKey(String email) {
+        if (email == null) {
+            return null;
+        }
+        String normalized = email.trim().toLowerCase(Locale.ROOT);
+        return normalized.indexOf('@') > 0 ? key(KIND_EMAIL, normalized) : null;
+    }
+
+    /**
+     * Get the phone key, or null if the value is not a phone number
+     * Spaces, dashes, dots and brackets are ignored; a leading + is kept
+     */
+    public static String phoneKey(String phone) {
+        if (phone == null) {
+            return null;
+        }
+        StringBuilder digits = new StringBuilder();
+        String trimmed = phone.trim();
+        for (int i = 0; i < trimmed.length(); i++) {
+            char c = trimmed.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digits.append(c);
+            } else if (c == '+' && i == 0) {
+                digits.append(c);
+            } else if (c != ' ' && c != '-' && c != '.' && c != '(' && c != ')') {
+                return null;
+            }
+        }
+        int digitCount = digits.length() - (digits.length() > 0 && digits.charAt(0) == '+' ? 1 : 0);
+        return digitCount >= MIN_PHONE_DIGITS ? key(KIND_PHONE, digits.toString()) : null;
+    }
+
+    /**
+     * Get the staff ID key (case-insensitive), or null if the value is empty
+     */
+    public static String staffIdKey(String staffId) {
+        if (staffId == null || staffId.trim().isEmpty()) {
+            return null;
+        }
+        return key(KIND_STAFF_ID, staffId.trim().toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Get the candidate keys for what a user typed into a login field, most specific first
+     */
+    public static List<String> keysForLogin(String input, boolean includeStaffId) {
+        List<String> keys = new ArrayList<>();
+        if (includeStaffId) {
+            addIfPresent(keys, staffIdKey(input));
+        }
+        addIfPresent(keys, phoneKey(input));
+        addIfPresent(keys, emailKey(input));
+        return keys;
+    }
+
+    /**
+     * Get the index keys an admin can log in with
+     */
+    public static List<String> keysForAdmin(Admin admin) {
+        List<String> keys = new ArrayList<>();
+        addIfPresent(keys, staffIdKey(admin.getAdminId()));
+        addIfPresent(keys, phoneKey(admin.getPhone()));
+        addIfPresent(keys, emailKey(admin.getEmail()));
+        return keys;
+    }
+
+    /**
+     * Get the index keys a customer can log in with
+     */
+    public static List<String> keysForUser(User user) {
+        List<String> keys = new ArrayList<>();
+        addIfPresent(keys, phoneKey(user.getPhone()));
+        addIfPresent(keys, emailKey(user.getEmail()));
+        return keys;
+    }
+
+    private static String key(String kind, String value) {
+        // Document IDs cannot contain '/'
+        return kind + ":" + value.replace("%", "%25").replace("/", "%2F");
+    }
+
+    private static void addIfPresent(List<String> keys, String key) {
+        if (key != null && !keys.contains(key)) {
+            keys.add(key);
+        }
+    }
+}
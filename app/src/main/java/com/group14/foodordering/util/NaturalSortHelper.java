@@ -0,0 +1,59 @@
+package com.group14.foodordering.util;
+
+import java.util.Comparator;
+import java.util.Locale;
+
+/**
+ * Helper class for natural ordering of labels such as table numbers ("2" before "10", "A9" before "A10")
+ * sortKey turns a label into a string whose plain String order is the natural order, so it can be
+ * computed once and compared cheaply afterwards
+ */
+public class NaturalSortHelper {
+    // Marks a number run; sorts before every printable character, so numbers come before letters
+    private static final char NUMBER_MARK = '\u0001';
+
+    /**
+     * Compares labels in natural order, case-insensitively
+     */
+    public static final Comparator<String> NATURAL_ORDER = (a, b) -> {
+        int result = sortKey(a).compareTo(sortKey(b));
+        return result != 0 ? result : String.valueOf(a).compareTo(String.valueOf(b));
+    };
+
+    /**
+     * Get the sort key of a label: letters are lower-cased, and every run of digits is replaced
+     * by its length and its digits without leading zeros, so shorter numbers sort first
+     */
+    public static String sortKey(String label) {
+        if (label == null) {
+            return "";
+        }
+        String lower = label.trim().toLowerCase(Locale.ROOT);
+        StringBuilder key = new StringBuilder(lower.length() + 4);
+        int i = 0;
+        while (i < lower.length()) {
+            char c = lower.charAt(i);
+            if (!isDigit(c)) {
+                key.append(c);
+                i++;
+                continue;
+            }
+            int start = i;
+            while (i < lower.length() && isDigit(lower.charAt(i))) {
+                i++;
+            }
+            int significant = start;
+            while (significant < i - 1 && lower.charAt(significant) == '0') {
+                significant++;
+            }
+            key.append(NUMBER_MARK)
+                    .append((char) (i - significant)) // digit count; real labels stay far below 0xFFFF
+                    .append(lower, significant, i);
+        }
+        return key.toString();
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+}
@@ -1,13 +1,14 @@
 package com.group14.foodordering.util;
 
 import android.content.Context;
-import android.util.Log;
+
+import com.group14.foodordering.core.AccessRules;
 
 import java.util.List;
 
 /**
  * Permission Manager to check admin permissions
- * Provides methods to verify if admin has specific permissions
+ * Provides methods to verify if admin has specific permissions; the rules are AccessRules in the core module
  */
 public class PermissionManager {
     private static final String TAG = "PermissionManager";
@@ -29,18 +30,18 @@ public class PermissionManager {
      */
     public static boolean hasPermission(Context context, String permission) {
         if (!AdminSessionHelper.isAdminLoggedIn(context)) {
-            Log.d(TAG, "Admin not logged in");
+            AppLog.d(TAG, "Admin not logged in");
             return false;
         }
         
         List<String> permissions = AdminSessionHelper.getAdminPermissions(context);
         if (permissions == null || permissions.isEmpty()) {
-            Log.d(TAG, "No permissions found for admin");
+            AppLog.d(TAG, "No permissions found for admin");
             return false;
         }
         
-        boolean hasPermission = permissions.contains(permission);
-        Log.d(TAG, "Permission check - " + permission + ": " + hasPermission);
+        boolean hasPermission = AccessRules.hasPermission(permissions, permission);
+        AppLog.d(TAG, "Permission check - {}: {}", permission, hasPermission);
         return hasPermission;
     }
 
@@ -52,17 +53,7 @@ public class PermissionManager {
             return false;
         }
         
-        List<String> adminPermissions = AdminSessionHelper.getAdminPermissions(context);
-        if (adminPermissions == null || adminPermissions.isEmpty()) {
-            return false;
-        }
-        
-        for (String permission : permissions) {
-            if (adminPermissions.contains(permission)) {
-                return true;
-            }
-        }
-        return false;
+        return AccessRules.hasAnyPermission(AdminSessionHelper.getAdminPermissions(context), permissions);
     }
 
     /**
@@ -73,17 +64,7 @@ public class PermissionManager {
             return false;
         }
         
-        List<String> adminPermissions = AdminSessionHelper.getAdminPermissions(context);
-        if (adminPermissions == null || adminPermissions.isEmpty()) {
-            return false;
-        }
-        
-        for (String permission : permissions) {
-            if (!adminPermissions.contains(permission)) {
-                return false;
-            }
-        }
-        return true;
+        return AccessRules.hasAllPermissions(AdminSessionHelper.getAdminPermissions(context), permissions);
     }
 
     /**
@@ -2,7 +2,6 @@ package com.group14.foodordering.util;
 
 import android.content.Context;
 import android.content.SharedPreferences;
-import android.util.Log;
 
 /**
  * Helper class to manage restaurant selection in SharedPreferences
@@ -27,9 +26,9 @@ public class RestaurantPreferenceHelper {
         try {
             SharedPreferences prefs = getPrefs(context);
             prefs.edit().putString(KEY_SELECTED_RESTAURANT_ID, restaurantId).apply();
-            Log.d(TAG, "Saved selected restaurant ID: " + restaurantId);
+            AppLog.d(TAG, "Saved selected restaurant ID: {}", restaurantId);
         } catch (Exception e) {
-            Log.e(TAG, "Failed to save restaurant ID", e);
+            AppLog.e(TAG, "Failed to save restaurant ID", e);
         }
     }
 
@@ -40,10 +39,10 @@ public class RestaurantPreferenceHelper {
         try {
             SharedPreferences prefs = getPrefs(context);
             String restaurantId = prefs.getString(KEY_SELECTED_RESTAURANT_ID, null);
-            Log.d(TAG, "Retrieved selected restaurant ID: " + restaurantId);
+            AppLog.d(TAG, "Retrieved selected restaurant ID: {}", restaurantId);
             return restaurantId;
         } catch (Exception e) {
-            Log.e(TAG, "Failed to get restaurant ID", e);
+            AppLog.e(TAG, "Failed to get restaurant ID", e);
             return null;
         }
     }
@@ -55,9 +54,9 @@ public class RestaurantPreferenceHelper {
         try {
             SharedPreferences prefs = getPrefs(context);
             prefs.edit().putString(KEY_SELECTED_RESTAURANT_NAME, restaurantName).apply();
-            Log.d(TAG, "Saved selected restaurant name: " + restaurantName);
+            AppLog.d(TAG, "Saved selected restaurant name: {}", restaurantName);
         } catch (Exception e) {
-            Log.e(TAG, "Failed to save restaurant name", e);
+            AppLog.e(TAG, "Failed to save restaurant name", e);
         }
     }
 
@@ -68,10 +67,10 @@ public class RestaurantPreferenceHelper {
         try {
             SharedPreferences prefs = getPrefs(context);
             String restaurantName = prefs.getString(KEY_SELECTED_RESTAURANT_NAME, null);
-            Log.d(TAG, "Retrieved selected restaurant name: " + restaurantName);
+            AppLog.d(TAG, "Retrieved selected restaurant name: {}", restaurantName);
             return restaurantName;
         } catch (Exception e) {
-            Log.e(TAG, "Failed to get restaurant name", e);
+            AppLog.e(TAG, "Failed to get restaurant name", e);
             return null;
         }
     }
@@ -86,9 +85,9 @@ public class RestaurantPreferenceHelper {
                     .remove(KEY_SELECTED_RESTAURANT_ID)
                     .remove(KEY_SELECTED_RESTAURANT_NAME)
                     .apply();
-            Log.d(TAG, "Cleared selected restaurant");
+            AppLog.d(TAG, "Cleared selected restaurant");
         } catch (Exception e) {
-            Log.e(TAG, "Failed to clear restaurant", e);
+            AppLog.e(TAG, "Failed to clear restaurant", e);
         }
     }
 
@@ -0,0 +1,674 @@
+package com.group14.foodordering.service;
+
+import com.google.firebase.firestore.FirebaseFirestoreException;
+import com.group14.foodordering.model.MenuItem;
+import com.group14.foodordering.model.Order;
+import com.group14.foodordering.model.OrderCodec;
+import com.group14.foodordering.model.OrderItem;
+import com.group14.foodordering.model.User;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * Synthetic lunch rush: customer devices check out against an InMemoryDatastore while kitchen
+ * tablets listen to pending orders and move them along
+ * Customer devices follow MenuActivity's checkout: the customer read for points, findCheckout, the
+ * order number transaction, then placeOrder (the checkout transaction reserving stock) or, for a cart
+ * without tracked items, the order create through the device's outbox; then the table status update
+ * and the points increment. Kitchen tablets follow KitchenViewActivity: listenToPendingOrders, then
+ * blind status updates to preparing and, after the preparation time, to ready through the tablet's
+ * outbox. Transactions and outbox commits run the code of OrderWrites, as FirebaseDatabaseService does
+ */
+final class CheckoutLoadGenerator {
+    private static final String PROPERTY_PREFIX = "loadgen.";
+    private static final String RESTAURANT_ID = "rest_1";
+    private static final long DRAIN_TIMEOUT_MILLIS = 30_000;
+    private static final Predicate<Map<String, Object>> PENDING =
+            order -> "pending".equals(order.get("status")) || "preparing".equals(order.get("status"));
+
+    /**
+     * Devices, arrival rates and data of one run; the same seed gives every device the same arrivals and carts
+     */
+    static final class Scenario {
+        String name;
+        int customers;
+        int kitchens;
+        int ordersPerCustomer;
+        double arrivalsPerSecond; // Per customer device, Poisson arrivals
+        int accounts; // Signed-in customers shared by the devices
+        int maxItemsPerOrder;
+        int menuItems;
+        int trackedItems; // The first menu items have stock shards
+        int stockPerTrackedItem;
+        double dineInShare;
+        int tables;
+        long roundTripMicros;
+        long prepMillis;
+        long seed;
+
+        /**
+         * smoke: a quick run for the unit tests; lunchRush: a busy restaurant; counterStorm: many
+         * devices hitting the order number counter at once
+         */
+        static Scenario named(String name) {
+            Scenario scenario = new Scenario();
+            scenario.name = name;
+            scenario.seed = 42;
+            scenario.maxItemsPerOrder = 3;
+            scenario.dineInShare = 0.7;
+            switch (name) {
+                case "smoke":
+                    scenario.set(12, 2, 8, 40, 6, 25, 2, 30, 30, 500, 2);
+                    break;
+                case "lunchRush":
+                    scenario.set(60, 4, 20, 5, 40, 40, 3, 150, 40, 2_000, 20);
+                    scenario.maxItemsPerOrder = 4;
+                    break;
+                case "counterStorm":
+                    scenario.set(100, 2, 10, 50, 100, 25, 0, 0, 40, 2_000, 5);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown load scenario: " + name);
+            }
+            return scenario;
+        }
+
+        private void set(int customers, int kitchens, int ordersPerCustomer, double arrivalsPerSecond, int accounts,
+                         int menuItems, int trackedItems, int stockPerTrackedItem, int tables,
+                         long roundTripMicros, long prepMillis) {
+            this.customers = customers;
+            this.kitchens = kitchens;
+            this.ordersPerCustomer = ordersPerCustomer;
+            this.arrivalsPerSecond = arrivalsPerSecond;
+            this.accounts = accounts;
+            this.menuItems = menuItems;
+            this.trackedItems = trackedItems;
+            this.stockPerTrackedItem = stockPerTrackedItem;
+            this.tables = tables;
+            this.roundTripMicros = roundTripMicros;
+            this.prepMillis = prepMillis;
+        }
+
+        /**
+         * The scenario named by loadgen.scenario (smoke by default) with any other loadgen.* property
+         * applied, e.g. -Dloadgen.customers=80 -Dloadgen.seed=7
+         */
+        static Scenario fromProperties(Properties properties) {
+            Scenario scenario = named(properties.getProperty(PROPERTY_PREFIX + "scenario", "smoke"));
+            scenario.customers = intOf(properties, "customers", scenario.customers);
+            scenario.kitchens = intOf(properties, "kitchens", scenario.kitchens);
+            scenario.ordersPerCustomer = intOf(properties, "ordersPerCustomer", scenario.ordersPerCustomer);
+            scenario.arrivalsPerSecond = Double.parseDouble(properties.getProperty(PROPERTY_PREFIX + "arrivalsPerSecond",
+                    String.valueOf(scenario.arrivalsPerSecond)));
+            scenario.accounts = intOf(properties, "accounts", scenario.accounts);
+            scenario.maxItemsPerOrder = intOf(properties, "maxItemsPerOrder", scenario.maxItemsPerOrder);
+            scenario.menuItems = intOf(properties, "menuItems", scenario.menuItems);
+            scenario.trackedItems = intOf(properties, "trackedItems", scenario.trackedItems);
+            scenario.stockPerTrackedItem = intOf(properties, "stockPerTrackedItem", scenario.stockPerTrackedItem);
+            scenario.dineInShare = Double.parseDouble(properties.getProperty(PROPERTY_PREFIX + "dineInShare",
+                    String.valueOf(scenario.dineInShare)));
+            scenario.tables = intOf(properties, "tables", scenario.tables);
+            scenario.roundTripMicros = intOf(properties, "roundTripMicros", (int) scenario.roundTripMicros);
+            scenario.prepMillis = intOf(properties, "prepMillis", (int) scenario.prepMillis);
+            scenario.seed = Long.parseLong(properties.getProperty(PROPERTY_PREFIX + "seed", String.valueOf(scenario.seed)));
+            return scenario;
+        }
+
+        private static int intOf(Properties properties, String key, int fallback) {
+            return Integer.parseInt(properties.getProperty(PROPERTY_PREFIX + key, String.valueOf(fallback)));
+        }
+
+        int checkouts() {
+            return customers * ordersPerCustomer;
+        }
+    }
+
+    /**
+     * Outcome of a run
+     */
+    static final class Report {
+        final Scenario scenario;
+        final ServiceMetrics metrics;
+        final Map<String, InMemoryDatastore.Contention> contention;
+        long wallNanos;
+        int placed;
+        int soldOut;
+        int failed;
+        int duplicates; // Checkouts answered with an order created before
+        int orderIdsReused; // Order numbers that wrapped onto an order still in the store
+        int droppedWrites; // Outbox writes that failed permanently
+        int unsentWrites; // Outbox writes not committed when the drain timed out
+        int stuckOrders; // Orders not ready when the kitchen drain timed out
+        long stockTaken; // Sum of the committed reservations
+        long stockRemoved; // Initial minus remaining shard stock
+        int negativeShards;
+        long pointsAwarded;
+        long pointsLost; // Awarded but not in the customer document
+        long snapshots;
+        long snapshotDocuments;
+
+        Report(Scenario scenario, ServiceMetrics metrics, Map<String, InMemoryDatastore.Contention> contention) {
+            this.scenario = scenario;
+            this.metrics = metrics;
+            this.contention = contention;
+        }
+
+        double seconds() {
+            return wallNanos / 1e9;
+        }
+
+        double throughput() {
+            return placed / seconds();
+        }
+
+        String format() {
+            StringBuilder text = new StringBuilder();
+            text.append(String.format(Locale.ROOT, "Checkout load \"%s\" (seed %d): %d customers, %d kitchen tablets, "
+                            + "%.1f arrivals/s per device, %d us round trips%n", scenario.name, scenario.seed,
+                    scenario.customers, scenario.kitchens, scenario.arrivalsPerSecond, scenario.roundTripMicros));
+            text.append(String.format(Locale.ROOT, "%d checkouts in %.2f s: %d placed (%.1f/s), %d sold out, %d failed, "
+                            + "%d duplicates, %d order numbers reused, %d stuck in the kitchen%n",
+                    scenario.checkouts(), seconds(), placed, throughput(), soldOut, failed, duplicates,
+                    orderIdsReused, stuckOrders));
+            text.append(String.format(Locale.ROOT, "Outboxes: %d writes dropped, %d unsent%n",
+                    droppedWrites, unsentWrites));
+            text.append(String.format(Locale.ROOT, "%-26s %7s %7s %8s %8s %8s %8s%n",
+                    "operation", "calls", "failed", "p50 ms", "p95 ms", "p99 ms", "max ms"));
+            for (ServiceMetrics.OperationStats stats : metrics.getStats().values()) {
+                text.append(String.format(Locale.ROOT, "%-26s %7d %7d %8d %8d %8d %8d%n", stats.getOperation(),
+                        stats.getCalls(), stats.getFailures(), stats.getPercentileMillis(0.5),
+                        stats.getPercentileMillis(0.95), stats.getPercentileMillis(0.99), stats.getMaxMillis()));
+            }
+            text.append(String.format(Locale.ROOT, "%-26s %9s %8s %10s%n", "transaction", "attempts", "retries", "exhausted"));
+            for (Map.Entry<String, InMemoryDatastore.Contention> entry : new java.util.TreeMap<>(contention).entrySet()) {
+                InMemoryDatastore.Contention stats = entry.getValue();
+                text.append(String.format(Locale.ROOT, "%-26s %9d %8d %10d%n", entry.getKey(),
+                        stats.attempts.get(), stats.retries.get(), stats.exhausted.get()));
+            }
+            text.append(String.format(Locale.ROOT, "Kitchen listeners: %d snapshots, %d order documents delivered%n",
+                    snapshots, snapshotDocuments));
+            text.append(String.format(Locale.ROOT, "Stock: %d reserved, %d removed from shards, %d negative shards%n",
+                    stockTaken, stockRemoved, negativeShards));
+            text.append(String.format(Locale.ROOT, "Points: %d awarded, %d lost%n",
+                    pointsAwarded, pointsLost));
+            return text.toString();
+        }
+    }
+
+    private final Scenario scenario;
+    private final InMemoryDatastore store;
+    private final ServiceMetrics metrics = new ServiceMetrics();
+    private final List<WriteOutbox> outboxes = new CopyOnWriteArrayList<>();
+    private final List<ExecutorService> outboxThreads = new CopyOnWriteArrayList<>();
+    private final List<MenuItem> menu = new ArrayList<>();
+    private final Map<String, ServiceMetrics.Call> awaitingKitchen = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> pointsByAccount = new ConcurrentHashMap<>();
+    private final AtomicInteger placed = new AtomicInteger();
+    private final AtomicInteger soldOut = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private final AtomicInteger duplicates = new AtomicInteger();
+    private final AtomicInteger orderIdsReused = new AtomicInteger();
+    private final AtomicInteger droppedWrites = new AtomicInteger();
+    private final AtomicLong stockTaken = new AtomicLong();
+    private final AtomicLong snapshots = new AtomicLong();
+    private final AtomicLong snapshotDocuments = new AtomicLong();
+    private File journals;
+
+    CheckoutLoadGenerator(Scenario scenario) {
+        this.scenario = scenario;
+        this.store = new InMemoryDatastore(scenario.roundTripMicros);
+    }
+
+    /**
+     * Run the customers to the end, then let the outboxes and the kitchen finish the open orders
+     */
+    Report run() throws IOException, InterruptedException {
+        journals = Files.createTempDirectory("loadgen").toFile();
+        try {
+            return runInJournals();
+        } finally {
+            File[] files = journals.listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    file.delete();
+                }
+            }
+            journals.delete();
+        }
+    }
+
+    private Report runInJournals() throws InterruptedException {
+        seed();
+        List<KitchenTablet> tablets = new ArrayList<>();
+        for (int tablet = 0; tablet < scenario.kitchens; tablet++) {
+            tablets.add(new KitchenTablet(tablet));
+        }
+
+        long start = System.nanoTime();
+        ExecutorService devices = Executors.newFixedThreadPool(scenario.customers);
+        for (int device = 0; device < scenario.customers; device++) {
+            int index = device;
+            devices.execute(() -> runDevice(index));
+        }
+        devices.shutdown();
+        devices.awaitTermination(10, TimeUnit.MINUTES);
+
+        long drainDeadline = System.currentTimeMillis() + DRAIN_TIMEOUT_MILLIS;
+        while (!drained() && System.currentTimeMillis() < drainDeadline) {
+            for (WriteOutbox outbox : outboxes) {
+                outbox.flush(); // Sends again what failed to commit, as when connectivity returns
+            }
+            Thread.sleep(5);
+        }
+        long wallNanos = System.nanoTime() - start;
+        for (KitchenTablet tablet : tablets) {
+            tablet.stop();
+        }
+        store.closeListeners(5_000);
+        for (ExecutorService thread : outboxThreads) {
+            thread.shutdown();
+            thread.awaitTermination(5, TimeUnit.SECONDS);
+        }
+
+        Report report = new Report(scenario, metrics, store.getContention());
+        report.wallNanos = wallNanos;
+        report.placed = placed.get();
+        report.soldOut = soldOut.get();
+        report.failed = failed.get();
+        report.duplicates = duplicates.get();
+        report.orderIdsReused = orderIdsReused.get();
+        report.droppedWrites = droppedWrites.get();
+        report.stuckOrders = store.query("orders", PENDING).size();
+        for (WriteOutbox outbox : outboxes) {
+            report.unsentWrites += outbox.getPendingCount();
+        }
+        report.stockTaken = stockTaken.get();
+        for (int item = 0; item < scenario.trackedItems; item++) {
+            long remaining = 0;
+            for (int shard = 0; shard < StockReservations.SHARDS; shard++) {
+                long available = ((Number) store.peek(OrderWrites.stockShardPath(menuItemId(item), shard))
+                        .get("available")).longValue();
+                remaining += available;
+                if (available < 0) {
+                    report.negativeShards++;
+                }
+            }
+            report.stockRemoved += scenario.stockPerTrackedItem - remaining;
+        }
+        for (Map.Entry<String, AtomicLong> entry : pointsByAccount.entrySet()) {
+            long stored = ((Number) store.peek("users/" + entry.getKey()).get("points")).longValue();
+            report.pointsAwarded += entry.getValue().get();
+            report.pointsLost += entry.getValue().get() - stored;
+        }
+        report.snapshots = snapshots.get();
+        report.snapshotDocuments = snapshotDocuments.get();
+        return report;
+    }
+
+    private boolean drained() {
+        for (WriteOutbox outbox : outboxes) {
+            if (outbox.getPendingCount() > 0) {
+                return false;
+            }
+        }
+        return store.query("orders", PENDING).isEmpty();
+    }
+
+    private void seed() {
+        for (int item = 0; item < scenario.menuItems; item++) {
+            MenuItem menuItem = new MenuItem(menuItemId(item), "Item " + item, "", 8 + item % 20, "Mains");
+            if (item < scenario.trackedItems) {
+                menuItem.setStock(scenario.stockPerTrackedItem);
+                long[] shards = StockReservations.split(scenario.stockPerTrackedItem);
+                for (int shard = 0; shard < StockReservations.SHARDS; shard++) {
+                    Map<String, Object> shardData = new HashMap<>();
+                    shardData.put("available", shards[shard]);
+                    store.set(OrderWrites.stockShardPath(menuItem.getItemId(), shard), shardData);
+                }
+            }
+            menu.add(menuItem);
+        }
+        for (int account = 0; account < scenario.accounts; account++) {
+            User user = new User("user_" + account, "user" + account + "@example.com", "Customer " + account, "", "customer");
+            store.set("users/" + user.getUserId(), user.toMap());
+            pointsByAccount.put(user.getUserId(), new AtomicLong());
+        }
+        for (int table = 0; table < scenario.tables; table++) {
+            Map<String, Object> tableData = new HashMap<>();
+            tableData.put("tableId", "table_" + table);
+            tableData.put("status", "available");
+            store.set("tables/table_" + table, tableData);
+        }
+    }
+
+    /**
+     * A device's write outbox, committing to the store like FirebaseDatabaseService's outbox sink
+     * Commits are sent one after the other, as the SDK sends a client's writes in order
+     */
+    private WriteOutbox newOutbox(String device) {
+        ExecutorService thread = Executors.newSingleThreadExecutor();
+        ExecutorService network = Executors.newSingleThreadExecutor();
+        outboxThreads.add(thread);
+        outboxThreads.add(network);
+        WriteOutbox outbox = new WriteOutbox(new File(journals, device + ".journal"),
+                (records, callback) -> commitOutbox(network, records, callback),
+                (record, e) -> droppedWrites.incrementAndGet(), thread);
+        outboxes.add(outbox);
+        return outbox;
+    }
+
+    private void commitOutbox(ExecutorService network, List<WriteOutbox.Record> records, WriteOutbox.SinkCallback callback) {
+        network.execute(() -> {
+            ServiceMetrics.Call call = metrics.start("flushOutbox");
+            try {
+                if (OrderWrites.hasCreates(records)) {
+                    store.runTransaction("flushOutbox", transaction -> {
+                        OrderWrites.commitRecords(transaction, records);
+                        return null;
+                    });
+                } else {
+                    store.batch(batch -> {
+                        OrderWrites.commitRecords(batch, records);
+                        return null;
+                    });
+                }
+                call.succeed();
+                callback.onCommitted();
+            } catch (FirebaseFirestoreException e) {
+                call.fail();
+                callback.onFailed(e, false);
+            }
+        });
+    }
+
+    private void runDevice(int device) {
+        Random random = new Random(scenario.seed * 1_000_003L + device);
+        OrderNumbers orderNumbers = new OrderNumbers(); // Each device's FirebaseDatabaseService has its own
+        WriteOutbox outbox = newOutbox("device_" + device);
+        for (int i = 0; i < scenario.ordersPerCustomer; i++) {
+            // Exponential gaps between a device's checkouts
+            double gapSeconds = -Math.log(1 - random.nextDouble()) / scenario.arrivalsPerSecond;
+            try {
+                Thread.sleep((long) (gapSeconds * 1000));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            String account = "user_" + random.nextInt(scenario.accounts);
+            Map<String, Integer> cart = new LinkedHashMap<>();
+            int lines = 1 + random.nextInt(scenario.maxItemsPerOrder);
+            for (int line = 0; line < lines; line++) {
+                cart.merge(menuItemId(random.nextInt(scenario.menuItems)), 1 + random.nextInt(2), Integer::sum);
+            }
+            String tableId = random.nextDouble() < scenario.dineInShare ? "table_" + random.nextInt(scenario.tables) : null;
+            checkout(account, cart, tableId, new UUID(random.nextLong(), random.nextLong()).toString(),
+                    orderNumbers, outbox, random);
+        }
+    }
+
+    private void checkout(String account, Map<String, Integer> cart, String tableId, String idempotencyKey,
+                          OrderNumbers orderNumbers, WriteOutbox outbox, Random random) {
+        ServiceMetrics.Call checkout = metrics.start("checkout");
+        try {
+            // The app reads the customer alongside the order number, before the order is placed
+            Map<String, Object> customer = timed("getUserById", () -> store.get("users/" + account));
+            String foundId = timed("findCheckout", () -> findCheckout(outbox, idempotencyKey));
+            if (foundId != null) {
+                duplicates.incrementAndGet();
+                checkout.succeed();
+                return;
+            }
+            String orderId = timed("getNextOrderNumber", () -> nextOrderNumber(orderNumbers));
+
+            Order order = new Order(orderId, tableId != null ? "dine_in" : "takeaway");
+            order.setUserId(account);
+            order.setRestaurantId(RESTAURANT_ID);
+            if (tableId != null) {
+                order.setTableNumber(tableId);
+            }
+            for (Map.Entry<String, Integer> entry : cart.entrySet()) {
+                order.addItem(new OrderItem(entry.getKey(), "Item " + entry.getKey(), entry.getValue(),
+                        8 + Math.floorMod(entry.getKey().hashCode(), 20)));
+            }
+            if (store.peek("orders/" + orderId) != null) {
+                orderIdsReused.incrementAndGet(); // The counter wrapped onto an order that is still stored
+            }
+
+            // As FirebaseDatabaseService.placeOrder with the menu: only carts with tracked items need the transaction
+            String placedId = StockReservations.tracksAny(order, menu)
+                    ? timed("placeOrder", () -> placeOrder(order, idempotencyKey, random))
+                    : timed("createOrder", () -> createOrder(outbox, order, idempotencyKey));
+            if (!orderId.equals(placedId)) {
+                duplicates.incrementAndGet();
+                checkout.succeed();
+                return;
+            }
+            placed.incrementAndGet();
+            awaitingKitchen.put(orderId + ":" + order.getCreatedAt(), metrics.start("orderReachesKitchen"));
+
+            if (tableId != null) {
+                timed("updateTableStatus", () -> {
+                    Map<String, Object> updates = new HashMap<>();
+                    updates.put("status", "occupied");
+                    updates.put("updatedAt", System.currentTimeMillis());
+                    store.update("tables/" + tableId, updates);
+                    return null;
+                });
+            }
+            int points = (int) order.getTotal();
+            if (points > 0 && customer != null) {
+                timed("addUserPoints", () -> {
+                    store.increment("users/" + account, "points", points);
+                    pointsByAccount.get(account).addAndGet(points);
+                    return null;
+                });
+            }
+            checkout.succeed();
+        } catch (FirebaseDatabaseService.OutOfStockException e) {
+            soldOut.incrementAndGet();
+            checkout.fail();
+        } catch (Exception e) {
+            failed.incrementAndGet();
+            checkout.fail();
+        }
+    }
+
+    /**
+     * findCheckout: the device's outbox, then the checkout record
+     */
+    private String findCheckout(WriteOutbox outbox, String idempotencyKey) throws Exception {
+        CompletableFuture<String> pending = new CompletableFuture<>();
+        outbox.find(idempotencyKey, pending::complete);
+        String orderId = pending.get();
+        if (orderId != null) {
+            return orderId;
+        }
+        Map<String, Object> record = store.get(FirebaseDatabaseService.COLLECTION_CHECKOUTS + "/" + idempotencyKey);
+        return record != null ? (String) record.get("orderId") : null;
+    }
+
+    /**
+     * getNextOrderNumber: a number from the device's block, or the transaction claiming the next block
+     */
+    private String nextOrderNumber(OrderNumbers orderNumbers) throws FirebaseFirestoreException {
+        Long number = orderNumbers.poll();
+        if (number == null) {
+            number = orderNumbers.claimed(store.runTransaction("getNextOrderNumber", OrderWrites::claimOrderNumbers));
+        }
+        return String.format(Locale.ROOT, "%04d", number);
+    }
+
+    /**
+     * placeOrder: the checkout transaction of OrderWrites
+     */
+    private String placeOrder(Order order, String idempotencyKey, Random random) throws FirebaseFirestoreException {
+        Map<String, Integer> quantities = OrderWrites.quantities(order);
+        Map<String, Object> orderMap = order.toMap();
+        orderMap.put("updatedAt", System.currentTimeMillis());
+        OrderWrites.Placement placement = store.runTransaction("placeOrder", transaction -> OrderWrites.placeOrder(
+                transaction, order.getOrderId(), orderMap, quantities, idempotencyKey, random));
+        if (placement.plan != null) {
+            for (long[] taken : placement.plan.taken.values()) {
+                for (long quantity : taken) {
+                    stockTaken.addAndGet(quantity);
+                }
+            }
+        }
+        return placement.orderId;
+    }
+
+    /**
+     * createOrder: the order is queued in the device's outbox; the checkout goes on once it is journaled
+     */
+    private String createOrder(WriteOutbox outbox, Order order, String idempotencyKey) throws Exception {
+        Map<String, Object> orderMap = order.toMap();
+        orderMap.put("updatedAt", System.currentTimeMillis());
+        CompletableFuture<String> accepted = new CompletableFuture<>();
+        outbox.enqueue(idempotencyKey, order.getOrderId(), Collections.singletonList(WriteOutbox.Operation.create(
+                FirebaseDatabaseService.COLLECTION_ORDERS, order.getOrderId(), orderMap)), new WriteOutbox.EnqueueCallback() {
+            @Override
+            public void onAccepted(String documentId) {
+                accepted.complete(documentId);
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                accepted.completeExceptionally(e);
+            }
+        });
+        return accepted.get();
+    }
+
+    /**
+     * A kitchen tablet: listens to pending and preparing orders and works on its share of them
+     * Orders are shared out by order ID, as stations would split the tickets
+     */
+    private final class KitchenTablet {
+        private final int index;
+        private final ScheduledExecutorService worker = Executors.newSingleThreadScheduledExecutor();
+        private final Set<String> claimed = ConcurrentHashMap.newKeySet();
+        private final ServiceMetrics.Watch watch = metrics.watch("listenToPendingOrders");
+        private final WriteOutbox outbox;
+        private final InMemoryDatastore.Registration registration;
+
+        KitchenTablet(int index) {
+            this.index = index;
+            this.outbox = newOutbox("kitchen_" + index);
+            this.registration = store.listen("orders", PENDING, this::onSnapshot);
+        }
+
+        private void onSnapshot(List<Map<String, Object>> documents) {
+            long bytes = 0;
+            List<Order> orders = new ArrayList<>();
+            for (Map<String, Object> document : documents) {
+                bytes += ServiceMetrics.estimateDocumentBytes("orders/" + document.get("orderId"), document);
+                orders.add(OrderCodec.fromMap(document));
+            }
+            watch.onSnapshot(documents.size(), bytes, false);
+            snapshots.incrementAndGet();
+            snapshotDocuments.addAndGet(documents.size());
+            // Sort by createdAt (oldest first), as the listener does
+            orders.sort(Comparator.comparingLong(Order::getCreatedAt));
+            for (Order order : orders) {
+                String key = order.getOrderId() + ":" + order.getCreatedAt();
+                ServiceMetrics.Call reached = awaitingKitchen.remove(key);
+                if (reached != null) {
+                    reached.succeed();
+                }
+                if (!"pending".equals(order.getStatus())
+                        || Math.floorMod(order.getOrderId().hashCode(), scenario.kitchens) != index
+                        || !claimed.add(key)) {
+                    continue;
+                }
+                String orderId = order.getOrderId();
+                worker.execute(() -> {
+                    updateOrderStatus(orderId, "preparing");
+                    worker.schedule(() -> updateOrderStatus(orderId, "ready"), scenario.prepMillis, TimeUnit.MILLISECONDS);
+                });
+            }
+        }
+
+        /**
+         * updateOrderStatuses as KitchenViewActivity calls it: a blind update through the outbox,
+         * reported once the server has it
+         */
+        private void updateOrderStatus(String orderId, String status) {
+            ServiceMetrics.Call call = metrics.start("updateOrderStatus");
+            outbox.enqueue(UUID.randomUUID().toString(), orderId,
+                    Collections.singletonList(OrderWrites.statusUpdate(orderId, status, System.currentTimeMillis())),
+                    new WriteOutbox.EnqueueCallback() {
+                        @Override
+                        public void onAccepted(String documentId) {
+                        }
+
+                        @Override
+                        public void onFailure(Exception e) {
+                            call.fail();
+                        }
+                    }, new WriteOutbox.CommitCallback() {
+                        @Override
+                        public void onCommitted(String documentId) {
+                            call.succeed();
+                        }
+
+                        @Override
+                        public void onDropped(Exception e) {
+                            call.fail();
+                        }
+                    });
+        }
+
+        void stop() throws InterruptedException {
+            registration.remove();
+            worker.shutdown();
+            worker.awaitTermination(5, TimeUnit.SECONDS);
+        }
+    }
+
+    private interface Step<T> {
+        T run() throws Exception;
+    }
+
+    /**
+     * Time one step of the checkout as its own operation
+     */
+    private <T> T timed(String operation, Step<T> step) throws Exception {
+        ServiceMetrics.Call call = metrics.start(operation);
+        try {
+            T result = step.run();
+            call.succeed();
+            return result;
+        } catch (Exception e) {
+            call.fail();
+            throw e;
+        }
+    }
+
+    private static String menuItemId(int item) {
+        return "item_" + item;
+    }
+}
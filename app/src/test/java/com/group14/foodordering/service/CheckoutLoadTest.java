@@ -0,0 +1,52 @@
+package com.group14.foodordering.service;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Multi-device checkout load against the in-memory datastore
+ * The load run is opt-in: pick a scenario and override it with -Dloadgen.* properties, e.g.
+ * ./gradlew :app:testDebugUnitTest --tests '*CheckoutLoadTest*' -Dloadgen.scenario=lunchRush -Dloadgen.seed=7
+ */
+public class CheckoutLoadTest {
+
+    @Test
+    public void checkoutLoad_keepsStockOrdersAndCountersConsistent() throws Exception {
+        Assume.assumeTrue("set -Dloadgen.scenario to run the checkout load", System.getProperty("loadgen.scenario") != null);
+        CheckoutLoadGenerator.Scenario scenario = CheckoutLoadGenerator.Scenario.fromProperties(System.getProperties());
+
+        CheckoutLoadGenerator.Report report = new CheckoutLoadGenerator(scenario).run();
+        System.out.print(report.format());
+
+        assertEquals(scenario.checkouts(), report.placed + report.soldOut + report.failed + report.duplicates);
+        assertEquals(0, report.negativeShards);
+        assertEquals(report.stockTaken, report.stockRemoved);
+        assertEquals(0, report.stuckOrders);
+        assertEquals(0, report.droppedWrites);
+        assertEquals(0, report.unsentWrites);
+        assertEquals(0, report.duplicates);
+        assertEquals(0, report.pointsLost);
+        assertEquals(0, report.contention.get("getNextOrderNumber").exhausted.get());
+        assertEquals(0, report.metrics.getStats().get("getNextOrderNumber").getFailures());
+    }
+
+    @Test
+    public void scenario_isConfiguredFromProperties() {
+        java.util.Properties properties = new java.util.Properties();
+        properties.setProperty("loadgen.scenario", "lunchRush");
+        properties.setProperty("loadgen.customers", "7");
+        properties.setProperty("loadgen.arrivalsPerSecond", "2.5");
+        properties.setProperty("loadgen.seed", "99");
+
+        CheckoutLoadGenerator.Scenario scenario = CheckoutLoadGenerator.Scenario.fromProperties(properties);
+
+        assertEquals("lunchRush", scenario.name);
+        assertEquals(7, scenario.customers);
+        assertEquals(4, scenario.kitchens);
+        assertEquals(2.5, scenario.arrivalsPerSecond, 0);
+        assertEquals(99, scenario.seed);
+        assertEquals(7 * 20, scenario.checkouts());
+    }
+}
@@ -0,0 +1,355 @@
+package com.group14.foodordering.service;
+
+import com.google.firebase.firestore.FirebaseFirestoreException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * In-memory stand-in for Firestore used by the checkout load generator
+ * Documents are kept by path with a version. Transactions are optimistic like the SDK's: they
+ * commit only if no document they read changed since, and retry up to MAX_ATTEMPTS times with
+ * the SDK's backoff.
+ * Query listeners get a snapshot after commits touching their collection, on their own thread;
+ * commits made while one is still queued are delivered together.
+ * Every server round trip (a get, a transaction read, a commit) costs the configured latency
+ */
+final class InMemoryDatastore {
+    // The SDK's default for runTransaction
+    static final int MAX_ATTEMPTS = 5;
+    // The SDK's backoff between transaction attempts: 1 s, growing 1.5 times, each with +-50% jitter
+    static final long RETRY_INITIAL_MILLIS = 1_000;
+    static final double RETRY_BACKOFF_FACTOR = 1.5;
+
+    private final long roundTripNanos;
+    private final Map<String, Document> documents = new HashMap<>();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final Map<String, Contention> contention = new ConcurrentHashMap<>();
+
+    private static final class Document {
+        final long version;
+        final Map<String, Object> data;
+
+        Document(long version, Map<String, Object> data) {
+            this.version = version;
+            this.data = data;
+        }
+    }
+
+    /**
+     * Attempts, retries and transactions that ran out of attempts, per transaction name
+     */
+    static final class Contention {
+        final AtomicLong attempts = new AtomicLong();
+        final AtomicLong commits = new AtomicLong();
+        final AtomicLong retries = new AtomicLong();
+        final AtomicLong exhausted = new AtomicLong();
+    }
+
+    interface TransactionBody<T> {
+        T apply(Transaction transaction) throws FirebaseFirestoreException;
+    }
+
+    /**
+     * Reads and buffered writes of one transaction attempt, or the writes of a batch
+     */
+    final class Transaction implements OrderWrites.Documents {
+        private final Map<String, Long> readVersions = new HashMap<>();
+        private final List<Write> writes = new ArrayList<>();
+
+        /**
+         * @return a copy of the document data, or null if it does not exist
+         */
+        @Override
+        public Map<String, Object> get(String path) {
+            roundTrip();
+            synchronized (InMemoryDatastore.this) {
+                Document document = documents.get(path);
+                readVersions.put(path, document != null ? document.version : 0L);
+                return document != null ? new HashMap<>(document.data) : null;
+            }
+        }
+
+        @Override
+        public void set(String path, Map<String, Object> data) {
+            writes.add(new Write(path, data, false, null, 0));
+        }
+
+        @Override
+        public void update(String path, Map<String, Object> fields) {
+            writes.add(new Write(path, fields, true, null, 0));
+        }
+
+        @Override
+        public void increment(String path, String field, long delta) {
+            writes.add(new Write(path, null, true, field, delta));
+        }
+    }
+
+    private static final class Write {
+        final String path;
+        final Map<String, Object> data;
+        final boolean merge;
+        final String incrementField;
+        final long delta;
+
+        Write(String path, Map<String, Object> data, boolean merge, String incrementField, long delta) {
+            this.path = path;
+            this.data = data;
+            this.merge = merge;
+            this.incrementField = incrementField;
+            this.delta = delta;
+        }
+    }
+
+    /**
+     * A query listener on a top-level collection
+     */
+    interface Registration {
+        void remove();
+    }
+
+    private final class Listener implements Registration {
+        final String collection;
+        final Predicate<Map<String, Object>> filter;
+        final Consumer<List<Map<String, Object>>> consumer;
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        // Set while a snapshot is queued; changes made before it runs are in it, as Firestore coalesces them
+        final AtomicBoolean queued = new AtomicBoolean();
+
+        Listener(String collection, Predicate<Map<String, Object>> filter, Consumer<List<Map<String, Object>>> consumer) {
+            this.collection = collection;
+            this.filter = filter;
+            this.consumer = consumer;
+        }
+
+        /**
+         * No snapshot is delivered once this returns
+         */
+        @Override
+        public void remove() {
+            listeners.remove(this);
+            executor.shutdownNow();
+            try {
+                executor.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        void changed() {
+            if (executor.isShutdown() || !queued.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                executor.execute(() -> {
+                    List<Map<String, Object>> snapshot;
+                    synchronized (InMemoryDatastore.this) {
+                        queued.set(false);
+                        snapshot = query(collection, filter);
+                    }
+                    consumer.accept(snapshot);
+                });
+            } catch (RejectedExecutionException e) {
+                // Removed meanwhile
+            }
+        }
+
+        boolean awaitIdle(long timeoutMillis) throws InterruptedException {
+            executor.shutdown();
+            return executor.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    InMemoryDatastore(long roundTripMicros) {
+        this.roundTripNanos = TimeUnit.MICROSECONDS.toNanos(roundTripMicros);
+    }
+
+    /**
+     * Run a transaction, retrying while a document it read was changed by another commit
+     * @throws FirebaseFirestoreException ABORTED after MAX_ATTEMPTS, or what the body threw
+     */
+    <T> T runTransaction(String name, TransactionBody<T> body) throws FirebaseFirestoreException {
+        Contention stats = contention.computeIfAbsent(name, key -> new Contention());
+        for (int attempt = 1; ; attempt++) {
+            stats.attempts.incrementAndGet();
+            Transaction transaction = new Transaction();
+            T result = body.apply(transaction);
+            roundTrip(); // commit
+            synchronized (this) {
+                boolean unchanged = true;
+                for (Map.Entry<String, Long> read : transaction.readVersions.entrySet()) {
+                    Document current = documents.get(read.getKey());
+                    unchanged &= (current != null ? current.version : 0L) == read.getValue();
+                }
+                if (unchanged) {
+                    apply(transaction.writes);
+                    stats.commits.incrementAndGet();
+                    return result;
+                }
+            }
+            if (attempt == MAX_ATTEMPTS) {
+                stats.exhausted.incrementAndGet();
+                throw new FirebaseFirestoreException("Transaction " + name + " failed after " + attempt + " attempts",
+                        FirebaseFirestoreException.Code.ABORTED);
+            }
+            stats.retries.incrementAndGet();
+            double delayMillis = RETRY_INITIAL_MILLIS * Math.pow(RETRY_BACKOFF_FACTOR, attempt - 1);
+            LockSupport.parkNanos((long) (delayMillis * (0.5 + ThreadLocalRandom.current().nextDouble()) * 1_000_000));
+        }
+    }
+
+    /**
+     * Commit the writes of body in one round trip, without checking what it read (a WriteBatch)
+     */
+    void batch(TransactionBody<?> body) throws FirebaseFirestoreException {
+        Transaction batch = new Transaction();
+        body.apply(batch);
+        roundTrip();
+        synchronized (this) {
+            apply(batch.writes);
+        }
+    }
+
+    /**
+     * Single document read
+     */
+    Map<String, Object> get(String path) {
+        roundTrip();
+        return peek(path);
+    }
+
+    void set(String path, Map<String, Object> data) {
+        roundTrip();
+        synchronized (this) {
+            apply(Collections.singletonList(new Write(path, data, false, null, 0)));
+        }
+    }
+
+    void update(String path, Map<String, Object> fields) {
+        roundTrip();
+        synchronized (this) {
+            apply(Collections.singletonList(new Write(path, fields, true, null, 0)));
+        }
+    }
+
+    /**
+     * Add to a number field on the server (FieldValue.increment)
+     */
+    void increment(String path, String field, long delta) {
+        roundTrip();
+        synchronized (this) {
+            apply(Collections.singletonList(new Write(path, null, true, field, delta)));
+        }
+    }
+
+    /**
+     * Document data without a round trip, for setting up and checking the store
+     */
+    synchronized Map<String, Object> peek(String path) {
+        Document document = documents.get(path);
+        return document != null ? new HashMap<>(document.data) : null;
+    }
+
+    /**
+     * Documents of a top-level collection, without a round trip
+     */
+    synchronized List<Map<String, Object>> query(String collection, Predicate<Map<String, Object>> filter) {
+        List<Map<String, Object>> result = new ArrayList<>();
+        String prefix = collection + "/";
+        for (Map.Entry<String, Document> entry : documents.entrySet()) {
+            String path = entry.getKey();
+            if (path.startsWith(prefix) && path.indexOf('/', prefix.length()) < 0 && filter.test(entry.getValue().data)) {
+                result.add(new HashMap<>(entry.getValue().data));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Listen to the documents of a top-level collection that pass the filter
+     * The first snapshot is delivered right away
+     */
+    Registration listen(String collection, Predicate<Map<String, Object>> filter, Consumer<List<Map<String, Object>>> consumer) {
+        Listener listener = new Listener(collection, filter, consumer);
+        synchronized (this) {
+            listeners.add(listener);
+            listener.changed();
+        }
+        return listener;
+    }
+
+    /**
+     * Stop all listeners after they delivered what is queued
+     */
+    boolean closeListeners(long timeoutMillis) throws InterruptedException {
+        boolean idle = true;
+        for (Listener listener : listeners) {
+            idle &= listener.awaitIdle(timeoutMillis);
+        }
+        listeners.clear();
+        return idle;
+    }
+
+    Map<String, Contention> getContention() {
+        return contention;
+    }
+
+    /**
+     * Apply writes under the lock, then send the listeners of the touched collections a snapshot
+     */
+    private void apply(List<Write> writes) {
+        Set<String> touched = new HashSet<>();
+        Map<String, Map<String, Object>> written = new LinkedHashMap<>();
+        for (Write write : writes) {
+            Map<String, Object> data = written.get(write.path);
+            if (data == null) {
+                Document current = documents.get(write.path);
+                data = current != null && write.merge ? new HashMap<>(current.data) : new HashMap<>();
+            } else if (!write.merge) {
+                data = new HashMap<>();
+            }
+            if (write.incrementField != null) {
+                Object value = data.get(write.incrementField);
+                data.put(write.incrementField, (value instanceof Number ? ((Number) value).longValue() : 0L) + write.delta);
+            } else {
+                data.putAll(write.data);
+            }
+            written.put(write.path, data);
+        }
+        for (Map.Entry<String, Map<String, Object>> entry : written.entrySet()) {
+            Document current = documents.get(entry.getKey());
+            documents.put(entry.getKey(), new Document(current != null ? current.version + 1 : 1L, entry.getValue()));
+            touched.add(entry.getKey().substring(0, entry.getKey().indexOf('/')));
+        }
+        for (Listener listener : listeners) {
+            if (touched.contains(listener.collection)) {
+                listener.changed();
+            }
+        }
+    }
+
+    private void roundTrip() {
+        if (roundTripNanos > 0) {
+            LockSupport.parkNanos(roundTripNanos);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.group14.foodordering.service;
+
+import com.group14.foodordering.model.MenuItem;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * In-place menu patches and change notifications of MenuCatalog
+ */
+public class MenuCatalogTest {
+
+    private final List<String> events = new ArrayList<>();
+    private MenuCatalog catalog;
+
+    @Before
+    public void setUp() {
+        catalog = new MenuCatalog();
+        catalog.setListener(new MenuCatalog.Listener() {
+            @Override
+            public void onItemChanged(MenuItem previous, MenuItem item) {
+                events.add("changed " + item.getItemId());
+            }
+
+            @Override
+            public void onItemInserted(int position, MenuItem item) {
+                events.add("inserted " + position + " " + item.getItemId());
+            }
+
+            @Override
+            public void onItemRemoved(MenuItem item) {
+                events.add("removed " + item.getItemId());
+            }
+        });
+        catalog.reset(Arrays.asList(item("m1", "Burger", 12, 1_000), item("m2", "Noodles", 9, 3_000),
+                item("m3", "Tea", 3, 2_000)));
+    }
+
+    @Test
+    public void priceAndAvailability_patchTheItemInPlace() {
+        MenuItem cheaper = item("m2", "Noodles", 8, 4_000);
+        MenuItem withdrawn = item("m3", "Tea", 3, 5_000);
+        withdrawn.setAvailable(false);
+
+        catalog.apply(Arrays.asList(cheaper, withdrawn), Collections.emptyList());
+
+        assertEquals(Arrays.asList("changed m2", "changed m3"), events);
+        assertSame(cheaper, catalog.getItems().get(1));
+        assertSame(withdrawn, catalog.get("m3"));
+        assertEquals(Arrays.asList("m1", "m2", "m3"), ids());
+        assertEquals(5_000, catalog.getUpdatedAt());
+    }
+
+    @Test
+    public void changeNotShown_isAppliedSilently() {
+        MenuItem restocked = item("m1", "Burger", 12, 6_000);
+        restocked.setStock(40);
+
+        catalog.apply(Collections.singletonList(restocked), Collections.emptyList());
+
+        assertTrue(events.isEmpty());
+        assertEquals(40, catalog.get("m1").getStock());
+    }
+
+    @Test
+    public void newlyAvailableItem_isInsertedInNameOrder() {
+        MenuItem hidden = item("m5", "Dumplings", 7, 7_000);
+        hidden.setAvailable(false);
+        catalog.apply(Arrays.asList(item("m4", "Fries", 4, 6_000), hidden), Collections.emptyList());
+
+        assertEquals(Collections.singletonList("inserted 1 m4"), events);
+        assertEquals(Arrays.asList("m1", "m4", "m2", "m3"), ids());
+        assertNull(catalog.get("m5"));
+        assertEquals(7_000, catalog.getUpdatedAt());
+    }
+
+    @Test
+    public void deletedItem_isRemovedAndTheRestKeepTheirItems() {
+        catalog.apply(Collections.emptyList(), Arrays.asList("m1", "unknown"));
+
+        assertEquals(Collections.singletonList("removed m1"), events);
+        assertEquals(Arrays.asList("m2", "m3"), ids());
+        assertEquals("Tea", catalog.get("m3").getName());
+    }
+
+    @Test
+    public void listenFrom_reachesBackForSlowClocks() {
+        assertTrue(catalog.isLoaded());
+        assertEquals(3_000, catalog.getUpdatedAt());
+        assertEquals(0, catalog.getListenFrom());
+
+        long now = 1_800_000_000_000L;
+        catalog.apply(Collections.singletonList(item("m1", "Burger", 12, now)), Collections.emptyList());
+        assertEquals(now - MenuCatalog.CLOCK_SKEW_MILLIS, catalog.getListenFrom());
+        assertTrue(events.isEmpty());
+    }
+
+    private List<String> ids() {
+        List<String> ids = new ArrayList<>();
+        for (MenuItem item : catalog.getItems()) {
+            ids.add(item.getItemId());
+        }
+        return ids;
+    }
+
+    private static MenuItem item(String itemId, String name, double price, long updatedAt) {
+        MenuItem item = new MenuItem(itemId, name, "", price, "main");
+        item.setUpdatedAt(updatedAt);
+        return item;
+    }
+}
@@ -0,0 +1,158 @@
+package com.group14.foodordering.service;
+
+import com.google.firebase.firestore.ListenerRegistration;
+import com.group14.foodordering.model.Order;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Live window, paging and cache of OrderHistoryRepository, with a source completed by the test
+ */
+public class OrderHistoryRepositoryTest {
+
+    private static class HeldSource implements OrderHistoryRepository.Source {
+        FirebaseDatabaseService.OrdersCallback recent;
+        final List<Long> cursors = new ArrayList<>();
+        final List<FirebaseDatabaseService.OrdersCallback> pages = new ArrayList<>();
+        int removed;
+
+        @Override
+        public ListenerRegistration listenToRecentOrders(String userId, int limit,
+                                                         FirebaseDatabaseService.OrdersCallback callback) {
+            recent = callback;
+            return () -> removed++;
+        }
+
+        @Override
+        public void getOrdersBefore(String userId, long createdAtBefore, int limit,
+                                    FirebaseDatabaseService.OrdersCallback callback) {
+            cursors.add(createdAtBefore);
+            pages.add(callback);
+        }
+    }
+
+    private final HeldSource source = new HeldSource();
+    private File cacheDir;
+
+    @Before
+    public void setUp() throws IOException {
+        cacheDir = Files.createTempDirectory("history").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = cacheDir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        cacheDir.delete();
+    }
+
+    @Test
+    public void olderPages_extendTheLiveWindowUntilExhausted() {
+        OrderHistoryRepository repository = repository(null);
+        repository.start();
+        source.recent.onSuccess(orders(1000, OrderHistoryRepository.RECENT_LIMIT));
+
+        repository.loadMore();
+        repository.loadMore(); // ignored while the first page loads
+        assertEquals(Collections.singletonList(1000 - OrderHistoryRepository.RECENT_LIMIT + 1L), source.cursors);
+
+        source.pages.get(0).onSuccess(orders(500, 3));
+        assertEquals(OrderHistoryRepository.RECENT_LIMIT + 3, repository.getOrders().size());
+        assertFalse(repository.hasMore());
+        assertEquals(498, repository.getOrders().get(repository.getOrders().size() - 1).getCreatedAt());
+    }
+
+    @Test
+    public void windowSlide_keepsOlderOrdersButDropsDeletedOnes() {
+        OrderHistoryRepository repository = repository(null);
+        repository.start();
+        List<Order> window = orders(1000, OrderHistoryRepository.RECENT_LIMIT);
+        source.recent.onSuccess(window);
+
+        // A new order pushes the oldest one out of the window
+        List<Order> slid = new ArrayList<>(window.subList(0, OrderHistoryRepository.RECENT_LIMIT - 1));
+        slid.add(0, order(2000));
+        source.recent.onSuccess(slid);
+        assertTrue(ids(repository.getOrders()).contains("o981"));
+
+        // Deleting an order inside the window pulls the older one back in
+        List<Order> deleted = new ArrayList<>(window);
+        deleted.remove(5);
+        deleted.add(0, order(2000));
+        source.recent.onSuccess(deleted);
+
+        List<String> ids = ids(repository.getOrders());
+        assertFalse(ids.contains("o995"));
+        assertEquals(OrderHistoryRepository.RECENT_LIMIT, ids.size());
+        assertEquals("o2000", ids.get(0));
+    }
+
+    @Test
+    public void cachedOrders_showBeforeTheNetworkOnNextStart() {
+        OrderHistoryRepository first = repository(new OrderHistoryRepository.FileCache(cacheDir));
+        first.start();
+        source.recent.onSuccess(orders(1000, 5));
+
+        OrderHistoryRepository next = repository(new OrderHistoryRepository.FileCache(cacheDir));
+        List<List<Order>> shown = new ArrayList<>();
+        next.addListener(new OrderHistoryRepository.Listener() {
+            @Override
+            public void onOrdersChanged(List<Order> orders) {
+                shown.add(orders);
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                fail("Unexpected failure: " + e);
+            }
+        });
+        next.start();
+
+        assertEquals(1, shown.size());
+        assertEquals(ids(first.getOrders()), ids(shown.get(0)));
+        next.stop();
+        assertEquals(1, source.removed);
+    }
+
+    private OrderHistoryRepository repository(OrderHistoryRepository.Cache cache) {
+        return new OrderHistoryRepository("user_1", source, cache, Runnable::run, Runnable::run);
+    }
+
+    private static List<Order> orders(long newestCreatedAt, int count) {
+        List<Order> orders = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            orders.add(order(newestCreatedAt - i));
+        }
+        return orders;
+    }
+
+    private static Order order(long createdAt) {
+        Order order = new Order("o" + createdAt, "takeaway");
+        order.setUserId("user_1");
+        order.setCreatedAt(createdAt);
+        return order;
+    }
+
+    private static List<String> ids(List<Order> orders) {
+        List<String> ids = new ArrayList<>();
+        for (Order order : orders) {
+            ids.add(order.getOrderId());
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,111 @@
+package com.group14.foodordering.service;
+
+import com.group14.foodordering.model.Order;
+import com.group14.foodordering.model.OrderCodec;
+import com.group14.foodordering.model.OrderItem;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Three-way merge of OrderMerge for two devices editing the same table order
+ */
+public class OrderMergeTest {
+
+    @Test
+    public void bothAppended_keepsTheirItemsAndAddsMine() {
+        Order base = stored(1, "oi_1");
+        Order mine = copy(base);
+        mine.addItem(item("oi_mine", 4.0));
+        Order theirs = copy(base);
+        theirs.addItem(item("oi_theirs", 2.5));
+        theirs.setVersion(2);
+
+        Order merged = OrderMerge.merge(mine, mine.takeChanges(), theirs);
+
+        assertEquals(Arrays.asList("oi_1", "oi_theirs", "oi_mine"), ids(merged));
+        assertEquals(2, merged.getVersion());
+        assertEquals(1000 + 250 + 400, merged.getTotalCents());
+        Order.Changes changes = merged.takeChanges();
+        assertEquals(1, changes.getAppendedItems().size());
+        assertFalse(changes.getFields().contains("items"));
+    }
+
+    @Test
+    public void plainFields_areReplayedOntoTheStoredOrder() {
+        Order base = stored(1, "oi_1");
+        Order mine = copy(base);
+        mine.addItem(item("oi_mine", 4.0));
+        mine.setPaymentMethod("card");
+        Order theirs = copy(base);
+        theirs.setStatus("preparing");
+        theirs.setVersion(2);
+
+        Order merged = OrderMerge.merge(mine, mine.takeChanges(), theirs);
+
+        assertEquals("card", merged.getPaymentMethod());
+        assertEquals("preparing", merged.getStatus());
+        assertTrue(merged.takeChanges().getFields().contains("paymentMethod"));
+    }
+
+    @Test
+    public void itemAlreadyStored_isNotAppendedAgain() {
+        Order base = stored(1, "oi_1");
+        Order mine = copy(base);
+        OrderItem tea = item("oi_tea", 2.0);
+        mine.addItem(tea);
+        Order theirs = copy(base);
+        theirs.addItem(item("oi_tea", 2.0)); // an earlier attempt committed after all
+        theirs.setVersion(2);
+
+        Order merged = OrderMerge.merge(mine, mine.takeChanges(), theirs);
+
+        assertEquals(Arrays.asList("oi_1", "oi_tea"), ids(merged));
+        assertFalse(merged.hasChanges());
+    }
+
+    @Test
+    public void rewrittenItems_conflict() {
+        Order base = stored(1, "oi_1", "oi_2");
+        Order mine = copy(base);
+        mine.removeItem(mine.getItems().get(0));
+        Order theirs = copy(base);
+        theirs.setVersion(2);
+
+        assertNull(OrderMerge.merge(mine, mine.takeChanges(), theirs));
+    }
+
+    private static Order stored(long version, String... itemIds) {
+        Order order = new Order("0001", "table");
+        for (String itemId : itemIds) {
+            order.addItem(item(itemId, 10.0));
+        }
+        order.setVersion(version);
+        return copy(order);
+    }
+
+    private static Order copy(Order order) {
+        Order copy = OrderCodec.fromMap(order.toMap());
+        copy.clearChanges();
+        return copy;
+    }
+
+    private static OrderItem item(String orderItemId, double price) {
+        OrderItem item = new OrderItem("menu_" + orderItemId, "Item", 1, price);
+        item.setOrderItemId(orderItemId);
+        return item;
+    }
+
+    private static List<String> ids(Order order) {
+        List<String> ids = new ArrayList<>();
+        for (OrderItem item : order.getItems()) {
+            ids.add(item.getOrderItemId());
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,49 @@
+package com.group14.foodordering.service;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Order number blocks claimed from the counter and handed out by one device
+ */
+public class OrderNumbersTest {
+
+    @Test
+    public void block_followsTheCounterAndWrapsAfter1000() {
+        assertArrayEquals(new long[]{1, 10}, OrderNumbers.block(0));
+        assertArrayEquals(new long[]{538, 547}, OrderNumbers.block(537)); // left by one-at-a-time numbering
+        assertArrayEquals(new long[]{996, 1000}, OrderNumbers.block(995));
+        assertArrayEquals(new long[]{1, 10}, OrderNumbers.block(1000));
+    }
+
+    @Test
+    public void claimedBlock_isHandedOutInOrderThenEmpty() {
+        OrderNumbers orderNumbers = new OrderNumbers();
+        assertNull(orderNumbers.poll());
+
+        List<Long> issued = new ArrayList<>();
+        issued.add(orderNumbers.claimed(OrderNumbers.block(996)));
+        for (Long number = orderNumbers.poll(); number != null; number = orderNumbers.poll()) {
+            issued.add(number);
+        }
+
+        assertEquals(Arrays.asList(997L, 998L, 999L, 1000L), issued);
+    }
+
+    @Test
+    public void blocksClaimedTogether_areBothKept() {
+        OrderNumbers orderNumbers = new OrderNumbers();
+
+        assertEquals(11, orderNumbers.claimed(new long[]{11, 12}));
+        assertEquals(31, orderNumbers.claimed(new long[]{31, 32}));
+
+        assertEquals(Long.valueOf(12), orderNumbers.poll());
+        assertEquals(Long.valueOf(32), orderNumbers.poll());
+        assertNull(orderNumbers.poll());
+    }
+}
@@ -0,0 +1,163 @@
+package com.group14.foodordering.service;
+
+import com.group14.foodordering.model.Order;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Optimistic status changes of OrderStatusUpdater, with a manual scheduler and writer
+ */
+public class OrderStatusUpdaterTest {
+
+    private final List<Runnable> scheduled = new ArrayList<>();
+    private final List<String> writes = new ArrayList<>();
+    private final List<List<String>> writeIds = new ArrayList<>();
+    private final List<FirebaseDatabaseService.BulkStatusCallback> writeCallbacks = new ArrayList<>();
+    private final List<String> rollbacks = new ArrayList<>();
+    private OrderStatusUpdater updater;
+
+    @Before
+    public void setUp() {
+        updater = new OrderStatusUpdater(
+                (orderIds, status, callback) -> {
+                    writes.add(String.join(",", orderIds) + "->" + status);
+                    writeIds.add(orderIds);
+                    writeCallbacks.add(callback);
+                },
+                (task, delayMs) -> scheduled.add(task),
+                new OrderStatusUpdater.Listener() {
+                    @Override
+                    public void onStatusesChanged() {
+                    }
+
+                    @Override
+                    public void onRollback(String orderId, String status, Exception e) {
+                        rollbacks.add(orderId);
+                    }
+                },
+                new HashSet<>(Arrays.asList("pending", "preparing")));
+        updater.setSnapshot(Arrays.asList(order("0001", "pending"), order("0002", "pending")));
+    }
+
+    @Test
+    public void request_isVisibleBeforeTheWrite() {
+        updater.request("0001", "preparing");
+
+        assertEquals("preparing", updater.getVisibleOrders().get(0).getStatus());
+        assertTrue(updater.isPending("0001"));
+        assertTrue(writes.isEmpty());
+    }
+
+    @Test
+    public void pendingStatus_leavesTheSnapshotOrdersUnchanged() {
+        Order served = order("0003", "pending");
+        served.clearChanges();
+        updater.setSnapshot(Collections.singletonList(served));
+        updater.request("0003", "preparing");
+
+        Order shown = updater.getVisibleOrders().get(0);
+        assertNotSame(served, shown);
+        assertEquals("preparing", shown.getStatus());
+        assertEquals("pending", served.getStatus());
+        assertFalse(served.hasChanges());
+    }
+
+    @Test
+    public void repeatedTaps_areCoalescedIntoOneWrite() {
+        updater.request("0001", "preparing");
+        updater.request("0001", "preparing");
+        updater.request("0001", "ready");
+        runScheduled();
+
+        assertEquals(Collections.singletonList("0001->ready"), writes);
+        // Ready orders leave the kitchen feed straight away
+        assertEquals(1, updater.getVisibleOrders().size());
+    }
+
+    @Test
+    public void tapDuringWrite_isWrittenAfterIt() {
+        updater.request("0001", "preparing");
+        runScheduled();
+        updater.request("0001", "ready");
+        assertEquals(1, writes.size());
+
+        succeed(0);
+        assertEquals(Arrays.asList("0001->preparing", "0001->ready"), writes);
+    }
+
+    @Test
+    public void confirmingSnapshot_settlesThePendingStatus() {
+        updater.request("0001", "preparing");
+        runScheduled();
+        succeed(0);
+        updater.setSnapshot(Arrays.asList(order("0001", "preparing"), order("0002", "pending")));
+
+        assertFalse(updater.isPending("0001"));
+        assertEquals("preparing", updater.getVisibleOrders().get(0).getStatus());
+    }
+
+    @Test
+    public void failedWrite_rollsBackToTheServerStatus() {
+        updater.request("0001", "preparing");
+        runScheduled();
+        writeCallbacks.get(0).onComplete(Collections.emptyList(),
+                Collections.singletonMap("0001", new Exception("offline")));
+
+        assertEquals(Collections.singletonList("0001"), rollbacks);
+        assertTrue(updater.isRolledBack("0001"));
+        assertFalse(updater.isPending("0001"));
+        assertEquals("pending", updater.getVisibleOrders().get(0).getStatus());
+    }
+
+    @Test
+    public void unconfirmedStatus_givesWayToTheServerAfterTheTimeout() {
+        updater.request("0001", "preparing");
+        runScheduled();
+        succeed(0);
+        runScheduled(); // confirmation window passes without a confirming snapshot
+
+        assertFalse(updater.isPending("0001"));
+        assertEquals("pending", updater.getVisibleOrders().get(0).getStatus());
+    }
+
+    @Test
+    public void bulkRequest_isWrittenOnceAndFailsPerOrder() {
+        updater.request(Arrays.asList("0001", "0002"), "preparing");
+        assertEquals("preparing", updater.getVisibleOrders().get(1).getStatus());
+        runScheduled();
+        assertEquals(Collections.singletonList("0001,0002->preparing"), writes);
+
+        writeCallbacks.get(0).onComplete(Collections.singletonList("0001"),
+                Collections.singletonMap("0002", new Exception("not found")));
+        assertEquals(Collections.singletonList("0002"), rollbacks);
+        assertTrue(updater.isPending("0001"));
+        assertEquals("pending", updater.getVisibleOrders().get(1).getStatus());
+    }
+
+    private void succeed(int write) {
+        writeCallbacks.get(write).onComplete(writeIds.get(write), Collections.emptyMap());
+    }
+
+    private void runScheduled() {
+        List<Runnable> tasks = new ArrayList<>(scheduled);
+        scheduled.clear();
+        for (Runnable task : tasks) {
+            task.run();
+        }
+    }
+
+    private static Order order(String orderId, String status) {
+        Order order = new Order(orderId, "table");
+        order.setStatus(status);
+        return order;
+    }
+}
@@ -0,0 +1,33 @@
+package com.group14.foodordering.service;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.Assert.*;
+
+/**
+ * Keeps firestore.indexes.json in sync with the query shapes used by FirebaseDatabaseService
+ */
+public class QueryShapesTest {
+    @Test
+    public void indexManifest_matchesQueryShapes() throws Exception {
+        File manifest = new File("../firestore.indexes.json");
+        if (!manifest.exists()) {
+            manifest = new File("firestore.indexes.json");
+        }
+        String committed = new String(Files.readAllBytes(manifest.toPath()), StandardCharsets.UTF_8);
+        assertEquals("firestore.indexes.json is out of date, regenerate it with QueryShapes.buildIndexManifest()",
+                QueryShapes.buildIndexManifest(), committed);
+    }
+
+    @Test
+    public void compositeIndex_onlyForOrderedFilteredShapes() {
+        assertTrue(QueryShapes.ORDERS_BY_STATUSES_SORTED.needsCompositeIndex());
+        assertFalse(QueryShapes.ORDERS_BY_STATUSES.needsCompositeIndex());
+        assertFalse(QueryShapes.ORDERS_BY_RESTAURANT_AND_STATUSES.needsCompositeIndex());
+        assertFalse(QueryShapes.RESTAURANTS_ALL.needsCompositeIndex());
+    }
+}
@@ -0,0 +1,266 @@
+package com.group14.foodordering.service;
+
+import com.group14.foodordering.model.Restaurant;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.*;
+
+/**
+ * Cache, revalidation and request coalescing of RestaurantDirectory, with a source completed by the test
+ */
+public class RestaurantDirectoryTest {
+
+    private static class HeldSource implements RestaurantDirectory.Source {
+        final List<FirebaseDatabaseService.RestaurantsCallback> fullLoads = new ArrayList<>();
+        final List<FirebaseDatabaseService.RestaurantsCallback> deltas = new ArrayList<>();
+        final List<Long> cursors = new ArrayList<>();
+
+        @Override
+        public void getAllRestaurants(FirebaseDatabaseService.RestaurantsCallback callback) {
+            fullLoads.add(callback);
+        }
+
+        @Override
+        public void getRestaurantsUpdatedAfter(long updatedAfter, FirebaseDatabaseService.RestaurantsCallback callback) {
+            cursors.add(updatedAfter);
+            deltas.add(callback);
+        }
+    }
+
+    private static class RecordingListener implements RestaurantDirectory.Listener {
+        final List<List<String>> shown = new ArrayList<>();
+        final List<Exception> failures = new ArrayList<>();
+
+        @Override
+        public void onRestaurantsChanged(List<Restaurant> restaurants) {
+            shown.add(names(restaurants));
+        }
+
+        @Override
+        public void onFailure(Exception e) {
+            failures.add(e);
+        }
+    }
+
+    private static final Executor DIRECT = Runnable::run;
+    private static final long NOW = 1_700_000_000_000L;
+
+    private final HeldSource source = new HeldSource();
+    private long clock = NOW;
+    private File cacheDir;
+
+    @Before
+    public void setUp() throws IOException {
+        cacheDir = Files.createTempDirectory("restaurants").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = cacheDir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        cacheDir.delete();
+    }
+
+    @Test
+    public void concurrentRequests_shareOneFetch() {
+        RestaurantDirectory directory = directory(null);
+        List<List<String>> answered = new ArrayList<>();
+        RecordingListener listener = new RecordingListener();
+
+        directory.getRestaurants(callback(answered));
+        directory.getRestaurants(callback(answered));
+        directory.addListener(listener);
+        assertEquals(1, source.fullLoads.size());
+        assertTrue(answered.isEmpty());
+
+        source.fullLoads.get(0).onSuccess(Arrays.asList(
+                restaurant("r2", "Tai Po", 10), restaurant("r1", "Mong Kok", 20), inactive("r3", "Closed", 30)));
+
+        List<String> expected = Arrays.asList("Mong Kok", "Tai Po");
+        assertEquals(Arrays.asList(expected, expected), answered);
+        assertEquals(Collections.singletonList(expected), listener.shown);
+        assertEquals("Closed", directory.getRestaurantName("r3"));
+    }
+
+    @Test
+    public void cachedRestaurants_showAtOnceAndRevalidateOnlyWhenStale() {
+        new RestaurantDirectory.FileCache(cacheFile()).write(new RestaurantDirectory.Snapshot(
+                Arrays.asList(restaurant("r1", "Mong Kok", 500), restaurant("r2", "Tai Po", 700)), NOW, NOW));
+        RestaurantDirectory directory = directory(new RestaurantDirectory.FileCache(cacheFile()));
+        RecordingListener listener = new RecordingListener();
+
+        directory.addListener(listener);
+        assertEquals(Collections.singletonList(Arrays.asList("Mong Kok", "Tai Po")), listener.shown);
+        assertTrue(source.fullLoads.isEmpty());
+        assertTrue(source.deltas.isEmpty());
+
+        clock += RestaurantDirectory.TTL_MS;
+        directory.refresh();
+        directory.refresh(); // joins the running revalidation
+
+        assertTrue(source.fullLoads.isEmpty());
+        assertEquals(Collections.singletonList(700 - RestaurantDirectory.CLOCK_SKEW_MS), source.cursors);
+    }
+
+    @Test
+    public void revalidation_notifiesOnlyWhenSomethingChanged() {
+        RestaurantDirectory directory = loadedDirectory(restaurant("r1", "Mong Kok", 500), restaurant("r2", "Tai Po", 700));
+        RecordingListener listener = new RecordingListener();
+        directory.addListener(listener);
+        listener.shown.clear();
+
+        clock += RestaurantDirectory.TTL_MS;
+        directory.refresh();
+        source.deltas.get(0).onSuccess(Collections.singletonList(restaurant("r2", "Tai Po", 700)));
+        assertTrue(listener.shown.isEmpty());
+
+        clock += RestaurantDirectory.TTL_MS;
+        directory.refresh();
+        source.deltas.get(1).onSuccess(Arrays.asList(inactive("r1", "Mong Kok", 900), restaurant("r4", "Sha Tin", 950)));
+        assertEquals(Collections.singletonList(Arrays.asList("Sha Tin", "Tai Po")), listener.shown);
+        assertFalse(directory.getRestaurant("r1").isActive());
+    }
+
+    @Test
+    public void fullReload_dropsDeletedRestaurants() {
+        RestaurantDirectory directory = loadedDirectory(restaurant("r1", "Mong Kok", 500), restaurant("r2", "Tai Po", 700));
+
+        clock += RestaurantDirectory.FULL_REFRESH_MS;
+        directory.refresh();
+        assertEquals(2, source.fullLoads.size());
+        source.fullLoads.get(1).onSuccess(Collections.singletonList(restaurant("r2", "Tai Po", 700)));
+
+        assertNull(directory.getRestaurant("r1"));
+        assertEquals(Collections.singletonList("Tai Po"), names(directory.getRestaurants()));
+    }
+
+    @Test
+    public void failedRevalidation_keepsServingStaleRestaurants() {
+        RestaurantDirectory directory = loadedDirectory(restaurant("r1", "Mong Kok", 500));
+        RecordingListener listener = new RecordingListener();
+        directory.addListener(listener);
+
+        clock += RestaurantDirectory.TTL_MS;
+        directory.refresh();
+        source.deltas.get(0).onFailure(new Exception("offline"));
+
+        assertTrue(listener.failures.isEmpty());
+        assertEquals(Collections.singletonList("Mong Kok"), names(directory.getRestaurants()));
+        directory.refresh(); // still stale, so tried again
+        assertEquals(2, source.deltas.size());
+    }
+
+    @Test
+    public void failedFirstLoad_failsWaitingRequests() {
+        RestaurantDirectory directory = directory(null);
+        List<Exception> failures = new ArrayList<>();
+        directory.getRestaurants(new FirebaseDatabaseService.RestaurantsCallback() {
+            @Override
+            public void onSuccess(List<Restaurant> restaurants) {
+                fail("nothing was loaded");
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                failures.add(e);
+            }
+        });
+
+        source.fullLoads.get(0).onFailure(new Exception("offline"));
+
+        assertEquals(1, failures.size());
+        assertFalse(directory.isLoaded());
+    }
+
+    @Test
+    public void invalidateWhileFetching_reloadsInFullAfterwards() {
+        RestaurantDirectory directory = loadedDirectory(restaurant("r1", "Mong Kok", 500));
+        clock += RestaurantDirectory.TTL_MS;
+        directory.refresh();
+
+        directory.invalidate();
+        assertEquals(1, source.fullLoads.size());
+        source.deltas.get(0).onSuccess(Collections.emptyList());
+
+        assertEquals(2, source.fullLoads.size());
+    }
+
+    @Test
+    public void revalidatedDirectory_isWrittenToTheCache() {
+        RestaurantDirectory directory = directory(new RestaurantDirectory.FileCache(cacheFile()));
+        directory.refresh();
+        source.fullLoads.get(0).onSuccess(Collections.singletonList(restaurant("r1", "Mong Kok", 500)));
+
+        RestaurantDirectory.Snapshot cached = new RestaurantDirectory.FileCache(cacheFile()).read();
+
+        assertEquals(Collections.singletonList("Mong Kok"), names(cached.restaurants));
+        assertEquals(NOW, cached.validatedAt);
+        assertEquals(NOW, cached.fullyLoadedAt);
+    }
+
+    private RestaurantDirectory directory(RestaurantDirectory.Cache cache) {
+        return new RestaurantDirectory(source, cache, DIRECT, DIRECT, () -> clock);
+    }
+
+    private RestaurantDirectory loadedDirectory(Restaurant... restaurants) {
+        RestaurantDirectory directory = directory(null);
+        directory.refresh();
+        source.fullLoads.get(0).onSuccess(Arrays.asList(restaurants));
+        return directory;
+    }
+
+    private File cacheFile() {
+        return new File(cacheDir, "restaurants.cache");
+    }
+
+    private static FirebaseDatabaseService.RestaurantsCallback callback(List<List<String>> answered) {
+        return new FirebaseDatabaseService.RestaurantsCallback() {
+            @Override
+            public void onSuccess(List<Restaurant> restaurants) {
+                answered.add(names(restaurants));
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                fail(e.getMessage());
+            }
+        };
+    }
+
+    private static Restaurant restaurant(String id, String name, long updatedAt) {
+        Restaurant restaurant = new Restaurant(id, name, "Address", "12345678");
+        restaurant.setCreatedAt(NOW); // the constructor uses the wall clock, so copies could differ
+        restaurant.setUpdatedAt(updatedAt);
+        return restaurant;
+    }
+
+    private static Restaurant inactive(String id, String name, long updatedAt) {
+        Restaurant restaurant = restaurant(id, name, updatedAt);
+        restaurant.setActive(false);
+        return restaurant;
+    }
+
+    private static List<String> names(List<Restaurant> restaurants) {
+        List<String> names = new ArrayList<>();
+        for (Restaurant restaurant : restaurants) {
+            names.add(restaurant.getRestaurantName());
+        }
+        return names;
+    }
+}
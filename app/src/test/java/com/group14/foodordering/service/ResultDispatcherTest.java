@@ -0,0 +1,156 @@
+package com.group14.foodordering.service;
+
+import com.google.firebase.firestore.ListenerRegistration;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.*;
+
+/**
+ * Stale-result handling of ResultDispatcher, using queued executors to control ordering
+ */
+public class ResultDispatcherTest {
+
+    /**
+     * Executor that only runs its commands when flushed
+     */
+    private static class QueuedExecutor implements Executor {
+        private final List<Runnable> commands = new ArrayList<>();
+
+        @Override
+        public void execute(Runnable command) {
+            commands.add(command);
+        }
+
+        void flush() {
+            while (!commands.isEmpty()) {
+                commands.remove(0).run();
+            }
+        }
+    }
+
+    private QueuedExecutor background;
+    private QueuedExecutor main;
+    private ResultDispatcher dispatcher;
+
+    @Before
+    public void setUp() {
+        background = new QueuedExecutor();
+        main = new QueuedExecutor();
+        dispatcher = new ResultDispatcher(background, main);
+    }
+
+    @Test
+    public void snapshotSequence_skipsSnapshotsSupersededBeforeDecoding() {
+        ResultDispatcher.SnapshotSequence sequence = dispatcher.newSnapshotSequence();
+        List<String> decoded = new ArrayList<>();
+        List<String> delivered = new ArrayList<>();
+        for (String snapshot : Arrays.asList("first", "second", "third")) {
+            sequence.execute(() -> {
+                long token = sequence.current();
+                if (!sequence.isLatest(token)) {
+                    return;
+                }
+                decoded.add(snapshot);
+                dispatcher.deliver(sequence, token, () -> delivered.add(snapshot));
+            });
+        }
+        background.flush();
+        main.flush();
+
+        assertEquals(Arrays.asList("third"), decoded);
+        assertEquals(Arrays.asList("third"), delivered);
+    }
+
+    @Test
+    public void snapshotSequence_dropsDecodedResultWhenNewerSnapshotArrives() {
+        ResultDispatcher.SnapshotSequence sequence = dispatcher.newSnapshotSequence();
+        List<String> delivered = new ArrayList<>();
+        sequence.execute(() -> {
+            long token = sequence.current();
+            dispatcher.deliver(sequence, token, () -> delivered.add("old"));
+        });
+        background.flush();
+        // A newer snapshot arrives before the main thread ran the old result
+        sequence.execute(() -> {
+            long token = sequence.current();
+            dispatcher.deliver(sequence, token, () -> delivered.add("new"));
+        });
+        background.flush();
+        main.flush();
+
+        assertEquals(Arrays.asList("new"), delivered);
+        assertEquals(1, dispatcher.getDroppedCount());
+    }
+
+    @Test
+    public void snapshotSequence_removedRegistrationDropsPendingResults() {
+        ResultDispatcher.SnapshotSequence sequence = dispatcher.newSnapshotSequence();
+        boolean[] removed = {false};
+        ListenerRegistration registration = sequence.attach(() -> removed[0] = true);
+        List<String> delivered = new ArrayList<>();
+        sequence.execute(() -> dispatcher.deliver(sequence, sequence.current(), () -> delivered.add("late")));
+        background.flush();
+        registration.remove();
+        main.flush();
+
+        assertTrue(removed[0]);
+        assertTrue(delivered.isEmpty());
+    }
+
+    @Test
+    public void deliverFreshest_olderResponseReceivesNewerResult() {
+        long older = dispatcher.issue();
+        long newer = dispatcher.issue();
+        List<List<String>> olderCaller = new ArrayList<>();
+        List<List<String>> newerCaller = new ArrayList<>();
+
+        // The newer request completes first
+        dispatcher.deliverFreshest("menu", newer, Arrays.asList("fresh"), String::new, newerCaller::add);
+        dispatcher.deliverFreshest("menu", older, Arrays.asList("stale"), String::new, olderCaller::add);
+        main.flush();
+
+        assertEquals(Arrays.asList("fresh"), newerCaller.get(0));
+        assertEquals(Arrays.asList("fresh"), olderCaller.get(0));
+        assertEquals(1, dispatcher.getDroppedCount());
+    }
+
+    @Test
+    public void deliverFreshest_supersededCallerGetsItsOwnCopies() {
+        long older = dispatcher.issue();
+        long newer = dispatcher.issue();
+        List<List<StringBuilder>> newerCaller = new ArrayList<>();
+        List<List<StringBuilder>> olderCaller = new ArrayList<>();
+
+        dispatcher.deliverFreshest("menu", newer, Arrays.asList(new StringBuilder("fresh")), StringBuilder::new, newerCaller::add);
+        main.flush();
+        // The newer caller edits its result before the older response arrives
+        newerCaller.get(0).get(0).append(" edited");
+        dispatcher.deliverFreshest("menu", older, Arrays.asList(new StringBuilder("stale")), StringBuilder::new, olderCaller::add);
+        main.flush();
+
+        assertNotSame(newerCaller.get(0).get(0), olderCaller.get(0).get(0));
+        assertEquals("fresh", olderCaller.get(0).get(0).toString());
+    }
+
+    @Test
+    public void deliverFreshest_keysAreIndependent() {
+        long tableOne = dispatcher.issue();
+        long tableTwo = dispatcher.issue();
+        List<List<String>> results = new ArrayList<>();
+
+        dispatcher.deliverFreshest("table:2", tableTwo, Arrays.asList("two"), String::new, results::add);
+        dispatcher.deliverFreshest("table:1", tableOne, Arrays.asList("one"), String::new, results::add);
+        main.flush();
+
+        assertEquals(Arrays.asList("two"), results.get(0));
+        assertEquals(Arrays.asList("one"), results.get(1));
+        assertEquals(0, dispatcher.getDroppedCount());
+    }
+}
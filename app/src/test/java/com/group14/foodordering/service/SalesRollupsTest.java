@@ -0,0 +1,197 @@
+package com.group14.foodordering.service;
+
+import com.group14.foodordering.model.Order;
+import com.group14.foodordering.model.OrderCodec;
+import com.group14.foodordering.model.OrderItem;
+import com.group14.foodordering.model.SalesRollup;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TimeZone;
+
+import static org.junit.Assert.*;
+
+/**
+ * Sales rollup deltas of order transitions, checked against rollups rebuilt from the final orders
+ */
+public class SalesRollupsTest {
+    private static final TimeZone ZONE = TimeZone.getTimeZone("Europe/London");
+    private static final long DAY_START = 1_700_006_400_000L; // 2023-11-15 00:00 in London
+    private static final String[] STATUSES = {"pending", "preparing", "ready", "completed", "cancelled"};
+
+    private final SalesRollups rollups = new SalesRollups(ZONE);
+
+    @Test
+    public void randomTransitions_sumToTheRebuiltRollups() {
+        Random random = new Random(3);
+        List<Order> orders = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            orders.add(order(random, i));
+        }
+        List<Long> days = rollups.dayStarts(DAY_START, DAY_START + 2 * 86_400_000L);
+        Map<String, SalesRollup> live = rollups.aggregate("r1", days, orders);
+        for (int step = 0; step < 5_000; step++) {
+            Order before = orders.get(random.nextInt(orders.size()));
+            Order after = OrderCodec.fromMap(before.toMap());
+            if (random.nextInt(4) == 0) {
+                after.setPaymentStatus("refunded");
+            } else {
+                after.setStatus(STATUSES[random.nextInt(STATUSES.length)]);
+            }
+            SalesRollup delta = rollups.delta(before, after);
+            if (delta != null) {
+                apply(live, delta);
+            }
+            orders.set(orders.indexOf(before), after);
+        }
+
+        Map<String, SalesRollup> rebuilt = rollups.aggregate("r1", days, orders);
+        assertEquals(3, rebuilt.size());
+        for (SalesRollup expected : rebuilt.values()) {
+            SalesRollup actual = live.getOrDefault(expected.getDay(), new SalesRollup("r1", expected.getDay()));
+            assertEquals(expected.getRevenueCents(), actual.getRevenueCents());
+            assertEquals(expected.getOrderCount(), actual.getOrderCount());
+            assertEquals(expected.getItemCount(), actual.getItemCount());
+            assertEquals(expected.getRefundCount(), actual.getRefundCount());
+            assertEquals(expected.getRefundedCents(), actual.getRefundedCents());
+            for (String menuItemId : expected.getItemCounts().keySet()) {
+                assertEquals(expected.getItemCount(menuItemId), actual.getItemCount(menuItemId));
+            }
+            for (int hour = 0; hour < 24; hour++) {
+                assertEquals(expected.getHourRevenueCents(hour), actual.getHourRevenueCents(hour));
+                assertEquals(expected.getHourOrderCount(hour), actual.getHourOrderCount(hour));
+            }
+        }
+    }
+
+    @Test
+    public void kitchenTransitions_leaveTheRollupsAlone() {
+        Order before = order(new Random(1), 1);
+        before.setStatus("preparing");
+        Order after = OrderCodec.fromMap(before.toMap());
+        after.setStatus("ready");
+        assertNull(rollups.delta(before, after));
+
+        after.setStatus("completed");
+        after.setRestaurantId("");
+        assertNull(rollups.delta(before, after));
+    }
+
+    @Test
+    public void completeReopenComplete_countsTheSaleOnce() {
+        Order order = order(new Random(4), 4);
+        order.setStatus("ready");
+        String day = rollups.dayOf(order.getCreatedAt());
+        Map<String, SalesRollup> live = new HashMap<>();
+
+        Order completed = transition(live, order, "completed");
+        Order reopened = transition(live, completed, "preparing");
+        Order completedAgain = transition(live, reopened, "completed");
+
+        assertSame(completed, reopened);
+        assertEquals("completed", completedAgain.getStatus());
+        SalesRollup rebuilt = rollups.aggregate("r1", Collections.singletonList(rollups.startOfDay(order.getCreatedAt())),
+                Collections.singletonList(completedAgain)).get(day);
+        assertEquals(1, live.get(day).getOrderCount());
+        assertEquals(rebuilt.getOrderCount(), live.get(day).getOrderCount());
+        assertEquals(rebuilt.getRevenueCents(), live.get(day).getRevenueCents());
+
+        // Cancelling a completed order is allowed and takes the sale out again
+        transition(live, completedAgain, "cancelled");
+        assertEquals(0, live.get(day).getOrderCount());
+        assertEquals(0, live.get(day).getRevenueCents());
+    }
+
+    @Test
+    public void refund_keepsTheSaleAndCountsTheRefundInTheSameDay() {
+        Order completed = order(new Random(2), 2);
+        completed.setStatus("completed");
+        Order refunded = OrderCodec.fromMap(completed.toMap());
+        refunded.setPaymentStatus("refunded");
+
+        SalesRollup delta = rollups.delta(completed, refunded);
+        assertEquals(rollups.dayOf(completed.getCreatedAt()), delta.getDay());
+        assertEquals(0, delta.getRevenueCents());
+        assertEquals(0, delta.getOrderCount());
+        assertEquals(1, delta.getRefundCount());
+        assertEquals(completed.getTotalCents(), delta.getRefundedCents());
+
+        SalesRollup day = rollups.aggregate("r1", Collections.singletonList(rollups.startOfDay(completed.getCreatedAt())),
+                Collections.singletonList(refunded)).get(delta.getDay());
+        assertEquals(completed.getTotalCents(), day.getRevenueCents());
+        assertEquals(0, day.getNetRevenueCents());
+        assertEquals(completed.getTotalCents(), day.getAverageTicketCents());
+    }
+
+    @Test
+    public void days_followTheTimeZoneAcrossClockChanges() {
+        long lateEvening = DAY_START - 60_000L; // 23:59 the day before
+        assertEquals("20231114", rollups.dayOf(lateEvening));
+        assertEquals(23, rollups.hourOf(lateEvening));
+        assertEquals("20231115", rollups.dayOf(DAY_START));
+        assertEquals(DAY_START, rollups.startOfDay(DAY_START + 5 * 3_600_000L));
+
+        // The clocks went back on 2023-10-29, a 25 hour day
+        long clocksBack = rollups.startOfDay(1_698_537_600_000L);
+        assertEquals("20231029", rollups.dayOf(clocksBack));
+        assertEquals(25 * 3_600_000L, rollups.startOfNextDay(clocksBack) - clocksBack);
+        assertEquals(2, rollups.dayStarts(clocksBack, clocksBack + 48 * 3_600_000L).size());
+        assertEquals(3, rollups.dayStarts(clocksBack, clocksBack + 49 * 3_600_000L).size());
+    }
+
+    private static Order order(Random random, int i) {
+        Order order = new Order("o" + i, "table");
+        order.setRestaurantId("r1");
+        order.setCreatedAt(DAY_START + random.nextInt(3 * 86_400_000));
+        for (int j = 0, count = 1 + random.nextInt(4); j < count; j++) {
+            order.addItem(new OrderItem("m" + random.nextInt(10), "Item", 1 + random.nextInt(3),
+                    random.nextInt(5_000) / 100.0));
+        }
+        order.setStatus(STATUSES[random.nextInt(STATUSES.length)]);
+        return order;
+    }
+
+    /**
+     * What FirebaseDatabaseService.transitionOrder does: refuse a reopen, otherwise apply the delta
+     * @return the stored order afterwards
+     */
+    private Order transition(Map<String, SalesRollup> live, Order before, String status) {
+        Order after = OrderCodec.fromMap(before.toMap());
+        after.setStatus(status);
+        if (SalesRollups.reopens(before, after)) {
+            return before;
+        }
+        SalesRollup delta = rollups.delta(before, after);
+        if (delta != null) {
+            apply(live, delta);
+        }
+        return after;
+    }
+
+    /**
+     * What the Firestore increments do to the stored rollup
+     */
+    private static void apply(Map<String, SalesRollup> live, SalesRollup delta) {
+        SalesRollup rollup = live.computeIfAbsent(delta.getDay(), day -> new SalesRollup("r1", day));
+        rollup.setRevenueCents(rollup.getRevenueCents() + delta.getRevenueCents());
+        rollup.setOrderCount(rollup.getOrderCount() + delta.getOrderCount());
+        rollup.setItemCount(rollup.getItemCount() + delta.getItemCount());
+        rollup.setRefundCount(rollup.getRefundCount() + delta.getRefundCount());
+        rollup.setRefundedCents(rollup.getRefundedCents() + delta.getRefundedCents());
+        for (String menuItemId : delta.getItemCounts().keySet()) {
+            rollup.getItemCounts().put(menuItemId, rollup.getItemCount(menuItemId) + delta.getItemCount(menuItemId));
+        }
+        for (int hour = 0; hour < 24; hour++) {
+            Map<String, Object> counts = new HashMap<>();
+            counts.put("revenueCents", rollup.getHourRevenueCents(hour) + delta.getHourRevenueCents(hour));
+            counts.put("orderCount", rollup.getHourOrderCount(hour) + delta.getHourOrderCount(hour));
+            rollup.getHours().put(hour < 10 ? "0" + hour : String.valueOf(hour), counts);
+        }
+    }
+}
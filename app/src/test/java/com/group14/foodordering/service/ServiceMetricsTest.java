@@ -0,0 +1,161 @@
+package com.group14.foodordering.service;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Latency histograms, listener snapshots, traces and payload estimates of ServiceMetrics
+ */
+public class ServiceMetricsTest {
+
+    private long nanos;
+    private ServiceMetrics metrics;
+
+    @Before
+    public void setUp() {
+        metrics = new ServiceMetrics(() -> nanos);
+    }
+
+    @Test
+    public void calls_fillTheLatencyHistogram() {
+        for (long millis : new long[]{3, 40, 40, 90, 700}) {
+            ServiceMetrics.Call call = metrics.start("getAllMenuItems");
+            nanos += millis * 1_000_000L;
+            call.read(12, 2_000, millis == 3).succeed();
+        }
+        ServiceMetrics.Call failed = metrics.start("getAllMenuItems");
+        nanos += 20_000 * 1_000_000L;
+        failed.fail();
+        failed.succeed(); // already finished
+
+        ServiceMetrics.OperationStats stats = metrics.getStats().get("getAllMenuItems");
+        assertEquals(6, stats.getCalls());
+        assertEquals(1, stats.getFailures());
+        assertEquals(60, stats.getDocumentsRead());
+        assertEquals(10_000, stats.getPayloadBytes());
+        assertEquals(1, stats.getFromCache());
+        assertEquals(4, stats.getFromServer());
+        assertEquals(50, stats.getPercentileMillis(0.5));
+        assertEquals(20_000, stats.getPercentileMillis(0.95));
+        assertEquals(20_000, stats.getMaxMillis());
+        long[] buckets = stats.getBuckets();
+        assertEquals(1, buckets[0]);
+        assertEquals(1, buckets[buckets.length - 1]);
+    }
+
+    @Test
+    public void listener_timesTheFirstSnapshotAndCountsUpdates() {
+        ServiceMetrics.Watch watch = metrics.watch("listenToPendingOrders");
+        nanos += 120 * 1_000_000L;
+        watch.onSnapshot(30, 9_000, true);
+        nanos += 60_000 * 1_000_000L;
+        watch.onSnapshot(2, 600, false);
+        watch.onSnapshot(1, 300, false);
+        watch.onError();
+
+        ServiceMetrics.OperationStats stats = metrics.getStats().get("listenToPendingOrders");
+        assertEquals(1, stats.getCalls());
+        assertEquals(2, stats.getUpdates());
+        assertEquals(1, stats.getFailures());
+        assertEquals(120, stats.getMaxMillis());
+        assertEquals(33, stats.getDocumentsRead());
+        assertEquals(9_900, stats.getPayloadBytes());
+        assertEquals(1, stats.getFromCache());
+        assertEquals(2, stats.getFromServer());
+    }
+
+    @Test
+    public void tracer_getsOneSpanPerCall() {
+        List<String> events = new ArrayList<>();
+        metrics.setTracer(name -> {
+            events.add("start " + name);
+            return new ServiceMetrics.Span() {
+                @Override
+                public void putMetric(String metric, long value) {
+                    events.add(metric + "=" + value);
+                }
+
+                @Override
+                public void putAttribute(String attribute, String value) {
+                    events.add(attribute + "=" + value);
+                }
+
+                @Override
+                public void stop() {
+                    events.add("stop");
+                }
+            };
+        });
+
+        metrics.start("createOrder").wrote(1, 400).succeed();
+
+        assertEquals(Arrays.asList("start db_createOrder", "documents_read=0", "documents_written=1",
+                "payload_bytes=400", "source=none", "outcome=success", "stop"), events);
+    }
+
+    @Test
+    public void attribute_goesToTheSpanBeforeItStops() {
+        List<String> attributes = new ArrayList<>();
+        metrics.setTracer(name -> new ServiceMetrics.Span() {
+            @Override
+            public void putMetric(String metric, long value) {
+            }
+
+            @Override
+            public void putAttribute(String attribute, String value) {
+                attributes.add(attribute + "=" + value);
+            }
+
+            @Override
+            public void stop() {
+                attributes.add("stop");
+            }
+        });
+
+        metrics.start("timeToFirstMenu").attribute("prefetch", "warm").succeed();
+        metrics.setTracer(null);
+        metrics.start("timeToFirstMenu").attribute("prefetch", "cold").succeed();
+
+        assertEquals(Arrays.asList("prefetch=warm", "source=none", "outcome=success", "stop"), attributes);
+        assertEquals(2, metrics.getStats().get("timeToFirstMenu").getCalls());
+    }
+
+    @Test
+    public void documentSize_followsFirestoreStorageRules() {
+        // The task document of the Firestore storage size example is 147 bytes
+        Map<String, Object> task = new LinkedHashMap<>();
+        task.put("type", "Personal");
+        task.put("done", false);
+        task.put("priority", 1);
+        task.put("description", "Learn Cloud Firestore");
+        assertEquals(147, ServiceMetrics.estimateDocumentBytes("users/jeff/tasks/my_task_id", task));
+
+        assertEquals(1 + 3 + 8, ServiceMetrics.estimateValueBytes(Arrays.asList(null, "\u00e9", 2.5)));
+        assertEquals(6 + 4, ServiceMetrics.estimateValueBytes(Collections.singletonMap("items",
+                new WriteOutbox.ArrayUnion(Collections.singletonList("abc")))));
+    }
+
+    @Test
+    public void export_listsEveryOperation() {
+        metrics.start("getOrderById").read(1, 500, false).succeed();
+        metrics.start("updateTableStatus").fail();
+
+        String json = metrics.toJson(1_700_000_000_000L);
+
+        assertTrue(json.contains("\"exportedAt\": 1700000000000"));
+        assertTrue(json.contains("\"operation\": \"getOrderById\""));
+        assertTrue(json.contains("\"operation\": \"updateTableStatus\""));
+        assertTrue(json.contains("\"failures\": 1"));
+        assertEquals("{\n  \"exportedAt\": 0,\n  \"latencyBoundsMs\": [5, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000],"
+                + "\n  \"operations\": []\n}\n", new ServiceMetrics().toJson(0));
+    }
+}
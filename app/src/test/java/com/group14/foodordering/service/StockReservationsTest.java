@@ -0,0 +1,228 @@
+package com.group14.foodordering.service;
+
+import com.group14.foodordering.model.MenuItem;
+import com.group14.foodordering.model.Order;
+import com.group14.foodordering.model.OrderItem;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Stock reservation plans, and many devices checking out the same item against an in-memory store
+ * with Firestore's optimistic transactions (a transaction retries when a document it read changed)
+ */
+public class StockReservationsTest {
+    private static final int DEVICES = 20;
+
+    /**
+     * Shard documents with versions; commits are checked against the versions that were read
+     */
+    private static class ShardStore {
+        private final Map<String, Long> available = new HashMap<>();
+        private final Map<String, Long> versions = new HashMap<>();
+
+        ShardStore(String menuItemId, long stock) {
+            long[] shards = StockReservations.split(stock);
+            for (int shard = 0; shard < shards.length; shard++) {
+                available.put(key(menuItemId, shard), shards[shard]);
+                versions.put(key(menuItemId, shard), 0L);
+            }
+        }
+
+        /**
+         * Run a checkout transaction until it commits or finds too little stock
+         */
+        StockReservations.Plan checkout(Map<String, Integer> quantities, Random random) throws Exception {
+            while (true) {
+                Map<String, Long> readVersions = new HashMap<>();
+                StockReservations.Plan plan = StockReservations.plan(quantities, (menuItemId, shard) -> {
+                    synchronized (this) {
+                        String key = key(menuItemId, shard);
+                        readVersions.put(key, versions.get(key));
+                        return available.get(key);
+                    }
+                }, random);
+                Thread.sleep(1); // the round trip to the server, when other devices commit
+                synchronized (this) {
+                    boolean unchanged = true;
+                    for (Map.Entry<String, Long> read : readVersions.entrySet()) {
+                        unchanged &= Objects.equals(versions.get(read.getKey()), read.getValue());
+                    }
+                    if (unchanged) {
+                        for (Map.Entry<String, long[]> entry : plan.taken.entrySet()) {
+                            for (int shard = 0; shard < StockReservations.SHARDS; shard++) {
+                                String key = key(entry.getKey(), shard);
+                                if (entry.getValue()[shard] > 0) {
+                                    available.put(key, available.get(key) - entry.getValue()[shard]);
+                                    versions.put(key, versions.get(key) + 1);
+                                }
+                            }
+                        }
+                        return plan;
+                    }
+                }
+            }
+        }
+
+        synchronized long total(String menuItemId) {
+            long total = 0;
+            for (int shard = 0; shard < StockReservations.SHARDS; shard++) {
+                long value = available.get(key(menuItemId, shard));
+                assertTrue("shard " + shard + " went negative", value >= 0);
+                total += value;
+            }
+            return total;
+        }
+
+        private static String key(String menuItemId, int shard) {
+            return menuItemId + "/" + shard;
+        }
+    }
+
+    @Test
+    public void tracksAny_onlyForTrackedOrUnknownItems() {
+        MenuItem unlimited = new MenuItem("item_1", "Tea", "", 2.0, "drinks");
+        MenuItem tracked = new MenuItem("item_2", "Cake", "", 4.0, "desserts");
+        tracked.setStock(12);
+        List<MenuItem> menu = Arrays.asList(unlimited, tracked);
+
+        assertFalse(StockReservations.tracksAny(order("item_1"), menu));
+        assertTrue(StockReservations.tracksAny(order("item_1", "item_2"), menu));
+        assertTrue(StockReservations.tracksAny(order("item_9"), menu));
+    }
+
+    @Test
+    public void concurrentCheckouts_neverOversell() throws Exception {
+        ShardStore store = new ShardStore("special", 25);
+        List<StockReservations.Plan> placed = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger outOfStock = new AtomicInteger();
+
+        runDevices(device -> {
+            try {
+                placed.add(store.checkout(Collections.singletonMap("special", 2), new Random(device)));
+            } catch (FirebaseDatabaseService.OutOfStockException e) {
+                assertEquals(Collections.singletonList("special"), e.getMenuItemIds());
+                outOfStock.incrementAndGet();
+            }
+        });
+
+        assertEquals(12, placed.size());
+        assertEquals(DEVICES - 12, outOfStock.get());
+        assertEquals(1, store.total("special"));
+    }
+
+    @Test
+    public void concurrentCheckouts_sellOutExactlyOnce() throws Exception {
+        ShardStore store = new ShardStore("special", DEVICES);
+        List<StockReservations.Plan> placed = Collections.synchronizedList(new ArrayList<>());
+
+        runDevices(device -> placed.add(store.checkout(Collections.singletonMap("special", 1), new Random(device))));
+
+        assertEquals(DEVICES, placed.size());
+        assertEquals(0, store.total("special"));
+        int soldOut = 0;
+        for (StockReservations.Plan plan : placed) {
+            soldOut += plan.soldOut.size();
+        }
+        assertEquals(1, soldOut);
+    }
+
+    @Test
+    public void plan_takesFromSeveralShardsAndSkipsUntrackedItems() throws Exception {
+        long[] shards = {0, 3, 0, 1, 0, 0, 2, 0};
+        Map<String, Integer> quantities = new LinkedHashMap<>();
+        quantities.put("special", 5);
+        quantities.put("water", 10);
+
+        StockReservations.Plan plan = StockReservations.plan(quantities,
+                (menuItemId, shard) -> "special".equals(menuItemId) ? shards[shard] : null, new Random(1));
+
+        assertEquals(Collections.singleton("special"), plan.taken.keySet());
+        long taken = 0;
+        for (int shard = 0; shard < shards.length; shard++) {
+            assertTrue(plan.taken.get("special")[shard] <= shards[shard]);
+            taken += plan.taken.get("special")[shard];
+        }
+        assertEquals(5, taken);
+        assertTrue(plan.soldOut.isEmpty());
+
+        Map<String, long[]> read = StockReservations.fromDocument(StockReservations.toDocument("0001", plan));
+        assertArrayEquals(plan.taken.get("special"), read.get("special"));
+    }
+
+    @Test
+    public void cancelAfterUntrack_putsNothingBack() throws Exception {
+        long[] shards = {0, 3, 0, 1, 0, 0, 2, 0};
+        Map<String, Integer> quantities = new LinkedHashMap<>();
+        quantities.put("special", 5);
+        quantities.put("soup", 1);
+        StockReservations.Plan plan = StockReservations.plan(quantities,
+                (menuItemId, shard) -> "special".equals(menuItemId) ? shards[shard] : 4L, new Random(1));
+        Map<String, long[]> reserved = StockReservations.fromDocument(StockReservations.toDocument("0001", plan));
+
+        // Soup stopped being tracked after the checkout, so its shards were deleted
+        Map<String, long[]> released = StockReservations.release(reserved,
+                (menuItemId, shard) -> "special".equals(menuItemId) ? shards[shard] : null);
+
+        assertEquals(Collections.singleton("special"), released.keySet());
+        assertArrayEquals(plan.taken.get("special"), released.get("special"));
+        assertTrue(StockReservations.release(reserved, (menuItemId, shard) -> null).isEmpty());
+    }
+
+    @Test
+    public void split_spreadsTheStockEvenly() {
+        assertArrayEquals(new long[]{2, 2, 2, 1, 1, 1, 1, 1}, StockReservations.split(11));
+        assertArrayEquals(new long[StockReservations.SHARDS], StockReservations.split(0));
+    }
+
+    private interface Device {
+        void checkout(int device) throws Exception;
+    }
+
+    /**
+     * Start every device's checkout at once and wait for all of them
+     */
+    private static void runDevices(Device body) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(DEVICES);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> results = new ArrayList<>();
+        for (int device = 0; device < DEVICES; device++) {
+            int id = device;
+            results.add(executor.submit(() -> {
+                start.await();
+                body.checkout(id);
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> result : results) {
+            result.get(10, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+    }
+
+    private static Order order(String... menuItemIds) {
+        Order order = new Order("0001", "takeaway");
+        for (String menuItemId : menuItemIds) {
+            order.addItem(new OrderItem(menuItemId, menuItemId, 1, 2.0));
+        }
+        return order;
+    }
+}
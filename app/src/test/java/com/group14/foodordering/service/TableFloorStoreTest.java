@@ -0,0 +1,94 @@
+package com.group14.foodordering.service;
+
+import com.group14.foodordering.model.Table;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Natural ordering and per-table change notifications of TableFloorStore
+ */
+public class TableFloorStoreTest {
+
+    private final List<String> events = new ArrayList<>();
+    private TableFloorStore store;
+
+    @Before
+    public void setUp() {
+        store = new TableFloorStore();
+        store.setListener(new TableFloorStore.Listener() {
+            @Override
+            public void onTablesReset() {
+                events.add("reset");
+            }
+
+            @Override
+            public void onTableInserted(int position) {
+                events.add("inserted " + position);
+            }
+
+            @Override
+            public void onTableRemoved(int position) {
+                events.add("removed " + position);
+            }
+
+            @Override
+            public void onTableChanged(int position) {
+                events.add("changed " + position);
+            }
+
+            @Override
+            public void onTableMoved(int fromPosition, int toPosition) {
+                events.add("moved " + fromPosition + " " + toPosition);
+            }
+        });
+        store.apply(Arrays.asList(table("t10", "10"), table("t2", "2"), table("tA", "A1"), table("t1", "1")),
+                Collections.emptyList());
+    }
+
+    @Test
+    public void firstLoad_isInNaturalOrder() {
+        assertEquals(Collections.singletonList("reset"), events);
+        assertEquals(Arrays.asList("1", "2", "10", "A1"), numbers());
+    }
+
+    @Test
+    public void statusChange_redrawsOnlyThatTable() {
+        events.clear();
+        Table occupied = table("t10", "10");
+        occupied.setStatus("occupied");
+        store.apply(Arrays.asList(occupied, table("t2", "2")), Collections.emptyList());
+
+        // Table 2 only got a new updatedAt, which the floor does not show
+        assertEquals(Collections.singletonList("changed 2"), events);
+        assertEquals("occupied", store.get(2).getStatus());
+    }
+
+    @Test
+    public void insertRemoveAndRenumber_reportPositions() {
+        events.clear();
+        store.apply(Arrays.asList(table("t3", "03"), table("t1", "11")), Collections.singletonList("t2"));
+
+        assertEquals(Arrays.asList("removed 1", "inserted 1", "moved 0 2", "changed 2"), events);
+        assertEquals(Arrays.asList("03", "10", "11", "A1"), numbers());
+    }
+
+    private List<String> numbers() {
+        List<String> numbers = new ArrayList<>();
+        for (Table table : store.getTables()) {
+            numbers.add(table.getTableNumber());
+        }
+        return numbers;
+    }
+
+    private static Table table(String tableId, String tableNumber) {
+        return new Table(tableId, tableNumber, "branch_001", 4);
+    }
+}
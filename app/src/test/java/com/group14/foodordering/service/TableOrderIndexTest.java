@@ -0,0 +1,76 @@
+package com.group14.foodordering.service;
+
+import com.group14.foodordering.model.Order;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Table lookups of TableOrderIndex as active-order changes arrive
+ */
+public class TableOrderIndexTest {
+
+    @Test
+    public void activeOrders_areGroupedByTableNewestFirst() {
+        TableOrderIndex index = new TableOrderIndex("rest_1");
+        index.apply(Arrays.asList(order("0001", "5", "pending", 100), order("0002", "5", "ready", 200),
+                order("0003", "7", "preparing", 150), order("0004", "5", "pending", 300, "rest_2")),
+                Collections.emptyList());
+
+        assertEquals(Arrays.asList("0002", "0001"), ids(index.getActiveOrders("5")));
+        assertEquals(Collections.singletonList("0003"), ids(index.getActiveOrders("7")));
+        assertNull(index.getOrder("0004")); // other restaurant
+    }
+
+    @Test
+    public void completedOrRemovedOrders_leaveTheirTable() {
+        TableOrderIndex index = new TableOrderIndex(null);
+        index.apply(Arrays.asList(order("0001", "5", "pending", 100), order("0002", "5", "pending", 200)),
+                Collections.emptyList());
+
+        index.put(order("0001", "5", "completed", 100));
+        index.apply(Collections.singletonList(order("0003", "6", "pending", 300)), Collections.singletonList("0002"));
+
+        assertTrue(index.getActiveOrders("5").isEmpty());
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    public void waiters_runOnceTheFirstSnapshotIsIn() {
+        TableOrderIndex index = new TableOrderIndex(null);
+        List<Boolean> runs = new ArrayList<>();
+        index.whenReady(() -> runs.add(index.isReady()));
+        assertTrue(runs.isEmpty());
+
+        index.apply(Collections.emptyList(), Collections.emptyList());
+        index.whenReady(() -> runs.add(index.isReady()));
+        assertEquals(Arrays.asList(true, true), runs);
+    }
+
+    private static List<String> ids(List<Order> orders) {
+        List<String> ids = new ArrayList<>();
+        for (Order order : orders) {
+            ids.add(order.getOrderId());
+        }
+        return ids;
+    }
+
+    private static Order order(String orderId, String tableNumber, String status, long createdAt) {
+        return order(orderId, tableNumber, status, createdAt, "rest_1");
+    }
+
+    private static Order order(String orderId, String tableNumber, String status, long createdAt, String restaurantId) {
+        Order order = new Order(orderId, "table");
+        order.setTableNumber(tableNumber);
+        order.setStatus(status);
+        order.setCreatedAt(createdAt);
+        order.setRestaurantId(restaurantId);
+        return order;
+    }
+}
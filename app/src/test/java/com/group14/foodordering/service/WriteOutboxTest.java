@@ -0,0 +1,230 @@
+package com.group14.foodordering.service;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Journal replay, idempotency and batching of WriteOutbox, with a sink that completes on demand
+ */
+public class WriteOutboxTest {
+
+    /**
+     * Sink that records every commit and leaves it open until the test completes it
+     */
+    private static class HeldSink implements WriteOutbox.Sink {
+        final List<List<WriteOutbox.Record>> commits = new ArrayList<>();
+        final List<WriteOutbox.SinkCallback> callbacks = new ArrayList<>();
+
+        @Override
+        public void commit(List<WriteOutbox.Record> records, WriteOutbox.SinkCallback callback) {
+            commits.add(records);
+            callbacks.add(callback);
+        }
+    }
+
+    private static class Accepted implements WriteOutbox.EnqueueCallback {
+        final List<String> documentIds = new ArrayList<>();
+
+        @Override
+        public void onAccepted(String documentId) {
+            documentIds.add(documentId);
+        }
+
+        @Override
+        public void onFailure(Exception e) {
+            fail("Unexpected failure: " + e);
+        }
+    }
+
+    private File journal;
+
+    @Before
+    public void setUp() throws IOException {
+        journal = File.createTempFile("outbox", ".journal");
+        assertTrue(journal.delete());
+    }
+
+    @After
+    public void tearDown() {
+        journal.delete();
+    }
+
+    @Test
+    public void pendingWrites_areReplayedInOrderAsOneBatch() {
+        HeldSink firstRun = new HeldSink();
+        WriteOutbox outbox = new WriteOutbox(journal, firstRun, Runnable::run);
+        Accepted accepted = new Accepted();
+        outbox.enqueue("key-1", "0001", order("0001", 12.5), accepted);
+        outbox.enqueue("key-2", "0001", status("0001", "preparing"), accepted);
+
+        // Accepted locally although nothing was committed
+        assertEquals(2, accepted.documentIds.size());
+        assertEquals(2, outbox.getPendingCount());
+
+        // The process dies; the next start sends both records together, in order
+        HeldSink secondRun = new HeldSink();
+        WriteOutbox restarted = new WriteOutbox(journal, secondRun, Runnable::run);
+        assertEquals(1, secondRun.commits.size());
+        List<WriteOutbox.Record> batch = secondRun.commits.get(0);
+        assertEquals("key-1", batch.get(0).getIdempotencyKey());
+        assertEquals("key-2", batch.get(1).getIdempotencyKey());
+        assertEquals(12.5, batch.get(0).getOperations().get(0).getData().get("total"));
+        assertEquals(3L, batch.get(0).getOperations().get(0).getData().get("quantity"));
+        // Still a create, so the sink will not overwrite an order this record already wrote
+        assertEquals(WriteOutbox.OP_CREATE, batch.get(0).getOperations().get(0).getKind());
+
+        secondRun.callbacks.get(0).onCommitted();
+        assertEquals(0, restarted.getPendingCount());
+        HeldSink thirdRun = new HeldSink();
+        new WriteOutbox(journal, thirdRun, Runnable::run);
+        assertTrue(thirdRun.commits.isEmpty());
+    }
+
+    @Test
+    public void repeatedKey_isAcceptedWithTheOriginalDocumentOnly() {
+        HeldSink sink = new HeldSink();
+        WriteOutbox outbox = new WriteOutbox(journal, sink, Runnable::run);
+        Accepted accepted = new Accepted();
+        outbox.enqueue("checkout-1", "0001", order("0001", 10), accepted);
+        outbox.enqueue("checkout-1", "0002", order("0002", 10), accepted);
+        sink.callbacks.get(0).onCommitted();
+        outbox.enqueue("checkout-1", "0003", order("0003", 10), accepted);
+
+        assertEquals(Arrays.asList("0001", "0001", "0001"), accepted.documentIds);
+        assertEquals(1, sink.commits.size());
+    }
+
+    @Test
+    public void tornTail_isCutOffOnReplay() throws IOException {
+        WriteOutbox outbox = new WriteOutbox(journal, new HeldSink(), Runnable::run);
+        outbox.enqueue("key-1", "0001", order("0001", 10), new Accepted());
+        long validLength = journal.length();
+        try (FileOutputStream out = new FileOutputStream(journal, true)) {
+            out.write(new byte[]{0, 0, 0, 40, 1, 2, 3}); // half-written record
+        }
+
+        HeldSink sink = new HeldSink();
+        WriteOutbox restarted = new WriteOutbox(journal, sink, Runnable::run);
+        assertEquals(1, restarted.getPendingCount());
+        assertEquals(validLength, journal.length());
+        restarted.enqueue("key-2", "0002", order("0002", 10), new Accepted());
+
+        HeldSink afterAppend = new HeldSink();
+        assertEquals(2, new WriteOutbox(journal, afterAppend, Runnable::run).getPendingCount());
+    }
+
+    @Test
+    public void permanentlyFailingWrite_isIsolatedAndDropped() {
+        HeldSink firstRun = new HeldSink();
+        WriteOutbox outbox = new WriteOutbox(journal, firstRun, Runnable::run);
+        outbox.enqueue("good", "0001", order("0001", 10), new Accepted());
+        outbox.enqueue("bad", "0404", status("0404", "ready"), new Accepted());
+
+        HeldSink sink = new HeldSink();
+        List<String> dropped = new ArrayList<>();
+        WriteOutbox restarted = new WriteOutbox(journal, sink,
+                (record, e) -> dropped.add(record.getIdempotencyKey() + ": " + e.getMessage()), Runnable::run);
+        sink.callbacks.get(0).onFailed(new Exception("not found"), true);
+
+        // Both records are retried on their own
+        assertEquals(3, sink.commits.size());
+        sink.callbacks.get(1).onCommitted();
+        sink.callbacks.get(2).onFailed(new Exception("not found"), true);
+        assertEquals(0, restarted.getPendingCount());
+        assertEquals(1, restarted.getDroppedCount());
+        // The caller was told the write was accepted, so the drop is reported
+        assertEquals(Collections.singletonList("bad: not found"), dropped);
+    }
+
+    @Test
+    public void find_knowsPendingAndCommittedKeys() {
+        HeldSink sink = new HeldSink();
+        WriteOutbox outbox = new WriteOutbox(journal, sink, Runnable::run);
+        outbox.enqueue("checkout-1", "0001", order("0001", 10), new Accepted());
+        List<String> found = new ArrayList<>();
+        outbox.find("checkout-1", found::add);
+        sink.callbacks.get(0).onCommitted();
+        outbox.find("checkout-1", found::add);
+        outbox.find("checkout-2", found::add);
+
+        assertEquals(Arrays.asList("0001", "0001", null), found);
+    }
+
+    @Test
+    public void commitCallback_waitsForTheServer() {
+        HeldSink sink = new HeldSink();
+        WriteOutbox outbox = new WriteOutbox(journal, sink, Runnable::run);
+        List<String> committed = new ArrayList<>();
+        List<Exception> dropped = new ArrayList<>();
+        WriteOutbox.CommitCallback waiting = new WriteOutbox.CommitCallback() {
+            @Override
+            public void onCommitted(String documentId) {
+                committed.add(documentId);
+            }
+
+            @Override
+            public void onDropped(Exception e) {
+                dropped.add(e);
+            }
+        };
+        outbox.enqueue("status-1", "0001", status("0001", "preparing"), new Accepted(), waiting);
+        assertTrue(committed.isEmpty());
+        sink.callbacks.get(0).onCommitted();
+        assertEquals(Collections.singletonList("0001"), committed);
+
+        Exception notFound = new Exception("not found");
+        outbox.enqueue("status-2", "0002", status("0002", "preparing"), new Accepted(), waiting);
+        sink.callbacks.get(1).onFailed(notFound, true);
+        assertEquals(Collections.singletonList(notFound), dropped);
+        assertEquals(1, committed.size());
+    }
+
+    @Test
+    public void listAppends_surviveReplay() {
+        Map<String, Object> item = new HashMap<>();
+        item.put("orderItemId", "oi_2");
+        Map<String, Object> data = new HashMap<>();
+        data.put("items", new WriteOutbox.ArrayUnion(Collections.singletonList(item)));
+        data.put("total", 20.5);
+        new WriteOutbox(journal, new HeldSink(), Runnable::run).enqueue("append", "0001",
+                Collections.singletonList(WriteOutbox.Operation.update("orders", "0001", data)), new Accepted());
+
+        HeldSink sink = new HeldSink();
+        new WriteOutbox(journal, sink, Runnable::run);
+        Object items = sink.commits.get(0).get(0).getOperations().get(0).getData().get("items");
+        assertTrue(items instanceof WriteOutbox.ArrayUnion);
+        assertEquals(Collections.singletonList(item), ((WriteOutbox.ArrayUnion) items).getElements());
+    }
+
+    private static List<WriteOutbox.Operation> order(String orderId, double total) {
+        Map<String, Object> item = new HashMap<>();
+        item.put("menuItemId", "item_1");
+        item.put("quantity", 3);
+        Map<String, Object> data = new HashMap<>();
+        data.put("orderId", orderId);
+        data.put("total", total);
+        data.put("quantity", 3);
+        data.put("items", Collections.singletonList(item));
+        data.put("tableNumber", null);
+        return Collections.singletonList(WriteOutbox.Operation.create("orders", orderId, data));
+    }
+
+    private static List<WriteOutbox.Operation> status(String orderId, String status) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("status", status);
+        return Collections.singletonList(WriteOutbox.Operation.update("orders", orderId, data));
+    }
+}
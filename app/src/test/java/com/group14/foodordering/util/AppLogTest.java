@@ -0,0 +1,89 @@
+package com.group14.foodordering.util;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class AppLogTest {
+
+    private final List<String> written = new ArrayList<>();
+    private final List<Throwable> errors = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        AppLog.setSink((level, tag, message, error) -> {
+            written.add(tag + ": " + message);
+            errors.add(error);
+        });
+        AppLog.clearRecent();
+    }
+
+    @After
+    public void tearDown() {
+        AppLog.setSink(null);
+        AppLog.clearRecent();
+    }
+
+    @Test
+    public void format_fillsPlaceholdersInOrder() {
+        assertEquals("Order 0042: 3 items", AppLog.format("Order {}: {} items", 2, "0042", 3, null, null));
+        assertEquals("a=1 b={}", AppLog.format("a={} b={}", 1, 1, null, null, null));
+        assertEquals("no args", AppLog.format("no args", 2, "x", "y", null, null));
+        assertEquals("null", AppLog.format("{}", 1, null, null, null, null));
+    }
+
+    @Test
+    public void trailingThrowable_isLoggedAsTheError() {
+        IllegalStateException failure = new IllegalStateException("boom");
+
+        AppLog.e("Tag", "Failed to load {}", "menu", failure);
+        AppLog.w("Tag", "Cause: {}", failure);
+
+        assertEquals("Tag: Failed to load menu", written.get(0));
+        assertSame(failure, errors.get(0));
+        assertEquals("Tag: Cause: java.lang.IllegalStateException: boom", written.get(1));
+        assertNull(errors.get(1));
+    }
+
+    @Test
+    public void recentEvents_keepTheLastEventsOldestFirst() {
+        for (int i = 0; i < AppLog.RECENT_CAPACITY + 10; i++) {
+            AppLog.w("Tag", "event {}", i);
+        }
+
+        String[] lines = AppLog.dumpRecent().split("\n");
+
+        assertEquals(AppLog.RECENT_CAPACITY, lines.length);
+        assertTrue(lines[0].endsWith("W/Tag: event 10"));
+        assertTrue(lines[lines.length - 1].endsWith("W/Tag: event " + (AppLog.RECENT_CAPACITY + 9)));
+    }
+
+    @Test
+    public void recentEvents_keepArgumentsAsLogged() {
+        StringBuilder value = new StringBuilder("before");
+        AppLog.i("Tag", "value {}", value);
+        value.setLength(0);
+        value.append("after");
+
+        assertTrue(AppLog.dumpRecent().contains("I/Tag: value before"));
+    }
+
+    @Test
+    public void sampler_letsThroughOneOfEveryN() {
+        AppLog.Sampler sampler = new AppLog.Sampler(3);
+        int passed = 0;
+        for (int i = 0; i < 9; i++) {
+            if (sampler.sample()) {
+                passed++;
+            }
+        }
+
+        assertEquals(3, passed);
+        assertTrue(new AppLog.Sampler(1).sample());
+    }
+}
@@ -0,0 +1,43 @@
+package com.group14.foodordering.util;
+
+import com.group14.foodordering.model.Admin;
+import com.group14.foodordering.model.User;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * Normalization of login index keys
+ */
+public class LoginKeyHelperTest {
+
+    @Test
+    public void loginInput_matchesStoredKeysDespiteFormatting() {
+        User user = new User("user_1", "Amy@Example.com", "Amy", "9123 4567", "customer");
+        assertTrue(LoginKeyHelper.keysForUser(user)
+                .containsAll(LoginKeyHelper.keysForLogin(" amy@example.COM ", false)));
+        assertTrue(LoginKeyHelper.keysForUser(user)
+                .containsAll(LoginKeyHelper.keysForLogin("9123-4567", false)));
+    }
+
+    @Test
+    public void staffIdKey_isOnlyIncludedForStaffLogins() {
+        Admin admin = new Admin("STAFF001", "user_1", "staff@example.com", "Sam", "+852 9123 4567",
+                new ArrayList<>());
+        assertEquals(Arrays.asList("staff:staff001", "phone:+85291234567", "email:staff@example.com"),
+                LoginKeyHelper.keysForAdmin(admin));
+        assertEquals(Arrays.asList("staff:staff001"), LoginKeyHelper.keysForLogin("staff001", true));
+        assertTrue(LoginKeyHelper.keysForLogin("staff001", false).isEmpty());
+    }
+
+    @Test
+    public void keys_areValidDocumentIds() {
+        assertNull(LoginKeyHelper.phoneKey("12ab"));
+        assertNull(LoginKeyHelper.emailKey("not-an-email"));
+        assertEquals("staff:a%2Fb", LoginKeyHelper.staffIdKey("a/b"));
+    }
+}
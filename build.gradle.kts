@@ -3,4 +3,5 @@ plugins {
     alias(libs.plugins.android.application) apply false
     alias(libs.plugins.google.gms.google.services) apply false
     alias(libs.plugins.google.firebase.firebase.perf) apply false
+    alias(libs.plugins.jmh) apply false
 }
\ No newline at end of file
@@ -0,0 +1,357 @@
+package com.group14.foodordering.codec.processor;
+
+import com.group14.foodordering.codec.CodecField;
+import com.group14.foodordering.codec.FirestoreCodec;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+
+/**
+ * Annotation processor generating reflection-free Firestore codecs
+ * For every class annotated with {@link FirestoreCodec} it writes {@code <Model>Codec}
+ * with static {@code fromMap}, {@code toMap}, {@code encodeField} and {@code decodeField}
+ * methods that call the model's getters and setters directly
+ */
+@SupportedAnnotationTypes("com.group14.foodordering.codec.FirestoreCodec")
+public class FirestoreCodecProcessor extends AbstractProcessor {
+
+    private enum Kind {
+        STRING, INT, LONG, DOUBLE, FLOAT, BOOLEAN, STRING_LIST, MODEL_LIST, MAP, CENTS
+    }
+
+    private static class FieldInfo {
+        String key;
+        String getter;
+        String setter;
+        Kind kind;
+        String nestedCodec; // fully qualified codec for MODEL_LIST
+        boolean emptyIfNull;
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (Element element : roundEnv.getElementsAnnotatedWith(FirestoreCodec.class)) {
+            if (element.getKind() != ElementKind.CLASS) {
+                error(element, "@FirestoreCodec can only be used on classes");
+                continue;
+            }
+            TypeElement type = (TypeElement) element;
+            List<FieldInfo> fields = collectFields(type);
+            if (fields != null) {
+                writeCodec(type, fields);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Collect mapped fields in declaration order, or null if the model is invalid
+     */
+    private List<FieldInfo> collectFields(TypeElement type) {
+        List<ExecutableElement> methods = ElementFilter.methodsIn(processingEnv.getElementUtils().getAllMembers(type));
+        boolean hasNoArgConstructor = false;
+        for (ExecutableElement constructor : ElementFilter.constructorsIn(type.getEnclosedElements())) {
+            if (constructor.getParameters().isEmpty() && constructor.getModifiers().contains(Modifier.PUBLIC)) {
+                hasNoArgConstructor = true;
+            }
+        }
+        if (!hasNoArgConstructor) {
+            error(type, "@FirestoreCodec class needs a public no-argument constructor");
+            return null;
+        }
+
+        List<FieldInfo> fields = new ArrayList<>();
+        boolean valid = true;
+        for (VariableElement field : ElementFilter.fieldsIn(type.getEnclosedElements())) {
+            Set<Modifier> modifiers = field.getModifiers();
+            if (modifiers.contains(Modifier.STATIC) || modifiers.contains(Modifier.TRANSIENT)) {
+                continue;
+            }
+            CodecField settings = field.getAnnotation(CodecField.class);
+            if (settings != null && settings.ignore()) {
+                continue;
+            }
+
+            String name = field.getSimpleName().toString();
+            FieldInfo info = new FieldInfo();
+            info.key = settings != null && !settings.name().isEmpty() ? settings.name() : name;
+            info.emptyIfNull = settings != null && settings.emptyIfNull();
+            if (settings != null && settings.cents()) {
+                if (field.asType().getKind() != TypeKind.LONG) {
+                    error(field, "cents fields must be long: " + name);
+                    valid = false;
+                    continue;
+                }
+                info.kind = Kind.CENTS;
+            } else if (!resolveKind(field, info)) {
+                valid = false;
+                continue;
+            }
+            info.getter = findAccessor(methods, getterNames(name), 0);
+            info.setter = findAccessor(methods, setterNames(name), 1);
+            if (info.getter == null || info.setter == null) {
+                error(field, "No " + (info.getter == null ? "getter" : "setter") + " found for field " + name);
+                valid = false;
+                continue;
+            }
+            fields.add(info);
+        }
+        return valid ? fields : null;
+    }
+
+    private boolean resolveKind(VariableElement field, FieldInfo info) {
+        TypeMirror type = field.asType();
+        switch (type.getKind()) {
+            case INT:
+                info.kind = Kind.INT;
+                return true;
+            case LONG:
+                info.kind = Kind.LONG;
+                return true;
+            case DOUBLE:
+                info.kind = Kind.DOUBLE;
+                return true;
+            case FLOAT:
+                info.kind = Kind.FLOAT;
+                return true;
+            case BOOLEAN:
+                info.kind = Kind.BOOLEAN;
+                return true;
+            case DECLARED:
+                break;
+            default:
+                error(field, "Unsupported field type: " + type);
+                return false;
+        }
+
+        DeclaredType declared = (DeclaredType) type;
+        String rawName = ((TypeElement) declared.asElement()).getQualifiedName().toString();
+        switch (rawName) {
+            case "java.lang.String":
+                info.kind = Kind.STRING;
+                return true;
+            case "java.util.Map":
+                info.kind = Kind.MAP;
+                return true;
+            case "java.util.List":
+                if (declared.getTypeArguments().size() == 1
+                        && declared.getTypeArguments().get(0).getKind() == TypeKind.DECLARED) {
+                    TypeElement elementType = (TypeElement) ((DeclaredType) declared.getTypeArguments().get(0)).asElement();
+                    if (elementType.getQualifiedName().contentEquals("java.lang.String")) {
+                        info.kind = Kind.STRING_LIST;
+                        return true;
+                    }
+                    if (elementType.getAnnotation(FirestoreCodec.class) != null) {
+                        info.kind = Kind.MODEL_LIST;
+                        info.nestedCodec = elementType.getQualifiedName() + "Codec";
+                        return true;
+                    }
+                }
+                error(field, "Lists must contain String or a @FirestoreCodec model: " + type);
+                return false;
+            default:
+                error(field, "Unsupported field type: " + type);
+                return false;
+        }
+    }
+
+    private static List<String> getterNames(String field) {
+        List<String> names = new ArrayList<>();
+        names.add("get" + capitalize(field));
+        names.add("is" + capitalize(field));
+        if (hasIsPrefix(field)) {
+            names.add(field); // isAvailable -> isAvailable()
+        }
+        return names;
+    }
+
+    private static List<String> setterNames(String field) {
+        List<String> names = new ArrayList<>();
+        names.add("set" + capitalize(field));
+        if (hasIsPrefix(field)) {
+            names.add("set" + field.substring(2)); // isAvailable -> setAvailable()
+        }
+        return names;
+    }
+
+    private static String findAccessor(List<ExecutableElement> methods, List<String> names, int parameterCount) {
+        for (String name : names) {
+            for (ExecutableElement method : methods) {
+                if (method.getSimpleName().contentEquals(name)
+                        && method.getParameters().size() == parameterCount
+                        && !method.getModifiers().contains(Modifier.STATIC)
+                        && method.getModifiers().contains(Modifier.PUBLIC)) {
+                    return name;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static boolean hasIsPrefix(String field) {
+        return field.length() > 2 && field.startsWith("is") && Character.isUpperCase(field.charAt(2));
+    }
+
+    private static String capitalize(String name) {
+        return Character.toUpperCase(name.charAt(0)) + name.substring(1);
+    }
+
+    private void writeCodec(TypeElement type, List<FieldInfo> fields) {
+        PackageElement packageElement = processingEnv.getElementUtils().getPackageOf(type);
+        String packageName = packageElement.getQualifiedName().toString();
+        String modelName = type.getSimpleName().toString();
+        String codecName = modelName + "Codec";
+
+        StringBuilder src = new StringBuilder();
+        src.append("// Generated by FirestoreCodecProcessor from ").append(modelName).append(". Do not edit.\n");
+        src.append("package ").append(packageName).append(";\n\n");
+        src.append("import com.group14.foodordering.codec.CodecSupport;\n\n");
+        src.append("import java.util.HashMap;\n");
+        src.append("import java.util.Map;\n\n");
+        src.append("/**\n * Reflection-free Firestore codec for {@link ").append(modelName).append("}\n */\n");
+        src.append("public final class ").append(codecName).append(" {\n\n");
+        src.append("    private ").append(codecName).append("() {\n    }\n\n");
+
+        // fromMap
+        src.append("    public static ").append(modelName).append(" fromMap(Map<String, Object> map) {\n");
+        src.append("        if (map == null) {\n            return null;\n        }\n");
+        src.append("        ").append(modelName).append(" model = new ").append(modelName).append("();\n");
+        src.append("        Object value;\n");
+        for (FieldInfo field : fields) {
+            src.append("        value = map.get(\"").append(field.key).append("\");\n");
+            appendRead(src, field, "        ");
+        }
+        src.append("        return model;\n    }\n\n");
+
+        // toMap
+        int capacity = fields.size() * 4 / 3 + 1;
+        src.append("    public static Map<String, Object> toMap(").append(modelName).append(" model) {\n");
+        src.append("        Map<String, Object> map = new HashMap<>(").append(capacity).append(");\n");
+        for (FieldInfo field : fields) {
+            src.append("        map.put(\"").append(field.key).append("\", ").append(writeExpression(field)).append(");\n");
+        }
+        src.append("        return map;\n    }\n\n");
+
+        // encodeField, for partial updates
+        src.append("    /**\n     * Stored value of one document key, as toMap would write it\n     */\n");
+        src.append("    public static Object encodeField(").append(modelName).append(" model, String key) {\n");
+        src.append("        switch (key) {\n");
+        for (FieldInfo field : fields) {
+            src.append("            case \"").append(field.key).append("\":\n");
+            src.append("                return ").append(writeExpression(field)).append(";\n");
+        }
+        src.append("            default:\n");
+        src.append("                throw new IllegalArgumentException(\"Unknown field: \" + key);\n");
+        src.append("        }\n    }\n\n");
+
+        // decodeField, for merging single fields
+        src.append("    /**\n     * Set one document key from a stored value, as fromMap would read it\n     */\n");
+        src.append("    public static void decodeField(").append(modelName).append(" model, String key, Object value) {\n");
+        src.append("        switch (key) {\n");
+        for (FieldInfo field : fields) {
+            src.append("            case \"").append(field.key).append("\":\n");
+            appendRead(src, field, "                ");
+            src.append("                return;\n");
+        }
+        src.append("            default:\n");
+        src.append("                throw new IllegalArgumentException(\"Unknown field: \" + key);\n");
+        src.append("        }\n    }\n}\n");
+
+        try {
+            JavaFileObject file = processingEnv.getFiler().createSourceFile(packageName + "." + codecName, type);
+            try (Writer writer = file.openWriter()) {
+                writer.write(src.toString());
+            }
+        } catch (IOException e) {
+            error(type, "Failed to write " + codecName + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Statement setting the field from {@code value}
+     */
+    private static void appendRead(StringBuilder src, FieldInfo field, String indent) {
+        String read = readExpression(field);
+        if (field.emptyIfNull && (field.kind == Kind.STRING || field.kind == Kind.STRING_LIST || field.kind == Kind.MODEL_LIST)) {
+            String empty = field.kind == Kind.STRING ? "\"\"" : "new java.util.ArrayList<>()";
+            src.append(indent).append("model.").append(field.setter).append("(value != null ? ")
+                    .append(read).append(" : ").append(empty).append(");\n");
+        } else {
+            src.append(indent).append("if (value != null) {\n");
+            src.append(indent).append("    model.").append(field.setter).append("(").append(read).append(");\n");
+            src.append(indent).append("}\n");
+        }
+    }
+
+    private static String readExpression(FieldInfo field) {
+        switch (field.kind) {
+            case STRING:
+                return "CodecSupport.asString(value)";
+            case INT:
+                return "CodecSupport.asInt(value)";
+            case LONG:
+                return "CodecSupport.asLong(value)";
+            case DOUBLE:
+                return "CodecSupport.asDouble(value)";
+            case FLOAT:
+                return "(float) CodecSupport.asDouble(value)";
+            case BOOLEAN:
+                return "CodecSupport.asBoolean(value)";
+            case CENTS:
+                return "CodecSupport.asCents(value)";
+            case STRING_LIST:
+                return "CodecSupport.asStringList(value)";
+            case MODEL_LIST:
+                return "CodecSupport.asList(value, " + field.nestedCodec + "::fromMap)";
+            case MAP:
+            default:
+                return "CodecSupport.asMap(value)";
+        }
+    }
+
+    private static String writeExpression(FieldInfo field) {
+        String get = "model." + field.getter + "()";
+        switch (field.kind) {
+            case STRING:
+            case STRING_LIST:
+                return field.emptyIfNull ? "CodecSupport.emptyIfNull(" + get + ")" : get;
+            case MODEL_LIST:
+                String list = "CodecSupport.toMapList(" + get + ", " + field.nestedCodec + "::toMap)";
+                return field.emptyIfNull ? "CodecSupport.emptyIfNull(" + list + ")" : list;
+            case CENTS:
+                return "CodecSupport.toAmount(" + get + ")";
+            default:
+                return get;
+        }
+    }
+
+    private void error(Element element, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+}
@@ -0,0 +1,33 @@
+package com.group14.foodordering.codec;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Optional per-field codec settings
+ */
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.FIELD)
+public @interface CodecField {
+    /**
+     * Document key, defaults to the field name (so "isAvailable" stays "isAvailable")
+     */
+    String name() default "";
+
+    /**
+     * Write and read null Strings as "" and null Lists as an empty list
+     */
+    boolean emptyIfNull() default false;
+
+    /**
+     * Leave this field out of the codec
+     */
+    boolean ignore() default false;
+
+    /**
+     * Money kept as a long of cents in the model and stored as a decimal amount (e.g. 2999 as 29.99)
+     */
+    boolean cents() default false;
+}
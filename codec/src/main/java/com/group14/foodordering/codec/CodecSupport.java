@@ -0,0 +1,158 @@
+package com.group14.foodordering.codec;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Value conversions used by generated codecs
+ * Firestore returns whole numbers as Long and decimals as Double, so numeric
+ * fields are converted through Number
+ */
+public final class CodecSupport {
+
+    private CodecSupport() {
+    }
+
+    /**
+     * Converts a nested map to a model
+     */
+    public interface Decoder<T> {
+        T fromMap(Map<String, Object> map);
+    }
+
+    /**
+     * Converts a model to a nested map
+     */
+    public interface Encoder<T> {
+        Map<String, Object> toMap(T model);
+    }
+
+    public static String asString(Object value) {
+        return value instanceof String ? (String) value : String.valueOf(value);
+    }
+
+    public static long asLong(Object value) {
+        if (value instanceof Number) {
+            return ((Number) value).longValue();
+        }
+        if (value instanceof String) {
+            return Long.parseLong((String) value);
+        }
+        throw new IllegalArgumentException("Expected a number but was " + value.getClass().getSimpleName());
+    }
+
+    public static int asInt(Object value) {
+        return (int) asLong(value);
+    }
+
+    public static double asDouble(Object value) {
+        if (value instanceof Number) {
+            return ((Number) value).doubleValue();
+        }
+        if (value instanceof String) {
+            return Double.parseDouble((String) value);
+        }
+        throw new IllegalArgumentException("Expected a number but was " + value.getClass().getSimpleName());
+    }
+
+    /**
+     * Reads a stored decimal amount as cents
+     */
+    public static long asCents(Object value) {
+        if (value instanceof Long || value instanceof Integer) {
+            return ((Number) value).longValue() * 100; // whole amounts come back as Long
+        }
+        return toCents(asDouble(value));
+    }
+
+    /**
+     * Rounds an amount to whole cents (29.99 to 2999)
+     */
+    public static long toCents(double amount) {
+        return Math.round(amount * 100);
+    }
+
+    /**
+     * Amount of a number of cents (2999 to 29.99), the closest double to the exact value
+     */
+    public static double toAmount(long cents) {
+        return cents / 100.0;
+    }
+
+    public static boolean asBoolean(Object value) {
+        if (value instanceof Boolean) {
+            return (Boolean) value;
+        }
+        if (value instanceof String) {
+            return Boolean.parseBoolean((String) value);
+        }
+        throw new IllegalArgumentException("Expected a boolean but was " + value.getClass().getSimpleName());
+    }
+
+    /**
+     * Reads a list of strings, also accepting legacy String[] values
+     */
+    public static List<String> asStringList(Object value) {
+        List<String> list = new ArrayList<>();
+        if (value instanceof List) {
+            for (Object element : (List<?>) value) {
+                if (element != null) {
+                    list.add(asString(element));
+                }
+            }
+        } else if (value instanceof String[]) {
+            Collections.addAll(list, (String[]) value);
+        }
+        return list;
+    }
+
+    /**
+     * Reads a list of nested maps through a generated decoder
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> List<T> asList(Object value, Decoder<T> decoder) {
+        List<T> list = new ArrayList<>();
+        if (value instanceof List) {
+            for (Object element : (List<?>) value) {
+                if (element instanceof Map) {
+                    T model = decoder.fromMap((Map<String, Object>) element);
+                    if (model != null) {
+                        list.add(model);
+                    }
+                }
+            }
+        }
+        return list;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static Map<String, Object> asMap(Object value) {
+        return value instanceof Map ? (Map<String, Object>) value : null;
+    }
+
+    public static String emptyIfNull(String value) {
+        return value != null ? value : "";
+    }
+
+    public static <T> List<T> emptyIfNull(List<T> value) {
+        return value != null ? value : new ArrayList<>();
+    }
+
+    /**
+     * Writes a list of models as a list of nested maps
+     */
+    public static <T> List<Map<String, Object>> toMapList(List<T> models, Encoder<T> encoder) {
+        if (models == null) {
+            return null;
+        }
+        List<Map<String, Object>> list = new ArrayList<>(models.size());
+        for (T model : models) {
+            if (model != null) {
+                list.add(encoder.toMap(model));
+            }
+        }
+        return list;
+    }
+}
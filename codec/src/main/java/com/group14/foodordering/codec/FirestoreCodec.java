@@ -0,0 +1,18 @@
+package com.group14.foodordering.codec;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a model class for compile-time codec generation
+ * The processor generates a {@code <Model>Codec} class in the same package with
+ * static {@code fromMap(Map)} and {@code toMap(model)} methods, so documents can be
+ * converted without reflection. The model needs a no-argument constructor and
+ * a getter and setter for every mapped field
+ */
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.TYPE)
+public @interface FirestoreCodec {
+}
@@ -0,0 +1,87 @@
+import groovy.json.JsonSlurper
+
+plugins {
+    `java-library`
+    alias(libs.plugins.jmh)
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_11
+    targetCompatibility = JavaVersion.VERSION_11
+}
+
+tasks.withType<JavaCompile>().configureEach {
+    options.compilerArgs.addAll(listOf("-Xlint:deprecation", "-Xlint:unchecked"))
+}
+
+dependencies {
+    // Models carry @FirestoreCodec and expose the generated codecs to the app
+    api(project(":codec"))
+    annotationProcessor(project(":codec-processor"))
+
+    testImplementation(libs.junit)
+}
+
+val benchmarkResults = layout.buildDirectory.file("results/jmh/results.json")
+val benchmarkBaseline = layout.projectDirectory.file("benchmarks/baseline.json")
+
+// Benchmarks live in src/jmh/java: ./gradlew :core:jmh, then :core:jmhCompare against the baseline
+jmh {
+    jmhVersion.set(libs.versions.jmh)
+    resultFormat.set("JSON")
+    resultsFile.set(benchmarkResults)
+}
+
+// Scores may drift this much from the baseline before a run counts as a regression
+val benchmarkTolerance = (findProperty("jmhTolerance") as String?)?.toDouble() ?: 0.15
+
+/**
+ * Score per "benchmark params" key; a higher score is better in throughput modes, worse in time modes
+ */
+fun readScores(file: File): Map<String, Pair<String, Double>> {
+    @Suppress("UNCHECKED_CAST")
+    val runs = JsonSlurper().parse(file) as List<Map<String, Any?>>
+    return runs.associate { run ->
+        val params = (run["params"] as Map<*, *>?)?.entries?.joinToString(",") { "${it.key}=${it.value}" }
+        val key = if (params.isNullOrEmpty()) run["benchmark"] as String else "${run["benchmark"]} [$params]"
+        val metric = run["primaryMetric"] as Map<*, *>
+        key to Pair(run["mode"] as String, (metric["score"] as Number).toDouble())
+    }
+}
+
+tasks.register("jmhCompare") {
+    group = "verification"
+    description = "Fails when a benchmark regressed against benchmarks/baseline.json"
+    inputs.files(benchmarkResults, benchmarkBaseline).optional()
+    doLast {
+        val results = benchmarkResults.get().asFile
+        val baseline = benchmarkBaseline.asFile
+        if (!results.exists()) throw GradleException("No benchmark results, run :core:jmh first")
+        if (!baseline.exists()) {
+            logger.warn("No benchmark baseline yet, record one with :core:jmhBaseline")
+            return@doLast
+        }
+        val before = readScores(baseline)
+        val regressions = mutableListOf<String>()
+        for ((benchmark, current) in readScores(results)) {
+            val previous = before[benchmark] ?: continue
+            val throughput = current.first == "thrpt"
+            val change = (current.second - previous.second) / previous.second
+            val regressed = if (throughput) change < -benchmarkTolerance else change > benchmarkTolerance
+            val line = String.format("%-90s %12.3f -> %12.3f (%+.1f%%)", benchmark, previous.second, current.second, change * 100)
+            logger.lifecycle(if (regressed) "$line REGRESSED" else line)
+            if (regressed) regressions.add(benchmark)
+        }
+        if (regressions.isNotEmpty()) {
+            throw GradleException("${regressions.size} benchmark(s) regressed beyond ${(benchmarkTolerance * 100).toInt()}%: $regressions")
+        }
+    }
+}
+
+tasks.register<Copy>("jmhBaseline") {
+    group = "verification"
+    description = "Records the last benchmark results as benchmarks/baseline.json"
+    from(benchmarkResults)
+    into(layout.projectDirectory.dir("benchmarks"))
+    rename { "baseline.json" }
+}
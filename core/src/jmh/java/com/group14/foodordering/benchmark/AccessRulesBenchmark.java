@@ -0,0 +1,57 @@
+package com.group14.foodordering.benchmark;
+
+import com.group14.foodordering.core.AccessRules;
+import com.group14.foodordering.model.Order;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Permission checks made while screens bind, and the restaurant filter over the kitchen feed
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AccessRulesBenchmark {
+
+    private List<String> permissions;
+    private List<String> restaurantIds;
+    private List<Order> orders;
+
+    @Setup
+    public void setUp() {
+        permissions = Arrays.asList("menu_view", "order_view", "order_update", "report_view", "table_manage");
+        restaurantIds = Arrays.asList("rest_1", "rest_3");
+        orders = BenchmarkData.orders(2_000, 1);
+    }
+
+    @Benchmark
+    public boolean canViewOrders() {
+        return AccessRules.hasAnyPermission(permissions, "order_view", "order_update", "order_manage");
+    }
+
+    @Benchmark
+    public boolean canManageAdmins() {
+        return AccessRules.hasPermission(permissions, "admin_manage");
+    }
+
+    @Benchmark
+    public List<Order> kitchenFeed() {
+        return AccessRules.filterByRestaurant(restaurantIds, orders, Order::getRestaurantId);
+    }
+}
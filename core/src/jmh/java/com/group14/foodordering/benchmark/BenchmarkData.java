@@ -0,0 +1,66 @@
+package com.group14.foodordering.benchmark;
+
+import com.group14.foodordering.model.MenuItem;
+import com.group14.foodordering.model.Order;
+import com.group14.foodordering.model.OrderItem;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Seeded menus and orders shaped like the restaurant's data, shared by the benchmarks
+ */
+final class BenchmarkData {
+    static final String[] CATEGORIES = {
+        "breakfast", "all_day_breakfast", "lunch", "afternoon_tea", "dinner", "drink",
+        "breakfast,lunch", "lunch, dinner"
+    };
+
+    private BenchmarkData() {
+    }
+
+    static List<MenuItem> menu(int size) {
+        Random random = new Random(size);
+        List<MenuItem> items = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            String category = CATEGORIES[random.nextInt(CATEGORIES.length)];
+            MenuItem item = new MenuItem("item_" + i, "Item " + i, "Description " + i, 5 + random.nextInt(60), category);
+            item.setAvailable(random.nextInt(10) != 0);
+            item.setUpdatedAt(1_700_000_000_000L + i);
+            items.add(item);
+        }
+        return items;
+    }
+
+    static List<OrderItem> orderItems(int size) {
+        Random random = new Random(size);
+        List<OrderItem> items = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            // Prices up to 99.99 with arbitrary cents, quantities 1-9
+            items.add(new OrderItem("item_" + i, "Item " + i, 1 + random.nextInt(9), random.nextInt(10_000) / 100.0));
+        }
+        return items;
+    }
+
+    static Order order(String orderId, int items) {
+        Order order = new Order(orderId, "table");
+        order.setRestaurantId("rest_" + Math.abs(orderId.hashCode() % 4));
+        order.setTableNumber(String.valueOf(Math.abs(orderId.hashCode() % 30)));
+        for (OrderItem item : orderItems(items)) {
+            order.addItem(item);
+        }
+        return order;
+    }
+
+    static List<Order> orders(int size, int itemsPerOrder) {
+        List<Order> orders = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Order order = order("order_" + i, itemsPerOrder);
+            order.setUserId(i % 3 == 0 ? "" : "user_" + (i % 500));
+            order.setCreatedAt(1_700_000_000_000L + i);
+            orders.add(order);
+        }
+        return orders;
+    }
+}
@@ -0,0 +1,208 @@
+package com.group14.foodordering.benchmark;
+
+import com.group14.foodordering.model.MenuItem;
+import com.group14.foodordering.model.MenuItemCodec;
+import com.group14.foodordering.model.Order;
+import com.group14.foodordering.model.OrderCodec;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The generated codecs against reflection bean mapping (the approach of DocumentSnapshot.toObject)
+ * on a 10k-document snapshot of orders and of menu items
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CodecBenchmark {
+    private static final int DOCUMENTS = 10_000;
+    private static final int ITEMS_PER_ORDER = 5;
+
+    private final ReflectionMapper reflection = new ReflectionMapper();
+    private List<Order> orders;
+    private List<Map<String, Object>> orderDocuments;
+    private List<Map<String, Object>> menuDocuments;
+
+    @Setup
+    public void setUp() throws Exception {
+        orders = BenchmarkData.orders(DOCUMENTS, ITEMS_PER_ORDER);
+        orderDocuments = new ArrayList<>(DOCUMENTS);
+        for (Order order : orders) {
+            orderDocuments.add(OrderCodec.toMap(order));
+        }
+        menuDocuments = new ArrayList<>(DOCUMENTS);
+        for (MenuItem item : BenchmarkData.menu(DOCUMENTS)) {
+            menuDocuments.add(MenuItemCodec.toMap(item));
+        }
+        // Both mappers must agree before their timings mean anything
+        Order viaCodec = OrderCodec.fromMap(orderDocuments.get(42));
+        Order viaReflection = reflection.decode(orderDocuments.get(42), Order.class);
+        if (!viaCodec.getOrderId().equals(viaReflection.getOrderId())
+                || viaCodec.getTotalCents() != viaReflection.getTotalCents()
+                || viaCodec.getItems().size() != viaReflection.getItems().size()) {
+            throw new IllegalStateException("Codec and reflection decode order_42 differently");
+        }
+    }
+
+    @Benchmark
+    public int decodeOrdersCodec() {
+        int items = 0;
+        for (Map<String, Object> document : orderDocuments) {
+            items += OrderCodec.fromMap(document).getItems().size();
+        }
+        return items;
+    }
+
+    @Benchmark
+    public int decodeOrdersReflection() throws Exception {
+        int items = 0;
+        for (Map<String, Object> document : orderDocuments) {
+            items += reflection.decode(document, Order.class).getItems().size();
+        }
+        return items;
+    }
+
+    @Benchmark
+    public int decodeMenuCodec() {
+        int available = 0;
+        for (Map<String, Object> document : menuDocuments) {
+            available += MenuItemCodec.fromMap(document).isAvailable() ? 1 : 0;
+        }
+        return available;
+    }
+
+    @Benchmark
+    public int decodeMenuReflection() throws Exception {
+        int available = 0;
+        for (Map<String, Object> document : menuDocuments) {
+            available += reflection.decode(document, MenuItem.class).isAvailable() ? 1 : 0;
+        }
+        return available;
+    }
+
+    @Benchmark
+    public int encodeOrdersCodec() {
+        int fields = 0;
+        for (Order order : orders) {
+            fields += OrderCodec.toMap(order).size();
+        }
+        return fields;
+    }
+
+    @Benchmark
+    public int encodeOrdersReflection() throws Exception {
+        int fields = 0;
+        for (Order order : orders) {
+            fields += reflection.encode(order).size();
+        }
+        return fields;
+    }
+
+    /**
+     * Bean mapper in the style of Firestore's CustomClassMapper: properties are found
+     * through setters/getters, cached per class, and invoked reflectively
+     */
+    private static class ReflectionMapper {
+        private final Map<Class<?>, Map<String, Method>> setters = new HashMap<>();
+        private final Map<Class<?>, Map<String, Method>> getters = new HashMap<>();
+
+        <T> T decode(Map<String, Object> doc, Class<T> type) throws Exception {
+            T model = type.getDeclaredConstructor().newInstance();
+            Map<String, Method> typeSetters = setters.computeIfAbsent(type, ReflectionMapper::findSetters);
+            for (Map.Entry<String, Object> entry : doc.entrySet()) {
+                Method setter = typeSetters.get(entry.getKey());
+                if (setter != null && entry.getValue() != null) {
+                    setter.invoke(model, convert(entry.getValue(), setter.getGenericParameterTypes()[0]));
+                }
+            }
+            return model;
+        }
+
+        Map<String, Object> encode(Object model) throws Exception {
+            Map<String, Object> map = new HashMap<>();
+            Map<String, Method> typeGetters = getters.computeIfAbsent(model.getClass(), ReflectionMapper::findGetters);
+            for (Map.Entry<String, Method> entry : typeGetters.entrySet()) {
+                Object value = entry.getValue().invoke(model);
+                if (value instanceof List) {
+                    List<Object> encoded = new ArrayList<>();
+                    for (Object element : (List<?>) value) {
+                        encoded.add(element instanceof String ? element : encode(element));
+                    }
+                    value = encoded;
+                }
+                map.put(entry.getKey(), value);
+            }
+            return map;
+        }
+
+        @SuppressWarnings("unchecked")
+        private Object convert(Object value, Type target) throws Exception {
+            if (target == int.class || target == Integer.class) return ((Number) value).intValue();
+            if (target == long.class || target == Long.class) return ((Number) value).longValue();
+            if (target == double.class || target == Double.class) return ((Number) value).doubleValue();
+            if (target instanceof ParameterizedType && value instanceof List) {
+                Type elementType = ((ParameterizedType) target).getActualTypeArguments()[0];
+                List<Object> list = new ArrayList<>();
+                for (Object element : (List<?>) value) {
+                    list.add(element instanceof Map
+                            ? decode((Map<String, Object>) element, (Class<?>) elementType)
+                            : element);
+                }
+                return list;
+            }
+            return value;
+        }
+
+        private static Map<String, Method> findSetters(Class<?> type) {
+            Map<String, Method> result = new HashMap<>();
+            for (Method method : type.getMethods()) {
+                if (method.getName().startsWith("set") && method.getParameterCount() == 1) {
+                    result.put(propertyName(method, 3), method);
+                }
+            }
+            return result;
+        }
+
+        private static Map<String, Method> findGetters(Class<?> type) {
+            Map<String, Method> result = new HashMap<>();
+            for (Method method : type.getMethods()) {
+                if (method.getParameterCount() != 0 || method.getDeclaringClass() == Object.class
+                        || method.getName().equals("toMap")) {
+                    continue;
+                }
+                if (method.getName().startsWith("get")) {
+                    result.put(propertyName(method, 3), method);
+                } else if (method.getName().startsWith("is")) {
+                    result.put(propertyName(method, 2), method);
+                }
+            }
+            return result;
+        }
+
+        private static String propertyName(Method method, int prefixLength) {
+            String name = method.getName().substring(prefixLength);
+            return Character.toLowerCase(name.charAt(0)) + name.substring(1);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.group14.foodordering.benchmark;
+
+import com.group14.foodordering.core.MenuFilter;
+import com.group14.foodordering.model.MenuItem;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Category and time period filtering run by the menu screen on every load and catalog change
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MenuFilterBenchmark {
+
+    @Param({"100", "2000"})
+    public int menuSize;
+
+    private List<MenuItem> menu;
+
+    @Setup
+    public void setUp() {
+        menu = BenchmarkData.menu(menuSize);
+    }
+
+    @Benchmark
+    public List<MenuItem> timeBasedCategory() {
+        return MenuFilter.byCategory(menu, MenuFilter.categoryKey("Lunch"), MenuFilter.LUNCH);
+    }
+
+    @Benchmark
+    public List<MenuItem> allDayCategory() {
+        return MenuFilter.byCategory(menu, MenuFilter.categoryKey("All Day Breakfast"), MenuFilter.DINNER);
+    }
+
+    @Benchmark
+    public List<MenuItem> timePeriodWithFallback() {
+        return MenuFilter.byTimePeriod(menu, MenuFilter.AFTERNOON_TEA);
+    }
+}
@@ -0,0 +1,77 @@
+package com.group14.foodordering.benchmark;
+
+import com.group14.foodordering.core.OrderAnalytics;
+import com.group14.foodordering.core.OrderColumns;
+import com.group14.foodordering.model.Order;
+import com.group14.foodordering.model.OrderItem;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Random;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Manager breakdowns over an export of a few months of orders, up to millions of order items
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OrderAnalyticsBenchmark {
+    private static final String[] STATUSES = {"pending", "preparing", "ready", "completed", "cancelled"};
+    private static final String[] ORDER_TYPES = {"online", "table"};
+    private static final String[] PAYMENT_METHODS = {"cash", "card", "mobile_wallet"};
+
+    @Param({"100000", "5000000"})
+    public int items;
+
+    private OrderAnalytics analytics;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(items);
+        OrderColumns.Builder builder = new OrderColumns.Builder(TimeZone.getTimeZone("UTC"), items / 4, items);
+        for (int added = 0; added < items; ) {
+            String orderType = ORDER_TYPES[random.nextInt(ORDER_TYPES.length)];
+            Order order = new Order("o", orderType);
+            order.setRestaurantId("r" + random.nextInt(3));
+            order.setTableNumber("table".equals(orderType) ? "T" + random.nextInt(20) : "");
+            order.setPaymentMethod(PAYMENT_METHODS[random.nextInt(PAYMENT_METHODS.length)]);
+            order.setCreatedAt(random.nextInt(90 * 86_400) * 1_000L);
+            for (int j = 0, count = 1 + random.nextInt(7); j < count; j++) {
+                order.addItem(new OrderItem("m" + random.nextInt(200), "Item", 1 + random.nextInt(3),
+                        random.nextInt(5_000) / 100.0));
+            }
+            order.setStatus(STATUSES[random.nextInt(STATUSES.length)]);
+            builder.add(order);
+            added += order.getItems().size();
+        }
+        analytics = new OrderAnalytics(builder.build());
+    }
+
+    @Benchmark
+    public List<OrderAnalytics.Row> topItemsByHour() {
+        return analytics.top(10, new OrderAnalytics.Filter().statuses("completed"),
+                OrderAnalytics.Measure.QUANTITY, OrderAnalytics.Dimension.HOUR, OrderAnalytics.Dimension.MENU_ITEM);
+    }
+
+    @Benchmark
+    public List<OrderAnalytics.Row> averageSubtotalByTypeAndPayment() {
+        return analytics.aggregate(null, OrderAnalytics.Measure.SUBTOTAL,
+                OrderAnalytics.Dimension.ORDER_TYPE, OrderAnalytics.Dimension.PAYMENT_METHOD);
+    }
+}
@@ -0,0 +1,85 @@
+package com.group14.foodordering.benchmark;
+
+import com.group14.foodordering.model.Order;
+import com.group14.foodordering.model.OrderCodec;
+import com.group14.foodordering.model.OrderItem;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building an order item by item, and turning it into and back from its document form
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OrderBenchmark {
+
+    // A takeaway order, a long-running table order and a banquet
+    @Param({"5", "200", "5000"})
+    public int items;
+
+    private List<OrderItem> orderItems;
+    private Order order;
+    private Map<String, Object> document;
+
+    @Setup
+    public void setUp() {
+        orderItems = BenchmarkData.orderItems(items);
+        order = BenchmarkData.order("order_1", items);
+        document = OrderCodec.toMap(order);
+    }
+
+    @Benchmark
+    public long buildOrder() {
+        Order built = new Order("order_2", "table");
+        for (OrderItem item : orderItems) {
+            built.addItem(item);
+        }
+        return built.getTotalCents();
+    }
+
+    /**
+     * The same order re-walking every item on each add, as addItem did before keeping running totals
+     */
+    @Benchmark
+    public long buildOrderRecomputed() {
+        Order built = new Order("order_2", "table");
+        for (OrderItem item : orderItems) {
+            built.getItems().add(item);
+            built.setItems(built.getItems());
+        }
+        return built.getTotalCents();
+    }
+
+    @Benchmark
+    public Map<String, Object> toMap() {
+        return order.toMap();
+    }
+
+    @Benchmark
+    public Map<String, Object> encode() {
+        return OrderCodec.toMap(order);
+    }
+
+    @Benchmark
+    public Order decode() {
+        return OrderCodec.fromMap(document);
+    }
+}
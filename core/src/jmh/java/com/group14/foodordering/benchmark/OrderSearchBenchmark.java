@@ -0,0 +1,46 @@
+package com.group14.foodordering.benchmark;
+
+import com.group14.foodordering.core.OrderSearch;
+import com.group14.foodordering.model.Order;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Order search over a day's orders: a table number hits many orders, an order ID one
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OrderSearchBenchmark {
+
+    @Param({"12", "ORDER_4242", "no-such-order"})
+    public String query;
+
+    private List<Order> orders;
+
+    @Setup
+    public void setUp() {
+        orders = BenchmarkData.orders(5_000, 3);
+    }
+
+    @Benchmark
+    public List<Order> search() {
+        return new OrderSearch(query).filter(orders);
+    }
+}
@@ -0,0 +1,79 @@
+package com.group14.foodordering.core;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Admin permission and restaurant access rules, given the signed-in admin's grants
+ * An empty restaurant list means access to every restaurant
+ */
+public final class AccessRules {
+
+    private AccessRules() {
+    }
+
+    /**
+     * Whether the granted permissions include the permission
+     */
+    public static boolean hasPermission(Collection<String> granted, String permission) {
+        return granted != null && granted.contains(permission);
+    }
+
+    /**
+     * Whether the granted permissions include any of the permissions
+     */
+    public static boolean hasAnyPermission(Collection<String> granted, String... permissions) {
+        if (granted == null || granted.isEmpty()) {
+            return false;
+        }
+        for (String permission : permissions) {
+            if (granted.contains(permission)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Whether the granted permissions include all of the permissions
+     */
+    public static boolean hasAllPermissions(Collection<String> granted, String... permissions) {
+        if (granted == null || granted.isEmpty()) {
+            return false;
+        }
+        for (String permission : permissions) {
+            if (!granted.contains(permission)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Whether the restaurant is accessible; items without a restaurant ID are always accessible
+     */
+    public static boolean hasRestaurantAccess(Collection<String> restaurantIds, String restaurantId) {
+        return restaurantIds == null || restaurantIds.isEmpty()
+                || restaurantId == null || restaurantId.isEmpty()
+                || restaurantIds.contains(restaurantId);
+    }
+
+    /**
+     * Items of accessible restaurants, dropping nulls; the same list when every restaurant is accessible
+     */
+    public static <T> List<T> filterByRestaurant(Collection<String> restaurantIds, List<T> items,
+                                                 Function<T, String> restaurantIdOf) {
+        if (items == null || items.isEmpty() || restaurantIds == null || restaurantIds.isEmpty()) {
+            return items;
+        }
+        List<T> result = new ArrayList<>();
+        for (T item : items) {
+            if (item != null && hasRestaurantAccess(restaurantIds, restaurantIdOf.apply(item))) {
+                result.add(item);
+            }
+        }
+        return result;
+    }
+}
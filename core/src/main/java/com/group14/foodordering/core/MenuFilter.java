@@ -0,0 +1,116 @@
+package com.group14.foodordering.core;
+
+import com.group14.foodordering.model.MenuItem;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Menu category and time period filtering shown by the menu screen
+ * Category names ("All Day Breakfast") map to item category keys ("all_day_breakfast"); an item may
+ * list several keys separated by commas ("breakfast,lunch")
+ */
+public final class MenuFilter {
+    public static final String BREAKFAST = "breakfast";
+    public static final String LUNCH = "lunch";
+    public static final String AFTERNOON_TEA = "afternoon_tea";
+    public static final String DINNER = "dinner";
+
+    private MenuFilter() {
+    }
+
+    /**
+     * Item category key of a menu category name, e.g. "Afternoon Tea" -> "afternoon_tea"
+     */
+    public static String categoryKey(String categoryName) {
+        return categoryName.toLowerCase(Locale.ROOT).replace(' ', '_');
+    }
+
+    /**
+     * Breakfast, lunch, afternoon tea and dinner are only served in their own time period
+     */
+    public static boolean isTimeBased(String categoryKey) {
+        return BREAKFAST.equals(categoryKey) || LUNCH.equals(categoryKey)
+                || AFTERNOON_TEA.equals(categoryKey) || DINNER.equals(categoryKey);
+    }
+
+    /**
+     * Whether a category button is shown in the time period; categories that are not time based always are
+     */
+    public static boolean isShownAt(String categoryName, String timePeriod) {
+        String key = categoryKey(categoryName);
+        return !isTimeBased(key) || key.equals(timePeriod);
+    }
+
+    /**
+     * Whether an item category ("lunch" or "breakfast,lunch") includes the key
+     */
+    public static boolean hasCategory(String itemCategory, String categoryKey) {
+        if (itemCategory == null) {
+            return false;
+        }
+        if (itemCategory.equals(categoryKey)) {
+            return true;
+        }
+        if (itemCategory.indexOf(',') < 0) {
+            return false;
+        }
+        // Walk the comma separated keys in place instead of splitting
+        int start = 0;
+        int length = itemCategory.length();
+        while (start <= length) {
+            int end = itemCategory.indexOf(',', start);
+            if (end < 0) {
+                end = length;
+            }
+            int from = start;
+            int to = end;
+            while (from < to && Character.isWhitespace(itemCategory.charAt(from))) from++;
+            while (to > from && Character.isWhitespace(itemCategory.charAt(to - 1))) to--;
+            if (to - from == categoryKey.length() && itemCategory.startsWith(categoryKey, from)) {
+                return true;
+            }
+            start = end + 1;
+        }
+        return false;
+    }
+
+    /**
+     * Items of the selected category
+     * A time-based category only shows its items during its own time period
+     */
+    public static List<MenuItem> byCategory(List<MenuItem> items, String categoryKey, String timePeriod) {
+        List<MenuItem> result = new ArrayList<>();
+        if (isTimeBased(categoryKey) && !categoryKey.equals(timePeriod)) {
+            return result;
+        }
+        for (MenuItem item : items) {
+            if (hasCategory(item.getCategory(), categoryKey)) {
+                result.add(item);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Items whose category is the time period, falling back to lunch items for afternoon tea
+     */
+    public static List<MenuItem> byTimePeriod(List<MenuItem> items, String timePeriod) {
+        List<MenuItem> result = withCategory(items, timePeriod);
+        if (result.isEmpty() && AFTERNOON_TEA.equals(timePeriod)) {
+            result = withCategory(items, LUNCH);
+        }
+        return result;
+    }
+
+    private static List<MenuItem> withCategory(List<MenuItem> items, String category) {
+        List<MenuItem> result = new ArrayList<>();
+        for (MenuItem item : items) {
+            if (category.equals(item.getCategory())) {
+                result.add(item);
+            }
+        }
+        return result;
+    }
+}
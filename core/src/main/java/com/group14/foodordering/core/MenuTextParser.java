@@ -0,0 +1,138 @@
+package com.group14.foodordering.core;
+
+import com.group14.foodordering.model.MenuItem;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+
+/**
+ * Parses the scraped menu text (menu.json): category headers, item names, and "$" price lines
+ */
+public final class MenuTextParser {
+    private static final String[] CATEGORY_HEADERS = {
+        "Breakfast", "Lunch", "Dinner",
+        "Hot Drinks", "Cold Drinks",
+        "Afternoon Tea", "Tea Set", "Tea Time"
+    };
+
+    private MenuTextParser() {
+    }
+
+    /**
+     * Menu items in reading order; lines that do not parse are skipped
+     */
+    public static List<MenuItem> parse(BufferedReader reader) throws IOException {
+        List<MenuItem> menuItems = new ArrayList<>();
+        String currentCategory = "main"; // Default category
+        String line;
+        String currentItemName = null;
+        String previousLine = null;
+
+        while ((line = reader.readLine()) != null) {
+            line = line.trim();
+
+            // Skip empty lines and UI elements
+            if (line.isEmpty() ||
+                line.startsWith("//") ||
+                line.startsWith("Slide") ||
+                line.equals("Order Now")) {
+                continue;
+            }
+
+            // Detect category headers
+            if (isCategoryHeader(line)) {
+                currentCategory = normalizeCategory(line);
+                currentItemName = null; // Reset item name when category changes
+                previousLine = null;
+                continue;
+            }
+
+            // Detect price (lines starting with $)
+            if (line.startsWith("$")) {
+                try {
+                    double price = parsePrice(line);
+                    // Use previous line as item name if currentItemName is not set
+                    String itemName = currentItemName;
+                    if ((itemName == null || itemName.isEmpty()) && previousLine != null && !previousLine.startsWith("$")) {
+                        itemName = previousLine;
+                    }
+
+                    if (itemName != null && !itemName.isEmpty() && !isNonItemLine(itemName)) {
+                        String itemId = "item_" + UUID.randomUUID().toString().replace("-", "").substring(0, 12);
+                        MenuItem item = new MenuItem(itemId, itemName, "", price, currentCategory);
+                        item.setDescription(itemName);
+                        item.setAvailable(true);
+                        menuItems.add(item);
+                    }
+                    currentItemName = null; // Reset for next item
+                } catch (NumberFormatException e) {
+                    // Not a price after all, keep reading
+                }
+                previousLine = line;
+                continue;
+            }
+
+            // This is likely an item name
+            if (!isNonItemLine(line)) {
+                currentItemName = line;
+            }
+            previousLine = line;
+        }
+        return menuItems;
+    }
+
+    /**
+     * Check if a line is a category header
+     */
+    private static boolean isCategoryHeader(String line) {
+        for (String category : CATEGORY_HEADERS) {
+            if (line.equalsIgnoreCase(category)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Normalize category name to standard categories
+     */
+    private static String normalizeCategory(String category) {
+        String lower = category.toLowerCase(Locale.ROOT);
+
+        if (lower.contains("breakfast")) {
+            return "breakfast";
+        } else if (lower.contains("lunch")) {
+            return "main";
+        } else if (lower.contains("dinner")) {
+            return "main";
+        } else if (lower.contains("drink") || lower.contains("tea")) {
+            return "beverage";
+        } else {
+            return "main";
+        }
+    }
+
+    /**
+     * Parse price from string like "$33" or "$40.5"
+     */
+    private static double parsePrice(String priceStr) {
+        String cleaned = priceStr.replace("$", "").trim();
+        return Double.parseDouble(cleaned);
+    }
+
+    /**
+     * Check if line is not an item (UI elements, headers, etc.)
+     */
+    private static boolean isNonItemLine(String line) {
+        String lower = line.toLowerCase(Locale.ROOT);
+        return lower.contains("weekly specials") ||
+               lower.contains("no msg added") ||
+               lower.contains("combo") && !lower.contains("rice") ||
+               lower.equals("fuel up with protein") ||
+               lower.equals("wholesome delights");
+    }
+}
@@ -0,0 +1,371 @@
+package com.group14.foodordering.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Filtered group-by aggregations over exported orders (manager breakdowns)
+ * Groups are dense: a row's group is its dimension codes combined in mixed radix, so a scan adds
+ * into flat long arrays with no hashing or boxing. Row ranges are scanned in parallel on a
+ * fork-join pool and their partial sums added together
+ */
+public class OrderAnalytics {
+    // Rows per leaf task; large enough that splitting costs little against the scan
+    static final int SPLIT_ROWS = 1 << 15;
+    static final int MAX_GROUPS = 1 << 20;
+
+    public enum Dimension {
+        STATUS, ORDER_TYPE, RESTAURANT, PAYMENT_METHOD, TABLE, HOUR, MENU_ITEM
+    }
+
+    /**
+     * What is summed per group; item measures scan item rows, the others order rows
+     */
+    public enum Measure {
+        ORDERS(false), SUBTOTAL(false), TOTAL(false), QUANTITY(true), ITEM_REVENUE(true);
+
+        final boolean perItem;
+
+        Measure(boolean perItem) {
+            this.perItem = perItem;
+        }
+    }
+
+    /**
+     * Conditions on orders; an unset condition matches everything
+     */
+    public static final class Filter {
+        private List<String> statuses;
+        private List<String> orderTypes;
+        private List<String> restaurants;
+        private List<String> paymentMethods;
+        private long createdFrom = Long.MIN_VALUE;
+        private long createdTo = Long.MAX_VALUE;
+
+        public Filter statuses(String... values) {
+            statuses = Arrays.asList(values);
+            return this;
+        }
+
+        public Filter orderTypes(String... values) {
+            orderTypes = Arrays.asList(values);
+            return this;
+        }
+
+        public Filter restaurants(String... values) {
+            restaurants = Arrays.asList(values);
+            return this;
+        }
+
+        public Filter paymentMethods(String... values) {
+            paymentMethods = Arrays.asList(values);
+            return this;
+        }
+
+        /**
+         * Orders created at or after from and before to
+         */
+        public Filter createdBetween(long from, long to) {
+            createdFrom = from;
+            createdTo = to;
+            return this;
+        }
+    }
+
+    /**
+     * One group of a result
+     */
+    public static final class Row {
+        private final List<String> key;
+        private final long count;
+        private final long sum;
+
+        Row(List<String> key, long count, long sum) {
+            this.key = key;
+            this.count = count;
+            this.sum = sum;
+        }
+
+        /**
+         * Values of the grouped dimensions, in query order (hours as "00"-"23")
+         */
+        public List<String> getKey() {
+            return key;
+        }
+
+        /**
+         * Rows in the group: orders, or order items for item measures
+         */
+        public long getCount() {
+            return count;
+        }
+
+        public long getSum() {
+            return sum;
+        }
+
+        public double getAverage() {
+            return count == 0 ? 0 : (double) sum / count;
+        }
+
+        @Override
+        public String toString() {
+            return key + " count=" + count + " sum=" + sum;
+        }
+    }
+
+    private final OrderColumns columns;
+    private final ForkJoinPool pool;
+    private final int splitRows;
+
+    public OrderAnalytics(OrderColumns columns, ForkJoinPool pool) {
+        this(columns, pool, SPLIT_ROWS);
+    }
+
+    /**
+     * @param splitRows rows per leaf task at least (tests split small inputs with it)
+     */
+    OrderAnalytics(OrderColumns columns, ForkJoinPool pool, int splitRows) {
+        this.columns = columns;
+        this.pool = pool;
+        this.splitRows = splitRows;
+    }
+
+    public OrderAnalytics(OrderColumns columns) {
+        this(columns, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Aggregate a measure over the matching rows, grouped by the given dimensions
+     * @return groups with at least one row, in key order
+     */
+    public List<Row> aggregate(Filter filter, Measure measure, Dimension... groupBy) {
+        Scan scan = new Scan(filter != null ? filter : new Filter(), measure, groupBy);
+        long[] counts = pool.invoke(scan.task(0, scan.rows));
+        List<Row> rows = new ArrayList<>();
+        for (int group = 0; group < scan.groups; group++) {
+            if (counts[2 * group] > 0) {
+                rows.add(new Row(scan.keyOf(group), counts[2 * group], counts[2 * group + 1]));
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * The n groups with the largest sums, largest first
+     */
+    public List<Row> top(int n, Filter filter, Measure measure, Dimension... groupBy) {
+        List<Row> rows = aggregate(filter, measure, groupBy);
+        rows.sort((a, b) -> Long.compare(b.getSum(), a.getSum()));
+        return Collections.unmodifiableList(rows.subList(0, Math.min(n, rows.size())));
+    }
+
+    /**
+     * One query compiled against the columns: filters become per-code lookup tables and each
+     * dimension a code column with its radix
+     */
+    private final class Scan {
+        final boolean perItem;
+        final Measure measure;
+        final int rows;
+        final boolean[] statusAllowed;
+        final boolean[] orderTypeAllowed;
+        final boolean[] restaurantAllowed;
+        final boolean[] paymentMethodAllowed;
+        final long createdFrom;
+        final long createdTo;
+        final Dimension[] dimensions;
+        final int[][] keyColumns;
+        final boolean[] keyPerItem;
+        final int[] radix;
+        final int groups;
+        final int splitRows;
+
+        Scan(Filter filter, Measure measure, Dimension[] groupBy) {
+            this.measure = measure;
+            perItem = measure.perItem;
+            rows = perItem ? columns.itemCount : columns.orderCount;
+            statusAllowed = allowed(columns.statuses, filter.statuses);
+            orderTypeAllowed = allowed(columns.orderTypes, filter.orderTypes);
+            restaurantAllowed = allowed(columns.restaurants, filter.restaurants);
+            paymentMethodAllowed = allowed(columns.paymentMethods, filter.paymentMethods);
+            createdFrom = filter.createdFrom;
+            createdTo = filter.createdTo;
+            dimensions = groupBy.clone();
+            keyColumns = new int[groupBy.length][];
+            keyPerItem = new boolean[groupBy.length];
+            radix = new int[groupBy.length];
+            long groupCount = 1;
+            for (int i = 0; i < groupBy.length; i++) {
+                switch (groupBy[i]) {
+                    case STATUS:
+                        setKey(i, columns.status, columns.statuses.size());
+                        break;
+                    case ORDER_TYPE:
+                        setKey(i, columns.orderType, columns.orderTypes.size());
+                        break;
+                    case RESTAURANT:
+                        setKey(i, columns.restaurant, columns.restaurants.size());
+                        break;
+                    case PAYMENT_METHOD:
+                        setKey(i, columns.paymentMethod, columns.paymentMethods.size());
+                        break;
+                    case TABLE:
+                        setKey(i, columns.table, columns.tables.size());
+                        break;
+                    case HOUR:
+                        setKey(i, columns.hour, 24);
+                        break;
+                    case MENU_ITEM:
+                    default:
+                        if (!perItem) {
+                            throw new IllegalArgumentException("Grouping by menu item needs an item measure, not " + measure);
+                        }
+                        setKey(i, columns.itemMenuItem, columns.menuItems.size());
+                        keyPerItem[i] = true;
+                        break;
+                }
+                groupCount *= Math.max(1, radix[i]);
+                if (groupCount > MAX_GROUPS) {
+                    throw new IllegalArgumentException("Too many groups for " + Arrays.toString(groupBy));
+                }
+            }
+            groups = (int) groupCount;
+            // Each leaf allocates its own sums, so many groups need longer leaves
+            splitRows = Math.max(OrderAnalytics.this.splitRows, 4 * groups);
+        }
+
+        private void setKey(int i, int[] column, int size) {
+            keyColumns[i] = column;
+            radix[i] = size;
+        }
+
+        ScanTask task(int from, int to) {
+            return new ScanTask(this, from, to);
+        }
+
+        /**
+         * Add the matching rows in [from, to) into interleaved (count, sum) pairs per group
+         */
+        void scan(int from, int to, long[] counts) {
+            int[] itemOrder = columns.itemOrder;
+            for (int row = from; row < to; row++) {
+                int order = perItem ? itemOrder[row] : row;
+                if (!matches(order)) {
+                    continue;
+                }
+                int group = 0;
+                for (int i = 0; i < keyColumns.length; i++) {
+                    group = group * radix[i] + keyColumns[i][keyPerItem[i] ? row : order];
+                }
+                counts[2 * group]++;
+                counts[2 * group + 1] += value(row);
+            }
+        }
+
+        private boolean matches(int order) {
+            return (statusAllowed == null || statusAllowed[columns.status[order]])
+                    && (orderTypeAllowed == null || orderTypeAllowed[columns.orderType[order]])
+                    && (restaurantAllowed == null || restaurantAllowed[columns.restaurant[order]])
+                    && (paymentMethodAllowed == null || paymentMethodAllowed[columns.paymentMethod[order]])
+                    && columns.createdAt[order] >= createdFrom && columns.createdAt[order] < createdTo;
+        }
+
+        private long value(int row) {
+            switch (measure) {
+                case SUBTOTAL:
+                    return columns.subtotalCents[row];
+                case TOTAL:
+                    return columns.totalCents[row];
+                case QUANTITY:
+                    return columns.itemQuantity[row];
+                case ITEM_REVENUE:
+                    return columns.itemTotalCents[row];
+                case ORDERS:
+                default:
+                    return 1;
+            }
+        }
+
+        List<String> keyOf(int group) {
+            String[] key = new String[dimensions.length];
+            for (int i = dimensions.length - 1; i >= 0; i--) {
+                int code = group % radix[i];
+                group /= radix[i];
+                key[i] = valueOf(dimensions[i], code);
+            }
+            return Arrays.asList(key);
+        }
+
+        private String valueOf(Dimension dimension, int code) {
+            switch (dimension) {
+                case STATUS:
+                    return columns.statuses.valueOf(code);
+                case ORDER_TYPE:
+                    return columns.orderTypes.valueOf(code);
+                case RESTAURANT:
+                    return columns.restaurants.valueOf(code);
+                case PAYMENT_METHOD:
+                    return columns.paymentMethods.valueOf(code);
+                case TABLE:
+                    return columns.tables.valueOf(code);
+                case HOUR:
+                    return code < 10 ? "0" + code : String.valueOf(code);
+                case MENU_ITEM:
+                default:
+                    return columns.menuItems.valueOf(code);
+            }
+        }
+    }
+
+    private static boolean[] allowed(OrderColumns.Dictionary dictionary, List<String> values) {
+        if (values == null) {
+            return null;
+        }
+        boolean[] allowed = new boolean[dictionary.size()];
+        for (String value : values) {
+            int code = dictionary.codeOf(value);
+            if (code >= 0) {
+                allowed[code] = true;
+            }
+        }
+        return allowed;
+    }
+
+    /**
+     * Splits a row range in halves down to the scan's leaf size, then scans it
+     */
+    private static final class ScanTask extends RecursiveTask<long[]> {
+        private final Scan scan;
+        private final int from;
+        private final int to;
+
+        ScanTask(Scan scan, int from, int to) {
+            this.scan = scan;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected long[] compute() {
+            if (to - from <= scan.splitRows) {
+                long[] counts = new long[2 * scan.groups];
+                scan.scan(from, to, counts);
+                return counts;
+            }
+            int middle = (from + to) >>> 1;
+            ScanTask left = new ScanTask(scan, from, middle);
+            left.fork();
+            long[] counts = new ScanTask(scan, middle, to).compute();
+            long[] leftCounts = left.join();
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] += leftCounts[i];
+            }
+            return counts;
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package com.group14.foodordering.core;
+
+import com.group14.foodordering.model.Order;
+import com.group14.foodordering.model.OrderItem;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+
+/**
+ * Orders exported into primitive columns for analytics (see OrderAnalytics)
+ * One row per order and one row per order item; text columns are dictionary encoded, so a scan
+ * only reads int and long arrays. Immutable once built
+ */
+public final class OrderColumns {
+
+    /**
+     * Dense codes 0..size-1 for the distinct values of a text column
+     */
+    public static final class Dictionary {
+        private final Map<String, Integer> codes = new HashMap<>();
+        private final List<String> values = new ArrayList<>();
+
+        int encode(String value) {
+            String key = value != null ? value : "";
+            Integer code = codes.get(key);
+            if (code == null) {
+                code = values.size();
+                codes.put(key, code);
+                values.add(key);
+            }
+            return code;
+        }
+
+        /**
+         * @return the code of a value, or -1 if no row has it
+         */
+        public int codeOf(String value) {
+            Integer code = codes.get(value != null ? value : "");
+            return code != null ? code : -1;
+        }
+
+        public String valueOf(int code) {
+            return values.get(code);
+        }
+
+        public int size() {
+            return values.size();
+        }
+    }
+
+    final Dictionary statuses;
+    final Dictionary orderTypes;
+    final Dictionary restaurants;
+    final Dictionary paymentMethods;
+    final Dictionary tables;
+    final Dictionary menuItems;
+
+    // Order rows
+    final int orderCount;
+    final int[] status;
+    final int[] orderType;
+    final int[] restaurant;
+    final int[] paymentMethod;
+    final int[] table;
+    final int[] hour; // hour of day the order was placed
+    final long[] createdAt;
+    final long[] subtotalCents;
+    final long[] totalCents;
+
+    // Item rows
+    final int itemCount;
+    final int[] itemOrder; // order row of the item
+    final int[] itemMenuItem;
+    final int[] itemQuantity;
+    final long[] itemTotalCents;
+
+    private OrderColumns(Builder builder) {
+        statuses = builder.statuses;
+        orderTypes = builder.orderTypes;
+        restaurants = builder.restaurants;
+        paymentMethods = builder.paymentMethods;
+        tables = builder.tables;
+        menuItems = builder.menuItems;
+        orderCount = builder.orderCount;
+        status = Arrays.copyOf(builder.status, orderCount);
+        orderType = Arrays.copyOf(builder.orderType, orderCount);
+        restaurant = Arrays.copyOf(builder.restaurant, orderCount);
+        paymentMethod = Arrays.copyOf(builder.paymentMethod, orderCount);
+        table = Arrays.copyOf(builder.table, orderCount);
+        hour = Arrays.copyOf(builder.hour, orderCount);
+        createdAt = Arrays.copyOf(builder.createdAt, orderCount);
+        subtotalCents = Arrays.copyOf(builder.subtotalCents, orderCount);
+        totalCents = Arrays.copyOf(builder.totalCents, orderCount);
+        itemCount = builder.itemCount;
+        itemOrder = Arrays.copyOf(builder.itemOrder, itemCount);
+        itemMenuItem = Arrays.copyOf(builder.itemMenuItem, itemCount);
+        itemQuantity = Arrays.copyOf(builder.itemQuantity, itemCount);
+        itemTotalCents = Arrays.copyOf(builder.itemTotalCents, itemCount);
+    }
+
+    /**
+     * Export orders, with hours of day in the given time zone
+     */
+    public static OrderColumns of(Collection<Order> orders, TimeZone timeZone) {
+        Builder builder = new Builder(timeZone, orders.size(), orders.size() * 4);
+        for (Order order : orders) {
+            builder.add(order);
+        }
+        return builder.build();
+    }
+
+    public int getOrderCount() {
+        return orderCount;
+    }
+
+    public int getItemCount() {
+        return itemCount;
+    }
+
+    public Dictionary getStatuses() {
+        return statuses;
+    }
+
+    public Dictionary getOrderTypes() {
+        return orderTypes;
+    }
+
+    public Dictionary getRestaurants() {
+        return restaurants;
+    }
+
+    public Dictionary getPaymentMethods() {
+        return paymentMethods;
+    }
+
+    public Dictionary getTables() {
+        return tables;
+    }
+
+    public Dictionary getMenuItems() {
+        return menuItems;
+    }
+
+    /**
+     * Appends orders to growing columns; orders can be streamed in and dropped as they are added
+     */
+    public static final class Builder {
+        private final Calendar calendar;
+        private final Dictionary statuses = new Dictionary();
+        private final Dictionary orderTypes = new Dictionary();
+        private final Dictionary restaurants = new Dictionary();
+        private final Dictionary paymentMethods = new Dictionary();
+        private final Dictionary tables = new Dictionary();
+        private final Dictionary menuItems = new Dictionary();
+        private int orderCount;
+        private int[] status;
+        private int[] orderType;
+        private int[] restaurant;
+        private int[] paymentMethod;
+        private int[] table;
+        private int[] hour;
+        private long[] createdAt;
+        private long[] subtotalCents;
+        private long[] totalCents;
+        private int itemCount;
+        private int[] itemOrder;
+        private int[] itemMenuItem;
+        private int[] itemQuantity;
+        private long[] itemTotalCents;
+
+        /**
+         * @param expectedOrders initial order capacity
+         * @param expectedItems initial item capacity
+         */
+        public Builder(TimeZone timeZone, int expectedOrders, int expectedItems) {
+            calendar = Calendar.getInstance(timeZone, Locale.ROOT);
+            int orders = Math.max(16, expectedOrders);
+            int items = Math.max(16, expectedItems);
+            status = new int[orders];
+            orderType = new int[orders];
+            restaurant = new int[orders];
+            paymentMethod = new int[orders];
+            table = new int[orders];
+            hour = new int[orders];
+            createdAt = new long[orders];
+            subtotalCents = new long[orders];
+            totalCents = new long[orders];
+            itemOrder = new int[items];
+            itemMenuItem = new int[items];
+            itemQuantity = new int[items];
+            itemTotalCents = new long[items];
+        }
+
+        public Builder add(Order order) {
+            if (orderCount == status.length) {
+                int capacity = orderCount * 2;
+                status = Arrays.copyOf(status, capacity);
+                orderType = Arrays.copyOf(orderType, capacity);
+                restaurant = Arrays.copyOf(restaurant, capacity);
+                paymentMethod = Arrays.copyOf(paymentMethod, capacity);
+                table = Arrays.copyOf(table, capacity);
+                hour = Arrays.copyOf(hour, capacity);
+                createdAt = Arrays.copyOf(createdAt, capacity);
+                subtotalCents = Arrays.copyOf(subtotalCents, capacity);
+                totalCents = Arrays.copyOf(totalCents, capacity);
+            }
+            int row = orderCount++;
+            status[row] = statuses.encode(order.getStatus());
+            orderType[row] = orderTypes.encode(order.getOrderType());
+            restaurant[row] = restaurants.encode(order.getRestaurantId());
+            paymentMethod[row] = paymentMethods.encode(order.getPaymentMethod());
+            table[row] = tables.encode(order.getTableNumber());
+            calendar.setTimeInMillis(order.getCreatedAt());
+            hour[row] = calendar.get(Calendar.HOUR_OF_DAY);
+            createdAt[row] = order.getCreatedAt();
+            subtotalCents[row] = order.getSubtotalCents();
+            totalCents[row] = order.getTotalCents();
+            for (OrderItem item : order.getItems()) {
+                if (itemCount == itemOrder.length) {
+                    int capacity = itemCount * 2;
+                    itemOrder = Arrays.copyOf(itemOrder, capacity);
+                    itemMenuItem = Arrays.copyOf(itemMenuItem, capacity);
+                    itemQuantity = Arrays.copyOf(itemQuantity, capacity);
+                    itemTotalCents = Arrays.copyOf(itemTotalCents, capacity);
+                }
+                int itemRow = itemCount++;
+                itemOrder[itemRow] = row;
+                itemMenuItem[itemRow] = menuItems.encode(item.getMenuItemId());
+                itemQuantity[itemRow] = item.getQuantity();
+                itemTotalCents[itemRow] = item.getTotalPriceCents();
+            }
+            return this;
+        }
+
+        public OrderColumns build() {
+            return new OrderColumns(this);
+        }
+    }
+}
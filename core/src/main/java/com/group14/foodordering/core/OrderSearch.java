@@ -0,0 +1,58 @@
+package com.group14.foodordering.core;
+
+import com.group14.foodordering.model.Order;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Order search: case-insensitive substring match on order ID, table number and customer ID
+ */
+public final class OrderSearch {
+    private final String query;
+
+    /**
+     * @param query Search text, null or empty matches every order
+     */
+    public OrderSearch(String query) {
+        this.query = query == null ? "" : query.toLowerCase(Locale.ROOT);
+    }
+
+    public boolean matches(Order order) {
+        return query.isEmpty()
+                || contains(order.getOrderId())
+                || contains(order.getTableNumber())
+                || contains(order.getUserId());
+    }
+
+    /**
+     * Matching orders, newest first
+     */
+    public List<Order> filter(List<Order> orders) {
+        List<Order> result = new ArrayList<>();
+        for (Order order : orders) {
+            if (order != null && matches(order)) {
+                result.add(order);
+            }
+        }
+        result.sort((o1, o2) -> Long.compare(o2.getCreatedAt(), o1.getCreatedAt()));
+        return result;
+    }
+
+    /**
+     * Case-insensitive contains without lower-casing a copy of the value
+     */
+    private boolean contains(String value) {
+        if (value == null) {
+            return false;
+        }
+        int last = value.length() - query.length();
+        for (int i = 0; i <= last; i++) {
+            if (value.regionMatches(true, i, query, 0, query.length())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -1,8 +1,10 @@
 package com.group14.foodordering.model;
 
+import com.group14.foodordering.codec.CodecField;
+import com.group14.foodordering.codec.FirestoreCodec;
+
 import java.util.Locale;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -10,13 +12,16 @@ import java.util.Map;
  * Admin data model
  * Extends User class, contains admin-specific permissions
  */
+@FirestoreCodec
 public class Admin {
     private String adminId;
     private String userId; // Linked to User table
     private String email;
     private String name;
     private String phone;
+    @CodecField(emptyIfNull = true)
     private List<String> permissions; // Permission list, e.g., ["menu_edit", "report_view", "inventory_manage"]
+    @CodecField(emptyIfNull = true)
     private List<String> restaurantIds; // List of restaurant IDs this admin can manage
     private boolean isActive;
     private long createdAt;
@@ -122,28 +127,7 @@ public class Admin {
 
     // Convert to Map (for Firestore)
     public Map<String, Object> toMap() {
-        Map<String, Object> map = new HashMap<>();
-        map.put("adminId", adminId);
-        map.put("userId", userId);
-        map.put("email", email);
-        map.put("name", name);
-        map.put("phone", phone);
-        // Permissions is already a List, so use it directly
-        if (permissions != null && !permissions.isEmpty()) {
-            map.put("permissions", new ArrayList<>(permissions));
-        } else {
-            map.put("permissions", new ArrayList<>());
-        }
-        // Convert restaurantIds list
-        if (restaurantIds != null) {
-            map.put("restaurantIds", restaurantIds);
-        } else {
-            map.put("restaurantIds", new ArrayList<>());
-        }
-        map.put("isActive", isActive);
-        map.put("createdAt", createdAt);
-        map.put("updatedAt", updatedAt);
-        return map;
+        return AdminCodec.toMap(this);
     }
 }
 
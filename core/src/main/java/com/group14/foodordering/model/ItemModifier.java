@@ -1,10 +1,10 @@
 package com.group14.foodordering.model;
 
-import com.google.firebase.firestore.PropertyName;
+import com.group14.foodordering.codec.CodecField;
+import com.group14.foodordering.codec.FirestoreCodec;
 
 import java.io.Serializable;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -12,10 +12,12 @@ import java.util.Map;
  * Item modifier data model
  * Represents a modifier group that can be applied to menu items (e.g., "Size", "Add-ons", "Sides")
  */
+@FirestoreCodec
 public class ItemModifier implements Serializable {
     private String modifierId;
     private String modifierGroup; // e.g., "Size", "Add-ons", "Beverages", "Sides"
     private List<String> menuItemIds; // List of menu item IDs this modifier applies to
+    @CodecField(emptyIfNull = true)
     private List<ModifierOption> options; // List of available options
     private boolean isRequired; // Whether at least one option must be selected
     private int minSelections; // Minimum number of selections (0 = optional)
@@ -78,12 +80,10 @@ public class ItemModifier implements Serializable {
         this.options = options;
     }
 
-    @PropertyName("isRequired")
     public boolean isRequired() {
         return isRequired;
     }
 
-    @PropertyName("isRequired")
     public void setRequired(boolean required) {
         isRequired = required;
     }
@@ -122,27 +122,7 @@ public class ItemModifier implements Serializable {
 
     // Convert to Map (for Firestore)
     public Map<String, Object> toMap() {
-        Map<String, Object> map = new HashMap<>();
-        map.put("modifierId", modifierId);
-        map.put("modifierGroup", modifierGroup);
-        map.put("menuItemIds", menuItemIds);
-        
-        List<Map<String, Object>> optionsList = new ArrayList<>();
-        for (ModifierOption option : options) {
-            Map<String, Object> optionMap = new HashMap<>();
-            optionMap.put("optionName", option.getOptionName());
-            optionMap.put("additionalPrice", option.getAdditionalPrice());
-            optionMap.put("isAvailable", option.isAvailable());
-            optionsList.add(optionMap);
-        }
-        map.put("options", optionsList);
-        
-        map.put("isRequired", isRequired);
-        map.put("minSelections", minSelections);
-        map.put("maxSelections", maxSelections);
-        map.put("createdAt", createdAt);
-        map.put("updatedAt", updatedAt);
-        return map;
+        return ItemModifierCodec.toMap(this);
     }
 }
 
@@ -1,10 +1,10 @@
 package com.group14.foodordering.model;
 
-import com.google.firebase.firestore.PropertyName;
+import com.group14.foodordering.codec.CodecField;
+import com.group14.foodordering.codec.FirestoreCodec;
 
 import java.io.Serializable;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -12,16 +12,19 @@ import java.util.Map;
  * Menu item data model
  * Used to store menu item information in the restaurant menu
  */
+@FirestoreCodec
 public class MenuItem implements Serializable {
     private String itemId;
     private String name;
     private String description;
     private double price;
     private String category; // "appetizer", "main", "dessert", "beverage"
+    @CodecField(emptyIfNull = true)
     private String imageUrl;
     private boolean isAvailable;
     private boolean hasDrink; // Whether the item includes a drink option
-    private int stock; // Stock quantity (optional)
+    private int stock; // Stock set at the last restock, -1 for unlimited; live stock is in the stock shards
+    @CodecField(emptyIfNull = true)
     private List<String> modifierIds; // List of modifier IDs that apply to this item
     private long createdAt;
     private long updatedAt;
@@ -94,12 +97,10 @@ public class MenuItem implements Serializable {
         this.imageUrl = imageUrl;
     }
 
-    @PropertyName("isAvailable")
     public boolean isAvailable() {
         return isAvailable;
     }
 
-    @PropertyName("isAvailable")
     public void setAvailable(boolean available) {
         isAvailable = available;
     }
@@ -146,20 +147,7 @@ public class MenuItem implements Serializable {
 
     // Convert to Map (for Firestore)
     public Map<String, Object> toMap() {
-        Map<String, Object> map = new HashMap<>();
-        map.put("itemId", itemId);
-        map.put("name", name);
-        map.put("description", description);
-        map.put("price", price);
-        map.put("category", category);
-        map.put("imageUrl", imageUrl != null ? imageUrl : "");
-        map.put("isAvailable", isAvailable);
-        map.put("hasDrink", hasDrink);
-        map.put("stock", stock);
-        map.put("modifierIds", modifierIds != null ? modifierIds : new ArrayList<>());
-        map.put("createdAt", createdAt);
-        map.put("updatedAt", updatedAt);
-        return map;
+        return MenuItemCodec.toMap(this);
     }
 }
 
@@ -1,11 +1,14 @@
 package com.group14.foodordering.model;
 
+import com.group14.foodordering.codec.FirestoreCodec;
+
 import java.io.Serializable;
 
 /**
  * Modifier option data model
  * Represents a single option within a modifier group (e.g., "Large" size, "Extra Cheese" add-on)
  */
+@FirestoreCodec
 public class ModifierOption implements Serializable {
     private String optionName;
     private double additionalPrice;
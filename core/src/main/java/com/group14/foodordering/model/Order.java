@@ -0,0 +1,427 @@
+package com.group14.foodordering.model;
+
+import com.group14.foodordering.codec.CodecField;
+import com.group14.foodordering.codec.CodecSupport;
+import com.group14.foodordering.codec.FirestoreCodec;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Order data model
+ * Used to store complete order information
+ * Money is kept in cents and stored as decimal amounts. Totals are updated as items are added,
+ * removed or change quantity, so change items through this class rather than through getItems
+ * Changed fields and appended items are tracked (see takeChanges), so an update can send only them
+ */
+@FirestoreCodec
+public class Order {
+    private String orderId;
+    @CodecField(emptyIfNull = true)
+    private String userId; // Customer ID (if online order)
+    @CodecField(emptyIfNull = true)
+    private String restaurantId; // Restaurant ID
+    @CodecField(emptyIfNull = true)
+    private String tableNumber; // Table number (if table order)
+    private String orderType; // "online", "table"
+    @CodecField(emptyIfNull = true)
+    private List<OrderItem> items;
+    private String status; // "pending", "preparing", "ready", "completed", "cancelled"
+    @CodecField(name = "subtotal", cents = true)
+    private long subtotalCents;
+    @CodecField(name = "serviceCharge", cents = true)
+    private long serviceChargeCents;
+    @CodecField(name = "discount", cents = true)
+    private long discountCents;
+    @CodecField(name = "total", cents = true)
+    private long totalCents;
+    @CodecField(emptyIfNull = true)
+    private String paymentMethod; // "cash", "card", "mobile_wallet"
+    private String paymentStatus; // "pending", "paid", "refunded"
+    private long createdAt;
+    private long updatedAt;
+    private long version; // Bumped by every write of items or money (optimistic concurrency)
+    // Document keys changed since the order was loaded or last written; "items" means the whole list
+    private final transient Set<String> changedFields = new HashSet<>();
+    // Items added since then that can be appended instead of rewriting the list
+    private final transient List<OrderItem> appendedItems = new ArrayList<>();
+
+    /**
+     * Changes of an order taken for one write
+     */
+    public static class Changes {
+        private final Set<String> fields;
+        private final List<OrderItem> appendedItems;
+
+        Changes(Set<String> fields, List<OrderItem> appendedItems) {
+            this.fields = Collections.unmodifiableSet(fields);
+            this.appendedItems = Collections.unmodifiableList(appendedItems);
+        }
+
+        /**
+         * Document keys to write with their current values; contains "items" when the list is rewritten
+         */
+        public Set<String> getFields() {
+            return fields;
+        }
+
+        /**
+         * Items to append to the stored list; empty when the whole list is rewritten
+         */
+        public List<OrderItem> getAppendedItems() {
+            return appendedItems;
+        }
+
+        public boolean isEmpty() {
+            return fields.isEmpty() && appendedItems.isEmpty();
+        }
+    }
+
+    // Default constructor
+    public Order() {
+        this.items = new ArrayList<>();
+        this.status = "pending";
+        this.paymentStatus = "pending";
+        this.createdAt = System.currentTimeMillis();
+        this.updatedAt = System.currentTimeMillis();
+    }
+
+    // Constructor
+    public Order(String orderId, String orderType) {
+        this.orderId = orderId;
+        this.orderType = orderType;
+        this.items = new ArrayList<>();
+        this.status = "pending";
+        this.paymentStatus = "pending";
+        this.createdAt = System.currentTimeMillis();
+        this.updatedAt = System.currentTimeMillis();
+    }
+
+    // Getters and Setters
+    public String getOrderId() {
+        return orderId;
+    }
+
+    public void setOrderId(String orderId) {
+        this.orderId = orderId;
+        markChanged("orderId");
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public void setUserId(String userId) {
+        this.userId = userId;
+        markChanged("userId");
+    }
+
+    public String getRestaurantId() {
+        return restaurantId;
+    }
+
+    public void setRestaurantId(String restaurantId) {
+        this.restaurantId = restaurantId;
+        markChanged("restaurantId");
+    }
+
+    public String getTableNumber() {
+        return tableNumber;
+    }
+
+    public void setTableNumber(String tableNumber) {
+        this.tableNumber = tableNumber;
+        markChanged("tableNumber");
+    }
+
+    public String getOrderType() {
+        return orderType;
+    }
+
+    public void setOrderType(String orderType) {
+        this.orderType = orderType;
+        markChanged("orderType");
+    }
+
+    public List<OrderItem> getItems() {
+        return items;
+    }
+
+    public void setItems(List<OrderItem> items) {
+        this.items = items;
+        markItemsRewritten();
+        calculateTotal();
+    }
+
+    /**
+     * Add an item; an item without an ID gets one, so appending it to the stored list is unambiguous
+     */
+    public void addItem(OrderItem item) {
+        if (item.getOrderItemId() == null || item.getOrderItemId().isEmpty()) {
+            item.setOrderItemId(UUID.randomUUID().toString());
+        }
+        this.items.add(item);
+        if (!changedFields.contains("items")) {
+            appendedItems.add(item);
+        }
+        addToSubtotal(item.getTotalPriceCents());
+    }
+
+    public void removeItem(OrderItem item) {
+        if (this.items.remove(item)) {
+            // An item appended since the last write is simply not appended
+            if (!appendedItems.remove(item)) {
+                markItemsRewritten();
+            }
+            addToSubtotal(-item.getTotalPriceCents());
+        }
+    }
+
+    /**
+     * Change the quantity of an item of this order and its totals
+     */
+    public void setItemQuantity(OrderItem item, int quantity) {
+        long before = item.getTotalPriceCents();
+        item.setQuantity(quantity);
+        if (this.items.contains(item)) {
+            addToSubtotal(item.getTotalPriceCents() - before);
+        }
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+        this.updatedAt = System.currentTimeMillis();
+        markChanged("status");
+    }
+
+    public double getSubtotal() {
+        return CodecSupport.toAmount(subtotalCents);
+    }
+
+    public void setSubtotal(double subtotal) {
+        setSubtotalCents(CodecSupport.toCents(subtotal));
+    }
+
+    public long getSubtotalCents() {
+        return subtotalCents;
+    }
+
+    public void setSubtotalCents(long subtotalCents) {
+        this.subtotalCents = subtotalCents;
+        markChanged("subtotal");
+    }
+
+    public double getServiceCharge() {
+        return CodecSupport.toAmount(serviceChargeCents);
+    }
+
+    public void setServiceCharge(double serviceCharge) {
+        setServiceChargeCents(CodecSupport.toCents(serviceCharge));
+    }
+
+    public long getServiceChargeCents() {
+        return serviceChargeCents;
+    }
+
+    public void setServiceChargeCents(long serviceChargeCents) {
+        this.serviceChargeCents = serviceChargeCents;
+        markChanged("serviceCharge");
+        updateTotal();
+    }
+
+    public double getDiscount() {
+        return CodecSupport.toAmount(discountCents);
+    }
+
+    public void setDiscount(double discount) {
+        setDiscountCents(CodecSupport.toCents(discount));
+    }
+
+    public long getDiscountCents() {
+        return discountCents;
+    }
+
+    public void setDiscountCents(long discountCents) {
+        this.discountCents = discountCents;
+        markChanged("discount");
+        updateTotal();
+    }
+
+    public double getTotal() {
+        return CodecSupport.toAmount(totalCents);
+    }
+
+    public void setTotal(double total) {
+        setTotalCents(CodecSupport.toCents(total));
+    }
+
+    public long getTotalCents() {
+        return totalCents;
+    }
+
+    public void setTotalCents(long totalCents) {
+        this.totalCents = totalCents;
+        markChanged("total");
+    }
+
+    public String getPaymentMethod() {
+        return paymentMethod;
+    }
+
+    public void setPaymentMethod(String paymentMethod) {
+        this.paymentMethod = paymentMethod;
+        markChanged("paymentMethod");
+    }
+
+    public String getPaymentStatus() {
+        return paymentStatus;
+    }
+
+    public void setPaymentStatus(String paymentStatus) {
+        this.paymentStatus = paymentStatus;
+        markChanged("paymentStatus");
+    }
+
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(long createdAt) {
+        this.createdAt = createdAt;
+        markChanged("createdAt");
+    }
+
+    public long getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(long updatedAt) {
+        this.updatedAt = updatedAt;
+        markChanged("updatedAt");
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Set the stored version; not a tracked change, FirebaseDatabaseService writes it with each change
+     */
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
+    /**
+     * Check whether anything changed since the order was loaded or last written
+     */
+    public boolean hasChanges() {
+        return !changedFields.isEmpty() || !appendedItems.isEmpty() || hasChangedItems();
+    }
+
+    /**
+     * Take the changes for a write and start tracking anew; pass them to restoreChanges if it fails
+     * An edited item (e.g. a new quantity) rewrites the whole list, since a stored list element
+     * cannot be updated in place
+     */
+    public Changes takeChanges() {
+        if (hasChangedItems()) {
+            markItemsRewritten();
+        }
+        Changes changes = new Changes(new HashSet<>(changedFields), new ArrayList<>(appendedItems));
+        clearChanges();
+        return changes;
+    }
+
+    /**
+     * Track the changes of a failed write again, merged with those made since
+     */
+    public void restoreChanges(Changes changes) {
+        changedFields.addAll(changes.getFields());
+        if (changedFields.contains("items")) {
+            appendedItems.clear();
+        } else {
+            List<OrderItem> appended = new ArrayList<>();
+            for (OrderItem item : changes.getAppendedItems()) {
+                if (items.contains(item)) {
+                    appended.add(item);
+                }
+            }
+            appendedItems.addAll(0, appended);
+        }
+    }
+
+    /**
+     * Forget tracked changes, e.g. right after the order was read from the database
+     */
+    public void clearChanges() {
+        changedFields.clear();
+        appendedItems.clear();
+        if (items != null) {
+            for (OrderItem item : items) {
+                item.clearChanges();
+            }
+        }
+    }
+
+    private boolean hasChangedItems() {
+        if (items == null || changedFields.contains("items")) {
+            return false;
+        }
+        for (OrderItem item : items) {
+            if (item.hasChanges() && !appendedItems.contains(item)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void markItemsRewritten() {
+        changedFields.add("items");
+        appendedItems.clear();
+    }
+
+    private void markChanged(String key) {
+        changedFields.add(key);
+    }
+
+    // Calculate total price from all items (when the whole item list is replaced)
+    private void calculateTotal() {
+        long sum = 0;
+        if (items != null) {
+            for (OrderItem item : items) {
+                sum += item.getTotalPriceCents();
+            }
+        }
+        subtotalCents = sum;
+        markChanged("subtotal");
+        updateTotal();
+        this.updatedAt = System.currentTimeMillis();
+    }
+
+    private void addToSubtotal(long deltaCents) {
+        subtotalCents += deltaCents;
+        markChanged("subtotal");
+        updateTotal();
+        this.updatedAt = System.currentTimeMillis();
+    }
+
+    private void updateTotal() {
+        totalCents = subtotalCents + serviceChargeCents - discountCents;
+        markChanged("total");
+    }
+
+    // Convert to Map (for Firestore)
+    public Map<String, Object> toMap() {
+        return OrderCodec.toMap(this);
+    }
+}
+
@@ -1,21 +1,33 @@
 package com.group14.foodordering.model;
 
-import java.util.HashMap;
+import com.group14.foodordering.codec.CodecField;
+import com.group14.foodordering.codec.CodecSupport;
+import com.group14.foodordering.codec.FirestoreCodec;
+
 import java.util.Map;
 
 /**
  * Order item data model
  * Represents a single menu item in an order with its customization information
+ * Prices are kept in cents and stored as decimal amounts
+ * Remembers whether it was edited, so its order knows to rewrite the stored item list
  */
+@FirestoreCodec
 public class OrderItem {
+    @CodecField(emptyIfNull = true)
     private String orderItemId;
     private String menuItemId;
     private String menuItemName;
     private int quantity;
-    private double unitPrice;
-    private double totalPrice;
+    @CodecField(name = "unitPrice", cents = true)
+    private long unitPriceCents;
+    @CodecField(name = "totalPrice", cents = true)
+    private long totalPriceCents;
+    @CodecField(emptyIfNull = true)
     private String customization; // Customization requirements, e.g., "no onion", "extra cheese"
+    @CodecField(emptyIfNull = true)
     private String cookingDetails; // Cooking requirements
+    private transient boolean changed;
 
     // Default constructor
     public OrderItem() {
@@ -26,8 +38,8 @@ public class OrderItem {
         this.menuItemId = menuItemId;
         this.menuItemName = menuItemName;
         this.quantity = quantity;
-        this.unitPrice = unitPrice;
-        this.totalPrice = quantity * unitPrice;
+        this.unitPriceCents = CodecSupport.toCents(unitPrice);
+        this.totalPriceCents = quantity * unitPriceCents;
     }
 
     // Getters and Setters
@@ -37,6 +49,7 @@ public class OrderItem {
 
     public void setOrderItemId(String orderItemId) {
         this.orderItemId = orderItemId;
+        changed = true;
     }
 
     public String getMenuItemId() {
@@ -45,6 +58,7 @@ public class OrderItem {
 
     public void setMenuItemId(String menuItemId) {
         this.menuItemId = menuItemId;
+        changed = true;
     }
 
     public String getMenuItemName() {
@@ -53,32 +67,55 @@ public class OrderItem {
 
     public void setMenuItemName(String menuItemName) {
         this.menuItemName = menuItemName;
+        changed = true;
     }
 
     public int getQuantity() {
         return quantity;
     }
 
+    /**
+     * Set the quantity; for an item of an order use Order.setItemQuantity so its totals follow
+     */
     public void setQuantity(int quantity) {
         this.quantity = quantity;
-        this.totalPrice = this.quantity * this.unitPrice;
+        this.totalPriceCents = this.quantity * this.unitPriceCents;
+        changed = true;
     }
 
     public double getUnitPrice() {
-        return unitPrice;
+        return CodecSupport.toAmount(unitPriceCents);
     }
 
     public void setUnitPrice(double unitPrice) {
-        this.unitPrice = unitPrice;
-        this.totalPrice = this.quantity * this.unitPrice;
+        setUnitPriceCents(CodecSupport.toCents(unitPrice));
+    }
+
+    public long getUnitPriceCents() {
+        return unitPriceCents;
+    }
+
+    public void setUnitPriceCents(long unitPriceCents) {
+        this.unitPriceCents = unitPriceCents;
+        this.totalPriceCents = this.quantity * this.unitPriceCents;
+        changed = true;
     }
 
     public double getTotalPrice() {
-        return totalPrice;
+        return CodecSupport.toAmount(totalPriceCents);
     }
 
     public void setTotalPrice(double totalPrice) {
-        this.totalPrice = totalPrice;
+        setTotalPriceCents(CodecSupport.toCents(totalPrice));
+    }
+
+    public long getTotalPriceCents() {
+        return totalPriceCents;
+    }
+
+    public void setTotalPriceCents(long totalPriceCents) {
+        this.totalPriceCents = totalPriceCents;
+        changed = true;
     }
 
     public String getCustomization() {
@@ -87,6 +124,7 @@ public class OrderItem {
 
     public void setCustomization(String customization) {
         this.customization = customization;
+        changed = true;
     }
 
     public String getCookingDetails() {
@@ -95,20 +133,23 @@ public class OrderItem {
 
     public void setCookingDetails(String cookingDetails) {
         this.cookingDetails = cookingDetails;
+        changed = true;
+    }
+
+    /**
+     * Check whether the item was edited since it was loaded or last written
+     */
+    public boolean hasChanges() {
+        return changed;
+    }
+
+    public void clearChanges() {
+        changed = false;
     }
 
     // Convert to Map (for Firestore)
     public Map<String, Object> toMap() {
-        Map<String, Object> map = new HashMap<>();
-        map.put("orderItemId", orderItemId != null ? orderItemId : "");
-        map.put("menuItemId", menuItemId);
-        map.put("menuItemName", menuItemName);
-        map.put("quantity", quantity);
-        map.put("unitPrice", unitPrice);
-        map.put("totalPrice", totalPrice);
-        map.put("customization", customization != null ? customization : "");
-        map.put("cookingDetails", cookingDetails != null ? cookingDetails : "");
-        return map;
+        return OrderItemCodec.toMap(this);
     }
 }
 
@@ -1,12 +1,14 @@
 package com.group14.foodordering.model;
 
-import java.util.HashMap;
+import com.group14.foodordering.codec.FirestoreCodec;
+
 import java.util.Map;
 
 /**
  * Restaurant data model
  * Used to store restaurant information
  */
+@FirestoreCodec
 public class Restaurant {
     private String restaurantId;
     private String restaurantName;
@@ -96,15 +98,7 @@ public class Restaurant {
 
     // Convert to Map (for Firestore)
     public Map<String, Object> toMap() {
-        Map<String, Object> map = new HashMap<>();
-        map.put("restaurantId", restaurantId);
-        map.put("restaurantName", restaurantName);
-        map.put("address", address);
-        map.put("phoneNumber", phoneNumber);
-        map.put("isActive", isActive);
-        map.put("createdAt", createdAt);
-        map.put("updatedAt", updatedAt);
-        return map;
+        return RestaurantCodec.toMap(this);
     }
 }
 
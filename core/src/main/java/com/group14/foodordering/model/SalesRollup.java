@@ -0,0 +1,203 @@
+package com.group14.foodordering.model;
+
+import com.group14.foodordering.codec.CodecSupport;
+import com.group14.foodordering.codec.FirestoreCodec;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Sales of one restaurant on one day (report view)
+ * Maintained from completed orders as they complete or are refunded, and rebuilt from the orders
+ * when needed. Revenue is gross; refunds are counted separately and stay in the day the order was placed
+ */
+@FirestoreCodec
+public class SalesRollup {
+    private String restaurantId;
+    private String day; // "yyyyMMdd"
+    private long revenueCents;
+    private long orderCount;
+    private long itemCount;
+    private long refundCount;
+    private long refundedCents;
+    private Map<String, Object> itemCounts; // menu item ID -> quantity sold
+    private Map<String, Object> hours; // hour of day "00"-"23" -> {revenueCents, orderCount}
+
+    // Default constructor
+    public SalesRollup() {
+        this.itemCounts = new HashMap<>();
+        this.hours = new HashMap<>();
+    }
+
+    public SalesRollup(String restaurantId, String day) {
+        this();
+        this.restaurantId = restaurantId;
+        this.day = day;
+    }
+
+    /**
+     * Count an order placed in the given hour; a negative sign takes it back out
+     * Only completed orders count, and their refund only when the payment was refunded
+     */
+    public void addOrder(Order order, int hour, int sign) {
+        if (!"completed".equals(order.getStatus())) {
+            return;
+        }
+        revenueCents += sign * order.getTotalCents();
+        orderCount += sign;
+        for (OrderItem item : order.getItems()) {
+            itemCount += sign * item.getQuantity();
+            String menuItemId = item.getMenuItemId() != null ? item.getMenuItemId() : "";
+            itemCounts.put(menuItemId, getItemCount(menuItemId) + sign * item.getQuantity());
+        }
+        Map<String, Object> hourCounts = hour(hour);
+        hourCounts.put("revenueCents", count(hourCounts.get("revenueCents")) + sign * order.getTotalCents());
+        hourCounts.put("orderCount", count(hourCounts.get("orderCount")) + sign);
+        if ("refunded".equals(order.getPaymentStatus())) {
+            refundCount += sign;
+            refundedCents += sign * order.getTotalCents();
+        }
+    }
+
+    /**
+     * Check whether every count is zero (nothing sold, or a change that cancels out)
+     */
+    public boolean isEmpty() {
+        if (revenueCents != 0 || orderCount != 0 || itemCount != 0 || refundCount != 0 || refundedCents != 0) {
+            return false;
+        }
+        for (Object quantity : itemCounts.values()) {
+            if (count(quantity) != 0) {
+                return false;
+            }
+        }
+        for (String hour : hours.keySet()) {
+            int h = Integer.parseInt(hour);
+            if (getHourRevenueCents(h) != 0 || getHourOrderCount(h) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Average completed order value, rounded to the cent
+     */
+    public long getAverageTicketCents() {
+        return orderCount == 0 ? 0 : Math.round((double) revenueCents / orderCount);
+    }
+
+    public long getNetRevenueCents() {
+        return revenueCents - refundedCents;
+    }
+
+    public long getItemCount(String menuItemId) {
+        return count(itemCounts.get(menuItemId));
+    }
+
+    public long getHourRevenueCents(int hour) {
+        Map<String, Object> counts = CodecSupport.asMap(hours.get(hourKey(hour)));
+        return counts != null ? count(counts.get("revenueCents")) : 0;
+    }
+
+    public long getHourOrderCount(int hour) {
+        Map<String, Object> counts = CodecSupport.asMap(hours.get(hourKey(hour)));
+        return counts != null ? count(counts.get("orderCount")) : 0;
+    }
+
+    private Map<String, Object> hour(int hour) {
+        String key = hourKey(hour);
+        Map<String, Object> counts = CodecSupport.asMap(hours.get(key));
+        if (counts == null) {
+            counts = new HashMap<>();
+            hours.put(key, counts);
+        }
+        return counts;
+    }
+
+    private static long count(Object value) {
+        return value != null ? CodecSupport.asLong(value) : 0;
+    }
+
+    private static String hourKey(int hour) {
+        return hour < 10 ? "0" + hour : String.valueOf(hour);
+    }
+
+    // Getters and Setters
+    public String getRestaurantId() {
+        return restaurantId;
+    }
+
+    public void setRestaurantId(String restaurantId) {
+        this.restaurantId = restaurantId;
+    }
+
+    public String getDay() {
+        return day;
+    }
+
+    public void setDay(String day) {
+        this.day = day;
+    }
+
+    public long getRevenueCents() {
+        return revenueCents;
+    }
+
+    public void setRevenueCents(long revenueCents) {
+        this.revenueCents = revenueCents;
+    }
+
+    public long getOrderCount() {
+        return orderCount;
+    }
+
+    public void setOrderCount(long orderCount) {
+        this.orderCount = orderCount;
+    }
+
+    public long getItemCount() {
+        return itemCount;
+    }
+
+    public void setItemCount(long itemCount) {
+        this.itemCount = itemCount;
+    }
+
+    public long getRefundCount() {
+        return refundCount;
+    }
+
+    public void setRefundCount(long refundCount) {
+        this.refundCount = refundCount;
+    }
+
+    public long getRefundedCents() {
+        return refundedCents;
+    }
+
+    public void setRefundedCents(long refundedCents) {
+        this.refundedCents = refundedCents;
+    }
+
+    public Map<String, Object> getItemCounts() {
+        return itemCounts;
+    }
+
+    public void setItemCounts(Map<String, Object> itemCounts) {
+        this.itemCounts = itemCounts != null ? itemCounts : new HashMap<>();
+    }
+
+    public Map<String, Object> getHours() {
+        return hours;
+    }
+
+    public void setHours(Map<String, Object> hours) {
+        this.hours = hours != null ? hours : new HashMap<>();
+    }
+
+    // Convert to Map (for Firestore)
+    public Map<String, Object> toMap() {
+        return SalesRollupCodec.toMap(this);
+    }
+}
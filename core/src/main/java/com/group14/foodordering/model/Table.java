@@ -1,18 +1,22 @@
 package com.group14.foodordering.model;
 
-import java.util.HashMap;
+import com.group14.foodordering.codec.CodecField;
+import com.group14.foodordering.codec.FirestoreCodec;
+
 import java.util.Map;
 
 /**
  * Table data model
  * Used to manage restaurant table status
  */
+@FirestoreCodec
 public class Table {
     private String tableId;
     private String tableNumber;
     private String branchId;
     private String status; // "available", "occupied", "needs_cleaning"
     private int capacity;
+    @CodecField(emptyIfNull = true)
     private String currentOrderId;
     private long createdAt;
     private long updatedAt;
@@ -104,16 +108,7 @@ public class Table {
 
     // Convert to Map (for Firestore)
     public Map<String, Object> toMap() {
-        Map<String, Object> map = new HashMap<>();
-        map.put("tableId", tableId);
-        map.put("tableNumber", tableNumber);
-        map.put("branchId", branchId);
-        map.put("status", status);
-        map.put("capacity", capacity);
-        map.put("currentOrderId", currentOrderId != null ? currentOrderId : "");
-        map.put("createdAt", createdAt);
-        map.put("updatedAt", updatedAt);
-        return map;
+        return TableCodec.toMap(this);
     }
 }
 
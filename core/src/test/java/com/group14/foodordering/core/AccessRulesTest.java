@@ -0,0 +1,40 @@
+package com.group14.foodordering.core;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Permission and restaurant access rules of AccessRules
+ */
+public class AccessRulesTest {
+
+    private final List<String> granted = Arrays.asList("order_view", "menu_edit");
+
+    @Test
+    public void permissions_needTheGrant() {
+        assertTrue(AccessRules.hasPermission(granted, "menu_edit"));
+        assertFalse(AccessRules.hasPermission(granted, "admin_manage"));
+        assertFalse(AccessRules.hasPermission(null, "menu_edit"));
+        assertTrue(AccessRules.hasAnyPermission(granted, "order_update", "order_view"));
+        assertFalse(AccessRules.hasAnyPermission(Collections.emptyList(), "order_view"));
+        assertTrue(AccessRules.hasAllPermissions(granted, "order_view", "menu_edit"));
+        assertFalse(AccessRules.hasAllPermissions(granted, "order_view", "report_view"));
+    }
+
+    @Test
+    public void restaurantFilter_keepsAccessibleAndUnassignedItems() {
+        List<String> restaurantIds = Arrays.asList("rest_1", "rest_2");
+        List<String> items = Arrays.asList("rest_1", "rest_3", "", null, "rest_2");
+
+        assertEquals(Arrays.asList("rest_1", "", "rest_2"),
+                AccessRules.filterByRestaurant(restaurantIds, items, item -> item));
+        assertSame(items, AccessRules.filterByRestaurant(Collections.emptyList(), items, item -> item));
+        assertTrue(AccessRules.hasRestaurantAccess(restaurantIds, null));
+        assertFalse(AccessRules.hasRestaurantAccess(restaurantIds, "rest_3"));
+    }
+}
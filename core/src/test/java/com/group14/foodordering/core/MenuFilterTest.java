@@ -0,0 +1,73 @@
+package com.group14.foodordering.core;
+
+import com.group14.foodordering.model.MenuItem;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Category keys, comma separated item categories and time periods of MenuFilter
+ */
+public class MenuFilterTest {
+
+    private final List<MenuItem> menu = Arrays.asList(
+            item("m1", "breakfast"),
+            item("m2", "breakfast, lunch"),
+            item("m3", "all_day_breakfast"),
+            item("m4", "lunch"),
+            item("m5", "drink"),
+            item("m6", null));
+
+    @Test
+    public void categoryNames_mapToItemKeys() {
+        assertEquals("all_day_breakfast", MenuFilter.categoryKey("All Day Breakfast"));
+        assertEquals("afternoon_tea", MenuFilter.categoryKey("Afternoon Tea"));
+        assertTrue(MenuFilter.isShownAt("Drink", MenuFilter.DINNER));
+        assertTrue(MenuFilter.isShownAt("All Day Breakfast", MenuFilter.DINNER));
+        assertTrue(MenuFilter.isShownAt("Lunch", MenuFilter.LUNCH));
+        assertFalse(MenuFilter.isShownAt("Breakfast", MenuFilter.LUNCH));
+    }
+
+    @Test
+    public void itemCategories_matchAnyListedKey() {
+        assertTrue(MenuFilter.hasCategory("lunch", "lunch"));
+        assertTrue(MenuFilter.hasCategory("breakfast,lunch", "lunch"));
+        assertTrue(MenuFilter.hasCategory("breakfast , lunch ", "lunch"));
+        assertFalse(MenuFilter.hasCategory("breakfast,lunchbox", "lunch"));
+        assertFalse(MenuFilter.hasCategory("all_day_breakfast", "breakfast"));
+        assertFalse(MenuFilter.hasCategory(null, "lunch"));
+    }
+
+    @Test
+    public void timeBasedCategory_onlyShowsInItsPeriod() {
+        assertEquals(Arrays.asList("m2", "m4"), ids(MenuFilter.byCategory(menu, "lunch", MenuFilter.LUNCH)));
+        assertTrue(MenuFilter.byCategory(menu, "breakfast", MenuFilter.LUNCH).isEmpty());
+        assertEquals(Collections.singletonList("m3"),
+                ids(MenuFilter.byCategory(menu, "all_day_breakfast", MenuFilter.DINNER)));
+    }
+
+    @Test
+    public void timePeriod_fallsBackToLunchForAfternoonTea() {
+        assertEquals(Collections.singletonList("m1"), ids(MenuFilter.byTimePeriod(menu, MenuFilter.BREAKFAST)));
+        assertEquals(Collections.singletonList("m4"), ids(MenuFilter.byTimePeriod(menu, MenuFilter.AFTERNOON_TEA)));
+        assertTrue(MenuFilter.byTimePeriod(menu, MenuFilter.DINNER).isEmpty());
+    }
+
+    private static List<String> ids(List<MenuItem> items) {
+        List<String> ids = new ArrayList<>();
+        for (MenuItem item : items) {
+            ids.add(item.getItemId());
+        }
+        return ids;
+    }
+
+    private static MenuItem item(String itemId, String category) {
+        return new MenuItem(itemId, itemId, "", 10, category);
+    }
+}
@@ -0,0 +1,218 @@
+package com.group14.foodordering.core;
+
+import com.group14.foodordering.model.Order;
+import com.group14.foodordering.model.OrderItem;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.TimeZone;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Predicate;
+
+import static org.junit.Assert.*;
+
+/**
+ * OrderAnalytics breakdowns checked against the same breakdowns computed row by row from the orders
+ * (the query time over millions of items is measured by the OrderAnalyticsBenchmark JMH benchmark)
+ */
+public class OrderAnalyticsTest {
+    private static final TimeZone ZONE = TimeZone.getTimeZone("UTC");
+    private static final String[] STATUSES = {"pending", "preparing", "ready", "completed", "cancelled"};
+    private static final String[] ORDER_TYPES = {"online", "table"};
+    private static final String[] PAYMENT_METHODS = {"cash", "card", "mobile_wallet"};
+    private static final int ORDERS = 400;
+    // Small leaves, so a few hundred rows are still scanned in parallel and their sums merged
+    private static final int SPLIT_ROWS = 16;
+
+    private final List<Order> orders = orders(new Random(1), ORDERS);
+    private final OrderAnalytics analytics = new OrderAnalytics(OrderColumns.of(orders, ZONE), new ForkJoinPool(4), SPLIT_ROWS);
+
+    @Test
+    public void everyMeasureAndDimension_matchesTheRowBasedResult() {
+        OrderAnalytics.Dimension[] orderDimensions = {
+            OrderAnalytics.Dimension.STATUS, OrderAnalytics.Dimension.ORDER_TYPE, OrderAnalytics.Dimension.RESTAURANT,
+            OrderAnalytics.Dimension.PAYMENT_METHOD, OrderAnalytics.Dimension.TABLE, OrderAnalytics.Dimension.HOUR
+        };
+        for (OrderAnalytics.Measure measure : OrderAnalytics.Measure.values()) {
+            for (OrderAnalytics.Dimension dimension : orderDimensions) {
+                assertRows(analytics.aggregate(null, measure, dimension), null, measure, dimension);
+            }
+        }
+        for (OrderAnalytics.Measure measure : new OrderAnalytics.Measure[]{
+                OrderAnalytics.Measure.QUANTITY, OrderAnalytics.Measure.ITEM_REVENUE}) {
+            assertRows(analytics.aggregate(null, measure, OrderAnalytics.Dimension.MENU_ITEM),
+                    null, measure, OrderAnalytics.Dimension.MENU_ITEM);
+            assertRows(analytics.aggregate(null, measure, OrderAnalytics.Dimension.RESTAURANT, OrderAnalytics.Dimension.MENU_ITEM),
+                    null, measure, OrderAnalytics.Dimension.RESTAURANT, OrderAnalytics.Dimension.MENU_ITEM);
+        }
+    }
+
+    @Test
+    public void averageSubtotal_byOrderTypeAndPaymentMethod() {
+        List<OrderAnalytics.Row> rows = analytics.aggregate(new OrderAnalytics.Filter().statuses("completed"),
+                OrderAnalytics.Measure.SUBTOTAL, OrderAnalytics.Dimension.ORDER_TYPE, OrderAnalytics.Dimension.PAYMENT_METHOD);
+
+        Map<List<String>, long[]> expected = assertRows(rows, order -> "completed".equals(order.getStatus()),
+                OrderAnalytics.Measure.SUBTOTAL, OrderAnalytics.Dimension.ORDER_TYPE, OrderAnalytics.Dimension.PAYMENT_METHOD);
+        for (OrderAnalytics.Row row : rows) {
+            long[] sums = expected.get(row.getKey());
+            assertEquals((double) sums[1] / sums[0], row.getAverage(), 1e-9);
+        }
+    }
+
+    @Test
+    public void topItems_byHourWithinARestaurantAndTimeRange() {
+        long from = 6 * 3_600_000L;
+        long to = 30 * 3_600_000L;
+
+        List<OrderAnalytics.Row> top = analytics.top(5, new OrderAnalytics.Filter().restaurants("r1").createdBetween(from, to),
+                OrderAnalytics.Measure.QUANTITY, OrderAnalytics.Dimension.HOUR, OrderAnalytics.Dimension.MENU_ITEM);
+
+        Map<List<String>, long[]> expected = rowBased(
+                order -> "r1".equals(order.getRestaurantId()) && order.getCreatedAt() >= from && order.getCreatedAt() < to,
+                OrderAnalytics.Measure.QUANTITY, OrderAnalytics.Dimension.HOUR, OrderAnalytics.Dimension.MENU_ITEM);
+        List<Long> quantities = new ArrayList<>();
+        for (long[] sums : expected.values()) {
+            quantities.add(sums[1]);
+        }
+        quantities.sort((a, b) -> Long.compare(b, a));
+        assertEquals(5, top.size());
+        for (int i = 0; i < top.size(); i++) {
+            assertEquals(quantities.get(i).longValue(), top.get(i).getSum());
+            assertEquals(expected.get(top.get(i).getKey())[1], top.get(i).getSum());
+        }
+    }
+
+    @Test
+    public void tableTurnover_countsTableOrders() {
+        List<OrderAnalytics.Row> rows = analytics.aggregate(new OrderAnalytics.Filter().orderTypes("table")
+                .statuses("completed"), OrderAnalytics.Measure.ORDERS, OrderAnalytics.Dimension.TABLE);
+
+        assertRows(rows, order -> "table".equals(order.getOrderType()) && "completed".equals(order.getStatus()),
+                OrderAnalytics.Measure.ORDERS, OrderAnalytics.Dimension.TABLE);
+        for (OrderAnalytics.Row row : rows) {
+            assertEquals(row.getCount(), row.getSum());
+        }
+    }
+
+    @Test
+    public void menuItemGroups_needAnItemMeasure() {
+        try {
+            analytics.aggregate(null, OrderAnalytics.Measure.SUBTOTAL, OrderAnalytics.Dimension.MENU_ITEM);
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException expected) {
+            // Order measures have no menu item
+        }
+        assertTrue(analytics.aggregate(new OrderAnalytics.Filter().statuses("refunded"),
+                OrderAnalytics.Measure.ORDERS, OrderAnalytics.Dimension.STATUS).isEmpty());
+    }
+
+    /**
+     * Check the columnar rows equal the row-based result
+     * @return the row-based result
+     */
+    private Map<List<String>, long[]> assertRows(List<OrderAnalytics.Row> rows, Predicate<Order> filter,
+                                                 OrderAnalytics.Measure measure, OrderAnalytics.Dimension... groupBy) {
+        Map<List<String>, long[]> expected = rowBased(filter, measure, groupBy);
+        String query = measure + " by " + Arrays.toString(groupBy);
+        assertEquals(query, expected.size(), rows.size());
+        for (OrderAnalytics.Row row : rows) {
+            long[] sums = expected.get(row.getKey());
+            assertNotNull(query + " " + row, sums);
+            assertEquals(query + " " + row, sums[0], row.getCount());
+            assertEquals(query + " " + row, sums[1], row.getSum());
+        }
+        return expected;
+    }
+
+    /**
+     * (count, sum) per group, walking the orders and their items one by one
+     */
+    private Map<List<String>, long[]> rowBased(Predicate<Order> filter, OrderAnalytics.Measure measure,
+                                               OrderAnalytics.Dimension... groupBy) {
+        boolean perItem = measure == OrderAnalytics.Measure.QUANTITY || measure == OrderAnalytics.Measure.ITEM_REVENUE;
+        Map<List<String>, long[]> groups = new HashMap<>();
+        for (Order order : orders) {
+            if (filter != null && !filter.test(order)) {
+                continue;
+            }
+            for (OrderItem item : perItem ? order.getItems() : Collections.<OrderItem>singletonList(null)) {
+                List<String> key = new ArrayList<>();
+                for (OrderAnalytics.Dimension dimension : groupBy) {
+                    key.add(valueOf(dimension, order, item));
+                }
+                long[] sums = groups.computeIfAbsent(key, k -> new long[2]);
+                sums[0]++;
+                sums[1] += valueOf(measure, order, item);
+            }
+        }
+        return groups;
+    }
+
+    private static String valueOf(OrderAnalytics.Dimension dimension, Order order, OrderItem item) {
+        switch (dimension) {
+            case STATUS:
+                return order.getStatus();
+            case ORDER_TYPE:
+                return order.getOrderType();
+            case RESTAURANT:
+                return order.getRestaurantId();
+            case PAYMENT_METHOD:
+                return order.getPaymentMethod();
+            case TABLE:
+                return order.getTableNumber();
+            case HOUR:
+                return String.format(Locale.ROOT, "%02d", (order.getCreatedAt() / 3_600_000L) % 24);
+            case MENU_ITEM:
+            default:
+                return item.getMenuItemId();
+        }
+    }
+
+    private static long valueOf(OrderAnalytics.Measure measure, Order order, OrderItem item) {
+        switch (measure) {
+            case SUBTOTAL:
+                return order.getSubtotalCents();
+            case TOTAL:
+                return order.getTotalCents();
+            case QUANTITY:
+                return item.getQuantity();
+            case ITEM_REVENUE:
+                return item.getTotalPriceCents();
+            case ORDERS:
+            default:
+                return 1;
+        }
+    }
+
+    private static List<Order> orders(Random random, int count) {
+        List<Order> orders = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            orders.add(order(random, i));
+        }
+        return orders;
+    }
+
+    private static Order order(Random random, int i) {
+        String orderType = ORDER_TYPES[random.nextInt(ORDER_TYPES.length)];
+        Order order = new Order("o" + i, orderType);
+        order.setRestaurantId("r" + random.nextInt(3));
+        order.setTableNumber("table".equals(orderType) ? "T" + random.nextInt(20) : "");
+        order.setPaymentMethod(PAYMENT_METHODS[random.nextInt(PAYMENT_METHODS.length)]);
+        order.setCreatedAt(random.nextInt(3 * 86_400) * 1_000L);
+        for (int j = 0, items = 1 + random.nextInt(7); j < items; j++) {
+            order.addItem(new OrderItem("m" + random.nextInt(40), "Item", 1 + random.nextInt(3),
+                    random.nextInt(5_000) / 100.0));
+        }
+        order.setStatus(STATUSES[random.nextInt(STATUSES.length)]);
+        return order;
+    }
+}
@@ -0,0 +1,53 @@
+package com.group14.foodordering.core;
+
+import com.group14.foodordering.model.Order;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Case-insensitive order search of OrderSearch
+ */
+public class OrderSearchTest {
+
+    @Test
+    public void query_matchesOrderTableOrCustomerIgnoringCase() {
+        Order order = order("ORD_0042", "12", "user_Alice", 1);
+
+        assertTrue(new OrderSearch("ord_004").matches(order));
+        assertTrue(new OrderSearch("12").matches(order));
+        assertTrue(new OrderSearch("ALICE").matches(order));
+        assertTrue(new OrderSearch("").matches(order));
+        assertTrue(new OrderSearch(null).matches(order));
+        assertFalse(new OrderSearch("bob").matches(order));
+        assertFalse(new OrderSearch("ord_00421").matches(order));
+    }
+
+    @Test
+    public void filter_dropsMissingOrdersAndSortsNewestFirst() {
+        Order older = order("o1", "5", null, 100);
+        Order newer = order("o2", "15", "", 200);
+        Order other = order("o3", "7", null, 300);
+
+        List<Order> found = new OrderSearch("5").filter(Arrays.asList(older, null, newer, other));
+
+        List<String> ids = new ArrayList<>();
+        for (Order order : found) {
+            ids.add(order.getOrderId());
+        }
+        assertEquals(Arrays.asList("o2", "o1"), ids);
+    }
+
+    private static Order order(String orderId, String tableNumber, String userId, long createdAt) {
+        Order order = new Order(orderId, "table");
+        order.setTableNumber(tableNumber);
+        order.setUserId(userId);
+        order.setCreatedAt(createdAt);
+        return order;
+    }
+}
@@ -0,0 +1,96 @@
+package com.group14.foodordering.model;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Generated codecs of the models (compared with reflection mapping in the CodecBenchmark JMH benchmark)
+ */
+public class ModelCodecTest {
+    private static final int ITEMS_PER_ORDER = 5;
+
+    @Test
+    public void codec_readsIsPrefixedFields() {
+        Map<String, Object> doc = menuItemDocument(1);
+        doc.put("isAvailable", false);
+        doc.put("hasDrink", true);
+        MenuItem item = MenuItemCodec.fromMap(doc);
+        assertFalse(item.isAvailable());
+        assertTrue(item.isHasDrink());
+        assertEquals(false, MenuItemCodec.toMap(item).get("isAvailable"));
+    }
+
+    @Test
+    public void codec_roundTripsOrders() {
+        Map<String, Object> doc = orderDocument(7);
+        Order order = OrderCodec.fromMap(doc);
+        assertEquals(ITEMS_PER_ORDER, order.getItems().size());
+        assertEquals(((Number) doc.get("total")).doubleValue(), order.getTotal(), 0.0001);
+        Map<String, Object> encoded = OrderCodec.toMap(order);
+        assertEquals(doc.get("orderId"), encoded.get("orderId"));
+        assertEquals("", encoded.get("userId"));
+        assertEquals(ITEMS_PER_ORDER, ((List<?>) encoded.get("items")).size());
+    }
+
+    private static Map<String, Object> orderDocument(int i) {
+        Map<String, Object> doc = new HashMap<>();
+        List<Map<String, Object>> items = new ArrayList<>();
+        double subtotal = 0;
+        for (int j = 0; j < ITEMS_PER_ORDER; j++) {
+            Map<String, Object> item = new HashMap<>();
+            long quantity = 1 + (i + j) % 3;
+            double unitPrice = 10.5 + j;
+            item.put("orderItemId", "oi_" + i + "_" + j);
+            item.put("menuItemId", "item_" + j);
+            item.put("menuItemName", "Item " + j);
+            item.put("quantity", quantity); // Firestore returns whole numbers as Long
+            item.put("unitPrice", unitPrice);
+            item.put("totalPrice", quantity * unitPrice);
+            item.put("customization", "");
+            item.put("cookingDetails", "");
+            items.add(item);
+            subtotal += quantity * unitPrice;
+        }
+        doc.put("orderId", "order_" + i);
+        doc.put("userId", "");
+        doc.put("restaurantId", "rest_" + (i % 4));
+        doc.put("tableNumber", String.valueOf(i % 30));
+        doc.put("orderType", "table");
+        doc.put("items", items);
+        doc.put("status", "pending");
+        doc.put("subtotal", subtotal);
+        doc.put("serviceCharge", 0.0);
+        doc.put("discount", 0.0);
+        doc.put("total", subtotal);
+        doc.put("paymentMethod", "cash");
+        doc.put("paymentStatus", "pending");
+        doc.put("createdAt", 1_700_000_000_000L + i);
+        doc.put("updatedAt", 1_700_000_000_000L + i);
+        return doc;
+    }
+
+    private static Map<String, Object> menuItemDocument(int i) {
+        Map<String, Object> doc = new HashMap<>();
+        doc.put("itemId", "item_" + i);
+        doc.put("name", "Item " + i);
+        doc.put("description", "Description " + i);
+        doc.put("price", 12.5);
+        doc.put("category", "main");
+        doc.put("imageUrl", "");
+        doc.put("isAvailable", i % 10 != 0);
+        doc.put("hasDrink", i % 2 == 0);
+        doc.put("stock", -1L);
+        List<String> modifierIds = new ArrayList<>();
+        modifierIds.add("mod_size");
+        doc.put("modifierIds", modifierIds);
+        doc.put("createdAt", 1_700_000_000_000L);
+        doc.put("updatedAt", 1_700_000_000_000L);
+        return doc;
+    }
+}
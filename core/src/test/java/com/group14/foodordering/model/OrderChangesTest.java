@@ -0,0 +1,89 @@
+package com.group14.foodordering.model;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import static org.junit.Assert.*;
+
+/**
+ * Changed fields and appended items that Order tracks for partial updates
+ */
+public class OrderChangesTest {
+
+    @Test
+    public void loadedOrder_hasNoChanges() {
+        Order order = loaded(3);
+        assertFalse(order.hasChanges());
+        assertTrue(order.takeChanges().isEmpty());
+    }
+
+    @Test
+    public void addedItems_areAppendedWithTheNewTotals() {
+        Order order = loaded(50);
+        OrderItem coffee = new OrderItem("item_coffee", "Coffee", 1, 3.5);
+        order.addItem(coffee);
+
+        Order.Changes changes = order.takeChanges();
+        assertEquals(Collections.singletonList(coffee), changes.getAppendedItems());
+        assertFalse(coffee.getOrderItemId().isEmpty());
+        assertEquals(new HashSet<>(Arrays.asList("subtotal", "total")), changes.getFields());
+        assertEquals(3.5 + 50 * 10.0, (Double) OrderCodec.encodeField(order, "total"), 0.0);
+        assertFalse(order.hasChanges());
+    }
+
+    @Test
+    public void editedOrRemovedItems_rewriteTheList() {
+        Order order = loaded(3);
+        order.setItemQuantity(order.getItems().get(0), 2);
+        assertTrue(order.takeChanges().getFields().contains("items"));
+
+        order.removeItem(order.getItems().get(1));
+        order.addItem(new OrderItem("item_tea", "Tea", 1, 2.0));
+        Order.Changes changes = order.takeChanges();
+        assertTrue(changes.getFields().contains("items"));
+        assertTrue(changes.getAppendedItems().isEmpty());
+    }
+
+    @Test
+    public void removingAnAppendedItem_onlyDropsTheAppend() {
+        Order order = loaded(3);
+        OrderItem tea = new OrderItem("item_tea", "Tea", 1, 2.0);
+        order.addItem(tea);
+        order.removeItem(tea);
+
+        Order.Changes changes = order.takeChanges();
+        assertFalse(changes.getFields().contains("items"));
+        assertTrue(changes.getAppendedItems().isEmpty());
+    }
+
+    @Test
+    public void failedWrite_restoresItsChangesBeforeNewOnes() {
+        Order order = loaded(3);
+        OrderItem tea = new OrderItem("item_tea", "Tea", 1, 2.0);
+        order.addItem(tea);
+        order.setStatus("preparing");
+        Order.Changes failed = order.takeChanges();
+
+        OrderItem cake = new OrderItem("item_cake", "Cake", 1, 4.0);
+        order.addItem(cake);
+        order.restoreChanges(failed);
+
+        Order.Changes retry = order.takeChanges();
+        assertEquals(Arrays.asList(tea, cake), retry.getAppendedItems());
+        assertTrue(retry.getFields().contains("status"));
+    }
+
+    private static Order loaded(int itemCount) {
+        Order order = new Order("0001", "table");
+        for (int i = 0; i < itemCount; i++) {
+            order.addItem(new OrderItem("item_" + i, "Item " + i, 1, 10.0));
+        }
+        Order read = OrderCodec.fromMap(order.toMap());
+        read.clearChanges();
+        assertEquals(itemCount, read.getItems().size());
+        return read;
+    }
+}
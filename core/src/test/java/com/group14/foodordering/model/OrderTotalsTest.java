@@ -0,0 +1,105 @@
+package com.group14.foodordering.model;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Cents totals of Order under random edits of large table orders, and their stored form
+ */
+public class OrderTotalsTest {
+    private static final int SEEDS = 20;
+    private static final int OPERATIONS = 2_000;
+
+    @Test
+    public void randomEdits_keepTotalsEqualToTheItems() {
+        for (int seed = 0; seed < SEEDS; seed++) {
+            Random random = new Random(seed);
+            Order order = new Order("0001", "table");
+            order.setServiceChargeCents(random.nextInt(1_000));
+            order.setDiscountCents(random.nextInt(500));
+            for (int i = 0; i < OPERATIONS; i++) {
+                List<OrderItem> items = order.getItems();
+                int operation = items.isEmpty() ? 0 : random.nextInt(3);
+                if (operation == 0) {
+                    order.addItem(item(random, i));
+                } else if (operation == 1) {
+                    order.removeItem(items.get(random.nextInt(items.size())));
+                } else {
+                    order.setItemQuantity(items.get(random.nextInt(items.size())), 1 + random.nextInt(20));
+                }
+            }
+            assertTotals("seed " + seed, order);
+        }
+    }
+
+    @Test
+    public void cents_matchDecimalArithmeticWhereDoublesDrift() {
+        Order order = new Order("0001", "table");
+        double doubleSum = 0;
+        BigDecimal exact = BigDecimal.ZERO;
+        for (int i = 0; i < 1_000; i++) {
+            order.addItem(new OrderItem("item_" + i, "Item", 1, 0.10));
+            doubleSum += 0.10;
+            exact = exact.add(new BigDecimal("0.10"));
+        }
+        assertTrue(doubleSum != 100.0); // what the old double totals did
+        assertEquals(exact.movePointRight(2).longValueExact(), order.getSubtotalCents());
+        assertEquals(100.0, order.getTotal(), 0.0);
+    }
+
+    @Test
+    public void codec_storesDecimalAmountsAndReadsThemBackExactly() {
+        Random random = new Random(7);
+        Order order = new Order("0001", "table");
+        for (int i = 0; i < 500; i++) {
+            order.addItem(item(random, i));
+        }
+        order.setServiceCharge(12.34);
+
+        Map<String, Object> doc = OrderCodec.toMap(order);
+        assertTrue(doc.get("total") instanceof Double);
+        assertEquals(order.getTotal(), (Double) doc.get("total"), 0.0);
+
+        Order read = OrderCodec.fromMap(doc);
+        assertEquals(order.getSubtotalCents(), read.getSubtotalCents());
+        assertEquals(1234, read.getServiceChargeCents());
+        assertEquals(order.getTotalCents(), read.getTotalCents());
+        assertTotals("read back", read);
+    }
+
+    @Test
+    public void codec_readsWholeAmountsStoredAsLong() {
+        Map<String, Object> doc = OrderItemCodec.toMap(new OrderItem("item_1", "Item", 2, 0));
+        doc.put("unitPrice", 12L);
+        doc.put("totalPrice", 24L);
+        OrderItem item = OrderItemCodec.fromMap(doc);
+        assertEquals(1200, item.getUnitPriceCents());
+        assertEquals(2400, item.getTotalPriceCents());
+    }
+
+    private static OrderItem item(Random random, int i) {
+        // Prices up to 99.99 with arbitrary cents, quantities 1-9
+        double price = random.nextInt(10_000) / 100.0;
+        return new OrderItem("item_" + i, "Item " + i, 1 + random.nextInt(9), price);
+    }
+
+    private static void assertTotals(String message, Order order) {
+        long itemsCents = 0;
+        BigDecimal exact = BigDecimal.ZERO;
+        for (OrderItem item : order.getItems()) {
+            assertEquals(message, item.getQuantity() * item.getUnitPriceCents(), item.getTotalPriceCents());
+            itemsCents += item.getTotalPriceCents();
+            exact = exact.add(BigDecimal.valueOf(item.getUnitPrice()).multiply(BigDecimal.valueOf(item.getQuantity())));
+        }
+        assertEquals(message, itemsCents, order.getSubtotalCents());
+        assertEquals(message, exact.movePointRight(2).longValueExact(), order.getSubtotalCents());
+        assertEquals(message, order.getSubtotalCents() + order.getServiceChargeCents() - order.getDiscountCents(),
+                order.getTotalCents());
+    }
+}
@@ -21,3 +21,6 @@ dependencyResolutionManagement {
 
 rootProject.name = "GoGoFood"
 include(":app")
+include(":core")
+include(":codec")
+include(":codec-processor")